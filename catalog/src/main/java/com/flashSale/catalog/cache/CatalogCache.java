@@ -2,10 +2,20 @@ package com.flashSale.catalog.cache;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
@@ -52,6 +62,48 @@ public class CatalogCache {
         }
     }
 
+    /**
+     * One MGET for all keys; the result lines up with keys, null for a miss (or a dirty entry).
+     */
+    public <T> List<T> multiGetJson(List<String> keys, Class<T> clazz) {
+        List<String> jsons = redis.opsForValue().multiGet(keys);
+        List<T> values = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            String json = jsons == null ? null : jsons.get(i);
+            if (json == null) {
+                values.add(null);
+                continue;
+            }
+            try {
+                values.add(objectMapper.readValue(json, clazz));
+            } catch (Exception e) {
+                redis.delete(keys.get(i));
+                values.add(null);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Write all entries in one pipeline, each with its own jittered TTL.
+     */
+    public void setJsonAll(Map<String, ?> entries) {
+        if (entries.isEmpty()) return;
+        try {
+            Map<byte[], byte[]> raw = new LinkedHashMap<>();
+            for (Map.Entry<String, ?> e : entries.entrySet()) {
+                raw.put(e.getKey().getBytes(StandardCharsets.UTF_8), objectMapper.writeValueAsBytes(e.getValue()));
+            }
+            redis.executePipelined((RedisCallback<Object>) conn -> {
+                raw.forEach((key, json) -> conn.stringCommands().set(key, json,
+                        Expiration.from(ttlWithJitter()), RedisStringCommands.SetOption.upsert()));
+                return null;
+            });
+        } catch (Exception e) {
+            // 写缓存失败不影响主流程
+        }
+    }
+
     public void evict(String key) {
         redis.delete(key);
     }
@@ -63,4 +115,25 @@ public class CatalogCache {
     public void evictTicket(Long ticketId) {
         redis.delete(ticketKey(ticketId));
     }
+
+    /**
+     * Evict once the surrounding tx has committed: evicting before the commit lets a
+     * concurrent read re-cache the old row. Ticket changes go through TicketChangePublisher.
+     */
+    public void evictEventDetailAfterCommit(Long eventId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            evictEventDetail(eventId);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                try {
+                    evictEventDetail(eventId);
+                } catch (Exception e) {
+                    // 删缓存失败不影响主流程, TTL 兜底
+                }
+            }
+        });
+    }
 }
@@ -0,0 +1,53 @@
+package com.flashSale.catalog.cache;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * A ticket changed: evicts its cache entries, then tells local ticket caches (order's price
+ * cache, inventory's per-user limits) over Redis pub/sub. The message is the ticket id.
+ *
+ * Both run after commit, evict first: a read racing the tx cannot re-cache the old row after
+ * the eviction, and a subscriber reloading right away reads the new row. A lost message is
+ * bounded by the subscriber's TTL, a stale cache entry by the cache TTL.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TicketChangePublisher {
+    public static final String CHANNEL = "catalog:ticket:changed";
+
+    private final StringRedisTemplate redis;
+    private final CatalogCache cache;
+
+    public void ticketChanged(Long eventId, Long ticketId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictAndPublish(eventId, ticketId);
+                }
+            });
+        } else {
+            evictAndPublish(eventId, ticketId);
+        }
+    }
+
+    private void evictAndPublish(Long eventId, Long ticketId) {
+        try {
+            cache.evictEventDetail(eventId);
+            cache.evictTicket(ticketId);
+        } catch (Exception e) {
+            log.warn("ticket cache not evicted: eventId={}, ticketId={}, error={}", eventId, ticketId, e.getMessage());
+        }
+        try {
+            redis.convertAndSend(CHANNEL, String.valueOf(ticketId));
+        } catch (Exception e) {
+            log.warn("ticket change not published: ticketId={}, error={}", ticketId, e.getMessage());
+        }
+    }
+}
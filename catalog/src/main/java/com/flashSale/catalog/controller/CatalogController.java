@@ -38,4 +38,9 @@ public class CatalogController {
     public TicketResponse getTicketById(@PathVariable("id") Long id){
         return catalogService.getTicketById(id);
     }
+
+    @GetMapping(value = "/tickets", params = "ids")
+    public List<TicketResponse> getTicketsByIds(@RequestParam(name = "ids") List<Long> ids){
+        return catalogService.getTicketsByIds(ids);
+    }
 }
@@ -1,6 +1,7 @@
 package com.flashSale.catalog.service;
 
 import com.flashSale.catalog.cache.CatalogCache;
+import com.flashSale.catalog.cache.TicketChangePublisher;
 import com.flashSale.catalog.domain.Event;
 import com.flashSale.catalog.domain.EventStatus;
 import com.flashSale.catalog.domain.Ticket;
@@ -30,6 +31,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
     private final TicketRepository ticketRepo;
 
     private final CatalogCache cache;
+    private final TicketChangePublisher ticketChanges;
 
     // ===== Event =====
 
@@ -50,7 +52,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Event saved = eventRepo.save(event);
 
         // Delete Cache
-        cache.evictEventDetail(saved.getId());
+        cache.evictEventDetailAfterCommit(saved.getId());
 
         return new EventResponse(
                 event.getId(),
@@ -102,7 +104,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Event saved = eventRepo.save(e);
 
         // cache delete: event:{id}:detail （后面加 Redis）
-        cache.evictEventDetail(eventId);
+        cache.evictEventDetailAfterCommit(eventId);
 
         return new EventResponse(
                 saved.getId(),
@@ -177,7 +179,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Event saved = eventRepo.save(e);
 
         // TODO: cache delete: event:{id}:detail
-        cache.evictEventDetail(eventId);
+        cache.evictEventDetailAfterCommit(eventId);
 
         return toEventResponse(saved);
     }
@@ -196,7 +198,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Event saved = eventRepo.save(e);
 
         // TODO: cache delete: event:{id}:detail
-        cache.evictEventDetail(eventId);
+        cache.evictEventDetailAfterCommit(eventId);
 
         return toEventResponse(saved);
     }
@@ -215,7 +217,7 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Event saved = eventRepo.save(e);
 
         // TODO: cache delete: event:{id}:detail
-        cache.evictEventDetail(eventId);
+        cache.evictEventDetailAfterCommit(eventId);
 
         return toEventResponse(saved);
     }
@@ -261,9 +263,8 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
 
         Ticket saved = ticketRepo.save(ticket);
 
-        // TODO: cache delete: event:{id}:detail
-        cache.evictEventDetail(eventId);
-        cache.evictTicket(saved.getId());
+        // after commit: a ticket looked up before it existed may be cached as unknown
+        ticketChanges.ticketChanged(eventId, saved.getId());
 
         return new TicketResponse(
                 saved.getId(),
@@ -313,9 +314,8 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Ticket saved = ticketRepo.save(t);
 
         Long eventId = saved.getEvent().getId();
-        // TODO: cache delete: event:{id}:detail
-        cache.evictEventDetail(eventId);
-        cache.evictTicket(saved.getId());
+        // cache delete after commit: event:{id}:detail, ticket:{id}
+        ticketChanges.ticketChanged(eventId, saved.getId());
 
 
         return toTicketResponse(saved, eventId);
@@ -353,9 +353,8 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Ticket saved = ticketRepo.save(t);
 
         Long eventId = saved.getEvent().getId();
-        // TODO: cache delete
-        cache.evictEventDetail(eventId);
-        cache.evictTicket(saved.getId());
+        // cache delete after commit: event:{id}:detail, ticket:{id}
+        ticketChanges.ticketChanged(eventId, saved.getId());
 
         return toTicketResponse(saved, eventId);
     }
@@ -370,9 +369,8 @@ public class AdminCatalogServiceImpl implements AdminCatalogService{
         Ticket saved = ticketRepo.save(t);
 
         Long eventId = saved.getEvent().getId();
-        // TODO: cache delete
-        cache.evictEventDetail(eventId);
-        cache.evictTicket(saved.getId());
+        // cache delete after commit: event:{id}:detail, ticket:{id}
+        ticketChanges.ticketChanged(eventId, saved.getId());
 
         return toTicketResponse(saved, eventId);
     }
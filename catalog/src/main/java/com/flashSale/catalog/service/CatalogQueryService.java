@@ -10,4 +10,5 @@ public interface CatalogQueryService {
     EventDetailResponse getEventDetail(Long eventId);
     Page<EventResponse> getPublishedEvents(Pageable pageable);
     TicketResponse getTicketById(Long id);
+    List<TicketResponse> getTicketsByIds(List<Long> ids);
 }
@@ -5,6 +5,7 @@ import com.flashSale.catalog.domain.Event;
 import com.flashSale.catalog.domain.EventStatus;
 import com.flashSale.catalog.domain.Ticket;
 import com.flashSale.catalog.dto.*;
+import com.flashSale.catalog.exception.BadRequestException;
 import com.flashSale.catalog.exception.NotFoundException;
 import com.flashSale.catalog.repo.EventRepository;
 import com.flashSale.catalog.repo.TicketRepository;
@@ -16,12 +17,19 @@ import org.springframework.transaction.annotation.Transactional;
 import lombok.extern.slf4j.Slf4j;
 
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 @Slf4j
 @Service
 @RequiredArgsConstructor
 public class CatalogQueryServiceImpl implements CatalogQueryService {
+    private static final int MAX_BATCH_TICKETS = 200;
+
     private final EventRepository eventRepo;
     private final TicketRepository ticketRepo;
 
@@ -118,7 +126,56 @@ public class CatalogQueryServiceImpl implements CatalogQueryService {
                 .orElseThrow(() -> new NotFoundException("Ticket not found"));
 
         // 3)  map to EventDetailResponse
-        TicketResponse resp = new TicketResponse(
+        TicketResponse resp = toTicketResponse(t);
+
+        // 5) Save to cache
+        cache.setJson(key, resp, cache.ttlWithJitter());
+
+        return resp;
+    }
+
+    /**
+     * Batch lookup: one MGET for all ids, one DB query for the misses, one pipelined backfill.
+     * Unknown ids are left out; the result follows the order of the requested ids.
+     */
+    @Override
+    public List<TicketResponse> getTicketsByIds(List<Long> ids) {
+        List<Long> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty()) {
+            return List.of();
+        }
+        if (distinct.size() > MAX_BATCH_TICKETS) {
+            throw new BadRequestException("At most " + MAX_BATCH_TICKETS + " ticket ids per request");
+        }
+
+        // 1) 查缓存 (MGET)
+        List<String> keys = distinct.stream().map(cache::ticketKey).toList();
+        List<TicketResponse> cached = cache.multiGetJson(keys, TicketResponse.class);
+
+        Map<Long, TicketResponse> found = new HashMap<>();
+        List<Long> misses = new ArrayList<>();
+        for (int i = 0; i < distinct.size(); i++) {
+            if (cached.get(i) != null) found.put(distinct.get(i), cached.get(i));
+            else misses.add(distinct.get(i));
+        }
+        log.info("ticket batch: requested={}, cacheHits={}, misses={}", distinct.size(), found.size(), misses.size());
+
+        // 2) misses -> one DB query, 3) backfill in one pipeline
+        if (!misses.isEmpty()) {
+            Map<String, TicketResponse> backfill = new LinkedHashMap<>();
+            for (Ticket t : ticketRepo.findAllById(misses)) {
+                TicketResponse resp = toTicketResponse(t);
+                found.put(t.getId(), resp);
+                backfill.put(cache.ticketKey(t.getId()), resp);
+            }
+            cache.setJsonAll(backfill);
+        }
+
+        return distinct.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    private static TicketResponse toTicketResponse(Ticket t) {
+        return new TicketResponse(
                 t.getId(),
                 t.getEvent().getId(),
                 t.getName(),
@@ -128,10 +185,5 @@ public class CatalogQueryServiceImpl implements CatalogQueryService {
                 t.getSaleEndsAt(),
                 t.getStatus().name()
         );
-
-        // 5) Save to cache
-        cache.setJson(key, resp, cache.ttlWithJitter());
-
-        return resp;
     }
 }
@@ -0,0 +1,47 @@
+package com.flashSale.catalog.cache;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import static org.mockito.Mockito.*;
+
+class TicketChangePublisherTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+    private final CatalogCache cache = mock(CatalogCache.class);
+    private final TicketChangePublisher publisher = new TicketChangePublisher(redis, cache);
+
+    @AfterEach
+    void tearDown() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictsThenPublishesOnlyAfterCommit() {
+        TransactionSynchronizationManager.initSynchronization();
+
+        publisher.ticketChanged(3L, 7L);
+        verifyNoInteractions(cache, redis);
+
+        TransactionSynchronizationUtils.triggerAfterCommit();
+        InOrder order = inOrder(cache, redis);
+        order.verify(cache).evictEventDetail(3L);
+        order.verify(cache).evictTicket(7L);
+        order.verify(redis).convertAndSend(TicketChangePublisher.CHANNEL, "7");
+    }
+
+    @Test
+    void failedEvictionStillPublishes() {
+        doThrow(new IllegalStateException("redis down")).when(cache).evictEventDetail(3L);
+
+        publisher.ticketChanged(3L, 7L);
+
+        verify(redis).convertAndSend(TicketChangePublisher.CHANNEL, "7");
+    }
+}
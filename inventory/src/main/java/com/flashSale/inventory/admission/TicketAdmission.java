@@ -0,0 +1,190 @@
+package com.flashSale.inventory.admission;
+
+import com.flashSale.inventory.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Caps in-flight DB reserves per ticket so one stormed ticket cannot hold every pooled
+ * connection while its requests queue on the same row lock.
+ *
+ * Per ticket: a fair semaphore of max-in-flight permits, at most max-queue callers
+ * parked on it in FIFO order for up to max-wait-ms. A full queue or an expired wait
+ * is answered 429 with Retry-After; the caller never reaches the row lock.
+ *
+ * Lanes of tickets idle for idle-evict-ms are dropped together with their meters.
+ */
+@Slf4j
+@Component
+public class TicketAdmission {
+
+    /** Held for the duration of one DB reserve; close() hands the slot to the next waiter. */
+    public static final class Permit implements AutoCloseable {
+        private static final Permit NONE = new Permit(null);
+
+        private final Lane lane;
+        private boolean closed;
+
+        private Permit(Lane lane) {
+            this.lane = lane;
+        }
+
+        @Override
+        public void close() {
+            if (lane == null || closed) {
+                return;
+            }
+            closed = true;
+            lane.permits.release();
+            lane.leave();
+        }
+    }
+
+    private final class Lane {
+        final long ticketId;
+        final Semaphore permits;
+        /** callers between admit() and close(), guards eviction */
+        final AtomicInteger users = new AtomicInteger();
+        final AtomicInteger waiting = new AtomicInteger();
+        final Timer waitTimer;
+        final List<Meter> meters;
+        volatile long lastUsedNanos = System.nanoTime();
+
+        Lane(long ticketId) {
+            this.ticketId = ticketId;
+            this.permits = new Semaphore(maxInFlight, true);
+            Tags tags = Tags.of("ticketId", String.valueOf(ticketId));
+            this.waitTimer = Timer.builder("inventory.admission.wait")
+                    .description("time a reserve waited for a per-ticket DB slot")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge depth = Gauge.builder("inventory.admission.queue.depth", waiting, AtomicInteger::get)
+                    .description("reserves parked for a per-ticket DB slot")
+                    .tags(tags)
+                    .register(meterRegistry);
+            Gauge inFlight = Gauge.builder("inventory.admission.in.flight", permits, p -> maxInFlight - p.availablePermits())
+                    .tags(tags)
+                    .register(meterRegistry);
+            this.meters = List.of(waitTimer, depth, inFlight);
+        }
+
+        void leave() {
+            lastUsedNanos = System.nanoTime();
+            users.decrementAndGet();
+        }
+    }
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int maxInFlight;
+    private final int maxQueue;
+    private final long maxWaitMs;
+    private final Duration retryAfter;
+    private final long idleEvictNanos;
+    private final Map<Long, Lane> lanes = new ConcurrentHashMap<>();
+
+    public TicketAdmission(
+            MeterRegistry meterRegistry,
+            @Value("${inventory.admission.enabled:true}") boolean enabled,
+            @Value("${inventory.admission.max-in-flight:8}") int maxInFlight,
+            @Value("${inventory.admission.max-queue:64}") int maxQueue,
+            @Value("${inventory.admission.max-wait-ms:200}") long maxWaitMs,
+            @Value("${inventory.admission.retry-after-ms:1000}") long retryAfterMs,
+            @Value("${inventory.admission.idle-evict-ms:600000}") long idleEvictMs) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxInFlight = maxInFlight;
+        this.maxQueue = maxQueue;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfter = Duration.ofMillis(retryAfterMs);
+        this.idleEvictNanos = TimeUnit.MILLISECONDS.toNanos(idleEvictMs);
+    }
+
+    /**
+     * @throws TooManyRequestsException queue full or no slot within max-wait-ms
+     */
+    public Permit admit(long ticketId) {
+        if (!enabled) {
+            return Permit.NONE;
+        }
+        // joining under the map's bin lock, so evictIdle never drops a lane in use
+        Lane lane = lanes.compute(ticketId, (id, existing) -> {
+            Lane l = existing != null ? existing : new Lane(id);
+            l.users.incrementAndGet();
+            return l;
+        });
+
+        try {
+            // timed tryAcquire honours fairness, the untimed one would barge past waiters
+            if (lane.permits.tryAcquire(0, TimeUnit.MILLISECONDS)) {
+                lane.waitTimer.record(0, TimeUnit.NANOSECONDS);
+                return new Permit(lane);
+            }
+            if (lane.waiting.incrementAndGet() > maxQueue) {
+                lane.waiting.decrementAndGet();
+                throw reject(lane, "queue_full", "ADMISSION_QUEUE_FULL");
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = lane.permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } finally {
+                lane.waiting.decrementAndGet();
+                lane.waitTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                throw reject(lane, "timeout", "ADMISSION_TIMEOUT");
+            }
+            return new Permit(lane);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            lane.leave();
+            throw new TooManyRequestsException("ADMISSION_INTERRUPTED", "interrupted waiting for a reserve slot", retryAfter);
+        } catch (RuntimeException e) {
+            lane.leave();
+            throw e;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.admission.idle-evict-ms:600000}")
+    public void evictIdle() {
+        long now = System.nanoTime();
+        for (Long ticketId : lanes.keySet()) {
+            lanes.computeIfPresent(ticketId, (id, lane) -> {
+                if (lane.users.get() != 0 || now - lane.lastUsedNanos <= idleEvictNanos) {
+                    return lane;
+                }
+                lane.meters.forEach(meterRegistry::remove);
+                meterRegistry.find("inventory.admission.rejected").tag("ticketId", String.valueOf(id))
+                        .meters().forEach(meterRegistry::remove);
+                log.debug("admission lane evicted: ticketId={}", id);
+                return null;
+            });
+        }
+    }
+
+    private TooManyRequestsException reject(Lane lane, String reason, String code) {
+        Counter.builder("inventory.admission.rejected")
+                .tags("ticketId", String.valueOf(lane.ticketId), "reason", reason)
+                .register(meterRegistry)
+                .increment();
+        log.debug("reserve not admitted: ticketId={}, reason={}, waiting={}", lane.ticketId, reason, lane.waiting.get());
+        return new TooManyRequestsException(code, "too many concurrent reserves for this ticket", retryAfter);
+    }
+}
@@ -0,0 +1,106 @@
+package com.flashSale.inventory.archive;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.repo.ReservationArchiveRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Rolling archival of finished reservations (COMMITTED / RELEASED / FAILED).
+ *
+ * Rows untouched for min-age are moved to inventory_reservations_archive in chunks,
+ * one short tx per chunk (lock, copy, delete). Between chunks the archiver sleeps at
+ * least pause-ms and at least throttle-ratio x the chunk's own duration, so replicas
+ * applying the deletes serially get time to catch up.
+ *
+ * Commit, release and status lookups fall back to the archive when the hot table misses.
+ * Reserve retries only see the hot table, so min-age is also how long a reserve stays retryable.
+ */
+@Slf4j
+@Component
+public class ReservationArchiver {
+
+    private static final List<ReservationStatus> ARCHIVABLE =
+            List.of(ReservationStatus.COMMITTED, ReservationStatus.RELEASED, ReservationStatus.FAILED);
+
+    private final ReservationArchiveRepository archiveRepo;
+    private final TransactionTemplate txTemplate;
+    private final Counter archived;
+    private final boolean enabled;
+    private final Duration minAge;
+    private final int chunkSize;
+    private final long pauseMs;
+    private final double throttleRatio;
+    private final int maxChunksPerRun;
+
+    public ReservationArchiver(
+            ReservationArchiveRepository archiveRepo,
+            TransactionTemplate txTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation.archive.enabled:true}") boolean enabled,
+            @Value("${inventory.reservation.archive.min-age:7d}") Duration minAge,
+            @Value("${inventory.reservation.archive.chunk-size:1000}") int chunkSize,
+            @Value("${inventory.reservation.archive.pause-ms:100}") long pauseMs,
+            @Value("${inventory.reservation.archive.throttle-ratio:1.0}") double throttleRatio,
+            @Value("${inventory.reservation.archive.max-chunks-per-run:1000}") int maxChunksPerRun) {
+        this.archiveRepo = archiveRepo;
+        this.txTemplate = txTemplate;
+        this.archived = Counter.builder("inventory.reservations.archived")
+                .description("finished reservations moved to the archive table")
+                .register(meterRegistry);
+        this.enabled = enabled;
+        this.minAge = minAge;
+        this.chunkSize = chunkSize;
+        this.pauseMs = pauseMs;
+        this.throttleRatio = throttleRatio;
+        this.maxChunksPerRun = maxChunksPerRun;
+    }
+
+    @Scheduled(
+            initialDelayString = "${inventory.reservation.archive.initial-delay-ms:60000}",
+            fixedDelayString = "${inventory.reservation.archive.interval-ms:600000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        Instant cutoff = Instant.now().minus(minAge);
+        int chunks = 0;
+        long total = 0;
+        try {
+            for (ReservationStatus status : ARCHIVABLE) {
+                while (chunks < maxChunksPerRun) {
+                    long start = System.nanoTime();
+                    Integer moved = txTemplate.execute(tx ->
+                            archiveRepo.move(archiveRepo.lockArchivable(status, cutoff, chunkSize)));
+                    if (moved == null || moved == 0) {
+                        break;
+                    }
+                    chunks++;
+                    total += moved;
+                    archived.increment(moved);
+                    if (moved < chunkSize) {
+                        break;
+                    }
+                    long tookMs = (System.nanoTime() - start) / 1_000_000;
+                    Thread.sleep(Math.max(pauseMs, (long) (tookMs * throttleRatio)));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("reservation archive run failed: archivedSoFar={}", total, e);
+        }
+        if (total > 0) {
+            log.info("reservation archive run: archived={}, chunks={}, cutoff={}", total, chunks, cutoff);
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.flashSale.inventory.async;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.exception.ServiceUnavailableException;
+import com.flashSale.inventory.exception.TooManyRequestsException;
+import com.flashSale.inventory.service.InventoryReservationService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Reserves accepted with 202 and written by a fixed set of DB writer threads.
+ *
+ * 1) submit() parks the request in a bounded ring (429 ASYNC_QUEUE_FULL when full)
+ *    and returns at once; the HTTP thread never waits on a row lock
+ * 2) writers take requests off the ring one at a time and run the regular reserve
+ *    (idempotency, gate, admission, coalescer), so DB concurrency is capped at
+ *    writer-threads however many clients submit
+ * 3) the outcome completes the request's future. Business rejections (no stock, limit
+ *    reached, unknown ticket) complete it FAILED and are kept for result-ttl, so a poll can
+ *    still answer FAILED when the reserve left no row (sentinel / gate rejections).
+ *    Transient errors (admission still full after max-attempts, DB down) complete it
+ *    exceptionally and are not kept: nothing was written, the id can be resubmitted.
+ *
+ * Accepted requests live in memory only. A request lost in a crash polls as 404 and
+ * can be resubmitted with the same reservationId.
+ */
+@Slf4j
+@Component
+public class AsyncReserveQueue {
+
+    public record Request(String reservationId, long ticketId, int qty, Duration ttl, Long userId) {}
+
+    /**
+     * An accepted request and its eventual outcome: RESERVED or FAILED, or exceptionally with
+     * TooManyRequestsException / ServiceUnavailableException when it is worth retrying.
+     */
+    public record Pending(Request request, long acceptedNanos, CompletableFuture<ReservationResponse> outcome) {
+        public ReservationResponse accepted() {
+            return new ReservationResponse(request.reservationId(), request.ticketId(), request.qty(), ReservationStatus.INIT);
+        }
+    }
+
+    /** Conflicts that say "not now" rather than "no": never remembered as FAILED. */
+    private static final Set<String> TRANSIENT_CONFLICTS = Set.of("RESERVATION_IN_PROGRESS", "TICKET_IN_MEMORY_MODE");
+
+    private final InventoryReservationService reservationService;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final int writerThreads;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+    private final long maxPollWaitMs;
+    private final Duration retryAfter;
+
+    private final BlockingQueue<Pending> ring;
+    private final Map<String, Pending> pending = new ConcurrentHashMap<>();
+    private final Cache<String, ReservationResponse> failures;
+    private final Timer latency;
+    private final List<Thread> writers = new ArrayList<>();
+    private volatile boolean accepting = true;
+
+    public AsyncReserveQueue(
+            InventoryReservationService reservationService,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.async.enabled:true}") boolean enabled,
+            @Value("${inventory.async.capacity:10000}") int capacity,
+            @Value("${inventory.async.writer-threads:4}") int writerThreads,
+            @Value("${inventory.async.max-attempts:3}") int maxAttempts,
+            @Value("${inventory.async.retry-backoff-ms:50}") long retryBackoffMs,
+            @Value("${inventory.async.result-ttl:10m}") Duration resultTtl,
+            @Value("${inventory.async.max-poll-wait-ms:30000}") long maxPollWaitMs,
+            @Value("${inventory.async.retry-after-ms:1000}") long retryAfterMs) {
+        this.reservationService = reservationService;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.writerThreads = writerThreads;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+        this.maxPollWaitMs = maxPollWaitMs;
+        this.retryAfter = Duration.ofMillis(retryAfterMs);
+        this.ring = new ArrayBlockingQueue<>(capacity);
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(capacity * 10L)
+                .expireAfterWrite(resultTtl)
+                .build();
+        this.latency = Timer.builder("inventory.async.reserve.latency")
+                .description("time from 202 Accepted to the reserve outcome")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.async.queue.depth", ring, BlockingQueue::size);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        for (int i = 1; i <= writerThreads; i++) {
+            Thread t = new Thread(this::drain, "async-reserve-writer-" + i);
+            t.setDaemon(true);
+            t.start();
+            writers.add(t);
+        }
+    }
+
+    /**
+     * Stop accepting and give the writers a bounded time to empty the ring.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread t : writers) {
+            t.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        writers.forEach(Thread::interrupt);
+        if (!ring.isEmpty()) {
+            log.warn("async reserves dropped at shutdown: count={}", ring.size());
+        }
+    }
+
+    /**
+     * Idempotent by reservationId while the request is pending.
+     *
+     * @throws TooManyRequestsException the ring is full
+     */
+    public Pending submit(Request request) {
+        if (!enabled || !accepting) {
+            throw new ConflictException("ASYNC_DISABLED", "async reserve is not available");
+        }
+        Pending created = new Pending(request, System.nanoTime(), new CompletableFuture<>());
+        Pending existing = pending.putIfAbsent(request.reservationId(), created);
+        if (existing != null) {
+            return existing;
+        }
+        // a resubmitted id gets a fresh outcome
+        failures.invalidate(request.reservationId());
+        if (!ring.offer(created)) {
+            pending.remove(request.reservationId(), created);
+            Counter.builder("inventory.async.rejected").register(meterRegistry).increment();
+            throw new TooManyRequestsException("ASYNC_QUEUE_FULL", "async reserve queue is full", retryAfter);
+        }
+        return created;
+    }
+
+    /**
+     * @return the request while it is pending or recently FAILED, null otherwise (also after
+     *         a transient error: nothing is left to poll, the id can be resubmitted)
+     */
+    public Pending find(String reservationId) {
+        Pending p = pending.get(reservationId);
+        if (p != null) {
+            return p;
+        }
+        ReservationResponse failed = failures.getIfPresent(reservationId);
+        if (failed == null) {
+            return null;
+        }
+        Request request = new Request(failed.reservationId(), failed.ticketId(), failed.qty(), null, null);
+        return new Pending(request, 0, CompletableFuture.completedFuture(failed));
+    }
+
+    public long clampPollWait(long waitMs) {
+        return Math.max(0, Math.min(waitMs, maxPollWaitMs));
+    }
+
+    private void drain() {
+        // after stop() the ring is emptied before the writer exits
+        while (accepting || !ring.isEmpty()) {
+            try {
+                Pending next = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    write(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void write(Pending p) {
+        Request r = p.request();
+        ReservationResponse outcome = null;
+        RuntimeException retryable = null;
+        try {
+            outcome = reserve(r);
+        } catch (ConflictException e) {
+            if (TRANSIENT_CONFLICTS.contains(e.getCode())) {
+                retryable = e;
+            } else {
+                log.info("async reserve failed: reservationId={}, ticketId={}, qty={}, error={}",
+                        r.reservationId(), r.ticketId(), r.qty(), e.getCode());
+                outcome = failed(r);
+            }
+        } catch (NotFoundException e) {
+            log.info("async reserve failed: reservationId={}, ticketId={}, qty={}, error={}",
+                    r.reservationId(), r.ticketId(), r.qty(), e.getCode());
+            outcome = failed(r);
+        } catch (TooManyRequestsException e) {
+            log.warn("async reserve still not admitted after {} attempts: reservationId={}, ticketId={}",
+                    maxAttempts, r.reservationId(), r.ticketId());
+            retryable = e;
+        } catch (RuntimeException e) {
+            log.error("async reserve error: reservationId={}, ticketId={}, qty={}",
+                    r.reservationId(), r.ticketId(), r.qty(), e);
+            retryable = new ServiceUnavailableException("RESERVE_UNAVAILABLE",
+                    "reserve could not be processed, retry with the same reservationId", retryAfter, e);
+        }
+        latency.record(System.nanoTime() - p.acceptedNanos(), TimeUnit.NANOSECONDS);
+        pending.remove(r.reservationId(), p);
+        if (retryable != null) {
+            p.outcome().completeExceptionally(retryable);
+        } else {
+            p.outcome().complete(outcome);
+        }
+    }
+
+    /**
+     * A full admission queue is transient: the writer backs off (doubling from
+     * retry-backoff-ms, at most the rejection's Retry-After) and waits its turn again.
+     */
+    private ReservationResponse reserve(Request r) {
+        long backoffMs = retryBackoffMs;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return reservationService.reserve(r.reservationId(), r.ticketId(), r.qty(), r.ttl(), r.userId());
+            } catch (TooManyRequestsException e) {
+                if (attempt >= maxAttempts) {
+                    throw e;
+                }
+                try {
+                    Thread.sleep(Math.min(backoffMs, e.getRetryAfter().toMillis()));
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    throw e;
+                }
+                backoffMs *= 2;
+            }
+        }
+    }
+
+    private ReservationResponse failed(Request r) {
+        ReservationResponse failed = new ReservationResponse(r.reservationId(), r.ticketId(), r.qty(), ReservationStatus.FAILED);
+        failures.put(r.reservationId(), failed);
+        return failed;
+    }
+}
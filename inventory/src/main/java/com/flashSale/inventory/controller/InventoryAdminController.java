@@ -1,22 +1,127 @@
 package com.flashSale.inventory.controller;
 
+import com.flashSale.inventory.dto.BulkStockResponse;
+import com.flashSale.inventory.dto.ConservationReport;
+import com.flashSale.inventory.dto.InitSeatsRequest;
 import com.flashSale.inventory.dto.InitStockRequest;
 import com.flashSale.inventory.dto.InventoryResponse;
+import com.flashSale.inventory.dto.TicketModeResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.gate.StockGateReconciler;
+import com.flashSale.inventory.hot.HotTicketDetector;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.reconcile.ConservationReconciler;
 import com.flashSale.inventory.service.InventoryAdminService;
+import com.flashSale.inventory.service.StockLedger;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpHeaders;
 import org.springframework.web.bind.annotation.*;
 
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 @RestController
 @RequiredArgsConstructor
 @RequestMapping("/inventory/admin")
 public class InventoryAdminController {
     private final InventoryAdminService inventoryAdminService;
+    private final ObjectProvider<StockGateReconciler> gateReconciler;
+    private final ConservationReconciler conservationReconciler;
+    private final HotStockEngine hotStock;
+    private final TicketModes ticketModes;
+    private final HotTicketDetector hotTickets;
+    private final StockLedger stockLedger;
+
+    private static final String NDJSON = "application/x-ndjson";
 
     @PutMapping("/stocks/{ticketId}")
     public InventoryResponse InitStock(
             @PathVariable("ticketId") long ticketId,
             @Valid @RequestBody InitStockRequest request){
-        return inventoryAdminService.initStock(ticketId, request.getAvailable());
+        return inventoryAdminService.initStock(ticketId, request.getAvailable(), request.getShards());
+    }
+
+    /**
+     * Reserved seating: the ticket's stock becomes one FREE seat per seatId.
+     */
+    @PutMapping("/stocks/{ticketId}/seats")
+    public InventoryResponse initSeats(
+            @PathVariable("ticketId") long ticketId,
+            @Valid @RequestBody InitSeatsRequest request){
+        return inventoryAdminService.initSeats(ticketId, request.getSeatIds());
+    }
+
+    /**
+     * Streamed bulk init: application/x-ndjson ({"ticketId":1,"available":100} per line)
+     * or text/csv (ticketId,available; optional "ticketId,available" header).
+     */
+    @PutMapping(value = "/stocks:bulk", consumes = {NDJSON, "text/csv"})
+    public BulkStockResponse bulkInitStock(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+            HttpServletRequest request) throws IOException {
+        InventoryAdminService.BulkFormat format = contentType.startsWith(NDJSON)
+                ? InventoryAdminService.BulkFormat.NDJSON
+                : InventoryAdminService.BulkFormat.CSV;
+        Reader body = new InputStreamReader(request.getInputStream(), StandardCharsets.UTF_8);
+        return inventoryAdminService.bulkInitStock(body, format);
+    }
+
+    @PostMapping("/gate/reconcile")
+    public void reconcileGate(@RequestParam(name = "ticketId", required = false) Long ticketId){
+        StockGateReconciler reconciler = gateReconciler.getIfAvailable();
+        if (reconciler == null) {
+            throw new ConflictException("GATE_DISABLED", "stock gate is not enabled");
+        }
+        if (ticketId == null) {
+            reconciler.reconcileAll();
+        } else {
+            reconciler.reconcile(ticketId);
+        }
+    }
+
+    /**
+     * Full conservation check (reserved / sold vs. reservation rows), drift per ticket.
+     */
+    @PostMapping("/conservation:check")
+    public ConservationReport checkConservation(){
+        return conservationReconciler.check();
+    }
+
+    /**
+     * Tickets in memory mode plus the hottest ones still on the DB path.
+     */
+    @GetMapping("/ticket-modes")
+    public List<TicketModeResponse> ticketModes(){
+        return hotTickets.modes();
+    }
+
+    @PostMapping("/ticket-modes/{ticketId}:promote")
+    public void promote(@PathVariable("ticketId") long ticketId){
+        if (!hotStock.isEnabled()) {
+            throw new ConflictException("MEMORY_MODE_DISABLED", "inventory.journal is not enabled");
+        }
+        if (!ticketModes.promote(ticketId, TicketModes.Source.MANUAL)) {
+            stockLedger.rejectIfInMemoryMode(ticketId);
+            throw new ConflictException("PROMOTION_REJECTED", "ticket stock missing, sharded or seated");
+        }
+    }
+
+    @PostMapping("/ticket-modes/{ticketId}:demote")
+    public void demote(@PathVariable("ticketId") long ticketId){
+        if (!hotStock.isEnrolled(ticketId)) {
+            // only the owner can hand the ticket back
+            stockLedger.rejectIfInMemoryMode(ticketId);
+            return;
+        }
+        if (!ticketModes.demote(ticketId)) {
+            throw new ConflictException("DEMOTION_TIMEOUT", "write-behind did not catch up, retry later");
+        }
     }
 }
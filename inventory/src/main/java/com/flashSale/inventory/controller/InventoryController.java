@@ -1,27 +1,110 @@
 package com.flashSale.inventory.controller;
 
+import com.flashSale.inventory.async.AsyncReserveQueue;
+import com.flashSale.inventory.dto.BatchReservationResponse;
+import com.flashSale.inventory.dto.BatchReserveRequest;
+import com.flashSale.inventory.dto.BatchTransitionRequest;
+import com.flashSale.inventory.dto.BatchTransitionResponse;
 import com.flashSale.inventory.dto.ReservationResponse;
 import com.flashSale.inventory.dto.ReserveRequest;
+import com.flashSale.inventory.exception.NotFoundException;
 import com.flashSale.inventory.service.InventoryReservationService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.net.URI;
+import java.time.Duration;
 
 @RestController
 @RequestMapping("/inventory")
 @RequiredArgsConstructor
 public class InventoryController {
     private final InventoryReservationService reservationService;
+    private final AsyncReserveQueue asyncReserves;
 
     @PostMapping("/reservations")
     public ReservationResponse reserve(@Valid @RequestBody ReserveRequest request) {
         return reservationService.reserve(
                 request.reservationId(),
                 request.ticketId(),
-                request.qty()
+                request.qty(),
+                request.ttlSeconds() == null ? null : Duration.ofSeconds(request.ttlSeconds()),
+                request.userId()
         );
     }
 
+    /**
+     * 202 with status INIT once queued; poll the Location for the outcome.
+     */
+    @PostMapping("/reservations:async")
+    public ResponseEntity<ReservationResponse> reserveAsync(@Valid @RequestBody ReserveRequest request) {
+        AsyncReserveQueue.Pending pending = asyncReserves.submit(new AsyncReserveQueue.Request(
+                request.reservationId(),
+                request.ticketId(),
+                request.qty(),
+                request.ttlSeconds() == null ? null : Duration.ofSeconds(request.ttlSeconds()),
+                request.userId()
+        ));
+        return ResponseEntity.accepted()
+                .location(URI.create("/inventory/reservations/" + request.reservationId()))
+                .body(pending.accepted());
+    }
+
+    /**
+     * 200 with the reservation, or 202 (status INIT) while an async reserve is still queued.
+     * waitMs > 0 long-polls: the answer comes as soon as the reserve completes or the wait runs out.
+     */
+    @GetMapping("/reservations/{reservationId}")
+    public DeferredResult<ResponseEntity<ReservationResponse>> find(
+            @PathVariable("reservationId") String reservationId,
+            @RequestParam(name = "waitMs", defaultValue = "0") long waitMs) {
+        AsyncReserveQueue.Pending pending = asyncReserves.find(reservationId);
+        if (pending == null) {
+            ReservationResponse found = reservationService.find(reservationId)
+                    .orElseThrow(() -> new NotFoundException("NOT_FOUND", "reservation id not found"));
+            return completed(ResponseEntity.ok(found));
+        }
+        long wait = asyncReserves.clampPollWait(waitMs);
+        ResponseEntity<ReservationResponse> stillQueued = ResponseEntity.accepted().body(pending.accepted());
+        if (wait == 0 && !pending.outcome().isDone()) {
+            return completed(stillQueued);
+        }
+        DeferredResult<ResponseEntity<ReservationResponse>> result = new DeferredResult<>(wait, stillQueued);
+        // a transient failure goes through the exception handlers (429 / 503 with Retry-After)
+        pending.outcome().whenComplete((outcome, error) -> {
+            if (error != null) {
+                result.setErrorResult(error);
+            } else {
+                result.setResult(ResponseEntity.ok(outcome));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * All-or-nothing reserve of several items; per-item results in request order.
+     */
+    @PostMapping("/reservations:batch")
+    public BatchReservationResponse reserveAll(@Valid @RequestBody BatchReserveRequest request) {
+        return reservationService.reserveAll(request.items());
+    }
+
+    /**
+     * Commit several reservations; 200 with per-id results (error = code the single call would answer).
+     */
+    @PostMapping("/reservations:commit")
+    public BatchTransitionResponse commitAll(@Valid @RequestBody BatchTransitionRequest request) {
+        return reservationService.commitAll(request.reservationIds());
+    }
+
+    @PostMapping("/reservations:release")
+    public BatchTransitionResponse releaseAll(@Valid @RequestBody BatchTransitionRequest request) {
+        return reservationService.releaseAll(request.reservationIds());
+    }
+
     @PostMapping("/reservations/{reservationId}/release")
     public ReservationResponse release(@PathVariable("reservationId") String reservationId){
         return reservationService.release(reservationId);
@@ -31,4 +114,10 @@ public class InventoryController {
     public ReservationResponse commit(@PathVariable("reservationId") String reservationId){
         return reservationService.commit(reservationId);
     }
+
+    private static <T> DeferredResult<T> completed(T value) {
+        DeferredResult<T> result = new DeferredResult<>();
+        result.setResult(value);
+        return result;
+    }
 }
@@ -0,0 +1,49 @@
+package com.flashSale.inventory.controller;
+
+import com.flashSale.inventory.dto.StockLevelResponse;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.snapshot.StockSnapshot;
+import jakarta.validation.constraints.Size;
+import lombok.RequiredArgsConstructor;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.List;
+
+/**
+ * Public stock levels, served from the in-memory snapshot (may lag MySQL by one refresh).
+ */
+@Validated
+@RestController
+@RequestMapping("/inventory/stocks")
+@RequiredArgsConstructor
+public class StockController {
+    private final StockSnapshot snapshot;
+
+    /**
+     * With sinceVersion the request is held until the version moves past it
+     * (or waitMs elapses, then the unchanged level is returned).
+     */
+    @GetMapping("/{ticketId}")
+    public DeferredResult<StockLevelResponse> getStock(
+            @PathVariable("ticketId") long ticketId,
+            @RequestParam(name = "sinceVersion", required = false) Long sinceVersion,
+            @RequestParam(name = "waitMs", defaultValue = "30000") long waitMs) {
+        StockLevelResponse current = snapshot.get(ticketId)
+                .orElseThrow(() -> new NotFoundException("TICKET_NOT_FOUND", "ticket stock not initialized"));
+
+        if (sinceVersion == null || current.version() > sinceVersion) {
+            DeferredResult<StockLevelResponse> result = new DeferredResult<>();
+            result.setResult(current);
+            return result;
+        }
+        return snapshot.watch(current, sinceVersion, waitMs);
+    }
+
+    @GetMapping
+    public List<StockLevelResponse> getStocks(
+            @RequestParam("ids") @Size(min = 1, max = 200) List<Long> ids) {
+        return snapshot.getAll(ids);
+    }
+}
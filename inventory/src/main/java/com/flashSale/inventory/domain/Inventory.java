@@ -28,6 +28,16 @@ public class Inventory {
     @Column(nullable = false)
     private Long version;
 
+    @Column(name = "shard_count", nullable = false)
+    private int shardCount = 1;
+
+    @Column(nullable = false)
+    private boolean seated;
+
+    /** set and cleared by HotStockEngine only */
+    @Column(name = "memory_owner", insertable=false, updatable=false)
+    private String memoryOwner;
+
     @Column(name = "updated_at", insertable=false, updatable=false)
     private Instant updatedAt;
 }
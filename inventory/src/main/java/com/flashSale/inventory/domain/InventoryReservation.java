@@ -1,10 +1,12 @@
 package com.flashSale.inventory.domain;
 
 import jakarta.persistence.*;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.springframework.data.domain.Persistable;
 
 import java.time.Instant;
 import java.util.UUID;
@@ -15,10 +17,12 @@ import java.util.UUID;
         name = "inventory_reservations",
         indexes = {
             @Index(name = "idx_resv_ticket_id", columnList = "ticket_id"),
-            @Index(name = "idx_resv_ticket_status", columnList = "ticket_id, status")
+            @Index(name = "idx_resv_ticket_status_qty", columnList = "ticket_id, status, qty"),
+            @Index(name = "idx_resv_status_expires", columnList = "status, expires_at"),
+            @Index(name = "idx_resv_status_updated", columnList = "status, updated_at")
         }
 )
-public class InventoryReservation {
+public class InventoryReservation implements Persistable<String> {
     @Id
     @Column(name = "reservation_id", columnDefinition = "varchar(64)")
     private String reservationId;
@@ -33,6 +37,12 @@ public class InventoryReservation {
     @Column(nullable = false)
     private ReservationStatus status;
 
+    @Column(name = "user_id")
+    private Long userId;
+
+    @Column(name = "shard_no")
+    private Integer shardNo;
+
     @Column(name = "expires_at")
     private Instant expiresAt;
 
@@ -41,4 +51,28 @@ public class InventoryReservation {
 
     @Column(name="updated_at", insertable=false, updatable=false)
     private Instant updatedAt;
+
+    /**
+     * The id is assigned, so without this save() would merge (SELECT, then UPDATE an existing
+     * row) instead of inserting: a duplicate reservationId must hit the primary key.
+     */
+    @Transient
+    @Getter(AccessLevel.NONE) @Setter(AccessLevel.NONE)
+    private boolean persisted;
+
+    @Override
+    public String getId() {
+        return reservationId;
+    }
+
+    @Override
+    public boolean isNew() {
+        return !persisted;
+    }
+
+    @PostLoad
+    @PostPersist
+    void markPersisted() {
+        persisted = true;
+    }
 }
@@ -0,0 +1,11 @@
+package com.flashSale.inventory.dto;
+
+import java.util.List;
+
+/**
+ * Results in request order.
+ */
+public record BatchReservationResponse(
+        List<BatchReservationResult> results
+) {
+}
@@ -0,0 +1,16 @@
+package com.flashSale.inventory.dto;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+
+/**
+ * @param status null if the item was rolled back because another item failed
+ * @param error  error code of a failed item, ROLLED_BACK for rolled back items, null on success
+ */
+public record BatchReservationResult(
+        String reservationId,
+        long ticketId,
+        int qty,
+        ReservationStatus status,
+        String error
+) {
+}
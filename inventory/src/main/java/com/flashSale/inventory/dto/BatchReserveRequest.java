@@ -0,0 +1,14 @@
+package com.flashSale.inventory.dto;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchReserveRequest(
+        @NotEmpty
+        @Size(max = 50)
+        List<@Valid ReserveRequest> items
+) {
+}
@@ -0,0 +1,14 @@
+package com.flashSale.inventory.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+
+import java.util.List;
+
+public record BatchTransitionRequest(
+        @NotEmpty
+        @Size(max = 500)
+        List<@NotBlank @Size(max = 64) String> reservationIds
+) {
+}
@@ -0,0 +1,11 @@
+package com.flashSale.inventory.dto;
+
+import java.util.List;
+
+/**
+ * Results in request order; every id succeeds or fails on its own.
+ */
+public record BatchTransitionResponse(
+        List<BatchTransitionResult> results
+) {
+}
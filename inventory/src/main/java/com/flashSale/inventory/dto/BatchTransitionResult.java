@@ -0,0 +1,25 @@
+package com.flashSale.inventory.dto;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+
+/**
+ * @param ticketId null if the reservation is unknown
+ * @param qty      null if the reservation is unknown
+ * @param status   state after the call, null if unknown or not readable
+ * @param error    error code the single-item call would have answered, null on success
+ */
+public record BatchTransitionResult(
+        String reservationId,
+        Long ticketId,
+        Integer qty,
+        ReservationStatus status,
+        String error
+) {
+    public static BatchTransitionResult of(ReservationResponse r, String error) {
+        return new BatchTransitionResult(r.reservationId(), r.ticketId(), r.qty(), r.status(), error);
+    }
+
+    public static BatchTransitionResult failed(String reservationId, String error) {
+        return new BatchTransitionResult(reservationId, null, null, null, error);
+    }
+}
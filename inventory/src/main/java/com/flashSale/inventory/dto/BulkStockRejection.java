@@ -0,0 +1,13 @@
+package com.flashSale.inventory.dto;
+
+/**
+ * @param line     1-based line number in the uploaded body
+ * @param ticketId null if the line could not be parsed
+ */
+public record BulkStockRejection(
+        long line,
+        Long ticketId,
+        String code,
+        String message
+) {
+}
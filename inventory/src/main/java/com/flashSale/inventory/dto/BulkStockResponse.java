@@ -0,0 +1,16 @@
+package com.flashSale.inventory.dto;
+
+import java.util.List;
+
+/**
+ * @param rejections first rejected rows (capped, see rejectionsTruncated)
+ */
+public record BulkStockResponse(
+        long total,
+        long created,
+        long updated,
+        long rejected,
+        List<BulkStockRejection> rejections,
+        boolean rejectionsTruncated
+) {
+}
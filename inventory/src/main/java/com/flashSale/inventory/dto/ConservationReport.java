@@ -0,0 +1,15 @@
+package com.flashSale.inventory.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * @param skippedInMemory tickets owned by HotStockEngine; their DB rows lag by design
+ */
+public record ConservationReport(
+        Instant startedAt,
+        long durationMs,
+        long ticketsChecked,
+        long skippedInMemory,
+        List<TicketDrift> drifts
+) {}
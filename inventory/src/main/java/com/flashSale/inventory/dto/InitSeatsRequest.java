@@ -0,0 +1,21 @@
+package com.flashSale.inventory.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter @Setter
+public class InitSeatsRequest {
+    /**
+     * Sellable seats of the ticket, e.g. "A-12", in seating order; each becomes one
+     * inventory_seats row. Reserves take the first free seats of this list, so neighbours
+     * in the list should be neighbours in the venue.
+     */
+    @NotEmpty(message = "seatIds must not be empty")
+    @Size(max = 100000, message = "at most 100000 seats per ticket")
+    private List<@NotBlank @Size(max = 32, message = "seatId must be <= 32 chars") String> seatIds;
+}
@@ -1,5 +1,6 @@
 package com.flashSale.inventory.dto;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import lombok.Getter;
@@ -9,4 +10,9 @@ import lombok.Setter;
 public class InitStockRequest {
     @Min(value = 0, message = "available must be >= 0")
     private int available;
+
+    /** Split stock across this many inventory_shards rows (null = inventory.stock.default-shards) */
+    @Min(value = 1, message = "shards must be >= 1")
+    @Max(value = 256, message = "shards must be <= 256")
+    private Integer shards;
 }
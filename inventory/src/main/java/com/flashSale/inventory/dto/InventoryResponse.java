@@ -5,6 +5,8 @@ public record InventoryResponse(
         int available,
         int reserved,
         int sold,
-        Long version
+        Long version,
+        int shards,
+        boolean seated
 ) {
 }
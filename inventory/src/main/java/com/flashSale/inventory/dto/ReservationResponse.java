@@ -1,11 +1,21 @@
 package com.flashSale.inventory.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.flashSale.inventory.domain.ReservationStatus;
 
+import java.util.List;
+
+/**
+ * @param seatIds seats held or sold by the reservation; null for tickets sold by count
+ */
 public record ReservationResponse(
         String reservationId,
         long ticketId,
         int qty,
-        ReservationStatus status
+        ReservationStatus status,
+        @JsonInclude(JsonInclude.Include.NON_NULL) List<String> seatIds
 ) {
+    public ReservationResponse(String reservationId, long ticketId, int qty, ReservationStatus status) {
+        this(reservationId, ticketId, qty, status, null);
+    }
 }
@@ -1,5 +1,6 @@
 package com.flashSale.inventory.dto;
 
+import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -14,6 +15,14 @@ public record ReserveRequest(
         Long ticketId,
 
         @Min(1)
-        int qty
+        int qty,
+
+        // optional hold TTL, defaults to inventory.reservation.ttl
+        @Min(1)
+        @Max(86400)
+        Integer ttlSeconds,
+
+        // buyer, counted against the ticket's per-user limit; required when the ticket has one
+        Long userId
 ) {
 }
@@ -0,0 +1,10 @@
+package com.flashSale.inventory.dto;
+
+public record StockLevelResponse(
+        long ticketId,
+        int available,
+        int reserved,
+        int sold,
+        long version
+) {
+}
@@ -0,0 +1,13 @@
+package com.flashSale.inventory.dto;
+
+/**
+ * One ticket whose counters disagree with its reservations.
+ * Committed rows include archived ones.
+ */
+public record TicketDrift(
+        long ticketId,
+        long inventoryReserved,
+        long reservedRows,
+        long inventorySold,
+        long committedRows
+) {}
@@ -0,0 +1,16 @@
+package com.flashSale.inventory.dto;
+
+import java.time.Instant;
+
+/**
+ * @param mode          MEMORY or DB
+ * @param source        how a MEMORY ticket got there (CONFIGURED / AUTO / MANUAL), null for DB
+ * @param estimatedRps  decayed reserve rate from the hot-ticket sketch, 0 if not tracked
+ */
+public record TicketModeResponse(
+        long ticketId,
+        String mode,
+        String source,
+        Instant since,
+        double estimatedRps
+) {}
@@ -0,0 +1,11 @@
+package com.flashSale.inventory.event;
+
+/**
+ * Published by the admin service whenever a ticket's stock is (re)initialized.
+ * Listeners that mirror stock outside MySQL use it to reload their copy.
+ */
+public record StockInitializedEvent(
+        long ticketId,
+        int available
+) {
+}
@@ -0,0 +1,19 @@
+package com.flashSale.inventory.exception;
+
+import com.flashSale.inventory.dto.BatchReservationResponse;
+
+/**
+ * A batch reserve failed as a whole; carries the per-item results for the 409 body.
+ */
+public class BatchReserveException extends RuntimeException {
+    private final BatchReservationResponse response;
+
+    public BatchReserveException(BatchReservationResponse response) {
+        super("batch reservation failed");
+        this.response = response;
+    }
+
+    public BatchReservationResponse getResponse() {
+        return response;
+    }
+}
@@ -1,7 +1,9 @@
 package com.flashSale.inventory.exception;
 
+import com.flashSale.inventory.dto.BatchReservationResponse;
 import jakarta.validation.ConstraintViolationException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.HttpRequestMethodNotSupportedException;
@@ -37,6 +39,32 @@ public class GlobalExceptionHandler {
                 .body(ApiError.of(e.getCode(), e.getMessage()));
     }
 
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<ApiError> handleTooManyRequests(TooManyRequestsException e) {
+        // whole seconds, rounded up so clients never come back early
+        long retryAfter = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(ApiError.of(e.getCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<ApiError> handleServiceUnavailable(ServiceUnavailableException e) {
+        long retryAfter = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfter))
+                .body(ApiError.of(e.getCode(), e.getMessage()));
+    }
+
+    @ExceptionHandler(BatchReserveException.class)
+    public ResponseEntity<BatchReservationResponse> handleBatchReserve(BatchReserveException e) {
+        // same status the single reserve would have answered for the failed item
+        boolean notFound = e.getResponse().results().stream()
+                .anyMatch(r -> "TICKET_NOT_FOUND".equals(r.error()));
+        return ResponseEntity.status(notFound ? HttpStatus.NOT_FOUND : HttpStatus.CONFLICT)
+                .body(e.getResponse());
+    }
+
     @ExceptionHandler(NotFoundException.class)
     public ResponseEntity<ApiError> handleNotFound(NotFoundException e) {
         return ResponseEntity.status(HttpStatus.NOT_FOUND)
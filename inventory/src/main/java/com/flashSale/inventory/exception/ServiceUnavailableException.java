@@ -0,0 +1,22 @@
+package com.flashSale.inventory.exception;
+
+import java.time.Duration;
+
+public class ServiceUnavailableException extends RuntimeException{
+    private final String code;
+    private final Duration retryAfter;
+
+    public ServiceUnavailableException(String code, String message, Duration retryAfter, Throwable cause){
+        super(message, cause);
+        this.code = code;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getCode() {
+        return code;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
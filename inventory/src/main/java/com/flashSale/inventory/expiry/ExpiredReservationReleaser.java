@@ -0,0 +1,218 @@
+package com.flashSale.inventory.expiry;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.repo.UserHoldRepository.Delta;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
+import com.flashSale.inventory.service.StockLedger;
+import com.flashSale.inventory.service.TerminalReservationCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * Bulk release of expired holds.
+ *
+ * One tx per batch:
+ * 1) lock the still-RESERVED, overdue rows (SKIP LOCKED: a concurrent commit/release wins)
+ * 2) one release UPDATE per (ticket, shard) with the summed qty, in ascending order;
+ *    seated tickets free the seats of each hold instead
+ * 3) one UPDATE flipping the batch to RELEASED
+ * 4) one batch giving the quantities back to the per-user limits
+ */
+@Slf4j
+@Component
+public class ExpiredReservationReleaser {
+
+    private record Hold(String reservationId, long ticketId, Long userId, Integer shardNo, int qty, Instant expiresAt) {}
+
+    private record StockKey(long ticketId, int shardNo) implements Comparable<StockKey> {
+        @Override
+        public int compareTo(StockKey o) {
+            int c = Long.compare(ticketId, o.ticketId);
+            return c != 0 ? c : Integer.compare(shardNo, o.shardNo);
+        }
+    }
+
+    private static final int SINGLE_ROW = -1;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+    private final StockLedger stockLedger;
+    private final StockGate stockGate;
+    private final SoldOutSentinel soldOutSentinel;
+    private final UserPurchaseLimits userLimits;
+    private final TerminalReservationCache terminalCache;
+    private final HotStockEngine hotStock;
+    private final TicketModes modes;
+    private final MeterRegistry meterRegistry;
+    private final Timer lag;
+
+    public ExpiredReservationReleaser(
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate txTemplate,
+            StockLedger stockLedger,
+            StockGate stockGate,
+            SoldOutSentinel soldOutSentinel,
+            UserPurchaseLimits userLimits,
+            TerminalReservationCache terminalCache,
+            HotStockEngine hotStock,
+            TicketModes modes,
+            MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = txTemplate;
+        this.stockLedger = stockLedger;
+        this.stockGate = stockGate;
+        this.soldOutSentinel = soldOutSentinel;
+        this.userLimits = userLimits;
+        this.terminalCache = terminalCache;
+        this.hotStock = hotStock;
+        this.modes = modes;
+        this.meterRegistry = meterRegistry;
+        this.lag = Timer.builder("inventory.reservations.expiry.lag")
+                .description("time between a hold's deadline and its release")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Non-locking read of overdue holds, oldest first (uses idx_resv_status_expires).
+     */
+    public List<String> findOverdue(Instant now, int limit) {
+        // holds of in-memory tickets (on any instance) are expired by their owner's HotStockEngine
+        return jdbcTemplate.queryForList("""
+                SELECT reservation_id FROM inventory_reservations
+                WHERE status = 'RESERVED' AND expires_at <= ?
+                    AND ticket_id NOT IN (SELECT ticket_id FROM inventory WHERE memory_owner IS NOT NULL)
+                ORDER BY expires_at
+                LIMIT ?
+                """, String.class, Timestamp.from(now), limit);
+    }
+
+    /**
+     * @return number of holds released
+     */
+    public int release(List<String> reservationIds, String source) {
+        if (reservationIds.isEmpty()) {
+            return 0;
+        }
+        Instant now = Instant.now();
+        List<Hold> released = txTemplate.execute(status -> releaseInTx(reservationIds, now));
+        if (released == null || released.isEmpty()) {
+            return 0;
+        }
+
+        Set<Long> tickets = new HashSet<>();
+        for (Hold h : released) {
+            terminalCache.put(new ReservationResponse(
+                    h.reservationId(), h.ticketId(), h.qty(), ReservationStatus.RELEASED));
+            stockGate.onRelease(h.reservationId(), h.ticketId(), h.qty());
+            tickets.add(h.ticketId());
+            lag.record(Duration.between(h.expiresAt(), now));
+        }
+        tickets.forEach(soldOutSentinel::clear);
+        Counter.builder("inventory.reservations.expired")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment(released.size());
+
+        log.info("expired reservations released: source={}, count={}, tickets={}",
+                source, released.size(), tickets.size());
+        return released.size();
+    }
+
+    private List<Hold> releaseInTx(List<String> reservationIds, Instant now) {
+        // 1) lock the holds that are still overdue
+        List<Object> args = new ArrayList<>(reservationIds);
+        args.add(Timestamp.from(now));
+        List<Hold> holds = jdbcTemplate.query("""
+                SELECT reservation_id, ticket_id, user_id, shard_no, qty, expires_at
+                FROM inventory_reservations
+                WHERE reservation_id IN (%s)
+                    AND status = 'RESERVED'
+                    AND expires_at <= ?
+                FOR UPDATE SKIP LOCKED
+                """.formatted(placeholders(reservationIds.size())),
+                (rs, i) -> new Hold(
+                        rs.getString("reservation_id"),
+                        rs.getLong("ticket_id"),
+                        rs.getObject("user_id", Long.class),
+                        (Integer) rs.getObject("shard_no"),
+                        rs.getInt("qty"),
+                        rs.getTimestamp("expires_at").toInstant()),
+                args.toArray());
+        // a ticket being switched to / from memory mode is left for the next pass
+        Set<Long> skipped = new HashSet<>();
+        for (long ticketId : new TreeSet<>(holds.stream().map(Hold::ticketId).toList())) {
+            if (!modes.trySharedForTransaction(ticketId) || hotStock.isEnrolled(ticketId)) {
+                skipped.add(ticketId);
+            }
+        }
+        holds.removeIf(h -> skipped.contains(h.ticketId()));
+        if (holds.isEmpty()) {
+            return holds;
+        }
+
+        // 2) one stock UPDATE per ticket / shard, in lock order
+        Map<StockKey, List<Hold>> byStock = new TreeMap<>();
+        for (Hold h : holds) {
+            StockKey key = new StockKey(h.ticketId(), h.shardNo() == null ? SINGLE_ROW : h.shardNo());
+            byStock.computeIfAbsent(key, k -> new ArrayList<>()).add(h);
+        }
+
+        List<Hold> released = new ArrayList<>(holds.size());
+        byStock.forEach((key, group) -> {
+            Integer shardNo = key.shardNo() == SINGLE_ROW ? null : key.shardNo();
+            if (shardNo == null && stockLedger.isSeated(key.ticketId())) {
+                for (Hold h : group) {
+                    if (stockLedger.release(h.reservationId(), h.ticketId(), null, h.qty())) {
+                        released.add(h);
+                    } else {
+                        log.error("expiry seat release failed, hold left RESERVED: reservationId={}, ticketId={}, qty={}",
+                                h.reservationId(), h.ticketId(), h.qty());
+                    }
+                }
+                return;
+            }
+            int qty = group.stream().mapToInt(Hold::qty).sum();
+            if (stockLedger.release(key.ticketId(), shardNo, qty)) {
+                released.addAll(group);
+            } else {
+                log.error("expiry release atomic update failed (rows=0), holds left RESERVED: ticketId={}, shardNo={}, qty={}, holds={}",
+                        key.ticketId(), shardNo, qty, group.size());
+            }
+        });
+
+        // 3) flip the batch
+        if (!released.isEmpty()) {
+            jdbcTemplate.update("""
+                    UPDATE inventory_reservations
+                    SET status = 'RELEASED'
+                    WHERE reservation_id IN (%s)
+                    """.formatted(placeholders(released.size())),
+                    released.stream().map(Hold::reservationId).toArray());
+            // 4) give the quantities back to the buyers' per-user limits
+            userLimits.releaseAll(released.stream()
+                    .filter(h -> h.userId() != null)
+                    .map(h -> new Delta(h.ticketId(), h.userId(), h.qty()))
+                    .toList());
+        }
+        return released;
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
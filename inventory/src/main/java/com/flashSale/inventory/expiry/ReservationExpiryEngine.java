@@ -0,0 +1,147 @@
+package com.flashSale.inventory.expiry;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Releases RESERVED holds whose expires_at has passed.
+ *
+ * - near-term deadlines of reservations made by this instance sit in an in-memory timer wheel
+ * - a batched indexed scan (status, expires_at) runs on startup and periodically, picking up
+ *   deadlines beyond the wheel's horizon and holds left behind by other / crashed instances
+ *
+ * Both feed ExpiredReservationReleaser, which re-checks status and deadline under row lock,
+ * so a hold committed or released in the meantime is skipped.
+ */
+@Slf4j
+@Component
+public class ReservationExpiryEngine {
+
+    private final ExpiredReservationReleaser releaser;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long tickMs;
+    private final int batchSize;
+
+    private final TimerWheel<String> wheel;
+    private final ScheduledExecutorService ticker;
+
+    public ReservationExpiryEngine(
+            ExpiredReservationReleaser releaser,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation.expiry.enabled:true}") boolean enabled,
+            @Value("${inventory.reservation.expiry.tick-ms:100}") long tickMs,
+            @Value("${inventory.reservation.expiry.wheel-levels:3}") int wheelLevels,
+            @Value("${inventory.reservation.expiry.batch-size:500}") int batchSize) {
+        this.releaser = releaser;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.tickMs = tickMs;
+        this.batchSize = batchSize;
+        this.wheel = new TimerWheel<>(tickMs, wheelLevels, System.currentTimeMillis());
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "reservation-expiry-wheel");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        meterRegistry.gauge("inventory.reservations.expiry.wheel.size", wheel, TimerWheel::size);
+        ticker.scheduleWithFixedDelay(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        ticker.shutdownNow();
+    }
+
+    /**
+     * Track a hold this instance just reserved. Deadlines past the wheel's horizon are
+     * left to the scan.
+     */
+    public void track(String reservationId, Instant expiresAt) {
+        if (!enabled || expiresAt == null) {
+            return;
+        }
+        synchronized (wheel) {
+            wheel.schedule(expiresAt.toEpochMilli(), reservationId);
+        }
+    }
+
+    /**
+     * Indexed scan for overdue holds, in batches until none are left.
+     * Runs once right after startup (failover) and then periodically.
+     */
+    @Scheduled(
+            initialDelayString = "${inventory.reservation.expiry.scan-initial-delay-ms:5000}",
+            fixedDelayString = "${inventory.reservation.expiry.scan-interval-ms:30000}")
+    public void scan() {
+        if (!enabled) {
+            return;
+        }
+        int total = 0;
+        try {
+            while (true) {
+                List<String> overdue = releaser.findOverdue(Instant.now(), batchSize);
+                if (overdue.isEmpty()) {
+                    break;
+                }
+                int released = releaser.release(overdue, "scan");
+                total += released;
+                // another instance may be sweeping the same rows (SKIP LOCKED)
+                if (overdue.size() < batchSize || released == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            log.error("reservation expiry scan failed: releasedSoFar={}", total, e);
+        }
+        if (total > 0) {
+            log.info("reservation expiry scan: released={}", total);
+        }
+    }
+
+    private void tick() {
+        List<String> due;
+        synchronized (wheel) {
+            due = wheel.advance(System.currentTimeMillis());
+        }
+        if (due.isEmpty()) {
+            return;
+        }
+
+        List<String> ids = new ArrayList<>(Math.min(due.size(), batchSize));
+        try {
+            for (String reservationId : due) {
+                ids.add(reservationId);
+                if (ids.size() == batchSize) {
+                    releaser.release(ids, "wheel");
+                    ids.clear();
+                }
+            }
+            if (!ids.isEmpty()) {
+                releaser.release(ids, "wheel");
+            }
+        } catch (Exception e) {
+            // left RESERVED; the next scan retries them
+            log.error("reservation expiry from wheel failed: due={}", due.size(), e);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.flashSale.inventory.expiry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hierarchical timing wheel: 64 slots per level, each level's slot spans the whole
+ * level below it. With a 100 ms tick, 3 levels cover ~7.3 hours.
+ *
+ * Deadlines are rounded up to the next tick, so entries never fire early.
+ * Deadlines beyond the horizon are refused; callers leave those to a DB scan.
+ *
+ * Not thread-safe; the owner serializes access.
+ */
+public class TimerWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+
+    private record Entry<T>(long deadlineTick, T item) {}
+
+    private final long tickMs;
+    private final int levels;
+    private final List<List<Entry<T>>> slots;
+    private long currentTick;
+    private int size;
+
+    public TimerWheel(long tickMs, int levels, long nowMs) {
+        if (levels < 1 || levels * SLOT_BITS >= 63) {
+            throw new IllegalArgumentException("levels out of range: " + levels);
+        }
+        this.tickMs = tickMs;
+        this.levels = levels;
+        this.slots = new ArrayList<>(levels * SLOTS);
+        for (int i = 0; i < levels * SLOTS; i++) {
+            slots.add(new ArrayList<>());
+        }
+        this.currentTick = nowMs / tickMs;
+    }
+
+    /**
+     * @return false if the deadline is beyond the wheel's horizon (nothing scheduled)
+     */
+    public boolean schedule(long deadlineMs, T item) {
+        long deadlineTick = Math.floorDiv(deadlineMs + tickMs - 1, tickMs);
+        if (!place(new Entry<>(Math.max(deadlineTick, currentTick + 1), item))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Advance to nowMs and return everything whose deadline has passed.
+     */
+    public List<T> advance(long nowMs) {
+        long targetTick = nowMs / tickMs;
+        List<T> due = new ArrayList<>();
+
+        while (currentTick < targetTick) {
+            currentTick++;
+
+            // cascade higher levels first: their entries may land in the slot fired below
+            for (int level = levels - 1; level >= 1; level--) {
+                if ((currentTick & ((1L << (SLOT_BITS * level)) - 1)) != 0) {
+                    continue;
+                }
+                List<Entry<T>> bucket = bucket(level, currentTick);
+                List<Entry<T>> moving = new ArrayList<>(bucket);
+                bucket.clear();
+                for (Entry<T> e : moving) {
+                    if (e.deadlineTick() <= currentTick) {
+                        due.add(e.item());
+                        size--;
+                    } else {
+                        place(e);
+                    }
+                }
+            }
+
+            List<Entry<T>> bucket = bucket(0, currentTick);
+            for (Entry<T> e : bucket) {
+                due.add(e.item());
+            }
+            size -= bucket.size();
+            bucket.clear();
+        }
+        return due;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long horizonMs() {
+        return (1L << (SLOT_BITS * levels)) * tickMs;
+    }
+
+    private boolean place(Entry<T> e) {
+        long delta = e.deadlineTick() - currentTick;
+        for (int level = 0; level < levels; level++) {
+            if (delta < (1L << (SLOT_BITS * (level + 1)))) {
+                bucket(level, e.deadlineTick()).add(e);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private List<Entry<T>> bucket(int level, long tick) {
+        int slot = (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+        return slots.get(level * SLOTS + slot);
+    }
+}
@@ -0,0 +1,40 @@
+package com.flashSale.inventory.gate;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+@Component
+@ConditionalOnProperty(prefix = "inventory.gate", name = "enabled", havingValue = "false", matchIfMissing = true)
+public class NoopStockGate implements StockGate {
+
+    @Override
+    public boolean tryAcquire(String reservationId, long ticketId, int qty) {
+        return true;
+    }
+
+    @Override
+    public void rollback(String reservationId, long ticketId) {
+    }
+
+    @Override
+    public void onRelease(String reservationId, long ticketId, int qty) {
+    }
+
+    @Override
+    public void onCommit(String reservationId, long ticketId) {
+    }
+
+    @Override
+    public void load(long ticketId, int available) {
+    }
+
+    @Override
+    public long version(long ticketId) {
+        return 0;
+    }
+
+    @Override
+    public boolean loadIfUnchanged(long ticketId, int available, long version) {
+        return true;
+    }
+}
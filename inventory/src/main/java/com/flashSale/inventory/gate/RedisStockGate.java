@@ -0,0 +1,196 @@
+package com.flashSale.inventory.gate;
+
+import com.flashSale.inventory.event.StockInitializedEvent;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Redis backed gate.
+ *
+ * Keys per ticket (hash tag keeps them on one cluster slot):
+ *   inv:{ticketId}:stock - remaining stock the gate may hand out
+ *   inv:{ticketId}:resv  - reservationId -> qty of admitted reservations
+ *   inv:{ticketId}:ver   - bumped by every change to stock, so the reconciler can skip a
+ *                          counter that moved after it read the DB
+ *
+ * Redis failures fail open: the request is admitted and MySQL decides.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "inventory.gate", name = "enabled", havingValue = "true")
+public class RedisStockGate implements StockGate {
+
+    private static final long ADMITTED = 1L;
+    private static final long NOT_LOADED = -1L;
+    private static final String RESERVATION_TTL_SECONDS = String.valueOf(24 * 60 * 60);
+
+    /**
+     * 1 = admitted (or already admitted), 0 = insufficient, -1 = ticket not loaded
+     */
+    private static final RedisScript<Long> ACQUIRE = new DefaultRedisScript<>("""
+            if redis.call('HEXISTS', KEYS[2], ARGV[1]) == 1 then
+                return 1
+            end
+            local stock = redis.call('GET', KEYS[1])
+            if not stock then
+                return -1
+            end
+            local qty = tonumber(ARGV[2])
+            if tonumber(stock) < qty then
+                return 0
+            end
+            redis.call('DECRBY', KEYS[1], qty)
+            redis.call('INCR', KEYS[3])
+            redis.call('HSET', KEYS[2], ARGV[1], qty)
+            redis.call('EXPIRE', KEYS[2], ARGV[3])
+            return 1
+            """, Long.class);
+
+    /** Undo an admission: only gives stock back if this reservation was admitted. */
+    private static final RedisScript<Long> ROLLBACK = new DefaultRedisScript<>("""
+            local qty = redis.call('HGET', KEYS[2], ARGV[1])
+            if not qty then
+                return 0
+            end
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('INCRBY', KEYS[1], qty)
+                redis.call('INCR', KEYS[3])
+            end
+            return 1
+            """, Long.class);
+
+    /**
+     * Stock released in the DB: always given back, even if the reservation was
+     * admitted while the ticket was not loaded (the loaded value already excluded it).
+     */
+    private static final RedisScript<Long> RELEASE = new DefaultRedisScript<>("""
+            redis.call('HDEL', KEYS[2], ARGV[1])
+            if redis.call('EXISTS', KEYS[1]) == 1 then
+                redis.call('INCRBY', KEYS[1], ARGV[2])
+                redis.call('INCR', KEYS[3])
+            end
+            return 1
+            """, Long.class);
+
+    private static final RedisScript<Long> LOAD = new DefaultRedisScript<>("""
+            redis.call('SET', KEYS[1], ARGV[1])
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    /** 1 = loaded, 0 = the counter changed since ARGV[2] was read: skipped */
+    private static final RedisScript<Long> LOAD_IF_UNCHANGED = new DefaultRedisScript<>("""
+            local version = redis.call('GET', KEYS[3]) or '0'
+            if version ~= ARGV[2] then
+                return 0
+            end
+            redis.call('SET', KEYS[1], ARGV[1])
+            redis.call('INCR', KEYS[3])
+            return 1
+            """, Long.class);
+
+    private final StringRedisTemplate redis;
+
+    @Override
+    public boolean tryAcquire(String reservationId, long ticketId, int qty) {
+        try {
+            Long result = redis.execute(ACQUIRE, keys(ticketId),
+                    reservationId, String.valueOf(qty), RESERVATION_TTL_SECONDS);
+
+            if (result != null && result == NOT_LOADED) {
+                log.warn("stock gate miss (ticket not loaded), falling through to DB: ticketId={}", ticketId);
+                return true;
+            }
+            return result != null && result == ADMITTED;
+        } catch (Exception e) {
+            log.warn("stock gate unavailable, falling through to DB: reservationId={}, ticketId={}, error={}",
+                    reservationId, ticketId, e.getMessage());
+            return true;
+        }
+    }
+
+    @Override
+    public void rollback(String reservationId, long ticketId) {
+        try {
+            redis.execute(ROLLBACK, keys(ticketId), reservationId);
+        } catch (Exception e) {
+            log.warn("stock gate rollback failed, left for reconciliation: reservationId={}, ticketId={}, error={}",
+                    reservationId, ticketId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onRelease(String reservationId, long ticketId, int qty) {
+        try {
+            redis.execute(RELEASE, keys(ticketId), reservationId, String.valueOf(qty));
+        } catch (Exception e) {
+            log.warn("stock gate release failed, left for reconciliation: reservationId={}, ticketId={}, error={}",
+                    reservationId, ticketId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void onCommit(String reservationId, long ticketId) {
+        try {
+            redis.opsForHash().delete(reservationKey(ticketId), reservationId);
+        } catch (Exception e) {
+            log.warn("stock gate commit cleanup failed: reservationId={}, ticketId={}, error={}",
+                    reservationId, ticketId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void load(long ticketId, int available) {
+        redis.execute(LOAD, keys(ticketId), String.valueOf(available));
+    }
+
+    @Override
+    public long version(long ticketId) {
+        String version = redis.opsForValue().get(versionKey(ticketId));
+        return version == null ? 0 : Long.parseLong(version);
+    }
+
+    @Override
+    public boolean loadIfUnchanged(long ticketId, int available, long version) {
+        Long result = redis.execute(LOAD_IF_UNCHANGED, keys(ticketId),
+                String.valueOf(available), String.valueOf(version));
+        return result != null && result == 1L;
+    }
+
+    @TransactionalEventListener
+    public void onStockInitialized(StockInitializedEvent event) {
+        try {
+            load(event.ticketId(), event.available());
+            log.info("stock gate loaded: ticketId={}, available={}", event.ticketId(), event.available());
+        } catch (Exception e) {
+            log.warn("stock gate load failed, left for reconciliation: ticketId={}, error={}",
+                    event.ticketId(), e.getMessage());
+        }
+    }
+
+    private List<String> keys(long ticketId) {
+        return List.of(stockKey(ticketId), reservationKey(ticketId), versionKey(ticketId));
+    }
+
+    private String stockKey(long ticketId) {
+        return "inv:{" + ticketId + "}:stock";
+    }
+
+    private String reservationKey(long ticketId) {
+        return "inv:{" + ticketId + "}:resv";
+    }
+
+    private String versionKey(long ticketId) {
+        return "inv:{" + ticketId + "}:ver";
+    }
+}
@@ -0,0 +1,43 @@
+package com.flashSale.inventory.gate;
+
+/**
+ * Pre-deduction gate in front of the MySQL reserve path.
+ *
+ * Only requests the gate admits go on to touch the database, so during a drop
+ * MySQL sees roughly "stock" requests instead of "traffic" requests.
+ * The database stays the source of truth: the gate may over-admit after drift,
+ * in which case the conditional SQL update still rejects.
+ */
+public interface StockGate {
+
+    /**
+     * @return false if the gate knows there is not enough stock for this reservation
+     */
+    boolean tryAcquire(String reservationId, long ticketId, int qty);
+
+    /**
+     * Give back an admission whose DB reserve did not go through.
+     * No-op if the reservation was never admitted by the gate.
+     */
+    void rollback(String reservationId, long ticketId);
+
+    /** Reserved stock returned to available in the DB. */
+    void onRelease(String reservationId, long ticketId, int qty);
+
+    /** Reserved stock moved to sold in the DB; the gate counter stays deducted. */
+    void onCommit(String reservationId, long ticketId);
+
+    /** Overwrite the gate counter with the DB's available count. */
+    void load(long ticketId, int available);
+
+    /** Version of the ticket's counter, moved by every change to it; 0 if never set. */
+    long version(long ticketId);
+
+    /**
+     * Overwrite the gate counter with an available count read after version, unless the
+     * counter changed since: that change may not be in the count.
+     *
+     * @return false if skipped
+     */
+    boolean loadIfUnchanged(long ticketId, int available, long version);
+}
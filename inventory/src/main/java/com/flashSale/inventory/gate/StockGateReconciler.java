@@ -0,0 +1,88 @@
+package com.flashSale.inventory.gate;
+
+import com.flashSale.inventory.domain.Inventory;
+import com.flashSale.inventory.repo.InventoryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Repairs drift between the gate counters and the inventory table
+ * (crashed requests between admission and DB write, Redis restarts, manual fixes).
+ *
+ * The DB's available count wins, written with a compare-and-set on the counter's version:
+ * the version is read before the DB, and a counter that moved since (an admission, rollback
+ * or release) is left alone until the next run, since the DB value read may not include
+ * that move. Admissions in flight on both reads may still be counted twice, which only
+ * lets the gate over-admit; the SQL update still guards oversell.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "inventory.gate", name = "enabled", havingValue = "true")
+public class StockGateReconciler {
+    private final InventoryRepository inventoryRepo;
+    private final StockGate stockGate;
+
+    @Scheduled(
+            initialDelayString = "${inventory.gate.reconcile-interval-ms:60000}",
+            fixedDelayString = "${inventory.gate.reconcile-interval-ms:60000}")
+    public void reconcileAll() {
+        // 1) versions first, 2) then the DB
+        Map<Long, Long> versions = new HashMap<>();
+        for (long ticketId : inventoryRepo.findAllTicketIds()) {
+            try {
+                versions.put(ticketId, stockGate.version(ticketId));
+            } catch (Exception e) {
+                log.warn("stock gate reconcile failed: ticketId={}, error={}", ticketId, e.getMessage());
+            }
+        }
+
+        int reconciled = 0;
+        int skipped = 0;
+        for (Inventory inv : inventoryRepo.findAll()) {
+            Long version = versions.get(inv.getTicketId());
+            // created since step 1: its init event loads it
+            if (version == null) {
+                continue;
+            }
+            if (reconcile(inv.getTicketId(), inv.getAvailable(), version)) {
+                reconciled++;
+            } else {
+                skipped++;
+            }
+        }
+        log.info("stock gate reconciled: tickets={}, skippedBusy={}", reconciled, skipped);
+    }
+
+    public void reconcile(long ticketId) {
+        long version;
+        try {
+            version = stockGate.version(ticketId);
+        } catch (Exception e) {
+            log.warn("stock gate reconcile failed: ticketId={}, error={}", ticketId, e.getMessage());
+            return;
+        }
+        inventoryRepo.findAvailable(ticketId).ifPresent(available -> reconcile(ticketId, available, version));
+    }
+
+    /**
+     * @return false if skipped (the counter moved meanwhile, or Redis failed)
+     */
+    private boolean reconcile(long ticketId, int available, long version) {
+        try {
+            if (stockGate.loadIfUnchanged(ticketId, available, version)) {
+                return true;
+            }
+            log.debug("stock gate reconcile skipped, counter moved: ticketId={}", ticketId);
+        } catch (Exception e) {
+            log.warn("stock gate reconcile failed: ticketId={}, error={}", ticketId, e.getMessage());
+        }
+        return false;
+    }
+}
@@ -0,0 +1,188 @@
+package com.flashSale.inventory.hot;
+
+import com.flashSale.inventory.dto.TicketModeResponse;
+import com.flashSale.inventory.journal.HotStockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Finds the tickets worth serving from memory and switches their mode.
+ *
+ * 1) record() counts reserves per ticket in the current window (striped, lock-free)
+ * 2) every tick the window is folded into a decaying space-saving sketch
+ * 3) tickets whose guaranteed rate (lower bound) reaches promote-rps are promoted;
+ *    auto-promoted tickets at least min-dwell in memory whose rate (upper bound) fell
+ *    below demote-rps are demoted. The gap between the thresholds prevents flapping.
+ *
+ * Configured and manually promoted tickets are never demoted automatically.
+ */
+@Slf4j
+@Component
+public class HotTicketDetector {
+
+    private final HotStockEngine hotStock;
+    private final TicketModes modes;
+    private final boolean enabled;
+    private final long tickMs;
+    private final double decay;
+    private final double promoteRps;
+    private final double demoteRps;
+    private final Duration minDwell;
+    private final int maxAutoPromoted;
+    private final int maxWindowKeys;
+
+    private final Map<Long, LongAdder> window = new ConcurrentHashMap<>();
+    /** Guarded by itself, touched by the tick thread and admin reads. */
+    private final SpaceSavingSketch sketch;
+    private final LongAdder droppedHits = new LongAdder();
+
+    public HotTicketDetector(
+            HotStockEngine hotStock,
+            TicketModes modes,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.hot.auto.enabled:false}") boolean enabled,
+            @Value("${inventory.hot.auto.tick-ms:1000}") long tickMs,
+            @Value("${inventory.hot.auto.decay:0.5}") double decay,
+            @Value("${inventory.hot.auto.top-k:64}") int topK,
+            @Value("${inventory.hot.auto.promote-rps:2000}") double promoteRps,
+            @Value("${inventory.hot.auto.demote-rps:200}") double demoteRps,
+            @Value("${inventory.hot.auto.min-dwell:60s}") Duration minDwell,
+            @Value("${inventory.hot.auto.max-promoted:8}") int maxAutoPromoted,
+            @Value("${inventory.hot.auto.max-window-keys:10000}") int maxWindowKeys) {
+        this.hotStock = hotStock;
+        this.modes = modes;
+        this.enabled = enabled;
+        this.tickMs = tickMs;
+        this.decay = decay;
+        this.promoteRps = promoteRps;
+        this.demoteRps = demoteRps;
+        this.minDwell = minDwell;
+        this.maxAutoPromoted = maxAutoPromoted;
+        this.maxWindowKeys = maxWindowKeys;
+        this.sketch = new SpaceSavingSketch(topK);
+        meterRegistry.more().counter("inventory.hot.window.dropped", List.of(), droppedHits, LongAdder::sum);
+    }
+
+    public void record(long ticketId) {
+        if (!enabled) {
+            return;
+        }
+        LongAdder hits = window.get(ticketId);
+        if (hits == null) {
+            // a burst of cold tickets must not grow the window without bound
+            if (window.size() >= maxWindowKeys) {
+                droppedHits.increment();
+                return;
+            }
+            hits = window.computeIfAbsent(ticketId, id -> new LongAdder());
+        }
+        hits.increment();
+    }
+
+    @Scheduled(fixedRateString = "${inventory.hot.auto.tick-ms:1000}")
+    public void tick() {
+        if (!enabled || !hotStock.isEnabled()) {
+            return;
+        }
+        List<SpaceSavingSketch.Entry> top;
+        synchronized (sketch) {
+            sketch.decay(decay, 0.5);
+            for (Long ticketId : window.keySet()) {
+                LongAdder hits = window.remove(ticketId);
+                if (hits != null) {
+                    sketch.offer(ticketId, hits.sum());
+                }
+            }
+            top = sketch.top();
+        }
+
+        promote(top);
+        demote();
+    }
+
+    /**
+     * Enrolled tickets first, then the hottest tickets still on the DB path.
+     */
+    public List<TicketModeResponse> modes() {
+        List<TicketModeResponse> result = new ArrayList<>();
+        Set<Long> enrolled = new TreeSet<>(hotStock.enrolledTickets());
+        for (long ticketId : enrolled) {
+            TicketModes.Enrollment e = modes.enrollment(ticketId);
+            result.add(new TicketModeResponse(ticketId, "MEMORY",
+                    e == null ? null : e.source().name(), e == null ? null : e.since(), rate(ticketId)));
+        }
+        List<SpaceSavingSketch.Entry> top;
+        synchronized (sketch) {
+            top = sketch.top();
+        }
+        for (SpaceSavingSketch.Entry entry : top) {
+            if (!enrolled.contains(entry.key())) {
+                result.add(new TicketModeResponse(entry.key(), "DB", null, null, toRps(entry.count())));
+            }
+        }
+        return result;
+    }
+
+    private void promote(List<SpaceSavingSketch.Entry> top) {
+        long autoPromoted = hotStock.enrolledTickets().stream()
+                .map(modes::enrollment)
+                .filter(e -> e != null && e.source() == TicketModes.Source.AUTO)
+                .count();
+        for (SpaceSavingSketch.Entry entry : top) {
+            if (autoPromoted >= maxAutoPromoted) {
+                return;
+            }
+            if (toRps(entry.lowerBound()) < promoteRps) {
+                continue;
+            }
+            if (hotStock.isEnrolled(entry.key())) {
+                continue;
+            }
+            if (modes.promote(entry.key(), TicketModes.Source.AUTO)) {
+                autoPromoted++;
+                log.info("hot ticket detected: ticketId={}, rps>={}", entry.key(), Math.round(toRps(entry.lowerBound())));
+            }
+        }
+    }
+
+    private void demote() {
+        Instant now = Instant.now();
+        for (long ticketId : List.copyOf(hotStock.enrolledTickets())) {
+            TicketModes.Enrollment e = modes.enrollment(ticketId);
+            if (e == null || e.source() != TicketModes.Source.AUTO || e.since().plus(minDwell).isAfter(now)) {
+                continue;
+            }
+            double rps = rate(ticketId);
+            if (rps < demoteRps && modes.demote(ticketId)) {
+                log.info("hot ticket cooled down: ticketId={}, rps<={}", ticketId, Math.round(rps));
+            }
+        }
+    }
+
+    /**
+     * Upper bound of the ticket's rate, 0 once it dropped out of the sketch.
+     */
+    private double rate(long ticketId) {
+        SpaceSavingSketch.Entry entry;
+        synchronized (sketch) {
+            entry = sketch.get(ticketId);
+        }
+        return entry == null ? 0 : toRps(entry.count());
+    }
+
+    /**
+     * A steady rate r per tick settles at count = r / (1 - decay).
+     */
+    private double toRps(double count) {
+        return count * (1 - decay) * 1000.0 / tickMs;
+    }
+}
@@ -0,0 +1,96 @@
+package com.flashSale.inventory.hot;
+
+import java.util.*;
+
+/**
+ * Space-saving top-k with exponential decay (not thread-safe).
+ *
+ * At most capacity keys are counted. An unseen key evicts the smallest counter and
+ * inherits its count as error, so count over-estimates the key's true weight by at
+ * most error: count - error is a guaranteed lower bound.
+ *
+ * decay(f) multiplies all counts by f, turning the counts into an exponentially
+ * weighted moving sum over the offered windows.
+ */
+public class SpaceSavingSketch {
+
+    public record Entry(long key, double count, double error) {
+        public double lowerBound() {
+            return count - error;
+        }
+    }
+
+    private static final class Counter {
+        double count;
+        double error;
+    }
+
+    private final int capacity;
+    private final Map<Long, Counter> counters;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be >= 1");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+    }
+
+    public void offer(long key, double weight) {
+        Counter c = counters.get(key);
+        if (c != null) {
+            c.count += weight;
+            return;
+        }
+        if (counters.size() < capacity) {
+            c = new Counter();
+            c.count = weight;
+            counters.put(key, c);
+            return;
+        }
+
+        // capacity is small (top-k), a linear scan beats maintaining a heap on every hit
+        long minKey = 0;
+        Counter min = null;
+        for (Map.Entry<Long, Counter> e : counters.entrySet()) {
+            if (min == null || e.getValue().count < min.count) {
+                min = e.getValue();
+                minKey = e.getKey();
+            }
+        }
+        counters.remove(minKey);
+        min.error = min.count;
+        min.count += weight;
+        counters.put(key, min);
+    }
+
+    /**
+     * Multiply all counts by factor; counters that fall below floor are dropped.
+     */
+    public void decay(double factor, double floor) {
+        Iterator<Counter> it = counters.values().iterator();
+        while (it.hasNext()) {
+            Counter c = it.next();
+            c.count *= factor;
+            c.error *= factor;
+            if (c.count < floor) {
+                it.remove();
+            }
+        }
+    }
+
+    public Entry get(long key) {
+        Counter c = counters.get(key);
+        return c == null ? null : new Entry(key, c.count, c.error);
+    }
+
+    /**
+     * @return all counted keys, largest count first
+     */
+    public List<Entry> top() {
+        List<Entry> entries = new ArrayList<>(counters.size());
+        counters.forEach((key, c) -> entries.add(new Entry(key, c.count, c.error)));
+        entries.sort(Comparator.comparingDouble(Entry::count).reversed());
+        return entries;
+    }
+}
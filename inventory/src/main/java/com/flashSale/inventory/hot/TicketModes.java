@@ -0,0 +1,181 @@
+package com.flashSale.inventory.hot;
+
+import com.flashSale.inventory.journal.HotStockEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Serializes a ticket's mode switches (DB <-> memory) against the requests using it.
+ *
+ * Every reserve / commit / release / expiry of a ticket decides its path and runs it
+ * while holding a shared lease; promote / demote take the ticket's lock exclusively, so
+ * HotStockEngine only loads counters nobody is moving and only drops a ticket nobody is
+ * using. Readers queue behind a waiting switch, so a storm cannot starve it.
+ *
+ * The lock is per instance; across instances the mode lives in inventory.memory_owner.
+ * promote only succeeds for the instance that claims the column, and every other instance
+ * answers TICKET_IN_MEMORY_MODE for the ticket until its owner demotes it.
+ *
+ * One lock per ticket ever seen; tickets are few compared to requests.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TicketModes {
+
+    public enum Source { CONFIGURED, AUTO, MANUAL }
+
+    public record Enrollment(Source source, Instant since) {}
+
+    /** Shared hold on a ticket's current mode. */
+    public static final class Lease implements AutoCloseable {
+        private static final Lease NONE = new Lease(null);
+
+        private Lock lock;
+
+        private Lease(Lock lock) {
+            this.lock = lock;
+        }
+
+        @Override
+        public void close() {
+            if (lock != null) {
+                lock.unlock();
+                lock = null;
+            }
+        }
+    }
+
+    private final HotStockEngine hotStock;
+
+    @Value("${inventory.hot.demote-timeout-ms:5000}")
+    private long demoteTimeoutMs;
+
+    private final Map<Long, ReentrantReadWriteLock> locks = new ConcurrentHashMap<>();
+    private final Map<Long, Enrollment> enrollments = new ConcurrentHashMap<>();
+
+    public Lease shared(long ticketId) {
+        if (!hotStock.isEnabled()) {
+            return Lease.NONE;
+        }
+        Lock lock = lock(ticketId).readLock();
+        lock.lock();
+        return new Lease(lock);
+    }
+
+    /**
+     * @return null if a mode switch holds or waits for the ticket
+     */
+    public Lease tryShared(long ticketId) {
+        if (!hotStock.isEnabled()) {
+            return Lease.NONE;
+        }
+        Lock lock = lock(ticketId).readLock();
+        try {
+            // the timed variant queues behind a waiting switch, plain tryLock() would barge
+            return lock.tryLock(0, TimeUnit.NANOSECONDS) ? new Lease(lock) : null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    /**
+     * Shared lease held until the current transaction completes, for paths that only
+     * learn the ticket inside the tx (after reading the reservation).
+     */
+    public void sharedForTransaction(long ticketId) {
+        closeAfterCompletion(shared(ticketId));
+    }
+
+    /**
+     * @return false if a mode switch holds or waits for the ticket
+     */
+    public boolean trySharedForTransaction(long ticketId) {
+        Lease lease = tryShared(ticketId);
+        if (lease == null) {
+            return false;
+        }
+        closeAfterCompletion(lease);
+        return true;
+    }
+
+    public boolean promote(long ticketId, Source source) {
+        ReentrantReadWriteLock.WriteLock lock = lock(ticketId).writeLock();
+        lock.lock();
+        try {
+            if (hotStock.isEnrolled(ticketId)) {
+                return true;
+            }
+            if (!hotStock.enroll(ticketId)) {
+                return false;
+            }
+            enrollments.put(ticketId, new Enrollment(source, Instant.now()));
+            log.info("ticket promoted to memory mode: ticketId={}, source={}", ticketId, source);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drains the write-behind with the ticket still serving, then takes the lock only for the
+     * final flush and switch. Transitions landing between the two are drained again, until
+     * demote-timeout-ms.
+     */
+    public boolean demote(long ticketId) {
+        long deadline = System.currentTimeMillis() + demoteTimeoutMs;
+        while (true) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining < 0 || !hotStock.drain(ticketId, remaining)) {
+                return false;
+            }
+            ReentrantReadWriteLock.WriteLock lock = lock(ticketId).writeLock();
+            lock.lock();
+            try {
+                if (hotStock.retire(ticketId)) {
+                    Enrollment previous = enrollments.remove(ticketId);
+                    log.info("ticket demoted to DB mode: ticketId={}, source={}",
+                            ticketId, previous == null ? null : previous.source());
+                    return true;
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * How the ticket got into memory mode; tickets enrolled at startup count as CONFIGURED.
+     */
+    public Enrollment enrollment(long ticketId) {
+        if (!hotStock.isEnrolled(ticketId)) {
+            return null;
+        }
+        return enrollments.computeIfAbsent(ticketId, id -> new Enrollment(Source.CONFIGURED, null));
+    }
+
+    private static void closeAfterCompletion(Lease lease) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lease.close();
+            }
+        });
+    }
+
+    private ReentrantReadWriteLock lock(long ticketId) {
+        return locks.computeIfAbsent(ticketId, id -> new ReentrantReadWriteLock());
+    }
+}
@@ -0,0 +1,699 @@
+package com.flashSale.inventory.journal;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.journal.JournalRecord.Type;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Memory mode for the hottest tickets: counters and reservations live in this process,
+ * every transition is appended to a memory-mapped journal and acknowledged once the
+ * group fsync covers it. A background flusher writes the journaled transitions to
+ * inventory / inventory_reservations in large batches.
+ *
+ * Startup: journal records past the MySQL checkpoint are flushed first, then enrolled
+ * tickets are loaded from MySQL, so memory always starts from a fully flushed state.
+ *
+ * While enrolled, this instance owns the ticket: inventory.memory_owner holds owner-id, and
+ * every DB counter update requires memory_owner IS NULL, so no other instance (nor a stale
+ * local path) can move the stock. Requests for the ticket must reach this instance; others
+ * answer TICKET_IN_MEMORY_MODE. The column survives a crash, so the owner re-enrolls its
+ * tickets on restart. enroll / retire are serialized against in-flight requests by
+ * TicketModes; the write-behind is drained before that, outside its lock.
+ *
+ * Memory holds the live part only: RESERVED holds, and finished ones until the flusher
+ * has written them. Retries of any other id are answered from the tables (replayOf).
+ * Expiry walks a deadline-ordered set of the RESERVED holds, never the finished ones.
+ *
+ * A transition is appended to the journal before the counters move, so a failed append
+ * leaves memory untouched.
+ */
+@Slf4j
+@Component
+public class HotStockEngine {
+
+    private static final class HotTicket {
+        final long ticketId;
+        int available;
+        int reserved;
+        int sold;
+        /** journal position of the ticket's latest transition */
+        long lastPosition;
+        /** being demoted: no further transitions, not even expiry */
+        boolean retired;
+
+        HotTicket(long ticketId, int available, int reserved, int sold) {
+            this.ticketId = ticketId;
+            this.available = available;
+            this.reserved = reserved;
+            this.sold = sold;
+        }
+    }
+
+    /** Guarded by the owning HotTicket's monitor. */
+    private static final class HotReservation {
+        final String reservationId;
+        final long ticketId;
+        final int qty;
+        final Long userId;
+        final Instant expiresAt;
+        ReservationStatus status;
+        long position;
+
+        HotReservation(String reservationId, long ticketId, int qty, Long userId, Instant expiresAt,
+                       ReservationStatus status) {
+            this.reservationId = reservationId;
+            this.ticketId = ticketId;
+            this.qty = qty;
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+            this.status = status;
+        }
+
+        ReservationResponse toResponse() {
+            return new ReservationResponse(reservationId, ticketId, qty, status);
+        }
+
+        JournalRecord record(Type type) {
+            return new JournalRecord(type, reservationId, ticketId, qty, expiresAt, userId);
+        }
+    }
+
+    private record Pending(JournalRecord record, long position) {}
+
+    private static final Comparator<HotReservation> BY_DEADLINE =
+            Comparator.comparing((HotReservation r) -> r.expiresAt).thenComparing(r -> r.reservationId);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JournalFlushRepository flushRepo;
+    private final MeterRegistry meterRegistry;
+    private final UserPurchaseLimits userLimits;
+
+    private final boolean enabled;
+    private final String ownerId;
+    private final Path dir;
+    private final int segmentBytes;
+    private final long syncIntervalMicros;
+    private final int flushBatch;
+    private final long flushIntervalMs;
+    private final List<Long> configuredTickets;
+
+    private final Map<Long, HotTicket> tickets = new ConcurrentHashMap<>();
+    /** RESERVED holds, plus finished ones until flushed */
+    private final Map<String, HotReservation> reservations = new ConcurrentHashMap<>();
+    /** RESERVED holds with a deadline; added / removed under the ticket's monitor */
+    private final NavigableSet<HotReservation> deadlines = new ConcurrentSkipListSet<>(BY_DEADLINE);
+
+    private final Object appendLock = new Object();
+    private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+    /** Flusher thread only: a batch whose DB write failed, retried first. */
+    private final List<Pending> retry = new ArrayList<>();
+    /** Flusher thread only: finished ids of the previous flush, dropped from memory on the next one. */
+    private List<String> flushedOut = List.of();
+
+    private MappedJournal journal;
+    private ScheduledExecutorService flusher;
+    /** highest journal position written to MySQL */
+    private volatile long flushedPosition;
+
+    public HotStockEngine(
+            JdbcTemplate jdbcTemplate,
+            JournalFlushRepository flushRepo,
+            MeterRegistry meterRegistry,
+            UserPurchaseLimits userLimits,
+            @Value("${inventory.journal.enabled:false}") boolean enabled,
+            @Value("${inventory.journal.owner-id:${HOSTNAME:inventory-1}}") String ownerId,
+            @Value("${inventory.journal.dir:./data/journal}") String dir,
+            @Value("${inventory.journal.segment-bytes:67108864}") int segmentBytes,
+            @Value("${inventory.journal.sync-interval-micros:1000}") long syncIntervalMicros,
+            @Value("${inventory.journal.flush-batch:5000}") int flushBatch,
+            @Value("${inventory.journal.flush-interval-ms:200}") long flushIntervalMs,
+            @Value("${inventory.journal.tickets:}") List<Long> configuredTickets) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushRepo = flushRepo;
+        this.meterRegistry = meterRegistry;
+        this.userLimits = userLimits;
+        this.enabled = enabled;
+        this.ownerId = ownerId;
+        this.dir = Path.of(dir);
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalMicros = syncIntervalMicros;
+        this.flushBatch = flushBatch;
+        this.flushIntervalMs = flushIntervalMs;
+        this.configuredTickets = configuredTickets;
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        journal = new MappedJournal(dir, segmentBytes, syncIntervalMicros);
+
+        // 1) replay: everything past the checkpoint goes to MySQL before serving
+        long checkpoint = flushRepo.readCheckpoint();
+        List<Pending> replay = new ArrayList<>();
+        journal.recover(checkpoint, (payload, position) ->
+                replay.add(new Pending(JournalRecord.decode(payload), position)));
+        for (int from = 0; from < replay.size(); from += flushBatch) {
+            List<Pending> chunk = replay.subList(from, Math.min(replay.size(), from + flushBatch));
+            flushRepo.flush(chunk.stream().map(Pending::record).toList(), chunk.get(chunk.size() - 1).position());
+        }
+        flushedPosition = replay.isEmpty() ? checkpoint : replay.get(replay.size() - 1).position();
+        journal.trimBefore(flushedPosition);
+        log.info("inventory journal recovered: checkpoint={}, replayed={}", checkpoint, replay.size());
+
+        // 2) load enrolled tickets from the now complete MySQL state: the configured ones and
+        //    the ones this owner still held when it stopped
+        Set<Long> toEnroll = new LinkedHashSet<>(configuredTickets);
+        toEnroll.addAll(jdbcTemplate.queryForList(
+                "SELECT ticket_id FROM inventory WHERE memory_owner = ?", Long.class, ownerId));
+        toEnroll.forEach(this::enroll);
+
+        meterRegistry.gauge("inventory.journal.pending", pending, Queue::size);
+        meterRegistry.gauge("inventory.journal.holds", reservations, Map::size);
+        flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "inventory-journal-flusher");
+            t.setDaemon(true);
+            return t;
+        });
+        flusher.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher == null) {
+            return;
+        }
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        journal.close();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isEnrolled(long ticketId) {
+        return tickets.containsKey(ticketId);
+    }
+
+    public boolean owns(String reservationId) {
+        return reservations.containsKey(reservationId);
+    }
+
+    /**
+     * @return ticket of a reservation held in memory, null if it is not
+     */
+    public Long ticketOf(String reservationId) {
+        HotReservation r = reservations.get(reservationId);
+        return r == null ? null : r.ticketId;
+    }
+
+    /**
+     * @return current state of a reservation held in memory, null if it is not (a finished
+     *         one may already be flushed out: ask the tables)
+     */
+    public ReservationResponse find(String reservationId) {
+        HotReservation r = reservations.get(reservationId);
+        HotTicket ticket = r == null ? null : tickets.get(r.ticketId);
+        if (ticket == null) {
+            return null;
+        }
+        synchronized (ticket) {
+            return r.toResponse();
+        }
+    }
+
+    public String ownerId() {
+        return ownerId;
+    }
+
+    public Set<Long> enrolledTickets() {
+        return Collections.unmodifiableSet(tickets.keySet());
+    }
+
+    /**
+     * Take over a ticket: claim it in inventory.memory_owner, then load its counters.
+     * Once the claim commits no DB path can move the row, so the counters read after it are
+     * final. Must only be called while no local DB path is using the ticket.
+     *
+     * @return false if the ticket is missing, sharded, seated or owned by another instance
+     */
+    public boolean enroll(long ticketId) {
+        if (!enabled) {
+            return false;
+        }
+        if (tickets.containsKey(ticketId)) {
+            return true;
+        }
+        int claimed = jdbcTemplate.update("""
+                UPDATE inventory
+                SET memory_owner = ?
+                WHERE ticket_id = ?
+                    AND shard_count = 1
+                    AND seated = 0
+                    AND (memory_owner IS NULL OR memory_owner = ?)
+                """, ownerId, ticketId, ownerId);
+        if (claimed == 0) {
+            List<String> owner = jdbcTemplate.queryForList(
+                    "SELECT memory_owner FROM inventory WHERE ticket_id = ?", String.class, ticketId);
+            if (owner.isEmpty() || owner.get(0) == null) {
+                log.warn("ticket not enrolled in memory mode (missing, sharded or seated): ticketId={}", ticketId);
+            } else {
+                // routine for the hot ticket detector of every other instance
+                log.debug("ticket not enrolled in memory mode, owned by another instance: ticketId={}, owner={}",
+                        ticketId, owner.get(0));
+            }
+            return false;
+        }
+
+        HotTicket ticket;
+        Map<String, HotReservation> loaded = new HashMap<>();
+        try {
+            Map<String, Object> row = jdbcTemplate.queryForMap(
+                    "SELECT available, reserved, sold FROM inventory WHERE ticket_id = ?", ticketId);
+            ticket = new HotTicket(ticketId,
+                    ((Number) row.get("available")).intValue(),
+                    ((Number) row.get("reserved")).intValue(),
+                    ((Number) row.get("sold")).intValue());
+
+            // live holds only: ids in any other state are found by replayOf
+            jdbcTemplate.query("""
+                    SELECT reservation_id, qty, user_id, status, expires_at
+                    FROM inventory_reservations
+                    WHERE ticket_id = ? AND status = 'RESERVED'
+                    """, rs -> {
+                        Timestamp expires = rs.getTimestamp("expires_at");
+                        HotReservation r = new HotReservation(
+                                rs.getString("reservation_id"), ticketId, rs.getInt("qty"),
+                                rs.getObject("user_id", Long.class),
+                                expires == null ? null : expires.toInstant(),
+                                ReservationStatus.valueOf(rs.getString("status")));
+                        loaded.put(r.reservationId, r);
+                    }, ticketId);
+        } catch (RuntimeException e) {
+            disown(ticketId);
+            throw e;
+        }
+
+        reservations.putAll(loaded);
+        loaded.values().forEach(this::trackDeadline);
+        tickets.put(ticketId, ticket);
+        log.info("ticket enrolled in memory mode: ticketId={}, owner={}, available={}, reserved={}",
+                ticketId, ownerId, ticket.available, ticket.reserved);
+        return true;
+    }
+
+    /**
+     * First half of a demotion, run without any TicketModes lock so reserves keep flowing:
+     * wait until the write-behind has caught up with the ticket's transitions so far.
+     * Whatever lands meanwhile is left for retire().
+     *
+     * @return false if the flush did not catch up within timeout
+     */
+    public boolean drain(long ticketId, long timeoutMs) {
+        HotTicket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            return true;
+        }
+        long last;
+        synchronized (ticket) {
+            last = ticket.lastPosition;
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (flushedPosition < last) {
+            if (System.currentTimeMillis() > deadline) {
+                log.warn("ticket demotion timed out waiting for write-behind: ticketId={}, position={}, flushed={}",
+                        ticketId, last, flushedPosition);
+                return false;
+            }
+            try {
+                Thread.sleep(Math.max(1, flushIntervalMs / 4));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Hand a drained ticket back to the DB paths: stop its transitions, flush the few written
+     * since drain() on the flusher thread, clear memory_owner, then drop it from memory.
+     * Must only be called while no request is using the ticket's memory mode; it never waits
+     * for more than that one flush.
+     *
+     * @return false if transitions are still unflushed (the ticket stays enrolled, drain again)
+     */
+    public boolean retire(long ticketId) {
+        HotTicket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            return true;
+        }
+        long last;
+        synchronized (ticket) {
+            ticket.retired = true;
+            last = ticket.lastPosition;
+        }
+
+        try {
+            if (flushedPosition < last) {
+                flusher.submit(this::flush).get();
+            }
+            if (flushedPosition < last) {
+                synchronized (ticket) {
+                    ticket.retired = false;
+                }
+                return false;
+            }
+            disown(ticketId);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            synchronized (ticket) {
+                ticket.retired = false;
+            }
+            return false;
+        } catch (ExecutionException | RuntimeException e) {
+            synchronized (ticket) {
+                ticket.retired = false;
+            }
+            log.warn("ticket demotion failed: ticketId={}", ticketId, e);
+            return false;
+        }
+        tickets.remove(ticketId);
+        reservations.values().removeIf(r -> r.ticketId == ticketId);
+        deadlines.removeIf(r -> r.ticketId == ticketId);
+        log.info("ticket retired from memory mode: ticketId={}, available={}, reserved={}, sold={}",
+                ticketId, ticket.available, ticket.reserved, ticket.sold);
+        return true;
+    }
+
+    /**
+     * Answer for a reservationId seen before: held in memory, else found in
+     * inventory_reservations or the archive (one statement, only for ids not in memory).
+     *
+     * @return null if the id is new
+     * @throws ConflictException INSUFFICIENT_STOCK for a FAILED id, RESERVATION_IN_PROGRESS
+     *         for one still being reserved in memory
+     */
+    public ReservationResponse replayOf(String reservationId) {
+        HotReservation held = reservations.get(reservationId);
+        if (held != null) {
+            HotTicket ticket = tickets.get(held.ticketId);
+            if (ticket != null) {
+                synchronized (ticket) {
+                    // the monitor publishes the state the reserving thread wrote
+                    return replay(held);
+                }
+            }
+        }
+        // finished holds leave memory only once flushed, so a miss above is in the tables
+        List<ReservationResponse> stored = jdbcTemplate.query("""
+                SELECT reservation_id, ticket_id, qty, status FROM inventory_reservations
+                WHERE reservation_id = ?
+                UNION ALL
+                SELECT reservation_id, ticket_id, qty, status FROM inventory_reservations_archive
+                WHERE reservation_id = ?
+                """, (rs, i) -> new ReservationResponse(rs.getString("reservation_id"), rs.getLong("ticket_id"),
+                        rs.getInt("qty"), ReservationStatus.valueOf(rs.getString("status"))),
+                reservationId, reservationId);
+        if (stored.isEmpty()) {
+            return null;
+        }
+        // same answer as the DB path's replay
+        if (stored.get(0).status() == ReservationStatus.FAILED) {
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        return stored.get(0);
+    }
+
+    /**
+     * Callers check replayOf first: an id already flushed out of memory must not be
+     * reserved again. Concurrent reserves of one new id are settled here.
+     */
+    public ReservationResponse reserve(String reservationId, long ticketId, int qty, Long userId, Instant expiresAt) {
+        HotTicket ticket = ticket(ticketId);
+        HotReservation created = new HotReservation(reservationId, ticketId, qty, userId, expiresAt, ReservationStatus.INIT);
+        long position;
+
+        HotReservation existing;
+        synchronized (ticket) {
+            existing = reservations.putIfAbsent(reservationId, created);
+            if (existing == null) {
+                position = reserveLocked(ticket, created);
+            } else {
+                position = -1;
+            }
+        }
+        if (existing != null) {
+            return replay(existing);
+        }
+
+        journal.awaitDurable(position);
+        return created.toResponse();
+    }
+
+    private long reserveLocked(HotTicket ticket, HotReservation created) {
+        if (ticket.available < created.qty) {
+            reservations.remove(created.reservationId, created);
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        long position;
+        try {
+            position = append(created.record(Type.RESERVE));
+        } catch (RuntimeException e) {
+            reservations.remove(created.reservationId, created);
+            throw e;
+        }
+        ticket.available -= created.qty;
+        ticket.reserved += created.qty;
+        created.status = ReservationStatus.RESERVED;
+        created.position = position;
+        ticket.lastPosition = position;
+        trackDeadline(created);
+        return position;
+    }
+
+    /**
+     * @return null if the reservation is not (or no longer) in memory
+     */
+    public ReservationResponse commit(String reservationId) {
+        HotReservation r = reservations.get(reservationId);
+        if (r == null) {
+            return null;
+        }
+        HotTicket ticket = ticket(r.ticketId);
+        long position;
+
+        synchronized (ticket) {
+            if (r.status == ReservationStatus.COMMITTED) {
+                position = r.position;
+            } else if (r.status != ReservationStatus.RESERVED) {
+                throw new ConflictException("INVALID_STATE", "only reserved reservation can be committed");
+            } else {
+                position = append(r.record(Type.COMMIT));
+                ticket.reserved -= r.qty;
+                ticket.sold += r.qty;
+                r.status = ReservationStatus.COMMITTED;
+                r.position = position;
+                ticket.lastPosition = position;
+                deadlines.remove(r);
+            }
+        }
+
+        journal.awaitDurable(position);
+        return r.toResponse();
+    }
+
+    /**
+     * @return null if the reservation is not (or no longer) in memory
+     */
+    public ReservationResponse release(String reservationId) {
+        HotReservation r = reservations.get(reservationId);
+        if (r == null) {
+            return null;
+        }
+        HotTicket ticket = ticket(r.ticketId);
+        long position;
+        boolean released = false;
+
+        synchronized (ticket) {
+            if (r.status == ReservationStatus.RELEASED) {
+                position = r.position;
+            } else if (r.status == ReservationStatus.COMMITTED) {
+                throw new ConflictException("INVALID_STATE", "reservation already committed, unable to release");
+            } else if (r.status != ReservationStatus.RESERVED) {
+                throw new ConflictException("INVALID_STATE", "only reservation state can be release");
+            } else {
+                position = releaseLocked(ticket, r);
+                released = true;
+            }
+        }
+
+        journal.awaitDurable(position);
+        if (released) {
+            releaseUserHold(r);
+        }
+        return r.toResponse();
+    }
+
+    /**
+     * Release expired in-memory holds (the DB expiry engine skips enrolled tickets): only the
+     * due head of the deadline set is visited.
+     */
+    @Scheduled(fixedDelayString = "${inventory.journal.expiry-interval-ms:1000}")
+    public void expireHolds() {
+        if (!enabled) {
+            return;
+        }
+        Instant now = Instant.now();
+        int expired = 0;
+        List<HotReservation> later = new ArrayList<>();
+        HotReservation r;
+        while ((r = deadlines.pollFirst()) != null) {
+            if (r.expiresAt.isAfter(now)) {
+                deadlines.add(r);
+                break;
+            }
+            HotTicket ticket = tickets.get(r.ticketId);
+            if (ticket == null) {
+                continue;
+            }
+            synchronized (ticket) {
+                if (r.status != ReservationStatus.RESERVED) {
+                    continue;
+                }
+                if (ticket.retired) {
+                    // being demoted: if that fails the hold is still ours to expire
+                    later.add(r);
+                    continue;
+                }
+                releaseLocked(ticket, r);
+                expired++;
+            }
+            releaseUserHold(r);
+        }
+        later.forEach(this::trackDeadline);
+        if (expired > 0) {
+            meterRegistry.counter("inventory.reservations.expired", "source", "memory").increment(expired);
+            log.info("expired in-memory reservations released: count={}", expired);
+        }
+    }
+
+    /**
+     * Autocommit, after the release is durable. A failure leaves the user over-counted, never under.
+     */
+    private void releaseUserHold(HotReservation r) {
+        try {
+            userLimits.release(r.userId, r.ticketId, r.qty);
+        } catch (RuntimeException e) {
+            log.warn("per-user hold not given back: reservationId={}, ticketId={}, userId={}, qty={}",
+                    r.reservationId, r.ticketId, r.userId, r.qty, e);
+        }
+    }
+
+    private long releaseLocked(HotTicket ticket, HotReservation r) {
+        long position = append(r.record(Type.RELEASE));
+        ticket.reserved -= r.qty;
+        ticket.available += r.qty;
+        r.status = ReservationStatus.RELEASED;
+        r.position = position;
+        ticket.lastPosition = position;
+        deadlines.remove(r);
+        return position;
+    }
+
+    private void trackDeadline(HotReservation r) {
+        if (r.expiresAt != null) {
+            deadlines.add(r);
+        }
+    }
+
+    /**
+     * Journal order = flush order: the pending queue is fed under the same lock as the append.
+     */
+    private long append(JournalRecord record) {
+        synchronized (appendLock) {
+            long position = journal.append(record.encode());
+            pending.add(new Pending(record, position));
+            return position;
+        }
+    }
+
+    /** Retries must not be acknowledged before the original transition is durable. */
+    private ReservationResponse replay(HotReservation r) {
+        if (r.status == ReservationStatus.INIT) {
+            throw new ConflictException("RESERVATION_IN_PROGRESS", "reservation is being processed");
+        }
+        journal.awaitDurable(r.position);
+        return r.toResponse();
+    }
+
+    private void flush() {
+        long durable = journal.durablePosition();
+        List<Pending> batch = new ArrayList<>(retry);
+        retry.clear();
+        Pending head;
+        while (batch.size() < flushBatch && (head = pending.peek()) != null && head.position() <= durable) {
+            batch.add(pending.poll());
+        }
+        if (batch.isEmpty()) {
+            flushedOut.forEach(reservations::remove);
+            flushedOut = List.of();
+            return;
+        }
+
+        long upTo = batch.get(batch.size() - 1).position();
+        try {
+            flushRepo.flush(batch.stream().map(Pending::record).toList(), upTo);
+            flushedPosition = upTo;
+            journal.trimBefore(upTo);
+            // finished and now in MySQL: retries are answered from there. Dropped one flush
+            // later, so a replayOf that just missed the tables still finds the id in memory.
+            flushedOut.forEach(reservations::remove);
+            flushedOut = batch.stream()
+                    .map(Pending::record)
+                    .filter(record -> record.type() != Type.RESERVE)
+                    .map(JournalRecord::reservationId)
+                    .toList();
+        } catch (Exception e) {
+            log.error("inventory journal flush failed, will retry: records={}, upTo={}", batch.size(), upTo, e);
+            retry.addAll(batch);
+        }
+    }
+
+    private void disown(long ticketId) {
+        jdbcTemplate.update("UPDATE inventory SET memory_owner = NULL WHERE ticket_id = ? AND memory_owner = ?",
+                ticketId, ownerId);
+    }
+
+    private HotTicket ticket(long ticketId) {
+        HotTicket ticket = tickets.get(ticketId);
+        if (ticket == null) {
+            throw new IllegalStateException("ticket not in memory mode: " + ticketId);
+        }
+        return ticket;
+    }
+}
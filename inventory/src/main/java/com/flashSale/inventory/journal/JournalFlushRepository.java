@@ -0,0 +1,82 @@
+package com.flashSale.inventory.journal;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Write-behind of journaled transitions. The checkpoint (journal position covered by
+ * MySQL) moves in the same tx as the data, so a replay after a crash never applies a
+ * record twice.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JournalFlushRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+
+    public long readCheckpoint() {
+        Long position = jdbcTemplate.queryForObject(
+                "SELECT position FROM inventory_journal_checkpoint WHERE id = 1", Long.class);
+        return position == null ? 0 : position;
+    }
+
+    /**
+     * @param records    transitions in journal order
+     * @param upToPosition journal position right after the last record
+     */
+    public void flush(List<JournalRecord> records, long upToPosition) {
+        // per ticket: available, reserved, sold, version deltas
+        Map<Long, int[]> deltas = new TreeMap<>();
+        // last state per reservation wins
+        Map<String, Object[]> rows = new LinkedHashMap<>();
+
+        for (JournalRecord r : records) {
+            int[] d = deltas.computeIfAbsent(r.ticketId(), k -> new int[4]);
+            String status;
+            switch (r.type()) {
+                case RESERVE -> { d[0] -= r.qty(); d[1] += r.qty(); status = "RESERVED"; }
+                case COMMIT -> { d[1] -= r.qty(); d[2] += r.qty(); status = "COMMITTED"; }
+                case RELEASE -> { d[1] -= r.qty(); d[0] += r.qty(); status = "RELEASED"; }
+                default -> throw new IllegalStateException("unknown record type " + r.type());
+            }
+            d[3]++;
+            rows.remove(r.reservationId());
+            rows.put(r.reservationId(), new Object[]{
+                    r.reservationId(), r.ticketId(), r.qty(), status, r.userId(),
+                    r.expiresAt() == null ? null : Timestamp.from(r.expiresAt())});
+        }
+
+        txTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate("""
+                    UPDATE inventory
+                    SET available = available + ?,
+                        reserved = reserved + ?,
+                        sold = sold + ?,
+                        version = version + ?
+                    WHERE ticket_id = ?
+                    """,
+                    deltas.entrySet().stream()
+                            .map(e -> new Object[]{e.getValue()[0], e.getValue()[1], e.getValue()[2],
+                                    e.getValue()[3], e.getKey()})
+                            .toList());
+
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO inventory_reservations
+                        (reservation_id, ticket_id, qty, status, user_id, expires_at)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    ON DUPLICATE KEY UPDATE
+                        status = VALUES(status),
+                        qty = VALUES(qty),
+                        expires_at = VALUES(expires_at)
+                    """, new ArrayList<>(rows.values()));
+
+            jdbcTemplate.update(
+                    "UPDATE inventory_journal_checkpoint SET position = ? WHERE id = 1", upToPosition);
+        });
+    }
+}
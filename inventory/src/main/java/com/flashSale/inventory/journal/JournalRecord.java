@@ -0,0 +1,65 @@
+package com.flashSale.inventory.journal;
+
+import java.io.*;
+import java.time.Instant;
+
+/**
+ * One stock transition of an in-memory ticket. Carries the full reservation so the
+ * flusher can upsert the row from any single record.
+ */
+public record JournalRecord(
+        Type type,
+        String reservationId,
+        long ticketId,
+        int qty,
+        Instant expiresAt,
+        Long userId
+) {
+    public enum Type {
+        RESERVE, COMMIT, RELEASE
+    }
+
+    /** 2 appends the userId; version 1 records still decode (userId = null) */
+    private static final byte VERSION = 2;
+
+    public byte[] encode() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(VERSION);
+            out.writeByte(type.ordinal());
+            out.writeUTF(reservationId);
+            out.writeLong(ticketId);
+            out.writeInt(qty);
+            out.writeLong(expiresAt == null ? -1 : expiresAt.getEpochSecond());
+            out.writeBoolean(userId != null);
+            out.writeLong(userId == null ? 0 : userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static JournalRecord decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte version = in.readByte();
+            if (version != 1 && version != VERSION) {
+                throw new IllegalStateException("unknown journal record version " + version);
+            }
+            Type type = Type.values()[in.readByte()];
+            String reservationId = in.readUTF();
+            long ticketId = in.readLong();
+            int qty = in.readInt();
+            long expires = in.readLong();
+            Long userId = null;
+            if (version >= 2) {
+                boolean hasUser = in.readBoolean();
+                long user = in.readLong();
+                userId = hasUser ? user : null;
+            }
+            return new JournalRecord(type, reservationId, ticketId, qty,
+                    expires < 0 ? null : Instant.ofEpochSecond(expires), userId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
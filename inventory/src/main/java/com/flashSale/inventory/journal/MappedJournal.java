@@ -0,0 +1,300 @@
+package com.flashSale.inventory.journal;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.TreeMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiConsumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only journal over fixed-size memory-mapped segment files.
+ *
+ * Positions are global byte offsets: a segment file is named after the position of its
+ * first byte, so position = segment base + offset inside the segment.
+ *
+ * Frame: [int length][int crc32c][payload]. length 0 = end of data (files are zero-filled),
+ * length -1 = rest of this segment unused, continue in the next one.
+ *
+ * Durability is group-committed: append() only writes into the mapping, a single syncer
+ * thread forces the mapping to disk and awaitDurable() blocks until a position is covered,
+ * so concurrent appenders share one fsync.
+ */
+@Slf4j
+public class MappedJournal implements Closeable {
+
+    private static final int HEADER = 8;
+    private static final int SKIP = -1;
+    private static final String SUFFIX = ".journal";
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final long syncIntervalNanos;
+
+    /** base position -> file, only segments not yet trimmed */
+    private final TreeMap<Long, Path> segments = new TreeMap<>();
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private long segmentBase;
+
+    private long appendedPosition;
+    private final Object durableLock = new Object();
+    private long durablePosition;
+    private boolean closed;
+    private final Thread syncer;
+
+    public MappedJournal(Path dir, int segmentBytes, long syncIntervalMicros) {
+        this.dir = dir;
+        this.segmentBytes = segmentBytes;
+        this.syncIntervalNanos = syncIntervalMicros * 1000;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                files.filter(p -> p.getFileName().toString().endsWith(SUFFIX))
+                        .forEach(p -> segments.put(baseOf(p), p));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot open journal dir " + dir, e);
+        }
+        this.syncer = new Thread(this::syncLoop, "inventory-journal-sync");
+        this.syncer.setDaemon(true);
+    }
+
+    /**
+     * Read every intact frame from position onwards, then open the journal for appends
+     * right after the last intact frame (a torn tail is overwritten).
+     *
+     * @param reader called with (payload, position after the frame)
+     */
+    public synchronized void recover(long position, BiConsumer<byte[], Long> reader) {
+        long pos = position;
+        Long base = segments.floorKey(pos);
+
+        while (base != null) {
+            ByteBufferView view = map(segments.get(base), base);
+            int offset = (int) (pos - base);
+            boolean nextSegment = false;
+
+            while (offset + HEADER <= segmentBytes) {
+                int length = view.buffer.getInt(offset);
+                if (length == SKIP) {
+                    nextSegment = true;
+                    break;
+                }
+                if (length <= 0 || offset + HEADER + length > segmentBytes) {
+                    break;
+                }
+                int crc = view.buffer.getInt(offset + 4);
+                byte[] payload = new byte[length];
+                view.buffer.get(offset + HEADER, payload);
+                if (crc != crc(payload)) {
+                    log.warn("journal torn frame, stopping replay: position={}", base + offset);
+                    break;
+                }
+                offset += HEADER + length;
+                pos = base + offset;
+                reader.accept(payload, pos);
+            }
+            view.close();
+
+            Long next = segments.higherKey(base);
+            if (nextSegment || (offset + HEADER > segmentBytes)) {
+                if (next == null) {
+                    pos = base + segmentBytes;
+                    break;
+                }
+                pos = next;
+                base = next;
+                continue;
+            }
+            break;
+        }
+
+        openForAppend(pos);
+        appendedPosition = pos;
+        synchronized (durableLock) {
+            durablePosition = pos;
+        }
+        syncer.start();
+    }
+
+    /**
+     * @return position right after the frame; pass it to awaitDurable
+     */
+    public synchronized long append(byte[] payload) {
+        int frame = HEADER + payload.length;
+        if (frame > segmentBytes) {
+            throw new IllegalArgumentException("journal record larger than a segment: " + payload.length);
+        }
+        int offset = (int) (appendedPosition - segmentBase);
+        if (offset + frame > segmentBytes) {
+            if (offset + 4 <= segmentBytes) {
+                buffer.putInt(offset, SKIP);
+            }
+            // the syncer only forces the current mapping
+            buffer.force();
+            openForAppend(segmentBase + segmentBytes);
+            offset = 0;
+        }
+
+        buffer.putInt(offset + 4, crc(payload));
+        buffer.put(offset + HEADER, payload);
+        // length last: a frame is only visible to recovery once complete
+        buffer.putInt(offset, payload.length);
+        appendedPosition = segmentBase + offset + frame;
+        return appendedPosition;
+    }
+
+    public void awaitDurable(long position) {
+        synchronized (durableLock) {
+            while (durablePosition < position) {
+                if (closed) {
+                    throw new IllegalStateException("journal closed");
+                }
+                try {
+                    durableLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("interrupted waiting for journal sync", e);
+                }
+            }
+        }
+    }
+
+    public long durablePosition() {
+        synchronized (durableLock) {
+            return durablePosition;
+        }
+    }
+
+    /**
+     * Delete segments that end at or before position (already flushed to MySQL).
+     */
+    public synchronized void trimBefore(long position) {
+        while (!segments.isEmpty()) {
+            long base = segments.firstKey();
+            if (base + segmentBytes > position || base == segmentBase) {
+                return;
+            }
+            Path file = segments.remove(base);
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                log.warn("journal segment delete failed: file={}, error={}", file, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (durableLock) {
+            closed = true;
+            durableLock.notifyAll();
+        }
+        syncer.interrupt();
+        synchronized (this) {
+            if (buffer != null) {
+                buffer.force();
+            }
+            closeChannel();
+        }
+    }
+
+    private void syncLoop() {
+        while (!Thread.currentThread().isInterrupted()) {
+            long target;
+            MappedByteBuffer current;
+            synchronized (this) {
+                target = appendedPosition;
+                current = buffer;
+            }
+            if (target > durablePosition()) {
+                current.force();
+                synchronized (durableLock) {
+                    durablePosition = Math.max(durablePosition, target);
+                    durableLock.notifyAll();
+                }
+            }
+            LockSupport.parkNanos(syncIntervalNanos);
+        }
+    }
+
+    /**
+     * Map the segment holding position for appends. Everything from position to the end of
+     * the segment is zeroed, so bytes left behind by a crash can never follow new frames.
+     */
+    private void openForAppend(long position) {
+        closeChannel();
+        Long floor = segments.floorKey(position);
+        long base = (floor != null && position < floor + segmentBytes) ? floor : position;
+        Path file = segments.computeIfAbsent(base, b -> dir.resolve(String.format("%020d%s", b, SUFFIX)));
+        boolean existed = Files.exists(file);
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map journal segment " + file, e);
+        }
+        segmentBase = base;
+        if (!existed) {
+            return;  // fresh files read as zeros
+        }
+
+        byte[] zeros = new byte[64 * 1024];
+        for (int offset = (int) (position - base); offset < segmentBytes; offset += zeros.length) {
+            buffer.put(offset, zeros, 0, Math.min(zeros.length, segmentBytes - offset));
+        }
+    }
+
+    private void closeChannel() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("journal segment close failed: error={}", e.getMessage());
+            }
+            channel = null;
+        }
+    }
+
+    private record ByteBufferView(FileChannel channel, MappedByteBuffer buffer) implements Closeable {
+        @Override
+        public void close() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // read-only view
+            }
+        }
+    }
+
+    private ByteBufferView map(Path file, long base) {
+        try {
+            FileChannel ch = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new ByteBufferView(ch, ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException("cannot map journal segment " + file + " at " + base, e);
+        }
+    }
+
+    private static long baseOf(Path file) {
+        String name = file.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    private static int crc(byte[] payload) {
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+}
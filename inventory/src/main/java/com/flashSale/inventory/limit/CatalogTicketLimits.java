@@ -0,0 +1,112 @@
+package com.flashSale.inventory.limit;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.flashSale.inventory.exception.ServiceUnavailableException;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClient;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Per-user limits as set on catalog's ticket (perUserLimit), the single source of truth.
+ *
+ * Cached per ticket: reloaded in the background once older than refresh-ms (readers keep the
+ * old value meanwhile, also while catalog is down) and dropped after ttl-ms. Catalog's ticket
+ * change notification drops an entry right away (TicketChangeListenerConfig).
+ * A ticket catalog does not know has no limit.
+ */
+@Slf4j
+@Component
+public class CatalogTicketLimits {
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record CatalogTicket(Integer perUserLimit) {}
+
+    private static final int NO_LIMIT = 0;
+
+    private final RestClient client;
+    private final ExecutorService refresher;
+    private final LoadingCache<Long, Integer> limits;
+
+    public CatalogTicketLimits(
+            RestClient.Builder restClientBuilder,
+            @Value("${inventory.catalog.base-url:http://localhost:8082}") String baseUrl,
+            @Value("${inventory.catalog.connect-timeout-ms:500}") long connectTimeoutMs,
+            @Value("${inventory.catalog.timeout-ms:1000}") long timeoutMs,
+            @Value("${inventory.limits.refresh-ms:10000}") long refreshMs,
+            @Value("${inventory.limits.ttl-ms:300000}") long ttlMs) {
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build());
+        factory.setReadTimeout(Duration.ofMillis(timeoutMs));
+        this.client = restClientBuilder
+                .baseUrl(baseUrl)
+                .requestFactory(factory)
+                .build();
+        this.refresher = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "limit-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        this.limits = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .refreshAfterWrite(Duration.ofMillis(refreshMs))
+                .executor(refresher)
+                .build(this::fetch);
+    }
+
+    /**
+     * @return the ticket's per-user limit, null if it has none
+     * @throws ServiceUnavailableException CATALOG_UNAVAILABLE when not cached and catalog cannot answer
+     */
+    public Integer limitOf(long ticketId) {
+        int limit = limits.get(ticketId);
+        return limit == NO_LIMIT ? null : limit;
+    }
+
+    public void invalidate(long ticketId) {
+        limits.invalidate(ticketId);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdown();
+    }
+
+    private int fetch(long ticketId) {
+        try {
+            return client.get()
+                    .uri("/catalog/tickets/{id}", ticketId)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .exchange((req, res) -> {
+                        if (res.getStatusCode().value() == 404) {
+                            return NO_LIMIT;
+                        }
+                        if (res.getStatusCode().isError()) {
+                            throw unavailable(ticketId, "CATALOG_" + res.getStatusCode().value(), null);
+                        }
+                        CatalogTicket ticket = res.bodyTo(CatalogTicket.class);
+                        return ticket == null || ticket.perUserLimit() == null ? NO_LIMIT : ticket.perUserLimit();
+                    });
+        } catch (ResourceAccessException e) {
+            throw unavailable(ticketId, "CATALOG_TIMEOUT", e);
+        }
+    }
+
+    private static ServiceUnavailableException unavailable(long ticketId, String reason, Throwable cause) {
+        log.warn("per-user limit lookup failed: ticketId={}, reason={}", ticketId, reason);
+        return new ServiceUnavailableException("CATALOG_UNAVAILABLE",
+                "per-user limit of ticket " + ticketId + " unavailable: " + reason, Duration.ofSeconds(1), cause);
+    }
+}
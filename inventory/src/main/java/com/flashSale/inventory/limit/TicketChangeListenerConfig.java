@@ -0,0 +1,39 @@
+package com.flashSale.inventory.limit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Subscribes the per-user limit cache to catalog's ticket changes (message = ticket id).
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "inventory.limits", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class TicketChangeListenerConfig {
+
+    @Bean
+    public RedisMessageListenerContainer ticketChangeListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            CatalogTicketLimits ticketLimits,
+            @Value("${inventory.limits.channel:catalog:ticket:changed}") String channel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener((message, pattern) -> {
+            String body = new String(message.getBody(), StandardCharsets.UTF_8);
+            try {
+                ticketLimits.invalidate(Long.parseLong(body));
+            } catch (NumberFormatException e) {
+                log.warn("ignoring malformed ticket change: message={}", body);
+            }
+        }, new ChannelTopic(channel));
+        return container;
+    }
+}
@@ -0,0 +1,113 @@
+package com.flashSale.inventory.limit;
+
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.repo.UserHoldRepository;
+import com.flashSale.inventory.repo.UserHoldRepository.Delta;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Enforces catalog's per-user limit of a ticket inside the reserve transaction.
+ *
+ * 1) prepare() runs before the tx: it loads the ticket's limit (CatalogTicketLimits), so the
+ *    tx does not wait on catalog, and rejects a reserve of a limited ticket without a userId
+ * 2) acquire() adds the quantity to the user's inventory_user_holds row with a conditional
+ *    UPDATE, in the same tx as the stock UPDATE: the check holds across instances and a
+ *    rolled-back reserve leaves no count behind
+ *
+ * Reserves add, releases and expiries subtract (in their own tx), commits keep the count.
+ * Memory-mode holds are counted in autocommit around the journal append.
+ *
+ * Lock order is the inventory row first, then the hold row, on every path.
+ */
+@Slf4j
+@Component
+public class UserPurchaseLimits {
+
+    private final UserHoldRepository holdRepo;
+    private final CatalogTicketLimits ticketLimits;
+    private final boolean enabled;
+    private final Counter rejected;
+
+    public UserPurchaseLimits(
+            UserHoldRepository holdRepo,
+            CatalogTicketLimits ticketLimits,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.limits.enabled:true}") boolean enabled) {
+        this.holdRepo = holdRepo;
+        this.ticketLimits = ticketLimits;
+        this.enabled = enabled;
+        this.rejected = Counter.builder("inventory.limits.rejected")
+                .description("reserves rejected by the per-user purchase limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Call before opening the reserve tx.
+     *
+     * @throws ConflictException USER_ID_REQUIRED when the ticket has a limit and userId is null
+     * @throws com.flashSale.inventory.exception.ServiceUnavailableException CATALOG_UNAVAILABLE
+     */
+    public void prepare(Long userId, long ticketId) {
+        if (!enabled) {
+            return;
+        }
+        if (ticketLimits.limitOf(ticketId) != null && userId == null) {
+            rejected.increment();
+            throw new ConflictException("USER_ID_REQUIRED",
+                    "ticket " + ticketId + " has a per-user limit, the reserve needs a userId");
+        }
+    }
+
+    /**
+     * Count qty against the user's limit for the ticket, in the caller's tx.
+     *
+     * @throws ConflictException PER_USER_LIMIT_EXCEEDED (or USER_ID_REQUIRED), nothing is counted then
+     */
+    public void acquire(Long userId, long ticketId, int qty) {
+        if (!enabled) {
+            return;
+        }
+        Integer limit = ticketLimits.limitOf(ticketId);
+        if (limit == null) {
+            return;
+        }
+        if (userId == null) {
+            rejected.increment();
+            throw new ConflictException("USER_ID_REQUIRED",
+                    "ticket " + ticketId + " has a per-user limit, the reserve needs a userId");
+        }
+        if (!holdRepo.tryAdd(ticketId, userId, qty, limit)) {
+            rejected.increment();
+            log.info("reserve rejected by per-user limit: ticketId={}, userId={}, qty={}, limit={}",
+                    ticketId, userId, qty, limit);
+            throw new ConflictException("PER_USER_LIMIT_EXCEEDED",
+                    "per-user limit of " + limit + " reached for ticket " + ticketId);
+        }
+    }
+
+    /**
+     * Give back qty: the hold was released or expired, or its reserve did not go through.
+     * Runs in the caller's tx; a ticket whose limit was lifted still has its rows drained.
+     */
+    public void release(Long userId, long ticketId, int qty) {
+        if (enabled && userId != null) {
+            holdRepo.subtractAll(List.of(new Delta(ticketId, userId, qty)));
+        }
+    }
+
+    /**
+     * release() for many holds in one batch, callers leave out holds without a userId.
+     */
+    public void releaseAll(Collection<Delta> deltas) {
+        if (enabled && !deltas.isEmpty()) {
+            holdRepo.subtractAll(deltas);
+        }
+    }
+}
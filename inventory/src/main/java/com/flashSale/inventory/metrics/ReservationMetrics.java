@@ -0,0 +1,226 @@
+package com.flashSale.inventory.metrics;
+
+import com.flashSale.inventory.dto.BatchReservationResult;
+import com.flashSale.inventory.exception.BatchReserveException;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.exception.TooManyRequestsException;
+import com.flashSale.inventory.hot.SpaceSavingSketch;
+import com.flashSale.inventory.repo.InventoryBulkRepository;
+import com.flashSale.inventory.repo.InventoryBulkRepository.StockLevels;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Meters of the reservation state machine.
+ *
+ * - inventory.reservation.latency{op, outcome}: whole call, outcome is OK or the error code
+ * - inventory.reservation.db.latency{op}: the part spent in the DB transaction / statement
+ *   (for coalesced reserves including the wait for the group commit)
+ * - inventory.reservation.replays{op}: idempotent answers that moved no stock
+ * - inventory.reservation.invalid.state{op}: commits / releases rejected with INVALID_STATE
+ * - inventory.reservation.update.misses{op}: conditional stock UPDATEs that matched no row
+ * - inventory.stock.available / reserved / sold{ticketId}: aggregate row of the top-tickets
+ *   most reserved tickets (decaying space-saving top-k), refreshed every refresh-ms
+ */
+@Slf4j
+@Component
+public class ReservationMetrics {
+
+    public static final String RESERVE = "reserve";
+    public static final String COMMIT = "commit";
+    public static final String RELEASE = "release";
+    public static final String RESERVE_BATCH = "reserve_batch";
+    public static final String COMMIT_BATCH = "commit_batch";
+    public static final String RELEASE_BATCH = "release_batch";
+
+    private static final String OK = "OK";
+
+    /** Last read of a ticket's aggregate row, read by its gauges. */
+    private static final class StockGauges {
+        volatile int available;
+        volatile int reserved;
+        volatile int sold;
+        List<Meter> meters = List.of();
+    }
+
+    private final InventoryBulkRepository stockRepo;
+    private final MeterRegistry meterRegistry;
+    private final int topTickets;
+    private final int maxWindowKeys;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<Long, LongAdder> window = new ConcurrentHashMap<>();
+    /** Touched by the refresh thread only. */
+    private final SpaceSavingSketch sketch;
+    private final Map<Long, StockGauges> gauges = new HashMap<>();
+
+    public ReservationMetrics(
+            InventoryBulkRepository stockRepo,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.metrics.top-tickets:20}") int topTickets,
+            @Value("${inventory.metrics.max-window-keys:10000}") int maxWindowKeys) {
+        this.stockRepo = stockRepo;
+        this.meterRegistry = meterRegistry;
+        this.topTickets = topTickets;
+        this.maxWindowKeys = maxWindowKeys;
+        // a few spare counters so the top-n is not decided by the eviction error alone
+        this.sketch = new SpaceSavingSketch(Math.max(1, topTickets * 4));
+    }
+
+    /**
+     * Run call and record its latency under op, tagged with the outcome.
+     */
+    public <T> T time(String op, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = OK;
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            outcome = outcomeOf(e);
+            throw e;
+        } finally {
+            timer("inventory.reservation.latency", Tags.of("op", op, "outcome", outcome))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public <T> T db(String op, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            timer("inventory.reservation.db.latency", Tags.of("op", op))
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public void replay(String op) {
+        counter("inventory.reservation.replays", op).increment();
+    }
+
+    public void invalidState(String op) {
+        counter("inventory.reservation.invalid.state", op).increment();
+    }
+
+    public void updateMiss(String op) {
+        counter("inventory.reservation.update.misses", op).increment();
+    }
+
+    /**
+     * Counts a reserve towards the ticket's chance of getting stock gauges.
+     */
+    public void touched(long ticketId) {
+        LongAdder hits = window.get(ticketId);
+        if (hits == null) {
+            if (window.size() >= maxWindowKeys) {
+                return;
+            }
+            hits = window.computeIfAbsent(ticketId, id -> new LongAdder());
+        }
+        hits.increment();
+    }
+
+    /**
+     * Fold the window into the sketch, move the gauges to the current top tickets and
+     * read their rows in one query. A ticket keeps its gauges until another one displaces it.
+     */
+    @Scheduled(fixedDelayString = "${inventory.metrics.refresh-ms:5000}")
+    public synchronized void refreshStockGauges() {
+        if (topTickets <= 0) {
+            return;
+        }
+        sketch.decay(0.5, 0.5);
+        for (Long ticketId : window.keySet()) {
+            LongAdder hits = window.remove(ticketId);
+            if (hits != null) {
+                sketch.offer(ticketId, hits.sum());
+            }
+        }
+        Set<Long> top = new HashSet<>();
+        for (SpaceSavingSketch.Entry e : sketch.top()) {
+            if (top.size() == topTickets) {
+                break;
+            }
+            top.add(e.key());
+        }
+        if (top.isEmpty()) {
+            return;
+        }
+
+        gauges.entrySet().removeIf(e -> {
+            if (top.contains(e.getKey())) {
+                return false;
+            }
+            e.getValue().meters.forEach(meterRegistry::remove);
+            return true;
+        });
+        for (long ticketId : top) {
+            gauges.computeIfAbsent(ticketId, this::register);
+        }
+
+        try {
+            for (StockLevels levels : stockRepo.findLevels(top)) {
+                StockGauges g = gauges.get(levels.ticketId());
+                g.available = levels.available();
+                g.reserved = levels.reserved();
+                g.sold = levels.sold();
+            }
+        } catch (RuntimeException e) {
+            log.warn("stock gauge refresh failed: tickets={}", top.size(), e);
+        }
+    }
+
+    private StockGauges register(long ticketId) {
+        StockGauges g = new StockGauges();
+        Tags tags = Tags.of("ticketId", String.valueOf(ticketId));
+        g.meters = List.of(
+                Gauge.builder("inventory.stock.available", g, s -> s.available).tags(tags).register(meterRegistry),
+                Gauge.builder("inventory.stock.reserved", g, s -> s.reserved).tags(tags).register(meterRegistry),
+                Gauge.builder("inventory.stock.sold", g, s -> s.sold).tags(tags).register(meterRegistry));
+        return g;
+    }
+
+    private Timer timer(String name, Tags tags) {
+        return timers.computeIfAbsent(name + tags, k -> Timer.builder(name).tags(tags).register(meterRegistry));
+    }
+
+    private Counter counter(String name, String op) {
+        return counters.computeIfAbsent(name + op, k -> Counter.builder(name).tag("op", op).register(meterRegistry));
+    }
+
+    private static String outcomeOf(RuntimeException e) {
+        if (e instanceof ConflictException c) {
+            return c.getCode();
+        }
+        if (e instanceof NotFoundException n) {
+            return n.getCode();
+        }
+        if (e instanceof TooManyRequestsException t) {
+            return t.getCode();
+        }
+        if (e instanceof BatchReserveException b) {
+            return b.getResponse().results().stream()
+                    .map(BatchReservationResult::error)
+                    .filter(code -> code != null && !"ROLLED_BACK".equals(code))
+                    .findFirst()
+                    .orElse("BATCH_FAILED");
+        }
+        return "ERROR";
+    }
+}
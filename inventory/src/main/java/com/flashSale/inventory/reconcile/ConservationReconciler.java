@@ -0,0 +1,261 @@
+package com.flashSale.inventory.reconcile;
+
+import com.flashSale.inventory.dto.ConservationReport;
+import com.flashSale.inventory.dto.TicketDrift;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.journal.HotStockEngine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Verifies inventory conservation per ticket:
+ *   SUM(qty) of RESERVED reservations  == inventory.reserved
+ *   SUM(qty) of COMMITTED reservations == inventory.sold  (archived rows included)
+ *
+ * Tickets are split into id ranges on a fork-join pool. Each range is checked in one
+ * read-only REPEATABLE READ tx, so the counters and the reservation sums come from the
+ * same MVCC snapshot: no locks are taken and concurrent reserves cannot show up as drift.
+ * Within a range the grouped sums are streamed (server-side cursor, fetch-size) off the
+ * covering (ticket_id, status, qty) index.
+ *
+ * Sharded tickets are compared against their shards and seated tickets against their
+ * HELD / SOLD seats (the aggregate row lags the rollup), in-memory tickets are skipped.
+ */
+@Slf4j
+@Component
+public class ConservationReconciler {
+
+    private record Counters(long reserved, long sold) {}
+
+    private final JdbcTemplate streaming;
+    private final TransactionTemplate snapshotTx;
+    private final HotStockEngine hotStock;
+    private final Timer duration;
+    private final AtomicInteger driftTickets = new AtomicInteger();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final boolean scheduled;
+    private final int parallelism;
+    private final int ticketsPerTask;
+    private final int maxLoggedDrifts;
+
+    public ConservationReconciler(
+            DataSource dataSource,
+            PlatformTransactionManager txManager,
+            HotStockEngine hotStock,
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reconcile.enabled:true}") boolean scheduled,
+            @Value("${inventory.reconcile.parallelism:4}") int parallelism,
+            @Value("${inventory.reconcile.tickets-per-task:64}") int ticketsPerTask,
+            @Value("${inventory.reconcile.fetch-size:-2147483648}") int fetchSize,
+            @Value("${inventory.reconcile.max-logged-drifts:100}") int maxLoggedDrifts) {
+        this.streaming = new JdbcTemplate(dataSource);
+        this.streaming.setFetchSize(fetchSize);
+        this.snapshotTx = new TransactionTemplate(txManager);
+        this.snapshotTx.setReadOnly(true);
+        this.snapshotTx.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.hotStock = hotStock;
+        this.duration = Timer.builder("inventory.conservation.duration")
+                .description("time of one full conservation check")
+                .register(meterRegistry);
+        meterRegistry.gauge("inventory.conservation.drift.tickets", driftTickets);
+        this.scheduled = scheduled;
+        this.parallelism = parallelism;
+        this.ticketsPerTask = ticketsPerTask;
+        this.maxLoggedDrifts = maxLoggedDrifts;
+    }
+
+    @Scheduled(
+            initialDelayString = "${inventory.reconcile.initial-delay-ms:300000}",
+            fixedDelayString = "${inventory.reconcile.interval-ms:3600000}")
+    public void scheduledCheck() {
+        if (!scheduled) {
+            return;
+        }
+        try {
+            check();
+        } catch (ConflictException e) {
+            log.info("conservation check skipped: {}", e.getMessage());
+        } catch (Exception e) {
+            log.error("conservation check failed", e);
+        }
+    }
+
+    public ConservationReport check() {
+        if (!running.compareAndSet(false, true)) {
+            throw new ConflictException("RECONCILE_RUNNING", "a conservation check is already running");
+        }
+        Instant startedAt = Instant.now();
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            Set<Long> inMemory = hotStock.enrolledTickets();
+            long[] tickets = streaming.queryForList("SELECT ticket_id FROM inventory ORDER BY ticket_id", Long.class)
+                    .stream()
+                    .filter(id -> !inMemory.contains(id))
+                    .mapToLong(Long::longValue)
+                    .toArray();
+
+            List<TicketDrift> drifts = new ArrayList<>(pool.invoke(new RangeTask(tickets, 0, tickets.length)));
+            drifts.sort(Comparator.comparingLong(TicketDrift::ticketId));
+
+            long tookMs = Duration.between(startedAt, Instant.now()).toMillis();
+            duration.record(Duration.ofMillis(tookMs));
+            driftTickets.set(drifts.size());
+            report(drifts, tickets.length, tookMs);
+            return new ConservationReport(startedAt, tookMs, tickets.length, inMemory.size(), drifts);
+        } finally {
+            pool.shutdownNow();
+            running.set(false);
+        }
+    }
+
+    private void report(List<TicketDrift> drifts, int tickets, long tookMs) {
+        if (drifts.isEmpty()) {
+            log.info("conservation check ok: tickets={}, tookMs={}", tickets, tookMs);
+            return;
+        }
+        log.error("conservation check found drift: tickets={}, drifted={}, tookMs={}", tickets, drifts.size(), tookMs);
+        drifts.stream().limit(maxLoggedDrifts).forEach(d -> log.error(
+                "conservation drift: ticketId={}, inventoryReserved={}, reservedRows={}, inventorySold={}, committedRows={}",
+                d.ticketId(), d.inventoryReserved(), d.reservedRows(), d.inventorySold(), d.committedRows()));
+    }
+
+    /**
+     * Splits [from, to) of the sorted ticket ids until a slice is small enough to check.
+     */
+    private final class RangeTask extends RecursiveTask<List<TicketDrift>> {
+        private final long[] tickets;
+        private final int from;
+        private final int to;
+
+        RangeTask(long[] tickets, int from, int to) {
+            this.tickets = tickets;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected List<TicketDrift> compute() {
+            if (to - from <= ticketsPerTask) {
+                if (from == to) {
+                    return List.of();
+                }
+                return snapshotTx.execute(tx -> checkRange(tickets, from, to));
+            }
+            int mid = (from + to) >>> 1;
+            RangeTask left = new RangeTask(tickets, from, mid);
+            left.fork();
+            List<TicketDrift> right = new RangeTask(tickets, mid, to).compute();
+            List<TicketDrift> merged = new ArrayList<>(left.join());
+            merged.addAll(right);
+            return merged;
+        }
+    }
+
+    /**
+     * Runs inside the snapshot tx. The streamed query goes last: a streaming result set
+     * blocks the connection until fully read.
+     */
+    private List<TicketDrift> checkRange(long[] tickets, int from, int to) {
+        long lo = tickets[from];
+        long hi = tickets[to - 1];
+        Set<Long> slice = new HashSet<>();
+        for (int i = from; i < to; i++) {
+            slice.add(tickets[i]);
+        }
+
+        Map<Long, Counters> expected = new HashMap<>();
+        Set<Long> sharded = new HashSet<>();
+        Set<Long> seated = new HashSet<>();
+        streaming.query("""
+                SELECT ticket_id, reserved, sold, shard_count, seated FROM inventory
+                WHERE ticket_id BETWEEN ? AND ?
+                """, rs -> {
+            long ticketId = rs.getLong("ticket_id");
+            if (!slice.contains(ticketId)) {
+                return;
+            }
+            expected.put(ticketId, new Counters(rs.getLong("reserved"), rs.getLong("sold")));
+            if (rs.getBoolean("seated")) {
+                seated.add(ticketId);
+            } else if (rs.getInt("shard_count") > 1) {
+                sharded.add(ticketId);
+            }
+        }, lo, hi);
+
+        if (!sharded.isEmpty()) {
+            streaming.query("""
+                    SELECT ticket_id, SUM(reserved) AS reserved, SUM(sold) AS sold FROM inventory_shards
+                    WHERE ticket_id BETWEEN ? AND ?
+                    GROUP BY ticket_id
+                    """, rs -> {
+                long ticketId = rs.getLong("ticket_id");
+                if (sharded.contains(ticketId)) {
+                    expected.put(ticketId, new Counters(rs.getLong("reserved"), rs.getLong("sold")));
+                }
+            }, lo, hi);
+        }
+
+        if (!seated.isEmpty()) {
+            Map<Long, long[]> seats = new HashMap<>();
+            streaming.query("""
+                    SELECT ticket_id, status, COUNT(*) AS seats FROM inventory_seats
+                    WHERE ticket_id BETWEEN ? AND ? AND status IN ('HELD', 'SOLD')
+                    GROUP BY ticket_id, status
+                    """, rs -> {
+                long ticketId = rs.getLong("ticket_id");
+                if (seated.contains(ticketId)) {
+                    seats.computeIfAbsent(ticketId, k -> new long[2])[
+                            "HELD".equals(rs.getString("status")) ? 0 : 1] += rs.getLong("seats");
+                }
+            }, lo, hi);
+            for (long ticketId : seated) {
+                long[] counts = seats.getOrDefault(ticketId, new long[2]);
+                expected.put(ticketId, new Counters(counts[0], counts[1]));
+            }
+        }
+
+        Map<Long, long[]> actual = new HashMap<>();
+        streaming.query("""
+                SELECT ticket_id, SUM(qty) AS qty FROM inventory_reservations_archive
+                WHERE ticket_id BETWEEN ? AND ? AND status = 'COMMITTED'
+                GROUP BY ticket_id
+                """, rs -> {
+            actual.computeIfAbsent(rs.getLong("ticket_id"), k -> new long[2])[1] += rs.getLong("qty");
+        }, lo, hi);
+
+        streaming.query("""
+                SELECT ticket_id, status, SUM(qty) AS qty FROM inventory_reservations
+                WHERE ticket_id BETWEEN ? AND ? AND status IN ('RESERVED', 'COMMITTED')
+                GROUP BY ticket_id, status
+                """, rs -> {
+            long[] sums = actual.computeIfAbsent(rs.getLong("ticket_id"), k -> new long[2]);
+            sums["RESERVED".equals(rs.getString("status")) ? 0 : 1] += rs.getLong("qty");
+        }, lo, hi);
+
+        List<TicketDrift> drifts = new ArrayList<>();
+        expected.forEach((ticketId, counters) -> {
+            long[] sums = actual.getOrDefault(ticketId, new long[2]);
+            if (sums[0] != counters.reserved() || sums[1] != counters.sold()) {
+                drifts.add(new TicketDrift(ticketId, counters.reserved(), sums[0], counters.sold(), sums[1]));
+            }
+        });
+        return drifts;
+    }
+}
@@ -0,0 +1,88 @@
+package com.flashSale.inventory.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * Chunked stock initialization and multi-ticket stock reads on plain JDBC.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryBulkRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public record StockState(long ticketId, int reserved, int sold, int shardCount, boolean seated,
+                             String memoryOwner) {}
+
+    public record StockInit(long ticketId, int available, int shardCount) {}
+
+    public record StockLevels(long ticketId, int available, int reserved, int sold) {}
+
+    /**
+     * Lock the existing rows of a chunk (ascending ticketId, same order as reserves use).
+     */
+    public Map<Long, StockState> lockExisting(Collection<Long> ticketIds) {
+        List<Long> sorted = new ArrayList<>(ticketIds);
+        Collections.sort(sorted);
+
+        Map<Long, StockState> out = new HashMap<>();
+        jdbcTemplate.query("""
+                SELECT ticket_id, reserved, sold, shard_count, seated, memory_owner
+                FROM inventory
+                WHERE ticket_id IN (%s)
+                ORDER BY ticket_id
+                FOR UPDATE
+                """.formatted(String.join(",", Collections.nCopies(sorted.size(), "?"))),
+                rs -> {
+                    long id = rs.getLong("ticket_id");
+                    out.put(id, new StockState(id, rs.getInt("reserved"), rs.getInt("sold"),
+                            rs.getInt("shard_count"), rs.getBoolean("seated"),
+                            rs.getString("memory_owner")));
+                },
+                sorted.toArray());
+        return out;
+    }
+
+    /**
+     * Insert new tickets / overwrite available of existing ones in one JDBC batch.
+     * Callers must have checked reserved == 0 and sold == 0 under lock.
+     */
+    public void upsert(List<StockInit> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO inventory
+                    (ticket_id, available, reserved, sold, version, shard_count)
+                VALUES (?, ?, 0, 0, 0, ?)
+                ON DUPLICATE KEY UPDATE
+                    available = VALUES(available),
+                    shard_count = VALUES(shard_count),
+                    version = version + 1
+                """,
+                rows.stream()
+                        .map(r -> new Object[]{r.ticketId(), r.available(), r.shardCount()})
+                        .toList());
+    }
+
+    /**
+     * Aggregate rows of the given tickets, no locks. Sharded / seated tickets are as fresh
+     * as the last rollup.
+     */
+    public List<StockLevels> findLevels(Collection<Long> ticketIds) {
+        if (ticketIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query("""
+                SELECT ticket_id, available, reserved, sold
+                FROM inventory
+                WHERE ticket_id IN (%s)
+                """.formatted(String.join(",", Collections.nCopies(ticketIds.size(), "?"))),
+                (rs, i) -> new StockLevels(rs.getLong("ticket_id"), rs.getInt("available"),
+                        rs.getInt("reserved"), rs.getInt("sold")),
+                ticketIds.toArray());
+    }
+}
@@ -7,12 +7,30 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Optional;
+
 public interface InventoryRepository extends JpaRepository<Inventory, Long> {
 
+    @Query("select i.ticketId from Inventory i")
+    List<Long> findAllTicketIds();
+
+    @Query("select i.shardCount from Inventory i where i.ticketId = :ticketId")
+    Optional<Integer> findShardCount(@Param("ticketId") long ticketId);
+
+    @Query("select i.seated from Inventory i where i.ticketId = :ticketId")
+    Optional<Boolean> findSeated(@Param("ticketId") long ticketId);
+
+    @Query("select i.available from Inventory i where i.ticketId = :ticketId")
+    Optional<Integer> findAvailable(@Param("ticketId") long ticketId);
+
+    @Query("select i.memoryOwner from Inventory i where i.ticketId = :ticketId")
+    Optional<String> findMemoryOwner(@Param("ticketId") long ticketId);
+
     /**
      * Reserve atomic update:
      * available -= qty, reserved += qty
-     * only if available >= qty
+     * only if available >= qty and the ticket is neither sharded, seated nor in memory mode
      *
      * @return rows affected (1 = success, 0 = insufficient or not found)
      */
@@ -25,6 +43,9 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
                 version = version + 1
             WHERE ticket_id = :ticketId
                 AND available >= :qty
+                AND shard_count = 1
+                AND seated = 0
+                AND memory_owner IS NULL
             """, nativeQuery = true)
     int reserveAtomic(
             @Param("ticketId") long ticketId,
@@ -34,7 +55,7 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     /**
      * Release Atomic update:
      * reserved -= qty, available += qty
-     * only if reserved >= qty
+     * only if reserved >= qty and the ticket is neither seated nor in memory mode
      *
      * @return rows affected (1 = success, 0 = insufficient or not found)
      */
@@ -47,6 +68,8 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
                 version = version + 1
             WHERE ticket_id = :ticketId
                 AND reserved >= :qty
+                AND seated = 0
+                AND memory_owner IS NULL
             """, nativeQuery = true)
     int releaseAtomic(
             @Param("ticketId") long ticketId,
@@ -56,7 +79,7 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
     /**
      * Commit Atomic update:
      * reserved -= qty, sold += qty
-     * only if reserved >= qty
+     * only if reserved >= qty and the ticket is neither seated nor in memory mode
      *
      * @return rows affected (1 = success, 0 = insufficient or not found)
      */
@@ -69,6 +92,8 @@ public interface InventoryRepository extends JpaRepository<Inventory, Long> {
                 version = version + 1
             WHERE ticket_id = :ticketId
                 AND reserved >= :qty
+                AND seated = 0
+                AND memory_owner IS NULL
             """, nativeQuery = true)
     int commitAtomic(
             @Param("ticketId") long ticketId,
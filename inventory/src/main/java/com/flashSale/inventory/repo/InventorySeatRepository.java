@@ -0,0 +1,160 @@
+package com.flashSale.inventory.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * inventory_seats access: one row per seat, FREE -> HELD (by a reservation) -> SOLD,
+ * HELD -> FREE on release. Must run inside the caller's tx.
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventorySeatRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Hold qty free seats for the reservation, lowest ordinals (best available) first.
+     *
+     * SKIP LOCKED makes concurrent claims lock disjoint rows instead of queueing on the
+     * same first free seat. Seats locked by an in-flight claim are invisible here, so
+     * near sell-out a claim can come up short while the other tx later rolls back.
+     *
+     * @return the held seats, empty if fewer than qty were free (nothing is held then)
+     */
+    public List<String> claim(long ticketId, String reservationId, int qty) {
+        List<String> seatNos = jdbcTemplate.queryForList("""
+                SELECT seat_no FROM inventory_seats
+                WHERE ticket_id = ? AND status = 'FREE'
+                ORDER BY seat_ordinal
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """, String.class, ticketId, qty);
+        if (seatNos.size() < qty) {
+            return List.of();
+        }
+
+        jdbcTemplate.update("""
+                UPDATE inventory_seats
+                SET status = 'HELD', reservation_id = ?, version = version + 1
+                WHERE ticket_id = ? AND status = 'FREE' AND seat_no IN (%s)
+                """.formatted(placeholders(seatNos.size())),
+                args(List.of(reservationId, ticketId), seatNos));
+        return seatNos;
+    }
+
+    /**
+     * HELD -> FREE for every seat of the reservation.
+     *
+     * @return seats moved
+     */
+    public int release(String reservationId) {
+        return jdbcTemplate.update("""
+                UPDATE inventory_seats
+                SET status = 'FREE', reservation_id = NULL, version = version + 1
+                WHERE reservation_id = ? AND status = 'HELD'
+                """, reservationId);
+    }
+
+    /**
+     * HELD -> SOLD for every seat of the reservation.
+     *
+     * @return seats moved
+     */
+    public int commit(String reservationId) {
+        return jdbcTemplate.update("""
+                UPDATE inventory_seats
+                SET status = 'SOLD', version = version + 1
+                WHERE reservation_id = ? AND status = 'HELD'
+                """, reservationId);
+    }
+
+    public List<String> findSeatNos(String reservationId) {
+        return jdbcTemplate.queryForList("""
+                SELECT seat_no FROM inventory_seats
+                WHERE reservation_id = ?
+                ORDER BY seat_ordinal
+                """, String.class, reservationId);
+    }
+
+    /**
+     * Consistent (non-locking) read, unlike claim it also sees seats being claimed.
+     */
+    public boolean hasFree(long ticketId) {
+        return !jdbcTemplate.queryForList("""
+                SELECT seat_no FROM inventory_seats
+                WHERE ticket_id = ? AND status = 'FREE'
+                LIMIT 1
+                """, String.class, ticketId).isEmpty();
+    }
+
+    public boolean hasHeldOrSold(long ticketId) {
+        return !jdbcTemplate.queryForList("""
+                SELECT seat_no FROM inventory_seats
+                WHERE ticket_id = ? AND status <> 'FREE'
+                LIMIT 1
+                """, String.class, ticketId).isEmpty();
+    }
+
+    /**
+     * Drop the ticket's seats and insert seatNos as FREE, in seating order: a seat's index
+     * in the list becomes its seat_ordinal.
+     * Callers must make sure nothing is held or sold.
+     */
+    public void replaceSeats(long ticketId, List<String> seatNos) {
+        deleteSeats(ticketId);
+        List<Object[]> rows = new ArrayList<>(seatNos.size());
+        for (int i = 0; i < seatNos.size(); i++) {
+            rows.add(new Object[]{ticketId, seatNos.get(i), i});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO inventory_seats (ticket_id, seat_no, seat_ordinal, status, version)
+                VALUES (?, ?, ?, 'FREE', 0)
+                """, rows);
+    }
+
+    public void deleteSeats(long ticketId) {
+        jdbcTemplate.update("DELETE FROM inventory_seats WHERE ticket_id = ?", ticketId);
+    }
+
+    /**
+     * Refresh the aggregate inventory rows of seated tickets from their seats.
+     *
+     * @return number of aggregate rows that changed
+     */
+    public int rollup() {
+        return jdbcTemplate.update("""
+                UPDATE inventory i
+                JOIN (
+                    SELECT ticket_id,
+                        SUM(status = 'FREE') AS available,
+                        SUM(status = 'HELD') AS reserved,
+                        SUM(status = 'SOLD') AS sold
+                    FROM inventory_seats
+                    GROUP BY ticket_id
+                ) s ON s.ticket_id = i.ticket_id
+                SET i.available = s.available,
+                    i.reserved = s.reserved,
+                    i.sold = s.sold,
+                    i.version = i.version + 1
+                WHERE i.seated = 1
+                    AND (i.available <> s.available
+                        OR i.reserved <> s.reserved
+                        OR i.sold <> s.sold)
+                """);
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+
+    private static Object[] args(List<Object> head, List<String> tail) {
+        List<Object> args = new ArrayList<>(head);
+        args.addAll(tail);
+        return args.toArray();
+    }
+}
@@ -0,0 +1,132 @@
+package com.flashSale.inventory.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * inventory_shards access. Same conditional-update contract as InventoryRepository,
+ * one row per (ticket_id, shard_no).
+ */
+@Repository
+@RequiredArgsConstructor
+public class InventoryShardRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * available -= qty, reserved += qty only if available >= qty
+     *
+     * @return rows affected (1 = success, 0 = insufficient or not found)
+     */
+    public int reserveAtomic(long ticketId, int shardNo, int qty) {
+        return jdbcTemplate.update("""
+                UPDATE inventory_shards
+                SET available = available - ?,
+                    reserved = reserved + ?,
+                    version = version + 1
+                WHERE ticket_id = ? AND shard_no = ?
+                    AND available >= ?
+                """, qty, qty, ticketId, shardNo, qty);
+    }
+
+    /**
+     * reserved -= qty, available += qty only if reserved >= qty
+     */
+    public int releaseAtomic(long ticketId, int shardNo, int qty) {
+        return jdbcTemplate.update("""
+                UPDATE inventory_shards
+                SET reserved = reserved - ?,
+                    available = available + ?,
+                    version = version + 1
+                WHERE ticket_id = ? AND shard_no = ?
+                    AND reserved >= ?
+                """, qty, qty, ticketId, shardNo, qty);
+    }
+
+    /**
+     * reserved -= qty, sold += qty only if reserved >= qty
+     */
+    public int commitAtomic(long ticketId, int shardNo, int qty) {
+        return jdbcTemplate.update("""
+                UPDATE inventory_shards
+                SET reserved = reserved - ?,
+                    sold = sold + ?,
+                    version = version + 1
+                WHERE ticket_id = ? AND shard_no = ?
+                    AND reserved >= ?
+                """, qty, qty, ticketId, shardNo, qty);
+    }
+
+    /**
+     * Consistent (non-locking) read of shards that could still satisfy qty.
+     */
+    public List<Integer> findShardsWithAvailable(long ticketId, int qty) {
+        return jdbcTemplate.queryForList("""
+                SELECT shard_no FROM inventory_shards
+                WHERE ticket_id = ? AND available >= ?
+                ORDER BY shard_no
+                """, Integer.class, ticketId, qty);
+    }
+
+    public boolean hasReservedOrSold(long ticketId) {
+        Integer count = jdbcTemplate.queryForObject("""
+                SELECT COUNT(*) FROM inventory_shards
+                WHERE ticket_id = ? AND (reserved <> 0 OR sold <> 0)
+                """, Integer.class, ticketId);
+        return count != null && count > 0;
+    }
+
+    /**
+     * Drop the ticket's shards and spread available evenly over shardCount new rows.
+     * Callers must make sure nothing is reserved or sold.
+     */
+    public void replaceShards(long ticketId, int available, int shardCount) {
+        jdbcTemplate.update("DELETE FROM inventory_shards WHERE ticket_id = ?", ticketId);
+        if (shardCount <= 1) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(shardCount);
+        int base = available / shardCount;
+        int remainder = available % shardCount;
+        for (int shardNo = 0; shardNo < shardCount; shardNo++) {
+            int shardAvailable = base + (shardNo < remainder ? 1 : 0);
+            rows.add(new Object[]{ticketId, shardNo, shardAvailable});
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO inventory_shards
+                    (ticket_id, shard_no, available, reserved, sold, version)
+                VALUES (?, ?, ?, 0, 0, 0)
+                """, rows);
+    }
+
+    /**
+     * Refresh the aggregate inventory rows of sharded tickets from their shards.
+     *
+     * @return number of aggregate rows that changed
+     */
+    public int rollup() {
+        return jdbcTemplate.update("""
+                UPDATE inventory i
+                JOIN (
+                    SELECT ticket_id,
+                        SUM(available) AS available,
+                        SUM(reserved) AS reserved,
+                        SUM(sold) AS sold
+                    FROM inventory_shards
+                    GROUP BY ticket_id
+                ) s ON s.ticket_id = i.ticket_id
+                SET i.available = s.available,
+                    i.reserved = s.reserved,
+                    i.sold = s.sold,
+                    i.version = i.version + 1
+                WHERE i.shard_count > 1
+                    AND (i.available <> s.available
+                        OR i.reserved <> s.reserved
+                        OR i.sold <> s.sold)
+                """);
+    }
+}
@@ -0,0 +1,94 @@
+package com.flashSale.inventory.repo;
+
+import com.flashSale.inventory.domain.InventoryReservation;
+import com.flashSale.inventory.domain.ReservationStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * inventory_reservations_archive access: finished reservations moved out of the hot table.
+ */
+@Repository
+@RequiredArgsConstructor
+public class ReservationArchiveRepository {
+    private static final String COLUMNS =
+            "reservation_id, ticket_id, qty, status, user_id, shard_no, expires_at, created_at, updated_at";
+
+    private static final RowMapper<InventoryReservation> ROW_MAPPER = (rs, i) -> {
+        InventoryReservation r = new InventoryReservation();
+        r.setReservationId(rs.getString("reservation_id"));
+        r.setTicketId(rs.getLong("ticket_id"));
+        r.setQty(rs.getInt("qty"));
+        r.setStatus(ReservationStatus.valueOf(rs.getString("status")));
+        r.setUserId((Long) rs.getObject("user_id", Long.class));
+        r.setShardNo((Integer) rs.getObject("shard_no", Integer.class));
+        Timestamp expiresAt = rs.getTimestamp("expires_at");
+        r.setExpiresAt(expiresAt == null ? null : expiresAt.toInstant());
+        r.setCreatedAt(rs.getTimestamp("created_at").toInstant());
+        r.setUpdatedAt(rs.getTimestamp("updated_at").toInstant());
+        return r;
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<InventoryReservation> findById(String reservationId) {
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM inventory_reservations_archive WHERE reservation_id = ?",
+                ROW_MAPPER, reservationId).stream().findFirst();
+    }
+
+    public List<InventoryReservation> findAllById(Collection<String> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(
+                "SELECT " + COLUMNS + " FROM inventory_reservations_archive WHERE reservation_id IN ("
+                        + placeholders(reservationIds.size()) + ")",
+                ROW_MAPPER, reservationIds.toArray());
+    }
+
+    /**
+     * Lock the oldest hot rows of one status last touched before cutoff (uses
+     * idx_resv_status_updated). SKIP LOCKED keeps concurrent archivers on disjoint rows.
+     */
+    public List<String> lockArchivable(ReservationStatus status, Instant cutoff, int limit) {
+        return jdbcTemplate.queryForList("""
+                SELECT reservation_id FROM inventory_reservations
+                WHERE status = ? AND updated_at < ?
+                ORDER BY updated_at
+                LIMIT ?
+                FOR UPDATE SKIP LOCKED
+                """, String.class, status.name(), Timestamp.from(cutoff), limit);
+    }
+
+    /**
+     * Copy the rows into the archive, then delete them from the hot table.
+     * Must run in the tx that locked them.
+     *
+     * @return rows removed from the hot table
+     */
+    public int move(List<String> reservationIds) {
+        if (reservationIds.isEmpty()) {
+            return 0;
+        }
+        String in = placeholders(reservationIds.size());
+        Object[] args = reservationIds.toArray();
+        // IGNORE: never let one id already in the archive wedge the whole chunk
+        jdbcTemplate.update("INSERT IGNORE INTO inventory_reservations_archive (" + COLUMNS + ") "
+                + "SELECT " + COLUMNS + " FROM inventory_reservations WHERE reservation_id IN (" + in + ")", args);
+        return jdbcTemplate.update("DELETE FROM inventory_reservations WHERE reservation_id IN (" + in + ")", args);
+    }
+
+    private static String placeholders(int n) {
+        return String.join(",", Collections.nCopies(n, "?"));
+    }
+}
@@ -1,10 +1,62 @@
 package com.flashSale.inventory.repo;
 
 import com.flashSale.inventory.domain.InventoryReservation;
+import com.flashSale.inventory.domain.ReservationStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ReservationRepository extends JpaRepository<InventoryReservation, String> {
     Optional<InventoryReservation> findByTicketId(Long ticketId);
+
+    /**
+     * Row lock before a state transition: serializes commit / release / expiry of one hold.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from InventoryReservation r where r.reservationId = :reservationId")
+    Optional<InventoryReservation> findByIdForUpdate(@Param("reservationId") String reservationId);
+
+    /**
+     * Row locks for a batch transition, taken in id order so concurrent batches cannot deadlock.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select r from InventoryReservation r where r.reservationId in :ids order by r.reservationId")
+    List<InventoryReservation> findAllByIdForUpdate(@Param("ids") Collection<String> ids);
+
+    /**
+     * Flip a batch of locked rows; rows no longer in the from state are left alone.
+     * Loaded entities keep their old status: callers must not set it on them, or dirty
+     * checking updates each row once more at flush.
+     *
+     * @return rows flipped
+     */
+    @Modifying
+    @Query("update InventoryReservation r set r.status = :to where r.reservationId in :ids and r.status = :from")
+    int transitionAll(
+            @Param("ids") Collection<String> ids,
+            @Param("from") ReservationStatus from,
+            @Param("to") ReservationStatus to);
+
+    /**
+     * Audit row for a reserve rejected without touching stock. Keeps an existing row.
+     */
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT IGNORE INTO inventory_reservations
+                (reservation_id, ticket_id, qty, status)
+            VALUES (:reservationId, :ticketId, :qty, 'FAILED')
+            """, nativeQuery = true)
+    int insertFailedIfAbsent(
+            @Param("reservationId") String reservationId,
+            @Param("ticketId") long ticketId,
+            @Param("qty") int qty);
 }
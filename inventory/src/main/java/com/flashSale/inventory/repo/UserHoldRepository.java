@@ -0,0 +1,65 @@
+package com.flashSale.inventory.repo;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * inventory_user_holds access: one row per (ticket, user) with the quantity the user
+ * holds or bought, the backing store of UserPurchaseLimits.
+ *
+ * Statements join the caller's transaction, so a hold counts exactly when its reservation does.
+ */
+@Repository
+@RequiredArgsConstructor
+public class UserHoldRepository {
+    private final JdbcTemplate jdbcTemplate;
+
+    public record Delta(long ticketId, long userId, int qty) {}
+
+    public int find(long ticketId, long userId) {
+        List<Integer> qty = jdbcTemplate.queryForList("""
+                SELECT qty FROM inventory_user_holds
+                WHERE ticket_id = ? AND user_id = ?
+                """, Integer.class, ticketId, userId);
+        return qty.isEmpty() ? 0 : qty.get(0);
+    }
+
+    /**
+     * Add qty unless the row would go above limit. The conditional UPDATE row-locks the pair,
+     * so concurrent reserves of one user are checked one after the other, on every instance.
+     *
+     * INSERT IGNORE + UPDATE instead of ON DUPLICATE KEY UPDATE: Connector/J reports found
+     * rows, so a rejected upsert could not be told apart from an accepted one.
+     *
+     * @return false if the limit would be exceeded, nothing changed then
+     */
+    public boolean tryAdd(long ticketId, long userId, int qty, int limit) {
+        jdbcTemplate.update("""
+                INSERT IGNORE INTO inventory_user_holds (ticket_id, user_id, qty)
+                VALUES (?, ?, 0)
+                """, ticketId, userId);
+        return jdbcTemplate.update("""
+                UPDATE inventory_user_holds
+                SET qty = qty + ?
+                WHERE ticket_id = ? AND user_id = ?
+                    AND qty + ? <= ?
+                """, qty, ticketId, userId, qty, limit) == 1;
+    }
+
+    /**
+     * Subtract the deltas in one batch; a row never goes below zero, missing rows are skipped.
+     */
+    public void subtractAll(Collection<Delta> deltas) {
+        jdbcTemplate.batchUpdate("""
+                UPDATE inventory_user_holds
+                SET qty = GREATEST(0, qty - ?)
+                WHERE ticket_id = ? AND user_id = ?
+                """, deltas.stream()
+                .map(d -> new Object[]{d.qty(), d.ticketId(), d.userId()})
+                .toList());
+    }
+}
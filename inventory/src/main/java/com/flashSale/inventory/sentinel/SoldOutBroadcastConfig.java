@@ -0,0 +1,27 @@
+package com.flashSale.inventory.sentinel;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.nio.charset.StandardCharsets;
+
+@Configuration
+@ConditionalOnProperty(prefix = "inventory.sentinel", name = "broadcast", havingValue = "true")
+public class SoldOutBroadcastConfig {
+
+    @Bean
+    public RedisMessageListenerContainer soldOutListenerContainer(
+            RedisConnectionFactory connectionFactory,
+            SoldOutSentinel sentinel) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(connectionFactory);
+        container.addMessageListener(
+                (message, pattern) -> sentinel.onBroadcast(new String(message.getBody(), StandardCharsets.UTF_8)),
+                new ChannelTopic(SoldOutSentinel.CHANNEL));
+        return container;
+    }
+}
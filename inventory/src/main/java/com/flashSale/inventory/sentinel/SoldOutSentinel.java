@@ -0,0 +1,140 @@
+package com.flashSale.inventory.sentinel;
+
+import com.flashSale.inventory.event.StockInitializedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory "ticket is sold out" flags, so reserves after a sellout are rejected
+ * without opening a transaction.
+ *
+ * - set   when a DB reserve is rejected and the ticket has available == 0
+ * - clear when a release gives stock back or the stock is re-initialized
+ *
+ * Flags expire after recheck-ms: a flag that lost a race with a release (locally or on
+ * a peer whose broadcast was missed) only rejects requests until the next DB recheck.
+ *
+ * With broadcast enabled, flips are published on a Redis channel to peer instances.
+ * A clear is only published if this instance saw the ticket flagged (set here or received)
+ * within the last recheck-ms: any older flag has expired everywhere, so the releases of a
+ * ticket that is not sold out send nothing.
+ */
+@Slf4j
+@Component
+public class SoldOutSentinel {
+
+    public static final String CHANNEL = "inventory:sold-out";
+    private static final String SOLD_OUT = "S:";
+    private static final String CLEARED = "C:";
+
+    private final ObjectProvider<StringRedisTemplate> redis;
+    private final boolean enabled;
+    private final boolean broadcast;
+    private final long recheckNanos;
+
+    /** ticketId -> System.nanoTime() the flag expires at */
+    private final Map<Long, Long> soldOut = new ConcurrentHashMap<>();
+
+    /** ticketId -> System.nanoTime() the latest flag seen (local or peer) expires at; outlives local clears */
+    private final Map<Long, Long> recentlyFlagged = new ConcurrentHashMap<>();
+
+    public SoldOutSentinel(
+            ObjectProvider<StringRedisTemplate> redis,
+            @Value("${inventory.sentinel.enabled:true}") boolean enabled,
+            @Value("${inventory.sentinel.broadcast:false}") boolean broadcast,
+            @Value("${inventory.sentinel.recheck-ms:1000}") long recheckMs) {
+        this.redis = redis;
+        this.enabled = enabled;
+        this.broadcast = broadcast;
+        this.recheckNanos = recheckMs * 1_000_000L;
+    }
+
+    public boolean isSoldOut(long ticketId) {
+        if (!enabled) {
+            return false;
+        }
+        Long expiresAt = soldOut.get(ticketId);
+        if (expiresAt == null) {
+            return false;
+        }
+        if (System.nanoTime() - expiresAt >= 0) {
+            soldOut.remove(ticketId, expiresAt);
+            return false;
+        }
+        return true;
+    }
+
+    public void markSoldOut(long ticketId) {
+        if (!enabled) {
+            return;
+        }
+        long expiresAt = System.nanoTime() + recheckNanos;
+        recentlyFlagged.put(ticketId, expiresAt);
+        if (soldOut.put(ticketId, expiresAt) == null) {
+            log.info("ticket sold out, short-circuiting reserves: ticketId={}", ticketId);
+            publish(SOLD_OUT, ticketId);
+        }
+    }
+
+    public void clear(long ticketId) {
+        if (!enabled) {
+            return;
+        }
+        long now = System.nanoTime();
+        Long expiresAt = soldOut.remove(ticketId);
+        if (expiresAt != null && now - expiresAt < 0) {
+            log.info("ticket back in stock: ticketId={}", ticketId);
+        }
+        // peers may hold a flag this instance already cleared or never set, but not an expired one
+        Long flaggedUntil = recentlyFlagged.get(ticketId);
+        if (flaggedUntil == null) {
+            return;
+        }
+        if (now - flaggedUntil >= 0) {
+            recentlyFlagged.remove(ticketId, flaggedUntil);
+        } else {
+            publish(CLEARED, ticketId);
+        }
+    }
+
+    @TransactionalEventListener
+    public void onStockInitialized(StockInitializedEvent event) {
+        clear(event.ticketId());
+    }
+
+    /**
+     * Peer flip received over the broadcast channel; applied locally only.
+     */
+    public void onBroadcast(String message) {
+        try {
+            long ticketId = Long.parseLong(message.substring(2));
+            if (message.startsWith(SOLD_OUT)) {
+                long expiresAt = System.nanoTime() + recheckNanos;
+                recentlyFlagged.put(ticketId, expiresAt);
+                soldOut.put(ticketId, expiresAt);
+            } else if (message.startsWith(CLEARED)) {
+                soldOut.remove(ticketId);
+            }
+        } catch (RuntimeException e) {
+            log.warn("ignoring malformed sold-out broadcast: message={}", message);
+        }
+    }
+
+    private void publish(String type, long ticketId) {
+        if (!broadcast) {
+            return;
+        }
+        try {
+            redis.getObject().convertAndSend(CHANNEL, type + ticketId);
+        } catch (Exception e) {
+            log.warn("sold-out broadcast failed: ticketId={}, error={}", ticketId, e.getMessage());
+        }
+    }
+}
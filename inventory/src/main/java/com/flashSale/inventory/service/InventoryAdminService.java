@@ -1,7 +1,24 @@
 package com.flashSale.inventory.service;
 
+import com.flashSale.inventory.dto.BulkStockResponse;
 import com.flashSale.inventory.dto.InventoryResponse;
 
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
 public interface InventoryAdminService {
-    InventoryResponse initStock(long ticketId, int available);
+    enum BulkFormat { NDJSON, CSV }
+
+    InventoryResponse initStock(long ticketId, int available, Integer shards);
+
+    /**
+     * Replace the ticket's stock by the given seats, all FREE.
+     */
+    InventoryResponse initSeats(long ticketId, List<String> seatIds);
+
+    /**
+     * Streamed (ticketId, available) rows, applied in chunks; each chunk commits on its own.
+     */
+    BulkStockResponse bulkInitStock(Reader body, BulkFormat format) throws IOException;
 }
@@ -1,22 +1,73 @@
 package com.flashSale.inventory.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.flashSale.inventory.domain.Inventory;
+import com.flashSale.inventory.dto.BulkStockRejection;
+import com.flashSale.inventory.dto.BulkStockResponse;
 import com.flashSale.inventory.dto.InventoryResponse;
+import com.flashSale.inventory.event.StockInitializedEvent;
 import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.repo.InventoryBulkRepository;
+import com.flashSale.inventory.repo.InventoryBulkRepository.StockInit;
+import com.flashSale.inventory.repo.InventoryBulkRepository.StockState;
 import com.flashSale.inventory.repo.InventoryRepository;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.*;
+
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class InventoryAdminServiceImpl implements InventoryAdminService{
     private final InventoryRepository inventoryRepo;
+    private final InventoryBulkRepository bulkRepo;
+    private final StockLedger stockLedger;
+    private final ApplicationEventPublisher events;
+    private final TransactionTemplate txTemplate;
+    private final ObjectMapper objectMapper;
+    private final HotStockEngine hotStock;
+
+    @Value("${inventory.stock.default-shards:1}")
+    private int defaultShards;
+
+    @Value("${inventory.admin.bulk.chunk-size:500}")
+    private int bulkChunkSize;
+
+    @Value("${inventory.admin.bulk.max-rejections:1000}")
+    private int bulkMaxRejections;
 
+    private static final String BOM = "\uFEFF";
+    private static final Set<String> CSV_TICKET_ID = Set.of("ticketid", "ticket_id");
+    private static final String CSV_AVAILABLE = "available";
+
+    private record BulkRow(long line, long ticketId, int available) {}
+
+    /** Running totals of one upload; only rejections are kept per row (capped). */
+    private static final class BulkTally {
+        long total, created, updated, rejected;
+        final List<BulkStockRejection> rejections = new ArrayList<>();
+        boolean truncated;
+    }
 
     @Override
     @Transactional
-    public InventoryResponse initStock(long ticketId, int available) {
+    public InventoryResponse initStock(long ticketId, int available, Integer shards) {
+        if (hotStock.isEnrolled(ticketId)) {
+            throw new ConflictException("TICKET_IN_MEMORY_MODE", "stock of an in-memory ticket cannot be re-initialized");
+        }
+        int shardCount = (shards == null) ? defaultShards : shards;
         Inventory inv = inventoryRepo.findById(ticketId).orElse(null);
 
         if(inv == null) {
@@ -26,23 +77,259 @@ public class InventoryAdminServiceImpl implements InventoryAdminService{
             created.setReserved(0);
             created.setSold(0);
             created.setVersion(0L);
+            created.setShardCount(shardCount);
 
             Inventory saved = inventoryRepo.save(created);
+            stockLedger.reshard(ticketId, available, shardCount);
+            events.publishEvent(new StockInitializedEvent(ticketId, available));
             return toResponse(saved);
         }
 
-        if (inv.getReserved() != 0 || inv.getSold() != 0){
+        rejectIfInUse(inv);
+
+        inv.setAvailable(available);
+        inv.setVersion(inv.getVersion() + 1);
+        inv.setShardCount(shardCount);
+        inv.setSeated(false);
+
+        Inventory saved = inventoryRepo.save(inv);
+        stockLedger.reshard(ticketId, available, shardCount);
+        events.publishEvent(new StockInitializedEvent(ticketId, available));
+        return toResponse(saved);
+    }
+
+    /**
+     * Seats replace the counters: the inventory row becomes the seats' rollup, starting
+     * with available = number of seats. Same in-use rule as initStock.
+     */
+    @Override
+    @Transactional
+    public InventoryResponse initSeats(long ticketId, List<String> seatIds) {
+        if (hotStock.isEnrolled(ticketId)) {
+            throw new ConflictException("TICKET_IN_MEMORY_MODE", "stock of an in-memory ticket cannot be re-initialized");
+        }
+        List<String> seatNos = seatIds.stream().map(String::strip).sorted().toList();
+        for (int i = 1; i < seatNos.size(); i++) {
+            if (seatNos.get(i).equals(seatNos.get(i - 1))) {
+                throw new ConflictException("DUPLICATE_SEAT_ID", "seatId appears more than once: " + seatNos.get(i));
+            }
+        }
+
+        Inventory inv = inventoryRepo.findById(ticketId).orElse(null);
+        if (inv == null) {
+            inv = new Inventory();
+            inv.setTicketId(ticketId);
+            inv.setVersion(0L);
+        } else {
+            rejectIfInUse(inv);
+            inv.setVersion(inv.getVersion() + 1);
+        }
+        inv.setAvailable(seatNos.size());
+        inv.setReserved(0);
+        inv.setSold(0);
+        inv.setShardCount(1);
+        inv.setSeated(true);
+
+        Inventory saved = inventoryRepo.save(inv);
+        stockLedger.reseat(ticketId, seatNos);
+        events.publishEvent(new StockInitializedEvent(ticketId, seatNos.size()));
+        log.info("seated stock initialized: ticketId={}, seats={}", ticketId, seatNos.size());
+        return toResponse(saved);
+    }
+
+    /**
+     * Sharded / seated stock is checked on its own rows, the aggregate row lags the rollup.
+     */
+    private void rejectIfInUse(Inventory inv) {
+        long ticketId = inv.getTicketId();
+        if (inv.getMemoryOwner() != null) {
+            throw new ConflictException("TICKET_IN_MEMORY_MODE", "stock of an in-memory ticket cannot be re-initialized");
+        }
+        if (inv.getReserved() != 0 || inv.getSold() != 0
+                || (inv.getShardCount() > 1 && stockLedger.hasShardReservedOrSold(ticketId))
+                || (inv.isSeated() && stockLedger.hasSeatHeldOrSold(ticketId))){
             throw new ConflictException(
                     "STOCK_ALREADY_IN_USE",
                     "cannot overwrite stock when reserved or sold is non-zero"
             );
         }
+    }
 
-        inv.setAvailable(available);
-        inv.setVersion(inv.getVersion() + 1);
+    /**
+     * 1) Stream lines; parse errors are rejected per row
+     * 2) Every chunk-size rows (or when a ticketId repeats inside the chunk) one tx:
+     *    a) SELECT ... FOR UPDATE the chunk's existing rows
+     *    b) reject rows whose ticket has reserved / sold stock (same rule as initStock)
+     *    c) one JDBC batch upsert, reshard tickets with shards > 1
+     *
+     * A CSV header is recognized by its column names (ticketId or ticket_id, available);
+ * a leading byte order mark is dropped.
+ *
+ * New tickets get inventory.stock.default-shards, existing ones keep their layout.
+     * Seated tickets are rejected, their stock is the seat list.
+     */
+    @Override
+    public BulkStockResponse bulkInitStock(Reader body, BulkFormat format) throws IOException {
+        BulkTally tally = new BulkTally();
+        Map<Long, BulkRow> chunk = new LinkedHashMap<>();
+        BufferedReader reader = new BufferedReader(body);
 
-        Inventory saved = inventoryRepo.save(inv);
-        return toResponse(saved);
+        String line;
+        long lineNo = 0;
+        boolean firstRow = true;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            if (firstRow && line.startsWith(BOM)) {
+                line = line.substring(1);
+            }
+            if (line.isBlank()) {
+                continue;
+            }
+            if (firstRow && format == BulkFormat.CSV && isCsvHeader(line)) {
+                firstRow = false;
+                continue;
+            }
+            firstRow = false;
+            tally.total++;
+
+            BulkRow row;
+            try {
+                row = parseRow(lineNo, line, format);
+            } catch (IllegalArgumentException | IOException e) {
+                reject(tally, lineNo, null, "INVALID_ROW", e.getMessage());
+                continue;
+            }
+
+            // later rows for the same ticket must see the earlier one applied
+            if (chunk.containsKey(row.ticketId()) || chunk.size() >= bulkChunkSize) {
+                flushChunk(chunk, tally);
+            }
+            chunk.put(row.ticketId(), row);
+        }
+        flushChunk(chunk, tally);
+
+        log.info("bulk stock init: total={}, created={}, updated={}, rejected={}",
+                tally.total, tally.created, tally.updated, tally.rejected);
+        return new BulkStockResponse(tally.total, tally.created, tally.updated, tally.rejected,
+                tally.rejections, tally.truncated);
+    }
+
+    private void flushChunk(Map<Long, BulkRow> chunk, BulkTally tally) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        List<BulkRow> rows = new ArrayList<>(chunk.values());
+        chunk.clear();
+
+        List<BulkStockRejection> inUse = new ArrayList<>();
+        long[] createdUpdated = new long[2];
+        try {
+            txTemplate.executeWithoutResult(status -> {
+                Map<Long, StockState> existing = bulkRepo.lockExisting(rows.stream().map(BulkRow::ticketId).toList());
+
+                List<StockInit> apply = new ArrayList<>(rows.size());
+                for (BulkRow row : rows) {
+                    StockState state = existing.get(row.ticketId());
+                    if (hotStock.isEnrolled(row.ticketId()) || (state != null && state.memoryOwner() != null)) {
+                        inUse.add(new BulkStockRejection(row.line(), row.ticketId(), "TICKET_IN_MEMORY_MODE",
+                                "stock of an in-memory ticket cannot be re-initialized"));
+                        continue;
+                    }
+                    if (state != null && state.seated()) {
+                        inUse.add(new BulkStockRejection(row.line(), row.ticketId(), "TICKET_SEATED",
+                                "stock of a seated ticket is initialized from its seats"));
+                        continue;
+                    }
+                    if (state != null && (state.reserved() != 0 || state.sold() != 0
+                            || (state.shardCount() > 1 && stockLedger.hasShardReservedOrSold(row.ticketId())))) {
+                        inUse.add(new BulkStockRejection(row.line(), row.ticketId(), "STOCK_ALREADY_IN_USE",
+                                "cannot overwrite stock when reserved or sold is non-zero"));
+                        continue;
+                    }
+                    int shardCount = state == null ? defaultShards : state.shardCount();
+                    apply.add(new StockInit(row.ticketId(), row.available(), shardCount));
+                    createdUpdated[state == null ? 0 : 1]++;
+                }
+
+                bulkRepo.upsert(apply);
+                for (StockInit init : apply) {
+                    if (init.shardCount() > 1) {
+                        stockLedger.reshard(init.ticketId(), init.available(), init.shardCount());
+                    }
+                    events.publishEvent(new StockInitializedEvent(init.ticketId(), init.available()));
+                }
+            });
+        } catch (RuntimeException e) {
+            log.error("bulk stock init chunk failed: rows={}, firstLine={}", rows.size(), rows.get(0).line(), e);
+            for (BulkRow row : rows) {
+                reject(tally, row.line(), row.ticketId(), "CHUNK_FAILED", "chunk could not be applied, retry the row");
+            }
+            return;
+        }
+
+        tally.created += createdUpdated[0];
+        tally.updated += createdUpdated[1];
+        for (BulkStockRejection r : inUse) {
+            reject(tally, r.line(), r.ticketId(), r.code(), r.message());
+        }
+    }
+
+    /**
+     * Only a line naming both columns is a header; anything else is parsed as a row,
+     * so a malformed first row is rejected as INVALID_ROW instead of skipped.
+     */
+    private static boolean isCsvHeader(String line) {
+        String[] cols = line.split(",");
+        return cols.length >= 2
+                && CSV_TICKET_ID.contains(cols[0].strip().toLowerCase(Locale.ROOT))
+                && CSV_AVAILABLE.equals(cols[1].strip().toLowerCase(Locale.ROOT));
+    }
+
+    private BulkRow parseRow(long lineNo, String line, BulkFormat format) throws IOException {
+        long ticketId;
+        long available;
+        if (format == BulkFormat.CSV) {
+            String[] cols = line.split(",");
+            if (cols.length < 2) {
+                throw new IllegalArgumentException("expected ticketId,available");
+            }
+            ticketId = parseLong(cols[0], "ticketId");
+            available = parseLong(cols[1], "available");
+        } else {
+            JsonNode node = objectMapper.readTree(line);
+            JsonNode id = node.get("ticketId");
+            JsonNode avail = node.get("available");
+            if (id == null || !id.canConvertToLong() || avail == null || !avail.canConvertToLong()) {
+                throw new IllegalArgumentException("expected {\"ticketId\": <long>, \"available\": <int>}");
+            }
+            ticketId = id.asLong();
+            available = avail.asLong();
+        }
+
+        if (ticketId <= 0) {
+            throw new IllegalArgumentException("ticketId must be > 0");
+        }
+        if (available < 0 || available > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("available must be >= 0");
+        }
+        return new BulkRow(lineNo, ticketId, (int) available);
+    }
+
+    private static long parseLong(String raw, String field) {
+        try {
+            return Long.parseLong(raw.strip());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(field + " is not a number");
+        }
+    }
+
+    private void reject(BulkTally tally, long line, Long ticketId, String code, String message) {
+        tally.rejected++;
+        if (tally.rejections.size() < bulkMaxRejections) {
+            tally.rejections.add(new BulkStockRejection(line, ticketId, code, message));
+        } else {
+            tally.truncated = true;
+        }
     }
 
     private InventoryResponse toResponse(Inventory inv) {
@@ -51,7 +338,9 @@ public class InventoryAdminServiceImpl implements InventoryAdminService{
                 inv.getAvailable(),
                 inv.getReserved(),
                 inv.getSold(),
-                inv.getVersion()
+                inv.getVersion(),
+                inv.getShardCount(),
+                inv.isSeated()
         );
     }
 }
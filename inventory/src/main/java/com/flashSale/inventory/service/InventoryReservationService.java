@@ -1,9 +1,43 @@
 package com.flashSale.inventory.service;
 
+import com.flashSale.inventory.dto.BatchReservationResponse;
+import com.flashSale.inventory.dto.BatchTransitionResponse;
 import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.dto.ReserveRequest;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
 
 public interface InventoryReservationService {
-    ReservationResponse reserve(String reservationId, long ticketId, int qty);
+    /**
+     * @param ttl how long the hold lives before it is released, null for the configured default
+     * @param userId buyer counted against the ticket's per-user limit, null to skip the limit
+     */
+    ReservationResponse reserve(String reservationId, long ticketId, int qty, Duration ttl, Long userId);
+
+    default ReservationResponse reserve(String reservationId, long ticketId, int qty) {
+        return reserve(reservationId, ticketId, qty, null, null);
+    }
+
+    BatchReservationResponse reserveAll(List<ReserveRequest> items);
+
+    /**
+     * Current state of a reservation, no side effects.
+     */
+    Optional<ReservationResponse> find(String reservationId);
+
     ReservationResponse release(String reservationId);
     ReservationResponse commit(String reservationId);
+
+    /**
+     * Commit of many reservations in one tx; per-id outcomes in request order, same
+     * idempotency and state rules as commit.
+     */
+    BatchTransitionResponse commitAll(List<String> reservationIds);
+
+    /**
+     * Release counterpart of commitAll.
+     */
+    BatchTransitionResponse releaseAll(List<String> reservationIds);
 }
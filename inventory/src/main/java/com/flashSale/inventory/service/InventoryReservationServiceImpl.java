@@ -1,17 +1,44 @@
 package com.flashSale.inventory.service;
 
+import com.flashSale.inventory.admission.TicketAdmission;
 import com.flashSale.inventory.domain.InventoryReservation;
 import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.BatchReservationResponse;
+import com.flashSale.inventory.dto.BatchReservationResult;
+import com.flashSale.inventory.dto.BatchTransitionResponse;
+import com.flashSale.inventory.dto.BatchTransitionResult;
 import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.dto.ReserveRequest;
+import com.flashSale.inventory.exception.BatchReserveException;
 import com.flashSale.inventory.exception.ConflictException;
 import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.expiry.ReservationExpiryEngine;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.HotTicketDetector;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.metrics.ReservationMetrics;
 import com.flashSale.inventory.repo.InventoryRepository;
+import com.flashSale.inventory.repo.ReservationArchiveRepository;
 import com.flashSale.inventory.repo.ReservationRepository;
+import com.flashSale.inventory.repo.UserHoldRepository.Delta;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Slf4j
 @Service
@@ -19,42 +46,427 @@ import org.springframework.transaction.annotation.Transactional;
 public class InventoryReservationServiceImpl implements InventoryReservationService{
     private final InventoryRepository inventoryRepo;
     private final ReservationRepository reservationRepo;
+    private final StockLedger stockLedger;
+    private final StockGate stockGate;
+    private final TransactionTemplate txTemplate;
+    private final ReserveCoalescer coalescer;
+    private final SoldOutSentinel soldOutSentinel;
+    private final ReservationExpiryEngine expiryEngine;
+    private final TerminalReservationCache terminalCache;
+    private final JdbcReservePath jdbcReservePath;
+    private final HotStockEngine hotStock;
+    private final ReservationArchiveRepository archiveRepo;
+    private final TicketAdmission admission;
+    private final TicketModes modes;
+    private final HotTicketDetector hotTickets;
+    private final UserPurchaseLimits userLimits;
+    private final ReservationMetrics metrics;
+
+    @Value("${inventory.reserve.lean-jdbc:false}")
+    private boolean leanJdbcReserve;
+
+    @Value("${inventory.reservation.ttl:15m}")
+    private Duration defaultTtl;
+
+    @Value("${inventory.sentinel.write-failed-audit:false}")
+    private boolean writeFailedAudit;
 
     /**
      * Reserve is idempotent by reservationId
      *
-     * Tx order:
-     * 1) Insert reservation (INIT) - "occupy the idempotency slot"
-     * 2) Atomic update inventory (available>=qty)
-     * 3) Update reservation status -> RESERVED or FAILED
+     * Order:
+     * 0) Idempotency fast path: terminal cache only. Other retries are caught by the insert's
+     *    primary key, or looked up in the hot table when rejected; either way an existing
+     *    reservation is returned as-is and FAILED replays 409. The archive is not consulted.
+     * 1) Sold-out sentinel / per-user limit / stock gate - rejected requests never open a DB transaction
+     * 2) Coalescer (single-row tickets, if enabled) - group-committed with concurrent reserves
+     *    otherwise a per-ticket admission slot (429 when the ticket's queue is full), then
+     *    Tx (JdbcReservePath instead if inventory.reserve.lean-jdbc):
+     *    a) Insert reservation (INIT) - "occupy the idempotency slot"
+     *    b) Atomic update inventory (available>=qty)
+     *    c) Update reservation status -> RESERVED or FAILED
+     *
+     * If the tx fails after the gate admitted the request, the admission and the
+     * per-user count are rolled back. Latency, DB time and outcome go to ReservationMetrics.
      */
     @Override
-    @Transactional
-    public ReservationResponse reserve(String reservationId, long ticketId, int qty) {
+    public ReservationResponse reserve(String reservationId, long ticketId, int qty, Duration ttl, Long userId) {
+        return metrics.time(ReservationMetrics.RESERVE, () -> reserveOnce(reservationId, ticketId, qty, ttl, userId));
+    }
 
-        // 0) Idempotency fast path
-        InventoryReservation existing = reservationRepo.findById(reservationId).orElse(null);
-        if (existing != null){
+    private ReservationResponse reserveOnce(String reservationId, long ticketId, int qty, Duration ttl, Long userId) {
+        // 0) Idempotency fast path: terminal cache, then DB
+        ReservationResponse terminal = terminalCache.get(reservationId);
+        if (terminal != null) {
+            return replayReserve(terminal);
+        }
+
+        hotTickets.record(ticketId);
+        metrics.touched(ticketId);
+        try (TicketModes.Lease lease = modes.shared(ticketId)) {
+            return reserveInMode(reservationId, ticketId, qty, ttl, userId);
+        }
+    }
+
+    private ReservationResponse reserveInMode(String reservationId, long ticketId, int qty, Duration ttl, Long userId) {
+        // Memory mode: the journal append is the whole reserve
+        if (hotStock.isEnrolled(ticketId)) {
+            return reserveInMemory(reservationId, ticketId, qty, ttl, userId);
+        }
+
+        // No idempotency lookup up front: a retried reservationId is caught by the insert's
+        // primary key, and every rejection below checks for it before answering 409.
+        // Archived reservations (finished, older than the archive age) are not replayed here.
+
+        // 1) Sold-out sentinel, then stock gate
+        if (soldOutSentinel.isSoldOut(ticketId)) {
+            if (writeFailedAudit && reservationRepo.insertFailedIfAbsent(reservationId, ticketId, qty) == 1) {
+                terminalCache.put(new ReservationResponse(reservationId, ticketId, qty, ReservationStatus.FAILED));
+                throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+            }
+            return replayOrReject(reservationId);
+        }
+
+        userLimits.prepare(userId, ticketId);
+        if (!stockGate.tryAcquire(reservationId, ticketId, qty)) {
+            log.info("reserve rejected by stock gate: reservationId={}, ticketId={}, qty={}",
+                    reservationId, ticketId, qty);
+            return replayOrReject(reservationId);
+        }
+
+        // 2) DB reserve
+        Instant expiresAt = expiresAt(ttl);
+        try {
+            ReservationResponse reserved;
+            if (coalescer.isEnabled() && stockLedger.isSingleRow(ticketId)) {
+                reserved = metrics.db(ReservationMetrics.RESERVE, () ->
+                        coalescer.reserve(reservationId, ticketId, qty, userId, expiresAt,
+                                () -> reserveSingle(reservationId, ticketId, qty, userId, expiresAt)));
+            } else {
+                try (TicketAdmission.Permit permit = admission.admit(ticketId)) {
+                    reserved = metrics.db(ReservationMetrics.RESERVE,
+                            () -> reserveSingle(reservationId, ticketId, qty, userId, expiresAt));
+                }
+            }
+            if (reserved.status() != ReservationStatus.RESERVED) {
+                // replay of a finished reservation: its admission is long gone, give this one back
+                stockGate.rollback(reservationId, ticketId);
+                terminalCache.put(reserved);
+                if (reserved.status() == ReservationStatus.FAILED) {
+                    throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+                }
+            }
+            expiryEngine.track(reservationId, expiresAt);
+            return reserved;
+        } catch (ConflictException e) {
+            if (!"INSUFFICIENT_STOCK".equals(e.getCode())) {
+                stockGate.rollback(reservationId, ticketId);
+                throw e;
+            }
+            // the conditional UPDATE found no stock: rows == 0
+            metrics.updateMiss(ReservationMetrics.RESERVE);
+            if (stockLedger.isSoldOut(ticketId)) {
+                soldOutSentinel.markSoldOut(ticketId);
+            }
+            ReservationResponse replay = existingReservation(reservationId);
+            // a live hold keeps the admission it was made with (the acquire was a no-op)
+            if (replay == null || replay.status() != ReservationStatus.RESERVED) {
+                stockGate.rollback(reservationId, ticketId);
+            }
+            if (replay == null) {
+                throw e;
+            }
+            return replayReserve(replay);
+        } catch (RuntimeException e) {
+            stockGate.rollback(reservationId, ticketId);
+            throw e;
+        }
+    }
+
+    /**
+     * A rejected reserve may be the retry of one that went through earlier: replay it
+     * instead of answering 409.
+     */
+    private ReservationResponse replayOrReject(String reservationId) {
+        ReservationResponse replay = existingReservation(reservationId);
+        if (replay == null) {
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        return replayReserve(replay);
+    }
+
+    /**
+     * Hot table only: reserve retries are not looked up in the archive.
+     */
+    private ReservationResponse existingReservation(String reservationId) {
+        return reservationRepo.findById(reservationId)
+                .map(this::toResponse)
+                .map(r -> {
+                    terminalCache.put(r);
+                    return r;
+                })
+                .orElse(null);
+    }
+
+    /**
+     * A retried reservationId replays without counting against the per-user limit again;
+     * finished ones are already flushed out of memory and found in the tables.
+     * The hold is counted in its own autocommit before the journal append and given back if
+     * the append fails: a crash in between over-counts, it never lets a user past the limit.
+     */
+    private ReservationResponse reserveInMemory(String reservationId, long ticketId, int qty, Duration ttl, Long userId) {
+        ReservationResponse known = hotStock.replayOf(reservationId);
+        if (known != null) {
+            metrics.replay(ReservationMetrics.RESERVE);
+            terminalCache.put(known);
+            return known;
+        }
+        userLimits.prepare(userId, ticketId);
+        txTemplate.executeWithoutResult(status -> userLimits.acquire(userId, ticketId, qty));
+        try {
+            return hotStock.reserve(reservationId, ticketId, qty, userId, expiresAt(ttl));
+        } catch (RuntimeException e) {
+            txTemplate.executeWithoutResult(status -> userLimits.release(userId, ticketId, qty));
+            throw e;
+        }
+    }
+
+    /**
+     * All-or-nothing reserve of several items, same per-reservation idempotency as reserve.
+     *
+     * 1) Existing reservations replay as-is (a FAILED one fails the batch); archived ones are not looked up
+     * 2) Sentinel / gate admission for the new items, per-user limits loaded
+     * 3) One tx reserving the new items in ascending ticketId order, so concurrent
+     *    batches take the inventory row locks in the same order and cannot deadlock;
+     *    the per-user limits are counted in the same tx
+     *
+     * Any failure rolls the whole tx back and answers 409 with the per-item results.
+     */
+    @Override
+    public BatchReservationResponse reserveAll(List<ReserveRequest> items) {
+        return metrics.time(ReservationMetrics.RESERVE_BATCH, () -> reserveAllOnce(items));
+    }
+
+    private BatchReservationResponse reserveAllOnce(List<ReserveRequest> items) {
+        // ascending like the row locks: lease waits cannot form a cycle
+        List<TicketModes.Lease> leases = new ArrayList<>();
+        try {
+            for (long ticketId : new TreeSet<>(items.stream().map(ReserveRequest::ticketId).toList())) {
+                leases.add(modes.shared(ticketId));
+            }
+            return reserveAllInMode(items);
+        } finally {
+            leases.forEach(TicketModes.Lease::close);
+        }
+    }
+
+    private BatchReservationResponse reserveAllInMode(List<ReserveRequest> items) {
+        Set<String> ids = new HashSet<>();
+        for (ReserveRequest item : items) {
+            if (hotStock.isEnrolled(item.ticketId())) {
+                throw new ConflictException("HOT_TICKET_NOT_BATCHABLE",
+                        "ticket " + item.ticketId() + " is in memory mode, reserve it on its own");
+            }
+            if (!ids.add(item.reservationId())) {
+                throw new ConflictException("DUPLICATE_RESERVATION_ID",
+                        "reservationId appears more than once: " + item.reservationId());
+            }
+        }
+
+        // 1) Idempotency: replay existing reservations (terminal cache first)
+        Map<String, ReservationResponse> existing = new HashMap<>();
+        Set<String> uncached = new HashSet<>();
+        for (String id : ids) {
+            ReservationResponse terminal = terminalCache.get(id);
+            if (terminal != null) {
+                existing.put(id, terminal);
+            } else {
+                uncached.add(id);
+            }
+        }
+        if (!uncached.isEmpty()) {
+            reservationRepo.findAllById(uncached).forEach(r -> {
+                ReservationResponse replay = toResponse(r);
+                terminalCache.put(replay);
+                existing.put(r.getReservationId(), replay);
+            });
+        }
+
+        BatchReservationResult[] results = new BatchReservationResult[items.size()];
+        List<Integer> pending = new ArrayList<>();
+        String failedId = null;
+        String failedCode = null;
+
+        for (int i = 0; i < items.size(); i++) {
+            ReserveRequest item = items.get(i);
+            ReservationResponse r = existing.get(item.reservationId());
+            if (r == null) {
+                pending.add(i);
+            } else if (r.status() == ReservationStatus.FAILED) {
+                failedId = item.reservationId();
+                failedCode = "INSUFFICIENT_STOCK";
+            } else {
+                metrics.replay(ReservationMetrics.RESERVE);
+                results[i] = toResult(r);
+            }
+        }
+
+        // 2) Per-user limits loaded before anything is admitted, then sentinel / gate admission
+        for (int i : pending) {
+            ReserveRequest item = items.get(i);
+            try {
+                userLimits.prepare(item.userId(), item.ticketId());
+            } catch (ConflictException e) {
+                failedId = item.reservationId();
+                failedCode = e.getCode();
+                break;
+            }
+        }
+        List<Integer> admitted = new ArrayList<>();
+        for (int i : pending) {
+            if (failedId != null) {
+                break;
+            }
+            ReserveRequest item = items.get(i);
+            if (soldOutSentinel.isSoldOut(item.ticketId())) {
+                failedId = item.reservationId();
+                failedCode = "INSUFFICIENT_STOCK";
+                break;
+            }
+            if (!stockGate.tryAcquire(item.reservationId(), item.ticketId(), item.qty())) {
+                failedId = item.reservationId();
+                failedCode = "INSUFFICIENT_STOCK";
+            } else {
+                admitted.add(i);
+            }
+        }
+
+        if (failedId != null) {
+            rollbackAdmitted(items, admitted);
+            throw batchFailure(items, existing, failedId, failedCode);
+        }
+
+        // 3) One tx, ascending ticketId
+        Instant[] deadlines = new Instant[items.size()];
+        for (int i : pending) {
+            Integer ttlSeconds = items.get(i).ttlSeconds();
+            deadlines[i] = expiresAt(ttlSeconds == null ? null : Duration.ofSeconds(ttlSeconds));
+        }
+        List<Integer> lockOrder = new ArrayList<>(pending);
+        lockOrder.sort(Comparator.comparingLong((Integer i) -> items.get(i).ticketId()).thenComparingInt(i -> i));
+
+        try {
+            metrics.db(ReservationMetrics.RESERVE_BATCH, () -> txTemplate.execute(status -> {
+                for (int i : lockOrder) {
+                    ReserveRequest item = items.get(i);
+                    ReservationResponse r;
+                    try {
+                        r = reserveInTx(item.reservationId(), item.ticketId(), item.qty(), item.userId(), deadlines[i]);
+                    } catch (ConflictException e) {
+                        if ("INSUFFICIENT_STOCK".equals(e.getCode())) {
+                            metrics.updateMiss(ReservationMetrics.RESERVE);
+                        }
+                        throw batchFailure(items, existing, item.reservationId(), e.getCode());
+                    } catch (NotFoundException e) {
+                        throw batchFailure(items, existing, item.reservationId(), e.getCode());
+                    }
+                    if (r.status() == ReservationStatus.FAILED) {
+                        throw batchFailure(items, existing, item.reservationId(), "INSUFFICIENT_STOCK");
+                    }
+                    results[i] = new BatchReservationResult(
+                            r.reservationId(), r.ticketId(), r.qty(), r.status(), null);
+                }
+                return null;
+            }));
+        } catch (BatchReserveException e) {
+            rollbackAdmitted(items, admitted);
+            e.getResponse().results().stream()
+                    .filter(r -> "INSUFFICIENT_STOCK".equals(r.error()))
+                    .filter(r -> stockLedger.isSoldOut(r.ticketId()))
+                    .forEach(r -> soldOutSentinel.markSoldOut(r.ticketId()));
+            throw e;
+        } catch (RuntimeException e) {
+            rollbackAdmitted(items, admitted);
+            throw e;
+        }
+
+        for (int i : pending) {
+            expiryEngine.track(items.get(i).reservationId(), deadlines[i]);
+        }
+        log.info("batch reserve success: items={}, new={}", items.size(), pending.size());
+        return new BatchReservationResponse(List.of(results));
+    }
+
+    /**
+     * Replayed reservations keep their state, everything new in this batch was rolled back.
+     */
+    private BatchReserveException batchFailure(
+            List<ReserveRequest> items, Map<String, ReservationResponse> existing, String failedId, String code) {
+        log.info("batch reserve failed: reservationId={}, code={}, items={}", failedId, code, items.size());
+
+        List<BatchReservationResult> out = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            ReserveRequest item = items.get(i);
+            if (item.reservationId().equals(failedId)) {
+                out.add(new BatchReservationResult(
+                        item.reservationId(), item.ticketId(), item.qty(), ReservationStatus.FAILED, code));
+            } else if (existing.containsKey(item.reservationId())) {
+                out.add(toResult(existing.get(item.reservationId())));
+            } else {
+                out.add(new BatchReservationResult(
+                        item.reservationId(), item.ticketId(), item.qty(), null, "ROLLED_BACK"));
+            }
+        }
+        return new BatchReserveException(new BatchReservationResponse(out));
+    }
+
+    private void rollbackAdmitted(List<ReserveRequest> items, List<Integer> admitted) {
+        for (int i : admitted) {
+            ReserveRequest item = items.get(i);
+            stockGate.rollback(item.reservationId(), item.ticketId());
+        }
+    }
+
+    private BatchReservationResult toResult(ReservationResponse r) {
+        return new BatchReservationResult(r.reservationId(), r.ticketId(), r.qty(), r.status(), null);
+    }
+
+    private ReservationResponse reserveSingle(String reservationId, long ticketId, int qty, Long userId, Instant expiresAt) {
+        if (leanJdbcReserve && stockLedger.isSingleRow(ticketId)) {
+            return jdbcReservePath.reserve(reservationId, ticketId, qty, userId, expiresAt);
+        }
+        try {
+            return txTemplate.execute(status -> reserveInTx(reservationId, ticketId, qty, userId, expiresAt));
+        } catch (DataIntegrityViolationException dup) {
+            // reservationId already taken (a retry, or a concurrent duplicate): the tx rolled back,
+            // read what is there outside of it
+            InventoryReservation existing = reservationRepo.findById(reservationId)
+                    .orElseThrow(() -> dup);
+            metrics.replay(ReservationMetrics.RESERVE);
             return toResponse(existing);
         }
+    }
+
+    /**
+     * Whole seconds, so the in-memory deadline matches the DATETIME column exactly.
+     */
+    private Instant expiresAt(Duration ttl) {
+        return Instant.now().plus(ttl == null ? defaultTtl : ttl).truncatedTo(ChronoUnit.SECONDS);
+    }
 
-        // 1) Create INIT reservation (handle concurrent duplicate reservationId)
+    private ReservationResponse reserveInTx(String reservationId, long ticketId, int qty, Long userId, Instant expiresAt) {
+        // a) Create INIT reservation: a duplicate reservationId fails the insert and the tx
         InventoryReservation created = new InventoryReservation();
         created.setReservationId(reservationId);
         created.setTicketId(ticketId);
         created.setQty(qty);
+        created.setUserId(userId);
         created.setStatus(ReservationStatus.INIT);
+        created.setExpiresAt(expiresAt);
 
-        try {
-            reservationRepo.saveAndFlush(created);
-        } catch (DataIntegrityViolationException dup) {
-            // Another request inserted same reservationId concurrently
-            InventoryReservation raced = reservationRepo.findById(reservationId)
-                    .orElseThrow(() -> dup);
-            return toResponse(raced);
-        }
+        reservationRepo.saveAndFlush(created);
 
-        // 2) Ticket existence check (keep behavior deterministic: 404 if not initialized)
+        // b) Ticket existence check (keep behavior deterministic: 404 if not initialized)
         if(!inventoryRepo.existsById(ticketId)) {
             created.setStatus(ReservationStatus.FAILED);
             reservationRepo.save(created);
@@ -65,20 +477,24 @@ public class InventoryReservationServiceImpl implements InventoryReservationServ
             throw new NotFoundException("TICKET_NOT_FOUND", "ticket stock not initialized");
         }
 
-        // 3) Atomic reserve (A1)
-        int rows = inventoryRepo.reserveAtomic(ticketId, qty);
+        // c) Atomic reserve (A1) - single row or one of the ticket's shards
+        StockLedger.Claim claim = stockLedger.reserve(reservationId, ticketId, qty);
 
-        if(rows == 1){
+        if(claim.granted()){
+            // after the stock row: same lock order as every other path, a rejection rolls the claim back
+            userLimits.acquire(userId, ticketId, qty);
             created.setStatus(ReservationStatus.RESERVED);
+            created.setShardNo(claim.shardNo());
             reservationRepo.save(created);
 
-            log.info("reserve success: reservationId={}, ticketId={}, qty={}",
-                    reservationId, ticketId, qty);
+            log.info("reserve success: reservationId={}, ticketId={}, qty={}, shardNo={}, seats={}",
+                    reservationId, ticketId, qty, claim.shardNo(), claim.seatNos());
 
-            return toResponse(created);
+            return toResponse(created, claim.seatNos());
         }
 
-        // 4) Insufficient stock -> FAILED (terminal)
+        // d) Insufficient stock -> FAILED (terminal)
+        stockLedger.rejectIfInMemoryMode(ticketId);
         created.setStatus(ReservationStatus.FAILED);
         reservationRepo.save(created);
 
@@ -88,17 +504,43 @@ public class InventoryReservationServiceImpl implements InventoryReservationServ
         throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
     }
 
+    /**
+     * Retries of finished reservations are answered from the terminal cache without a tx.
+     */
     @Override
-    @Transactional
     public ReservationResponse release(String reservationId) {
+        return metrics.time(ReservationMetrics.RELEASE, () -> releaseOnce(reservationId));
+    }
+
+    private ReservationResponse releaseOnce(String reservationId) {
+        ReservationResponse terminal = terminalCache.get(reservationId);
+        if (terminal != null) {
+            return replayRelease(terminal);
+        }
+        ReservationResponse inMemory = inMemory(reservationId, hotStock::release);
+        if (inMemory != null) {
+            return inMemory;
+        }
+        try {
+            return metrics.db(ReservationMetrics.RELEASE, () -> txTemplate.execute(status -> releaseInTx(reservationId)));
+        } catch (TicketPromotedException e) {
+            return releaseOnce(reservationId);
+        }
+    }
+
+    private ReservationResponse releaseInTx(String reservationId) {
         // 1) find reservation, not found return 404
-        InventoryReservation reservation = reservationRepo.findById(reservationId)
+        InventoryReservation reservation = reservationRepo.findByIdForUpdate(reservationId)
+                .or(() -> archiveRepo.findById(reservationId))
                 .orElseThrow(() -> new NotFoundException("NOT_FOUND", "reservation id not found"));
 
         ReservationStatus prevStatus = reservation.getStatus();
+        holdDbMode(reservation);
 
         // Idempotent
         if(prevStatus == ReservationStatus.RELEASED){
+            metrics.replay(ReservationMetrics.RELEASE);
+            terminalCache.put(toResponse(reservation));
             log.info("release idempotent: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=NOOP_ALREADY_RELEASED",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
             return toResponse(reservation);
@@ -106,31 +548,46 @@ public class InventoryReservationServiceImpl implements InventoryReservationServ
 
         // 2) state machine protection
         if(prevStatus == ReservationStatus.COMMITTED){
+            metrics.invalidState(ReservationMetrics.RELEASE);
+            terminalCache.put(toResponse(reservation));
             log.warn("release rejected: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=INVALID_STATE_COMMITTED",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
             throw new ConflictException("INVALID_STATE", "reservation already committed, unable to release");
         }
 
         if(prevStatus == ReservationStatus.INIT || prevStatus== ReservationStatus.FAILED){
+            metrics.invalidState(ReservationMetrics.RELEASE);
+            terminalCache.put(toResponse(reservation));
             log.warn("release rejected: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=INVALID_STATE_NOT_RESERVED",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
             throw new ConflictException("INVALID_STATE", "only reservation state can be release");
         }
 
         // 3) Atomic release
-        int rows = inventoryRepo.releaseAtomic(reservation.getTicketId(), reservation.getQty());
+        boolean released = stockLedger.release(reservationId,
+                reservation.getTicketId(), reservation.getShardNo(), reservation.getQty());
 
-        if(rows == 1) {
+        if(released) {
             reservation.setStatus(ReservationStatus.RELEASED);
             reservationRepo.save(reservation);
+            userLimits.release(reservation.getUserId(), reservation.getTicketId(), reservation.getQty());
+            ReservationResponse response = toResponse(reservation);
+            afterCommit(() -> {
+                terminalCache.put(response);
+                stockGate.onRelease(reservationId, reservation.getTicketId(), reservation.getQty());
+                soldOutSentinel.clear(reservation.getTicketId());
+            });
 
             log.info("release success: reservationId={}, ticketId={}, qty={}, prevStatus={}",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
 
-            return toResponse(reservation);
+            return response;
         }
 
         // 4) Insufficient reservation
+        metrics.updateMiss(ReservationMetrics.RELEASE);
+        stockLedger.rejectIfInMemoryMode(reservation.getTicketId());
+        metrics.invalidState(ReservationMetrics.RELEASE);
         log.error("release atomic update failed (rows=0): reservationId={}, ticketId={}, qty={}, status={}",
                 reservationId, reservation.getTicketId(), reservation.getQty(), reservation.getStatus());
 
@@ -139,53 +596,408 @@ public class InventoryReservationServiceImpl implements InventoryReservationServ
     }
 
     @Override
-    @Transactional
     public ReservationResponse commit(String reservationId) {
+        return metrics.time(ReservationMetrics.COMMIT, () -> commitOnce(reservationId));
+    }
+
+    private ReservationResponse commitOnce(String reservationId) {
+        ReservationResponse terminal = terminalCache.get(reservationId);
+        if (terminal != null) {
+            return replayCommit(terminal);
+        }
+        ReservationResponse inMemory = inMemory(reservationId, hotStock::commit);
+        if (inMemory != null) {
+            return inMemory;
+        }
+        try {
+            return metrics.db(ReservationMetrics.COMMIT, () -> txTemplate.execute(status -> commitInTx(reservationId)));
+        } catch (TicketPromotedException e) {
+            return commitOnce(reservationId);
+        }
+    }
+
+    private ReservationResponse commitInTx(String reservationId) {
         // 1) find Reservation by id
-        InventoryReservation reservation = reservationRepo.findById(reservationId)
+        InventoryReservation reservation = reservationRepo.findByIdForUpdate(reservationId)
+                .or(() -> archiveRepo.findById(reservationId))
                 .orElseThrow(() -> new NotFoundException("NOT_FOUND", "reservation not found"));
 
         ReservationStatus prevStatus = reservation.getStatus();
+        holdDbMode(reservation);
 
         // Idempotency
         if(prevStatus == ReservationStatus.COMMITTED){
+            metrics.replay(ReservationMetrics.COMMIT);
+            terminalCache.put(toResponse(reservation));
             log.info("commit idempotent: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=NOOP_ALREADY_COMMITTED",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
             return toResponse(reservation);
         }
 
-        // State Protection
+        // State Protection (RELEASED includes holds that expired before the commit arrived)
         if(prevStatus != ReservationStatus.RESERVED){
-            log.warn("commit rejected: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=INVALID_STATE_COMMITTED",
+            metrics.invalidState(ReservationMetrics.COMMIT);
+            terminalCache.put(toResponse(reservation));
+            log.warn("commit rejected: reservationId={}, ticketId={}, qty={}, prevStatus={}, outcome=INVALID_STATE_NOT_RESERVED",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
+            throw new ConflictException("INVALID_STATE", "only reserved reservation can be committed");
         }
 
         // Atomic update
-        int rows = inventoryRepo.commitAtomic(reservation.getTicketId(), reservation.getQty());
+        boolean committed = stockLedger.commit(reservationId,
+                reservation.getTicketId(), reservation.getShardNo(), reservation.getQty());
 
-        if(rows == 1){
+        if(committed){
             reservation.setStatus(ReservationStatus.COMMITTED);
             reservationRepo.save(reservation);
+            ReservationResponse response = toResponse(reservation);
+            afterCommit(() -> {
+                terminalCache.put(response);
+                stockGate.onCommit(reservationId, reservation.getTicketId());
+            });
 
             log.info("commit success: reservationId={}, ticketId={}, qty={}, prevStatus={}",
                     reservationId, reservation.getTicketId(), reservation.getQty(), prevStatus);
 
-            return toResponse(reservation);
+            return response;
         }
 
         // 4) Insufficient reservation
+        metrics.updateMiss(ReservationMetrics.COMMIT);
+        stockLedger.rejectIfInMemoryMode(reservation.getTicketId());
+        metrics.invalidState(ReservationMetrics.COMMIT);
         log.error("commit atomic update failed (rows=0): reservationId={}, ticketId={}, qty={}, status={}",
                 reservationId, reservation.getTicketId(), reservation.getQty(), reservation.getStatus());
 
         throw new ConflictException("INVALID_STATE", "commit failed due to inconsistent inventory state");
     }
 
+    @Override
+    public BatchTransitionResponse commitAll(List<String> reservationIds) {
+        return metrics.time(ReservationMetrics.COMMIT_BATCH,
+                () -> transitionAll(reservationIds, ReservationStatus.COMMITTED));
+    }
+
+    @Override
+    public BatchTransitionResponse releaseAll(List<String> reservationIds) {
+        return metrics.time(ReservationMetrics.RELEASE_BATCH,
+                () -> transitionAll(reservationIds, ReservationStatus.RELEASED));
+    }
+
+    private record StockKey(long ticketId, int shardNo) {}
+
+    private static final int SINGLE_ROW = -1;
+
+    /**
+     * Commit / release of many reservations, each id with the rules of the single call.
+     *
+     * 1) Terminal cache and in-memory tickets answer per id, outside the tx
+     * 2) One tx for the rest:
+     *    a) lock the rows in id order, pin the tickets' modes in ascending order
+     *    b) state machine per id (target state = idempotent, RESERVED = move, else INVALID_STATE)
+     *    c) one stock UPDATE per (ticket, shard) with the summed qty, in ascending order;
+     *       seated holds move their seats one reservation at a time
+     *    d) one UPDATE flipping the moved rows
+     * 3) Holds of tickets promoted to memory mode meanwhile go through the single call
+     *
+     * A failed id never rolls back the others.
+     */
+    private BatchTransitionResponse transitionAll(List<String> reservationIds, ReservationStatus target) {
+        boolean commit = target == ReservationStatus.COMMITTED;
+        Map<String, BatchTransitionResult> outcomes = new HashMap<>();
+        List<String> pending = new ArrayList<>();
+
+        // 1) no tx needed
+        for (String id : new LinkedHashSet<>(reservationIds)) {
+            ReservationResponse terminal = terminalCache.get(id);
+            if (terminal != null) {
+                outcomes.put(id, replayOutcome(terminal, target));
+                continue;
+            }
+            BatchTransitionResult inMemory = attempt(id,
+                    () -> inMemory(id, commit ? hotStock::commit : hotStock::release));
+            if (inMemory != null) {
+                outcomes.put(id, inMemory);
+            } else {
+                pending.add(id);
+            }
+        }
+
+        // 2) one tx
+        List<String> promoted = new ArrayList<>();
+        if (!pending.isEmpty()) {
+            metrics.db(commit ? ReservationMetrics.COMMIT_BATCH : ReservationMetrics.RELEASE_BATCH, () ->
+                    txTemplate.execute(status -> {
+                        outcomes.putAll(transitionAllInTx(pending, target, promoted));
+                        return null;
+                    }));
+        }
+
+        // 3) moved to memory mode between the lookup and the tx
+        for (String id : promoted) {
+            outcomes.put(id, attempt(id, () -> commit ? commitOnce(id) : releaseOnce(id)));
+        }
+
+        long failed = outcomes.values().stream().filter(r -> r.error() != null).count();
+        log.info("batch {} done: ids={}, failed={}", commit ? "commit" : "release", outcomes.size(), failed);
+        return new BatchTransitionResponse(reservationIds.stream().map(outcomes::get).toList());
+    }
+
+    private Map<String, BatchTransitionResult> transitionAllInTx(
+            List<String> ids, ReservationStatus target, List<String> promoted) {
+        boolean commit = target == ReservationStatus.COMMITTED;
+        Map<String, BatchTransitionResult> outcomes = new HashMap<>();
+
+        // a) row locks, then mode leases
+        Map<String, InventoryReservation> rows = new HashMap<>();
+        reservationRepo.findAllByIdForUpdate(ids).forEach(r -> rows.put(r.getReservationId(), r));
+        List<String> missing = ids.stream().filter(id -> !rows.containsKey(id)).toList();
+        if (!missing.isEmpty()) {
+            archiveRepo.findAllById(missing).forEach(r -> rows.put(r.getReservationId(), r));
+        }
+        new TreeSet<>(rows.values().stream().map(InventoryReservation::getTicketId).toList())
+                .forEach(modes::sharedForTransaction);
+
+        // b) state machine
+        Map<StockKey, List<InventoryReservation>> byStock = new TreeMap<>(
+                Comparator.comparingLong(StockKey::ticketId).thenComparingInt(StockKey::shardNo));
+        for (String id : ids) {
+            InventoryReservation r = rows.get(id);
+            if (r == null) {
+                outcomes.put(id, BatchTransitionResult.failed(id, "NOT_FOUND"));
+            } else if (r.getStatus() == target) {
+                metrics.replay(commit ? ReservationMetrics.COMMIT : ReservationMetrics.RELEASE);
+                terminalCache.put(toResponse(r));
+                outcomes.put(id, BatchTransitionResult.of(toResponse(r), null));
+            } else if (r.getStatus() != ReservationStatus.RESERVED) {
+                metrics.invalidState(commit ? ReservationMetrics.COMMIT : ReservationMetrics.RELEASE);
+                terminalCache.put(toResponse(r));
+                outcomes.put(id, BatchTransitionResult.of(toResponse(r), "INVALID_STATE"));
+            } else if (hotStock.isEnrolled(r.getTicketId())) {
+                promoted.add(id);
+            } else {
+                StockKey key = new StockKey(r.getTicketId(), r.getShardNo() == null ? SINGLE_ROW : r.getShardNo());
+                byStock.computeIfAbsent(key, k -> new ArrayList<>()).add(r);
+            }
+        }
+
+        // c) stock moves in lock order
+        List<InventoryReservation> moved = new ArrayList<>();
+        byStock.forEach((key, group) -> {
+            Integer shardNo = key.shardNo() == SINGLE_ROW ? null : key.shardNo();
+            if (shardNo == null && stockLedger.isSeated(key.ticketId())) {
+                for (InventoryReservation r : group) {
+                    boolean ok = commit
+                            ? stockLedger.commit(r.getReservationId(), r.getTicketId(), null, r.getQty())
+                            : stockLedger.release(r.getReservationId(), r.getTicketId(), null, r.getQty());
+                    if (ok) {
+                        moved.add(r);
+                    } else {
+                        inconsistent(r, target, outcomes);
+                    }
+                }
+                return;
+            }
+            int qty = group.stream().mapToInt(InventoryReservation::getQty).sum();
+            boolean ok = commit
+                    ? stockLedger.commit(key.ticketId(), shardNo, qty)
+                    : stockLedger.release(key.ticketId(), shardNo, qty);
+            if (ok) {
+                moved.addAll(group);
+            } else {
+                group.forEach(r -> inconsistent(r, target, outcomes));
+            }
+        });
+
+        // d) flip
+        if (!moved.isEmpty()) {
+            reservationRepo.transitionAll(
+                    moved.stream().map(InventoryReservation::getReservationId).toList(),
+                    ReservationStatus.RESERVED, target);
+            if (!commit) {
+                userLimits.releaseAll(moved.stream()
+                        .filter(r -> r.getUserId() != null)
+                        .map(r -> new Delta(r.getTicketId(), r.getUserId(), r.getQty()))
+                        .toList());
+            }
+        }
+        for (InventoryReservation r : moved) {
+            // the entities stay RESERVED: setting the status would make dirty checking
+            // update every row again at flush
+            ReservationResponse loaded = toResponse(r);
+            ReservationResponse response = new ReservationResponse(
+                    loaded.reservationId(), loaded.ticketId(), loaded.qty(), target, loaded.seatIds());
+            outcomes.put(r.getReservationId(), BatchTransitionResult.of(response, null));
+            afterCommit(() -> {
+                terminalCache.put(response);
+                if (commit) {
+                    stockGate.onCommit(r.getReservationId(), r.getTicketId());
+                } else {
+                    stockGate.onRelease(r.getReservationId(), r.getTicketId(), r.getQty());
+                }
+            });
+        }
+        if (!commit) {
+            Set<Long> restocked = new HashSet<>(moved.stream().map(InventoryReservation::getTicketId).toList());
+            afterCommit(() -> restocked.forEach(soldOutSentinel::clear));
+        }
+        return outcomes;
+    }
+
+    private void inconsistent(InventoryReservation r, ReservationStatus target, Map<String, BatchTransitionResult> outcomes) {
+        String op = target == ReservationStatus.COMMITTED ? ReservationMetrics.COMMIT : ReservationMetrics.RELEASE;
+        metrics.updateMiss(op);
+        metrics.invalidState(op);
+        log.error("batch transition to {} failed, atomic update rows=0: reservationId={}, ticketId={}, qty={}, shardNo={}",
+                target, r.getReservationId(), r.getTicketId(), r.getQty(), r.getShardNo());
+        outcomes.put(r.getReservationId(), BatchTransitionResult.of(toResponse(r), "INVALID_STATE"));
+    }
+
+    /**
+     * Same answer the single call gives for a cached terminal reservation.
+     */
+    private BatchTransitionResult replayOutcome(ReservationResponse r, ReservationStatus target) {
+        String op = target == ReservationStatus.COMMITTED ? ReservationMetrics.COMMIT : ReservationMetrics.RELEASE;
+        if (r.status() == target) {
+            metrics.replay(op);
+            return BatchTransitionResult.of(r, null);
+        }
+        metrics.invalidState(op);
+        return BatchTransitionResult.of(r, "INVALID_STATE");
+    }
+
+    /**
+     * @return null if call returned null
+     */
+    private BatchTransitionResult attempt(String reservationId, Supplier<ReservationResponse> call) {
+        try {
+            ReservationResponse r = call.get();
+            return r == null ? null : BatchTransitionResult.of(r, null);
+        } catch (ConflictException e) {
+            return BatchTransitionResult.failed(reservationId, e.getCode());
+        } catch (NotFoundException e) {
+            return BatchTransitionResult.failed(reservationId, e.getCode());
+        }
+    }
+
+    /**
+     * Terminal cache, then memory mode, then the tables.
+     */
+    @Override
+    public Optional<ReservationResponse> find(String reservationId) {
+        ReservationResponse terminal = terminalCache.get(reservationId);
+        if (terminal != null) {
+            return Optional.of(terminal);
+        }
+        ReservationResponse inMemory = hotStock.find(reservationId);
+        if (inMemory != null) {
+            return Optional.of(inMemory);
+        }
+        return findReservation(reservationId).map(this::toResponse);
+    }
+
+    /**
+     * Hot table first; finished reservations older than the archive age live in the archive.
+     */
+    private Optional<InventoryReservation> findReservation(String reservationId) {
+        return reservationRepo.findById(reservationId).or(() -> archiveRepo.findById(reservationId));
+    }
+
+    /** The ticket moved to memory mode between the lookup and the tx; retry there. */
+    private static final class TicketPromotedException extends RuntimeException {
+        TicketPromotedException() {
+            super(null, null, false, false);
+        }
+    }
+
+    /**
+     * Commit / release of a reservation held by HotStockEngine, under the ticket's lease.
+     *
+     * @return null if the reservation is not (or no longer) in memory
+     */
+    private ReservationResponse inMemory(String reservationId, Function<String, ReservationResponse> transition) {
+        Long ticketId = hotStock.ticketOf(reservationId);
+        if (ticketId == null) {
+            return null;
+        }
+        try (TicketModes.Lease lease = modes.shared(ticketId)) {
+            if (!hotStock.owns(reservationId)) {
+                return null;
+            }
+            ReservationResponse response = transition.apply(reservationId);
+            terminalCache.put(response);
+            return response;
+        }
+    }
+
+    /**
+     * Pins the ticket's mode until the tx completes. A RESERVED hold of an enrolled ticket
+     * is owned by HotStockEngine; moving its stock here would fork the counters.
+     * Terminal rows are still answered from the DB.
+     */
+    private void holdDbMode(InventoryReservation reservation) {
+        modes.sharedForTransaction(reservation.getTicketId());
+        if (reservation.getStatus() == ReservationStatus.RESERVED && hotStock.isEnrolled(reservation.getTicketId())) {
+            throw new TicketPromotedException();
+        }
+    }
+
+    private ReservationResponse replayReserve(ReservationResponse r) {
+        // FAILED rows are only persisted by the sentinel audit
+        if (r.status() == ReservationStatus.FAILED) {
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        metrics.replay(ReservationMetrics.RESERVE);
+        return r;
+    }
+
+    private ReservationResponse replayRelease(ReservationResponse r) {
+        if (r.status() == ReservationStatus.RELEASED) {
+            metrics.replay(ReservationMetrics.RELEASE);
+            return r;
+        }
+        metrics.invalidState(ReservationMetrics.RELEASE);
+        throw r.status() == ReservationStatus.COMMITTED
+                ? new ConflictException("INVALID_STATE", "reservation already committed, unable to release")
+                : new ConflictException("INVALID_STATE", "only reservation state can be release");
+    }
+
+    private ReservationResponse replayCommit(ReservationResponse r) {
+        if (r.status() == ReservationStatus.COMMITTED) {
+            metrics.replay(ReservationMetrics.COMMIT);
+            return r;
+        }
+        metrics.invalidState(ReservationMetrics.COMMIT);
+        throw new ConflictException("INVALID_STATE", "only reserved reservation can be committed");
+    }
+
+    /**
+     * Side effects outside MySQL (gate counters, ...) must only follow a committed tx.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     private ReservationResponse toResponse(InventoryReservation r){
+        return toResponse(r, stockLedger.seatsOf(r.getReservationId(), r.getTicketId()));
+    }
+
+    private ReservationResponse toResponse(InventoryReservation r, List<String> seatIds){
         return new ReservationResponse(
                 r.getReservationId(),
                 r.getTicketId(),
                 r.getQty(),
-                r.getStatus()
+                r.getStatus(),
+                seatIds
         );
     }
 }
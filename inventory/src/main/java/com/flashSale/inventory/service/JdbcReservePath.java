@@ -0,0 +1,144 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reserve for single-row tickets straight on JDBC, two statements for a first-time reserve:
+ * 1) conditional UPDATE inventory (available >= qty)
+ * 2) INSERT the reservation with its final status (RESERVED)
+ * Tickets with a per-user limit add two in between (INSERT IGNORE + conditional UPDATE of the
+ * user's hold). Nothing is looked up first: the caller does no idempotency read either, a retried
+ * reservationId is caught by the INSERT's primary key (or, on a rejected UPDATE, by the caller).
+ *
+ * Same outcomes as the JPA path:
+ * - insufficient stock -> 409, nothing persisted (the JPA path rolls its FAILED row back too);
+ *                         one more SELECT for the memory-mode owner
+ * - unknown ticket     -> 404; the extra existence check only runs on a rejected UPDATE
+ *                         for tickets not seen before
+ * - duplicate reservationId (a retry) -> tx rolled back, existing reservation returned (one SELECT)
+ * - per-user limit reached -> 409, tx rolled back
+ *
+ * A duplicate is detected by the primary key violation instead of ON DUPLICATE KEY UPDATE:
+ * Connector/J reports found rows by default, so a no-op upsert looks exactly like an insert.
+ */
+@Slf4j
+@Component
+public class JdbcReservePath {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+    private final UserPurchaseLimits userLimits;
+
+    /** Tickets known to have an inventory row. Rows are never deleted. */
+    private final Set<Long> knownTickets = ConcurrentHashMap.newKeySet();
+
+    public JdbcReservePath(JdbcTemplate jdbcTemplate, TransactionTemplate txTemplate, UserPurchaseLimits userLimits) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = txTemplate;
+        this.userLimits = userLimits;
+    }
+
+    public ReservationResponse reserve(String reservationId, long ticketId, int qty, Long userId, Instant expiresAt) {
+        return txTemplate.execute(status -> {
+            // 1) Atomic reserve
+            int updated = jdbcTemplate.update("""
+                    UPDATE inventory
+                    SET available = available - ?,
+                        reserved = reserved + ?,
+                        version = version + 1
+                    WHERE ticket_id = ?
+                        AND available >= ?
+                        AND shard_count = 1
+                        AND seated = 0
+                        AND memory_owner IS NULL
+                    """, qty, qty, ticketId, qty);
+
+            if (updated == 0) {
+                if (!isKnownTicket(ticketId)) {
+                    log.warn("reserve failed: ticket not found. reservationId={}, ticketId={}, qty={}",
+                            reservationId, ticketId, qty);
+                    throw new NotFoundException("TICKET_NOT_FOUND", "ticket stock not initialized");
+                }
+                rejectIfInMemoryMode(ticketId);
+                log.info("reserve insufficient: reservationId={}, ticketId={}, qty={}",
+                        reservationId, ticketId, qty);
+                throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+            }
+            knownTickets.add(ticketId);
+            userLimits.acquire(userId, ticketId, qty);
+
+            // 2) Reservation row, final status
+            try {
+                jdbcTemplate.update("""
+                        INSERT INTO inventory_reservations
+                            (reservation_id, ticket_id, qty, status, user_id, expires_at)
+                        VALUES (?, ?, ?, ?, ?, ?)
+                        """, reservationId, ticketId, qty, ReservationStatus.RESERVED.name(), userId,
+                        expiresAt == null ? null : Timestamp.from(expiresAt));
+            } catch (DuplicateKeyException dup) {
+                // Another request inserted same reservationId concurrently: undo our stock move
+                status.setRollbackOnly();
+                return findExisting(reservationId);
+            }
+
+            log.info("reserve success: reservationId={}, ticketId={}, qty={}, path=jdbc",
+                    reservationId, ticketId, qty);
+            return new ReservationResponse(reservationId, ticketId, qty, ReservationStatus.RESERVED);
+        });
+    }
+
+    private void rejectIfInMemoryMode(long ticketId) {
+        List<String> owner = jdbcTemplate.queryForList(
+                "SELECT memory_owner FROM inventory WHERE ticket_id = ? AND memory_owner IS NOT NULL",
+                String.class, ticketId);
+        if (!owner.isEmpty()) {
+            throw StockLedger.inMemoryMode(ticketId, owner.get(0));
+        }
+    }
+
+    private boolean isKnownTicket(long ticketId) {
+        if (knownTickets.contains(ticketId)) {
+            return true;
+        }
+        Integer count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM inventory WHERE ticket_id = ?", Integer.class, ticketId);
+        if (count != null && count > 0) {
+            knownTickets.add(ticketId);
+            return true;
+        }
+        return false;
+    }
+
+    private ReservationResponse findExisting(String reservationId) {
+        Map<String, Object> row = jdbcTemplate.queryForMap("""
+                SELECT reservation_id, ticket_id, qty, status
+                FROM inventory_reservations
+                WHERE reservation_id = ?
+                """, reservationId);
+        ReservationStatus status = ReservationStatus.valueOf((String) row.get("status"));
+        if (status == ReservationStatus.FAILED) {
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        return new ReservationResponse(
+                (String) row.get("reservation_id"),
+                ((Number) row.get("ticket_id")).longValue(),
+                ((Number) row.get("qty")).intValue(),
+                status);
+    }
+}
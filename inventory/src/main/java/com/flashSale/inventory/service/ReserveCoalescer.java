@@ -0,0 +1,303 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.InventoryReservation;
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.repo.ReservationRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Group commit for reserves on the same (single-row) ticket.
+ *
+ * Reserves are parked per ticket for up to window-ms or max-batch requests, then one tx:
+ * 1) SELECT ... FOR UPDATE on the inventory row (one row-lock acquisition per window)
+ * 2) grant or reject in memory, in arrival order while stock lasts and the buyer is within
+ *    the per-user limit
+ * 3) one UPDATE: available -= sum, reserved += sum
+ * 4) one JDBC batch insert of the granted reservation rows (RESERVED)
+ *
+ * Rejections write nothing and are not cached, like on the single-item path: the same
+ * reservationId can still succeed after a release.
+ *
+ * Callers are completed only after the tx commits. If the batch cannot be applied
+ * (e.g. a reservationId raced in through another instance), every request in it
+ * falls back to the single-item path, which handles duplicates itself.
+ */
+@Slf4j
+@Component
+public class ReserveCoalescer {
+
+    private record PendingReserve(
+            String reservationId,
+            long ticketId,
+            int qty,
+            Long userId,
+            Instant expiresAt,
+            Supplier<ReservationResponse> fallback,
+            CompletableFuture<ReservationResponse> result
+    ) {}
+
+    private final ReservationRepository reservationRepo;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate txTemplate;
+    private final UserPurchaseLimits userLimits;
+
+    private final boolean enabled;
+    private final long windowMicros;
+    private final int maxBatch;
+    private final ScheduledExecutorService flushers;
+
+    private final Map<Long, TicketQueue> queues = new ConcurrentHashMap<>();
+
+    public ReserveCoalescer(
+            ReservationRepository reservationRepo,
+            JdbcTemplate jdbcTemplate,
+            TransactionTemplate txTemplate,
+            UserPurchaseLimits userLimits,
+            @Value("${inventory.coalescer.enabled:false}") boolean enabled,
+            @Value("${inventory.coalescer.window-ms:2}") double windowMs,
+            @Value("${inventory.coalescer.max-batch:64}") int maxBatch,
+            @Value("${inventory.coalescer.flush-threads:4}") int flushThreads) {
+        this.reservationRepo = reservationRepo;
+        this.jdbcTemplate = jdbcTemplate;
+        this.txTemplate = txTemplate;
+        this.userLimits = userLimits;
+        this.enabled = enabled;
+        this.windowMicros = (long) (windowMs * 1000);
+        this.maxBatch = maxBatch;
+
+        AtomicInteger seq = new AtomicInteger();
+        this.flushers = Executors.newScheduledThreadPool(flushThreads, r -> {
+            Thread t = new Thread(r, "reserve-coalescer-" + seq.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Blocks until the window holding this request has been committed.
+     *
+     * @param fallback single-item reserve used when the batch cannot be group-committed
+     */
+    public ReservationResponse reserve(
+            String reservationId, long ticketId, int qty, Long userId, Instant expiresAt,
+            Supplier<ReservationResponse> fallback) {
+        CompletableFuture<ReservationResponse> result = new CompletableFuture<>();
+        queues.computeIfAbsent(ticketId, TicketQueue::new)
+                .add(new PendingReserve(reservationId, ticketId, qty, userId, expiresAt, fallback, result));
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushers.shutdown();
+    }
+
+    private final class TicketQueue {
+        private final long ticketId;
+        private final ConcurrentLinkedQueue<PendingReserve> pending = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger size = new AtomicInteger();
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private TicketQueue(long ticketId) {
+            this.ticketId = ticketId;
+        }
+
+        void add(PendingReserve p) {
+            pending.add(p);
+            int n = size.incrementAndGet();
+
+            if (scheduled.compareAndSet(false, true)) {
+                // first request opens the window
+                flushers.schedule(this::drain, n >= maxBatch ? 0 : windowMicros, TimeUnit.MICROSECONDS);
+            } else if (n == maxBatch) {
+                // window filled up before the timer fired
+                flushers.execute(this::drain);
+            }
+        }
+
+        /** One flush per ticket at a time: they would only queue on the same row lock anyway. */
+        synchronized void drain() {
+            scheduled.set(false);
+            while (!pending.isEmpty()) {
+                List<PendingReserve> batch = new ArrayList<>(maxBatch);
+                PendingReserve p;
+                while (batch.size() < maxBatch && (p = pending.poll()) != null) {
+                    batch.add(p);
+                }
+                size.addAndGet(-batch.size());
+                flush(ticketId, batch);
+            }
+        }
+    }
+
+    private void flush(long ticketId, List<PendingReserve> batch) {
+        // duplicates of one reservationId inside a window share the first request's outcome
+        Map<String, List<PendingReserve>> byId = new LinkedHashMap<>();
+        for (PendingReserve p : batch) {
+            byId.computeIfAbsent(p.reservationId(), k -> new ArrayList<>()).add(p);
+        }
+
+        Map<String, Object> outcomes;
+        try {
+            outcomes = txTemplate.execute(status -> applyBatch(ticketId, byId));
+        } catch (DataIntegrityViolationException e) {
+            log.warn("coalesced reserve batch conflicted, falling back to single reserves: ticketId={}, size={}",
+                    ticketId, batch.size());
+            byId.values().forEach(this::completeWithFallback);
+            return;
+        } catch (RuntimeException e) {
+            log.error("coalesced reserve batch failed: ticketId={}, size={}", ticketId, batch.size(), e);
+            batch.forEach(p -> p.result().completeExceptionally(e));
+            return;
+        }
+
+        if (outcomes == null) {
+            // ticket is sharded / seated / in memory mode: coalescing only applies to single-row DB stock
+            byId.values().forEach(this::completeWithFallback);
+            return;
+        }
+
+        byId.forEach((id, waiters) -> {
+            Object outcome = outcomes.get(id);
+            for (PendingReserve p : waiters) {
+                if (outcome instanceof ReservationResponse r) {
+                    p.result().complete(r);
+                } else {
+                    p.result().completeExceptionally((RuntimeException) outcome);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return reservationId -> ReservationResponse or the exception to surface,
+     *         null if the ticket must not be coalesced
+     */
+    private Map<String, Object> applyBatch(long ticketId, Map<String, List<PendingReserve>> byId) {
+        Map<String, Object> outcomes = new HashMap<>();
+
+        // 1) lock the stock row once for the whole window
+        List<Map<String, Object>> rows = jdbcTemplate.queryForList("""
+                SELECT available, shard_count, seated, memory_owner FROM inventory
+                WHERE ticket_id = ?
+                FOR UPDATE
+                """, ticketId);
+
+        if (rows.isEmpty()) {
+            log.warn("coalesced reserve failed: ticket not found. ticketId={}, size={}", ticketId, byId.size());
+            byId.keySet().forEach(id ->
+                    outcomes.put(id, new NotFoundException("TICKET_NOT_FOUND", "ticket stock not initialized")));
+            return outcomes;
+        }
+        // sharded / seated stock is not on this row, memory-mode stock is not ours to move
+        if (((Number) rows.get(0).get("shard_count")).intValue() > 1
+                || Boolean.TRUE.equals(rows.get(0).get("seated"))
+                || rows.get(0).get("memory_owner") != null) {
+            return null;
+        }
+        int available = ((Number) rows.get(0).get("available")).intValue();
+
+        // 2) requests that raced in since the caller's idempotency check keep their outcome
+        for (InventoryReservation existing : reservationRepo.findAllById(byId.keySet())) {
+            outcomes.put(existing.getReservationId(), existingOutcome(existing));
+        }
+
+        // 3) grant in arrival order while stock lasts; a rejection persists nothing
+        int granted = 0;
+        List<Object[]> inserts = new ArrayList<>();
+        for (List<PendingReserve> waiters : byId.values()) {
+            PendingReserve p = waiters.get(0);
+            if (outcomes.containsKey(p.reservationId())) {
+                continue;
+            }
+            if (p.qty() > available - granted) {
+                outcomes.put(p.reservationId(), new ConflictException("INSUFFICIENT_STOCK", "insufficient stock"));
+                continue;
+            }
+            try {
+                userLimits.acquire(p.userId(), ticketId, p.qty());
+            } catch (ConflictException e) {
+                outcomes.put(p.reservationId(), e);
+                continue;
+            }
+            granted += p.qty();
+            outcomes.put(p.reservationId(),
+                    new ReservationResponse(p.reservationId(), ticketId, p.qty(), ReservationStatus.RESERVED));
+            inserts.add(new Object[]{p.reservationId(), ticketId, p.qty(), ReservationStatus.RESERVED.name(),
+                    p.userId(), Timestamp.from(p.expiresAt())});
+        }
+
+        // 4) one counter update + one batch insert
+        if (granted > 0) {
+            int updated = jdbcTemplate.update("""
+                    UPDATE inventory
+                    SET available = available - ?,
+                        reserved = reserved + ?,
+                        version = version + 1
+                    WHERE ticket_id = ?
+                        AND available >= ?
+                        AND memory_owner IS NULL
+                    """, granted, granted, ticketId, granted);
+            if (updated != 1) {
+                throw new IllegalStateException("locked inventory row changed under coalesced reserve");
+            }
+        }
+        if (!inserts.isEmpty()) {
+            jdbcTemplate.batchUpdate("""
+                    INSERT INTO inventory_reservations
+                        (reservation_id, ticket_id, qty, status, user_id, expires_at)
+                    VALUES (?, ?, ?, ?, ?, ?)
+                    """, inserts);
+        }
+
+        log.info("coalesced reserve: ticketId={}, requests={}, grantedQty={}, availableBefore={}",
+                ticketId, byId.size(), granted, available);
+        return outcomes;
+    }
+
+    private Object existingOutcome(InventoryReservation r) {
+        if (r.getStatus() == ReservationStatus.FAILED) {
+            return new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }
+        return new ReservationResponse(r.getReservationId(), r.getTicketId(), r.getQty(), r.getStatus());
+    }
+
+    private void completeWithFallback(List<PendingReserve> waiters) {
+        PendingReserve first = waiters.get(0);
+        try {
+            ReservationResponse r = first.fallback().get();
+            waiters.forEach(p -> p.result().complete(r));
+        } catch (RuntimeException e) {
+            waiters.forEach(p -> p.result().completeExceptionally(e));
+        }
+    }
+}
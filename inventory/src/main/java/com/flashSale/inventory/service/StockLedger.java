@@ -0,0 +1,274 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.repo.InventoryRepository;
+import com.flashSale.inventory.repo.InventorySeatRepository;
+import com.flashSale.inventory.repo.InventoryShardRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Moves stock between available / reserved / sold, either on the single inventory row,
+ * on the ticket's inventory_shards rows when it was initialized with shards > 1, or on
+ * its inventory_seats rows when it was initialized with seats.
+ *
+ * Sharded reserve:
+ * 1) home shard = hash(reservationId) % shardCount
+ * 2) home shard empty -> fall over to sibling shards that still have stock
+ *
+ * A single reservation never spans shards, so near sell-out a qty larger than
+ * every remaining shard is rejected even if the sum would cover it.
+ *
+ * Seated reserve claims qty free seats (SKIP LOCKED), commit / release move the seats
+ * held by the reservation. The aggregate row of sharded and seated tickets is refreshed
+ * by rollup().
+ *
+ * The layout per ticket is cached. A stale entry can only cause a rejection
+ * (counter updates ignore sharded / seated rows, shard and seat updates miss other
+ * tickets), so every rejection re-reads the layout once before giving up.
+ *
+ * Counter updates also ignore rows owned by an instance's memory mode (memory_owner);
+ * rejectIfInMemoryMode() tells such a miss apart from a real shortage.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class StockLedger {
+    private final InventoryRepository inventoryRepo;
+    private final InventoryShardRepository shardRepo;
+    private final InventorySeatRepository seatRepo;
+
+    private record Layout(int shards, boolean seated) {}
+
+    private final Map<Long, Layout> layouts = new ConcurrentHashMap<>();
+
+    /**
+     * @param shardNo shard the stock was taken from, null for single-row / seated stock
+     * @param seatNos seats held for the reservation, null unless the ticket is seated
+     */
+    public record Claim(boolean granted, Integer shardNo, List<String> seatNos) {
+        static final Claim REJECTED = new Claim(false, null, null);
+        static final Claim SINGLE_ROW = new Claim(true, null, null);
+    }
+
+    public Claim reserve(String reservationId, long ticketId, int qty) {
+        Layout cached = layout(ticketId);
+        Claim claim = reserve(reservationId, ticketId, qty, cached);
+        if (claim.granted()) {
+            return claim;
+        }
+
+        Layout fresh = loadLayout(ticketId);
+        if (!fresh.equals(cached)) {
+            log.info("stock layout changed, retrying reserve: ticketId={}, layout={} -> {}",
+                    ticketId, cached, fresh);
+            return reserve(reservationId, ticketId, qty, fresh);
+        }
+        return claim;
+    }
+
+    public boolean release(String reservationId, long ticketId, Integer shardNo, int qty) {
+        return move(ticketId, shardNo,
+                () -> seatRepo.release(reservationId) == qty,
+                () -> releaseCounters(ticketId, shardNo, qty));
+    }
+
+    public boolean commit(String reservationId, long ticketId, Integer shardNo, int qty) {
+        return move(ticketId, shardNo,
+                () -> seatRepo.commit(reservationId) == qty,
+                () -> commitCounters(ticketId, shardNo, qty));
+    }
+
+    /**
+     * Counter release of several holds at once (expiry / bulk release); seated holds must
+     * go through release(reservationId, ...) one by one.
+     */
+    public boolean release(long ticketId, Integer shardNo, int qty) {
+        return refreshOnMiss(ticketId, shardNo, releaseCounters(ticketId, shardNo, qty));
+    }
+
+    /**
+     * Counter commit of several holds at once (bulk commit), same rules as the batch release.
+     */
+    public boolean commit(long ticketId, Integer shardNo, int qty) {
+        return refreshOnMiss(ticketId, shardNo, commitCounters(ticketId, shardNo, qty));
+    }
+
+    /**
+     * Re-split a ticket's stock. Must run in the admin tx that resets the inventory row.
+     */
+    public void reshard(long ticketId, int available, int shardCount) {
+        shardRepo.replaceShards(ticketId, available, shardCount);
+        seatRepo.deleteSeats(ticketId);
+        layouts.remove(ticketId);
+    }
+
+    /**
+     * Replace a ticket's stock by seats. Must run in the admin tx that resets the inventory row.
+     */
+    public void reseat(long ticketId, List<String> seatNos) {
+        shardRepo.replaceShards(ticketId, 0, 1);
+        seatRepo.replaceSeats(ticketId, seatNos);
+        layouts.remove(ticketId);
+    }
+
+    /**
+     * Call on a rejected counter move: a ticket in memory mode is served by its owner only.
+     */
+    public void rejectIfInMemoryMode(long ticketId) {
+        inventoryRepo.findMemoryOwner(ticketId).ifPresent(owner -> {
+            throw inMemoryMode(ticketId, owner);
+        });
+    }
+
+    public static ConflictException inMemoryMode(long ticketId, String owner) {
+        log.warn("stock move rejected, ticket is in memory mode: ticketId={}, owner={}", ticketId, owner);
+        return new ConflictException("TICKET_IN_MEMORY_MODE",
+                "ticket is served from memory by inventory instance " + owner);
+    }
+
+    public boolean hasSeatHeldOrSold(long ticketId) {
+        return seatRepo.hasHeldOrSold(ticketId);
+    }
+
+    /**
+     * @return seats held or sold by the reservation, null if the ticket is not seated
+     */
+    public List<String> seatsOf(String reservationId, long ticketId) {
+        return isSeated(ticketId) ? seatRepo.findSeatNos(reservationId) : null;
+    }
+
+    /**
+     * The aggregate row lags the shards by one rollup, so check the shards themselves.
+     */
+    public boolean hasShardReservedOrSold(long ticketId) {
+        return shardRepo.hasReservedOrSold(ticketId);
+    }
+
+    /**
+     * No stock left anywhere. Sharded tickets read the shards, the aggregate row lags.
+     */
+    public boolean isSoldOut(long ticketId) {
+        if (isSeated(ticketId)) {
+            return !seatRepo.hasFree(ticketId);
+        }
+        if (isSharded(ticketId)) {
+            return shardRepo.findShardsWithAvailable(ticketId, 1).isEmpty();
+        }
+        return inventoryRepo.findAvailable(ticketId).map(available -> available == 0).orElse(false);
+    }
+
+    public boolean isSharded(long ticketId) {
+        return layout(ticketId).shards() > 1;
+    }
+
+    public boolean isSeated(long ticketId) {
+        return layout(ticketId).seated();
+    }
+
+    /**
+     * Stock is the inventory row itself: the coalescer / lean JDBC path may update it.
+     */
+    public boolean isSingleRow(long ticketId) {
+        Layout layout = layout(ticketId);
+        return layout.shards() <= 1 && !layout.seated();
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.stock.rollup-interval-ms:1000}")
+    public void rollup() {
+        int shards = shardRepo.rollup();
+        int seats = seatRepo.rollup();
+        if (shards + seats > 0) {
+            log.debug("stock rollup: aggregate rows updated, sharded={}, seated={}", shards, seats);
+        }
+    }
+
+    /**
+     * Shard moves are addressed by the reservation's shardNo. Otherwise the cached layout
+     * picks seats or the single row, a miss re-reads the layout once.
+     */
+    private boolean move(long ticketId, Integer shardNo, BooleanSupplier seats, BooleanSupplier singleRow) {
+        if (shardNo != null) {
+            return singleRow.getAsBoolean();
+        }
+        boolean cached = isSeated(ticketId);
+        if ((cached ? seats : singleRow).getAsBoolean()) {
+            return true;
+        }
+        boolean fresh = loadLayout(ticketId).seated();
+        return fresh != cached && (fresh ? seats : singleRow).getAsBoolean();
+    }
+
+    private boolean refreshOnMiss(long ticketId, Integer shardNo, boolean moved) {
+        if (!moved && shardNo == null) {
+            // the ticket may have been seated behind a stale entry, the next batch will know
+            loadLayout(ticketId);
+        }
+        return moved;
+    }
+
+    private boolean releaseCounters(long ticketId, Integer shardNo, int qty) {
+        if (shardNo == null) {
+            return inventoryRepo.releaseAtomic(ticketId, qty) == 1;
+        }
+        return shardRepo.releaseAtomic(ticketId, shardNo, qty) == 1;
+    }
+
+    private boolean commitCounters(long ticketId, Integer shardNo, int qty) {
+        if (shardNo == null) {
+            return inventoryRepo.commitAtomic(ticketId, qty) == 1;
+        }
+        return shardRepo.commitAtomic(ticketId, shardNo, qty) == 1;
+    }
+
+    private Claim reserve(String reservationId, long ticketId, int qty, Layout layout) {
+        if (layout.seated()) {
+            List<String> seatNos = seatRepo.claim(ticketId, reservationId, qty);
+            return seatNos.isEmpty() ? Claim.REJECTED : new Claim(true, null, seatNos);
+        }
+        int shards = layout.shards();
+        if (shards <= 1) {
+            return inventoryRepo.reserveAtomic(ticketId, qty) == 1 ? Claim.SINGLE_ROW : Claim.REJECTED;
+        }
+
+        int home = Math.floorMod(reservationId.hashCode(), shards);
+        if (shardRepo.reserveAtomic(ticketId, home, qty) == 1) {
+            return new Claim(true, home, null);
+        }
+
+        // Home shard is short: try siblings that still have stock, walking on from home
+        // so fail-over traffic spreads instead of piling onto shard 0.
+        List<Integer> candidates = shardRepo.findShardsWithAvailable(ticketId, qty).stream()
+                .filter(shardNo -> shardNo != home)
+                .sorted(Comparator.comparingInt(shardNo -> Math.floorMod(shardNo - home, shards)))
+                .toList();
+
+        for (int shardNo : candidates) {
+            if (shardRepo.reserveAtomic(ticketId, shardNo, qty) == 1) {
+                return new Claim(true, shardNo, null);
+            }
+        }
+        return Claim.REJECTED;
+    }
+
+    private Layout layout(long ticketId) {
+        Layout cached = layouts.get(ticketId);
+        return cached != null ? cached : loadLayout(ticketId);
+    }
+
+    private Layout loadLayout(long ticketId) {
+        Layout layout = new Layout(
+                inventoryRepo.findShardCount(ticketId).orElse(1),
+                inventoryRepo.findSeated(ticketId).orElse(false));
+        layouts.put(ticketId, layout);
+        return layout;
+    }
+}
@@ -0,0 +1,53 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Reservations in a terminal state (COMMITTED / RELEASED / FAILED) never change again,
+ * so retries for them are answered from memory without touching MySQL.
+ *
+ * Size-bounded; an evicted entry just costs one DB read on the next retry.
+ * Hit ratio is exported as cache.gets{cache=reservation.terminal, result=hit|miss}.
+ */
+@Component
+public class TerminalReservationCache {
+
+    private static final Set<ReservationStatus> TERMINAL =
+            EnumSet.of(ReservationStatus.COMMITTED, ReservationStatus.RELEASED, ReservationStatus.FAILED);
+
+    private final Cache<String, ReservationResponse> cache;
+
+    public TerminalReservationCache(
+            MeterRegistry meterRegistry,
+            @Value("${inventory.reservation.terminal-cache.max-size:100000}") long maxSize) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "reservation.terminal");
+    }
+
+    /**
+     * @return the terminal state, null if unknown or not terminal
+     */
+    public ReservationResponse get(String reservationId) {
+        return cache.getIfPresent(reservationId);
+    }
+
+    /** Ignores non-terminal states. */
+    public void put(ReservationResponse r) {
+        if (r != null && TERMINAL.contains(r.status())) {
+            cache.put(r.reservationId(), r);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.flashSale.inventory.snapshot;
+
+import com.flashSale.inventory.dto.StockLevelResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * In-memory copy of the inventory rows for read traffic, keyed by ticket and versioned
+ * by inventory.version.
+ *
+ * Only tickets read within idle-ms (or with a pending long-poll) are kept: the first read
+ * of any other ticket loads its row by primary key, after that a background poller refreshes
+ * the kept rows with one non-locking IN read per chunk, so readers do not wait on the row
+ * locks reserves hold. Idle tickets are dropped and no longer read.
+ * (No incremental query on updated_at: an index on it would be maintained by every reserve.)
+ *
+ * Long-poll: watch(ticketId, sinceVersion) completes as soon as the snapshot holds a
+ * newer version, or with the current level when the wait times out.
+ */
+@Slf4j
+@Component
+public class StockSnapshot {
+
+    private record Watcher(long sinceVersion, DeferredResult<StockLevelResponse> result) {}
+
+    private static final int CHUNK = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long maxWaitMs;
+    private final long idleNanos;
+
+    private final Map<Long, StockLevelResponse> levels = new ConcurrentHashMap<>();
+    private final Map<Long, Queue<Watcher>> watchers = new ConcurrentHashMap<>();
+    /** ticketId -> System.nanoTime() of the last read; only tickets in levels */
+    private final Map<Long, Long> lastRead = new ConcurrentHashMap<>();
+
+    public StockSnapshot(
+            JdbcTemplate jdbcTemplate,
+            @Value("${inventory.stock.snapshot.max-wait-ms:30000}") long maxWaitMs,
+            @Value("${inventory.stock.snapshot.idle-ms:60000}") long idleMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxWaitMs = maxWaitMs;
+        this.idleNanos = idleMs * 1_000_000L;
+    }
+
+    public Optional<StockLevelResponse> get(long ticketId) {
+        return getAll(List.of(ticketId)).stream().findFirst();
+    }
+
+    /**
+     * Unknown tickets are left out.
+     */
+    public List<StockLevelResponse> getAll(Collection<Long> ticketIds) {
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ticketIds) {
+            if (!levels.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            load(missing);
+        }
+
+        long now = System.nanoTime();
+        List<StockLevelResponse> out = new ArrayList<>(ticketIds.size());
+        for (Long id : ticketIds) {
+            StockLevelResponse level = levels.get(id);
+            if (level != null) {
+                lastRead.put(id, now);
+                out.add(level);
+            }
+        }
+        return out;
+    }
+
+    /**
+     * @param current the level the caller already checked is not newer than sinceVersion
+     */
+    public DeferredResult<StockLevelResponse> watch(StockLevelResponse current, long sinceVersion, long waitMs) {
+        long ticketId = current.ticketId();
+        if (waitMs <= 0) {
+            // a DeferredResult timeout <= 0 would mean no timeout at all
+            DeferredResult<StockLevelResponse> now = new DeferredResult<>();
+            now.setResult(levels.getOrDefault(ticketId, current));
+            return now;
+        }
+        DeferredResult<StockLevelResponse> result = new DeferredResult<>(Math.min(waitMs, maxWaitMs));
+        Watcher watcher = new Watcher(sinceVersion, result);
+
+        result.onTimeout(() -> result.setResult(levels.getOrDefault(ticketId, current)));
+        result.onCompletion(() -> {
+            Queue<Watcher> q = watchers.get(ticketId);
+            if (q != null) {
+                q.remove(watcher);
+            }
+        });
+        watchers.computeIfAbsent(ticketId, k -> new ConcurrentLinkedQueue<>()).add(watcher);
+
+        // the poller may have moved on between the caller's check and the registration
+        StockLevelResponse latest = levels.get(ticketId);
+        if (latest != null && latest.version() > sinceVersion) {
+            result.setResult(latest);
+        }
+        return result;
+    }
+
+    @Scheduled(
+            initialDelay = 0,
+            fixedDelayString = "${inventory.stock.snapshot.refresh-interval-ms:200}")
+    public void refresh() {
+        long now = System.nanoTime();
+        List<Long> active = new ArrayList<>();
+        for (Map.Entry<Long, Long> e : lastRead.entrySet()) {
+            long ticketId = e.getKey();
+            Queue<Watcher> q = watchers.get(ticketId);
+            if (now - e.getValue() < idleNanos || (q != null && !q.isEmpty())) {
+                active.add(ticketId);
+            } else if (lastRead.remove(ticketId, e.getValue())) {
+                levels.remove(ticketId);
+            }
+        }
+        if (active.isEmpty()) {
+            return;
+        }
+        try {
+            load(active);
+        } catch (Exception e) {
+            log.warn("stock snapshot refresh failed, serving previous snapshot: error={}", e.getMessage());
+        }
+    }
+
+    private void load(List<Long> ticketIds) {
+        for (int from = 0; from < ticketIds.size(); from += CHUNK) {
+            List<Long> chunk = ticketIds.subList(from, Math.min(from + CHUNK, ticketIds.size()));
+            apply(jdbcTemplate.query("""
+                    SELECT ticket_id, available, reserved, sold, version
+                    FROM inventory
+                    WHERE ticket_id IN (%s)
+                    """.formatted(String.join(",", Collections.nCopies(chunk.size(), "?"))),
+                    (rs, i) -> new StockLevelResponse(
+                            rs.getLong("ticket_id"),
+                            rs.getInt("available"),
+                            rs.getInt("reserved"),
+                            rs.getInt("sold"),
+                            rs.getLong("version")),
+                    chunk.toArray()));
+        }
+    }
+
+    private void apply(List<StockLevelResponse> rows) {
+        for (StockLevelResponse row : rows) {
+            StockLevelResponse prev = levels.get(row.ticketId());
+            if (prev == null || !prev.equals(row)) {
+                levels.put(row.ticketId(), row);
+                notifyWatchers(row);
+            }
+        }
+    }
+
+    private void notifyWatchers(StockLevelResponse level) {
+        Queue<Watcher> q = watchers.get(level.ticketId());
+        if (q == null) {
+            return;
+        }
+        for (Watcher w : q) {
+            if (level.version() > w.sinceVersion()) {
+                w.result().setResult(level);
+            }
+        }
+    }
+}
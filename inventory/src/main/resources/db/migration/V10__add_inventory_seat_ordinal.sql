@@ -0,0 +1,18 @@
+-- Seat position in the ticket's seating order: claims take the lowest free ordinals and
+-- adjacent ordinals are adjacent seats. seat_no is a label and sorts as text ("A10" < "A2").
+ALTER TABLE inventory_seats
+    ADD COLUMN seat_ordinal INT NOT NULL DEFAULT 0;
+
+-- existing seats: shorter labels first, so "A2" precedes "A10" within a row prefix
+UPDATE inventory_seats s
+JOIN (
+    SELECT ticket_id, seat_no,
+        ROW_NUMBER() OVER (PARTITION BY ticket_id ORDER BY CHAR_LENGTH(seat_no), seat_no) - 1 AS ordinal
+    FROM inventory_seats
+) o ON o.ticket_id = s.ticket_id AND o.seat_no = s.seat_no
+SET s.seat_ordinal = o.ordinal;
+
+-- claim: ticket_id = ? AND status = 'FREE' ORDER BY seat_ordinal LIMIT ?
+DROP INDEX idx_seats_ticket_status ON inventory_seats;
+CREATE INDEX idx_seats_ticket_status
+    ON inventory_seats(ticket_id, status, seat_ordinal);
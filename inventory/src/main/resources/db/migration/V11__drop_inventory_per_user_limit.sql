@@ -0,0 +1,3 @@
+-- per-user limits are read from catalog's ticket, the copy on the stock row is no longer used
+ALTER TABLE inventory
+    DROP COLUMN per_user_limit;
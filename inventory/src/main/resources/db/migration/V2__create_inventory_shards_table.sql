@@ -0,0 +1,23 @@
+-- Hot tickets can split their stock across N sub-rows to spread InnoDB row locks.
+-- inventory stays the aggregate view (rolled up from the shards).
+CREATE TABLE inventory_shards (
+    ticket_id BIGINT NOT NULL,
+    shard_no INT NOT NULL,
+    available INT NOT NULL,
+    reserved INT NOT NULL,
+    sold INT NOT NULL,
+    version BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (ticket_id, shard_no),
+    CHECK (available >= 0),
+    CHECK (reserved >= 0),
+    CHECK (sold >= 0)
+);
+
+-- 1 = single-row stock (reserveAtomic only matches these rows)
+ALTER TABLE inventory
+    ADD COLUMN shard_count INT NOT NULL DEFAULT 1;
+
+-- which shard a reservation took its stock from (NULL = single-row stock)
+ALTER TABLE inventory_reservations
+    ADD COLUMN shard_no INT NULL;
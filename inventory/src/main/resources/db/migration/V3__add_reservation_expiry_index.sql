@@ -0,0 +1,3 @@
+-- expiry scan: status = 'RESERVED' AND expires_at <= ? ORDER BY expires_at
+CREATE INDEX idx_resv_status_expires
+    ON inventory_reservations(status, expires_at);
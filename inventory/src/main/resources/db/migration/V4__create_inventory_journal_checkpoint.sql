@@ -0,0 +1,9 @@
+-- Journal position (see inventory.journal.*) whose transitions are already applied to
+-- inventory / inventory_reservations. Moves in the same tx as the flushed rows.
+CREATE TABLE inventory_journal_checkpoint (
+    id TINYINT PRIMARY KEY,
+    position BIGINT NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP
+);
+
+INSERT INTO inventory_journal_checkpoint (id, position) VALUES (1, 0);
@@ -0,0 +1,23 @@
+-- finished reservations moved out of the hot table by ReservationArchiver
+CREATE TABLE inventory_reservations_archive (
+    reservation_id VARCHAR(64) PRIMARY KEY,
+    ticket_id BIGINT NOT NULL,
+    qty INT NOT NULL,
+    status ENUM(
+        'COMMITTED',
+        'RELEASED',
+        'FAILED'
+    ) NOT NULL,
+    shard_no INT NULL,
+    expires_at DATETIME NULL,
+    created_at DATETIME NOT NULL,
+    updated_at DATETIME NOT NULL,
+    archived_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX idx_resv_archive_ticket_id
+    ON inventory_reservations_archive(ticket_id);
+
+-- archiver scan: status = ? AND updated_at < ? ORDER BY updated_at
+CREATE INDEX idx_resv_status_updated
+    ON inventory_reservations(status, updated_at);
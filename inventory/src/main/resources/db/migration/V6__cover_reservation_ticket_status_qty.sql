@@ -0,0 +1,6 @@
+-- conservation reconciler: SUM(qty) ... GROUP BY ticket_id, status becomes an index-only scan.
+-- Same left prefix, so it replaces idx_resv_ticket_status.
+CREATE INDEX idx_resv_ticket_status_qty
+    ON inventory_reservations(ticket_id, status, qty);
+
+DROP INDEX idx_resv_ticket_status ON inventory_reservations;
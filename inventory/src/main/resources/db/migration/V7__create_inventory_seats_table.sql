@@ -0,0 +1,23 @@
+-- Reserved seating: one row per sellable seat. inventory stays the aggregate view
+-- (rolled up from the seats), reserves claim seat rows with SKIP LOCKED.
+CREATE TABLE inventory_seats (
+    ticket_id BIGINT NOT NULL,
+    seat_no VARCHAR(32) NOT NULL,
+    status ENUM('FREE', 'HELD', 'SOLD') NOT NULL,
+    reservation_id VARCHAR(64) NULL,
+    version BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (ticket_id, seat_no)
+);
+
+-- claim: ticket_id = ? AND status = 'FREE' ORDER BY seat_no LIMIT ?; also the rollup
+CREATE INDEX idx_seats_ticket_status
+    ON inventory_seats(ticket_id, status, seat_no);
+
+-- commit / release / replay by reservation
+CREATE INDEX idx_seats_reservation
+    ON inventory_seats(reservation_id);
+
+-- 1 = stock is the ticket's inventory_seats rows (counter updates never match these rows)
+ALTER TABLE inventory
+    ADD COLUMN seated BOOLEAN NOT NULL DEFAULT FALSE;
@@ -0,0 +1,20 @@
+-- Per-user purchase limit per ticket, NULL = unlimited
+ALTER TABLE inventory
+    ADD COLUMN per_user_limit INT NULL;
+
+-- buyer of the hold, so releases and expiries can give the quantity back
+ALTER TABLE inventory_reservations
+    ADD COLUMN user_id BIGINT NULL;
+
+ALTER TABLE inventory_reservations_archive
+    ADD COLUMN user_id BIGINT NULL;
+
+-- quantity each user holds or bought per ticket, written behind by UserPurchaseLimits
+CREATE TABLE inventory_user_holds (
+    ticket_id BIGINT NOT NULL,
+    user_id BIGINT NOT NULL,
+    qty INT NOT NULL,
+    updated_at DATETIME NOT NULL DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    PRIMARY KEY (ticket_id, user_id),
+    CHECK (qty >= 0)
+);
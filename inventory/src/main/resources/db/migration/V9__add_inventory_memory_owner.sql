@@ -0,0 +1,5 @@
+-- Instance whose memory mode (HotStockEngine) owns the ticket's counters, NULL = DB paths.
+-- Every DB counter update requires memory_owner IS NULL, so no other instance (and no stale
+-- local path) can move stock the owner is about to write behind.
+ALTER TABLE inventory
+    ADD COLUMN memory_owner VARCHAR(64) NULL;
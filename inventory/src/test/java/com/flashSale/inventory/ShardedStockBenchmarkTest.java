@@ -0,0 +1,109 @@
+package com.flashSale.inventory;
+
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.service.InventoryAdminService;
+import com.flashSale.inventory.service.InventoryReservationService;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Single-row vs sharded stock under 500 concurrent reservers: sharding must pay for itself
+ * (at least MIN_SPEEDUP times the single-row throughput) without overselling.
+ *
+ * Needs the inventory MySQL from infra/docker-compose.yml:
+ *   mvn test -Dtest=ShardedStockBenchmarkTest -Dinventory.benchmark=true
+ */
+@SpringBootTest
+@EnabledIfSystemProperty(named = "inventory.benchmark", matches = "true")
+class ShardedStockBenchmarkTest {
+
+    private static final int RESERVERS = 500;
+    private static final int RESERVES_PER_THREAD = 20;
+    private static final int STOCK = RESERVERS * RESERVES_PER_THREAD;
+    private static final double MIN_SPEEDUP = 1.5;
+
+    @Autowired
+    private InventoryAdminService adminService;
+
+    @Autowired
+    private InventoryReservationService reservationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void sixteenShardsOutrunASingleRow() throws Exception {
+        Result single = run(1);
+        Result sharded = run(16);
+
+        // one row serializes every reserve on its lock; 16 shards should spread that contention
+        assertTrue(sharded.perSecond() >= single.perSecond() * MIN_SPEEDUP,
+                String.format("shards=16 %.0f/s vs shards=1 %.0f/s, expected >= %.1fx",
+                        sharded.perSecond(), single.perSecond(), MIN_SPEEDUP));
+    }
+
+    private Result run(int shards) throws Exception {
+        long ticketId = System.currentTimeMillis() * 100 + shards;
+        adminService.initStock(ticketId, STOCK, shards);
+
+        ExecutorService pool = Executors.newFixedThreadPool(RESERVERS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < RESERVERS; t++) {
+            int thread = t;
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < RESERVES_PER_THREAD; i++) {
+                    try {
+                        reservationService.reserve("bench-" + ticketId + "-" + thread + "-" + i, ticketId, 1);
+                        reserved.incrementAndGet();
+                    } catch (ConflictException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Future<?> f : futures) {
+            f.get();
+        }
+        long millis = (System.nanoTime() - begin) / 1_000_000;
+        pool.shutdown();
+
+        // no oversell: every granted unit is accounted for exactly once
+        Integer dbReserved = jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(qty), 0) FROM inventory_reservations
+                WHERE ticket_id = ? AND status = 'RESERVED'
+                """, Integer.class, ticketId);
+        assertEquals(reserved.get(), dbReserved);
+        assertEquals(STOCK, reserved.get() + rejected.get());
+
+        return new Result(reserved.get(), millis);
+    }
+
+    private record Result(int reserved, long millis) {
+        double perSecond() {
+            return reserved * 1000.0 / Math.max(1, millis);
+        }
+    }
+}
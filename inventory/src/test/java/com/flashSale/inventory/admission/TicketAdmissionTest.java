@@ -0,0 +1,83 @@
+package com.flashSale.inventory.admission;
+
+import com.flashSale.inventory.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TicketAdmissionTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void capsInFlightPerTicketAndRejectsBeyondTheQueue() throws Exception {
+        TicketAdmission admission = new TicketAdmission(registry, true, 2, 3, 2_000, 1_000, 600_000);
+        List<TicketAdmission.Permit> held = List.of(admission.admit(1), admission.admit(1));
+
+        // three callers park, the fourth finds the queue full
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        AtomicInteger concurrent = new AtomicInteger(2);
+        List<Future<?>> parked = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            parked.add(pool.submit(() -> {
+                try (TicketAdmission.Permit p = admission.admit(1)) {
+                    maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+                    concurrent.decrementAndGet();
+                }
+                return null;
+            }));
+        }
+        while (registry.get("inventory.admission.queue.depth").tag("ticketId", "1").gauge().value() < 3) {
+            Thread.sleep(5);
+        }
+
+        TooManyRequestsException full = assertThrows(TooManyRequestsException.class, () -> admission.admit(1));
+        assertEquals("ADMISSION_QUEUE_FULL", full.getCode());
+
+        // a cold ticket is not affected by the storm
+        admission.admit(2).close();
+
+        concurrent.decrementAndGet();
+        concurrent.decrementAndGet();
+        held.forEach(TicketAdmission.Permit::close);
+        for (Future<?> f : parked) {
+            f.get(5, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+        assertTrue(maxConcurrent.get() <= 2);
+        assertEquals(1.0, registry.get("inventory.admission.rejected")
+                .tags("ticketId", "1", "reason", "queue_full").counter().count());
+    }
+
+    @Test
+    void waitTimesOutWithRetryAfter() {
+        TicketAdmission admission = new TicketAdmission(registry, true, 1, 10, 20, 1_500, 600_000);
+        try (TicketAdmission.Permit held = admission.admit(7)) {
+            TooManyRequestsException e = assertThrows(TooManyRequestsException.class, () -> admission.admit(7));
+            assertEquals("ADMISSION_TIMEOUT", e.getCode());
+            assertEquals(1_500, e.getRetryAfter().toMillis());
+        }
+        // the slot is free again once the holder closes
+        admission.admit(7).close();
+    }
+
+    @Test
+    void idleLanesAreEvictedWithTheirMeters() {
+        TicketAdmission admission = new TicketAdmission(registry, true, 1, 1, 10, 1_000, 0);
+        TicketAdmission.Permit held = admission.admit(3);
+        admission.evictIdle();
+        assertNotNull(registry.find("inventory.admission.wait").tag("ticketId", "3").timer());
+
+        held.close();
+        admission.evictIdle();
+        assertNull(registry.find("inventory.admission.wait").tag("ticketId", "3").timer());
+        assertNull(registry.find("inventory.admission.queue.depth").tag("ticketId", "3").gauge());
+    }
+}
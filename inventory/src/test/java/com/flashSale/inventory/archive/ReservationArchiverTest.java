@@ -0,0 +1,110 @@
+package com.flashSale.inventory.archive;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.repo.ReservationArchiveRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Archiver against H2 in MySQL mode, without a Spring context.
+ */
+class ReservationArchiverTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private ReservationArchiveRepository archiveRepo;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:archive-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+
+        jdbc = new JdbcTemplate(dataSource);
+        for (String table : List.of("inventory_reservations", "inventory_reservations_archive")) {
+            jdbc.execute("""
+                    CREATE TABLE %s (
+                        reservation_id VARCHAR(64) PRIMARY KEY,
+                        ticket_id BIGINT NOT NULL,
+                        qty INT NOT NULL,
+                        status VARCHAR(16) NOT NULL,
+                        user_id BIGINT NULL,
+                        shard_no INT NULL,
+                        expires_at DATETIME NULL,
+                        created_at DATETIME NOT NULL,
+                        updated_at DATETIME NOT NULL
+                    )""".formatted(table));
+        }
+        archiveRepo = new ReservationArchiveRepository(jdbc);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void movesOnlyOldFinishedRowsInChunks() {
+        Instant old = Instant.now().minus(Duration.ofDays(30));
+        Instant fresh = Instant.now().minus(Duration.ofHours(1));
+        for (int i = 0; i < 25; i++) {
+            insert("old-c-" + i, ReservationStatus.COMMITTED, old);
+            insert("old-f-" + i, ReservationStatus.FAILED, old);
+        }
+        insert("old-reserved", ReservationStatus.RESERVED, old);
+        insert("fresh-released", ReservationStatus.RELEASED, fresh);
+
+        archiver(10).run();
+
+        assertEquals(50, count("inventory_reservations_archive"));
+        assertEquals(List.of("fresh-released", "old-reserved"), jdbc.queryForList(
+                "SELECT reservation_id FROM inventory_reservations ORDER BY reservation_id", String.class));
+
+        var archived = archiveRepo.findById("old-c-3").orElseThrow();
+        assertEquals(ReservationStatus.COMMITTED, archived.getStatus());
+        assertEquals(2, archived.getQty());
+        assertEquals(2, archiveRepo.findAllById(List.of("old-f-0", "old-f-1", "missing")).size());
+        assertTrue(archiveRepo.findById("fresh-released").isEmpty());
+    }
+
+    @Test
+    void runIsBoundedByMaxChunks() {
+        Instant old = Instant.now().minus(Duration.ofDays(30));
+        for (int i = 0; i < 30; i++) {
+            insert("r-" + i, ReservationStatus.RELEASED, old);
+        }
+
+        new ReservationArchiver(archiveRepo, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new SimpleMeterRegistry(), true, Duration.ofDays(7), 10, 0, 0, 2).run();
+
+        assertEquals(20, count("inventory_reservations_archive"));
+        assertEquals(10, count("inventory_reservations"));
+    }
+
+    private ReservationArchiver archiver(int chunkSize) {
+        return new ReservationArchiver(archiveRepo, new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new SimpleMeterRegistry(), true, Duration.ofDays(7), chunkSize, 0, 0, 1000);
+    }
+
+    private void insert(String id, ReservationStatus status, Instant updatedAt) {
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status, created_at, updated_at) "
+                        + "VALUES (?, 1, 2, ?, ?, ?)",
+                id, status.name(), Timestamp.from(updatedAt), Timestamp.from(updatedAt));
+    }
+
+    private int count(String table) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+}
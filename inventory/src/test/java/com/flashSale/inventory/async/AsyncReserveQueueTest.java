@@ -0,0 +1,146 @@
+package com.flashSale.inventory.async;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.ServiceUnavailableException;
+import com.flashSale.inventory.exception.TooManyRequestsException;
+import com.flashSale.inventory.service.InventoryReservationService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.CannotCreateTransactionException;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class AsyncReserveQueueTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final InventoryReservationService reservations = mock(InventoryReservationService.class);
+    private AsyncReserveQueue queue;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void acceptedRequestCompletesWithTheReserveOutcome() throws Exception {
+        when(reservations.reserve(eq("r-1"), eq(7L), eq(2), any(), any()))
+                .thenReturn(new ReservationResponse("r-1", 7L, 2, ReservationStatus.RESERVED));
+        queue = start(1, 100);
+
+        AsyncReserveQueue.Pending p = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+        assertEquals(ReservationStatus.INIT, p.accepted().status());
+
+        assertEquals(ReservationStatus.RESERVED, p.outcome().get(5, TimeUnit.SECONDS).status());
+        // answered from the reservation table from now on
+        assertNull(queue.find("r-1"));
+        assertEquals(1, registry.get("inventory.async.reserve.latency").timer().count());
+    }
+
+    @Test
+    void rejectedReserveIsRememberedAsFailed() throws Exception {
+        when(reservations.reserve(eq("r-1"), anyLong(), anyInt(), any(), any()))
+                .thenThrow(new ConflictException("INSUFFICIENT_STOCK", "not enough stock"));
+        queue = start(1, 100);
+
+        AsyncReserveQueue.Pending p = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+
+        assertEquals(ReservationStatus.FAILED, p.outcome().get(5, TimeUnit.SECONDS).status());
+        AsyncReserveQueue.Pending polled = queue.find("r-1");
+        assertTrue(polled.outcome().isDone());
+        assertEquals(ReservationStatus.FAILED, polled.outcome().join().status());
+    }
+
+    @Test
+    void admissionRejectionsAreRetried() throws Exception {
+        TooManyRequestsException busy = new TooManyRequestsException("ADMISSION_QUEUE_FULL", "busy", Duration.ofSeconds(1));
+        when(reservations.reserve(eq("r-1"), anyLong(), anyInt(), any(), any()))
+                .thenThrow(busy)
+                .thenReturn(new ReservationResponse("r-1", 7L, 2, ReservationStatus.RESERVED));
+        queue = start(1, 100);
+
+        AsyncReserveQueue.Pending p = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+
+        assertEquals(ReservationStatus.RESERVED, p.outcome().get(5, TimeUnit.SECONDS).status());
+        verify(reservations, times(2)).reserve(eq("r-1"), anyLong(), anyInt(), any(), any());
+    }
+
+    @Test
+    void admissionStillFullAfterBackoffIsRetryableNotFailed() {
+        when(reservations.reserve(eq("r-1"), anyLong(), anyInt(), any(), any()))
+                .thenThrow(new TooManyRequestsException("ADMISSION_QUEUE_FULL", "busy", Duration.ofSeconds(1)));
+        queue = start(1, 100);
+
+        long start = System.nanoTime();
+        AsyncReserveQueue.Pending p = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> p.outcome().get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TooManyRequestsException.class, e.getCause());
+        // backed off 40 + 80 ms between the three attempts
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 120);
+        verify(reservations, times(3)).reserve(eq("r-1"), anyLong(), anyInt(), any(), any());
+        assertNull(queue.find("r-1"), "a transient failure must not be remembered as FAILED");
+    }
+
+    @Test
+    void infrastructureErrorIsRetryableAndTheIdCanBeResubmitted() throws Exception {
+        when(reservations.reserve(eq("r-1"), anyLong(), anyInt(), any(), any()))
+                .thenThrow(new CannotCreateTransactionException("connection refused"))
+                .thenReturn(new ReservationResponse("r-1", 7L, 2, ReservationStatus.RESERVED));
+        queue = start(1, 100);
+
+        AsyncReserveQueue.Pending p = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+        ExecutionException e = assertThrows(ExecutionException.class, () -> p.outcome().get(5, TimeUnit.SECONDS));
+        assertEquals("RESERVE_UNAVAILABLE", ((ServiceUnavailableException) e.getCause()).getCode());
+        assertNull(queue.find("r-1"));
+
+        AsyncReserveQueue.Pending retried = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 2, null, null));
+        assertEquals(ReservationStatus.RESERVED, retried.outcome().get(5, TimeUnit.SECONDS).status());
+    }
+
+    @Test
+    void fullQueueRejectsAndDuplicatesShareTheirOutcome() throws Exception {
+        CountDownLatch writerBusy = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        when(reservations.reserve(anyString(), anyLong(), anyInt(), any(), any())).thenAnswer(inv -> {
+            writerBusy.countDown();
+            unblock.await(5, TimeUnit.SECONDS);
+            return new ReservationResponse(inv.getArgument(0), inv.getArgument(1), inv.getArgument(2), ReservationStatus.RESERVED);
+        });
+        queue = start(1, 1);
+
+        // the writer holds the first request, the second fills the ring
+        AsyncReserveQueue.Pending first = queue.submit(new AsyncReserveQueue.Request("r-1", 7, 1, null, null));
+        assertTrue(writerBusy.await(5, TimeUnit.SECONDS));
+        AsyncReserveQueue.Pending second = queue.submit(new AsyncReserveQueue.Request("r-2", 7, 1, null, null));
+
+        assertSame(second, queue.submit(new AsyncReserveQueue.Request("r-2", 7, 1, null, null)));
+        TooManyRequestsException full = assertThrows(TooManyRequestsException.class,
+                () -> queue.submit(new AsyncReserveQueue.Request("r-3", 7, 1, null, null)));
+        assertEquals("ASYNC_QUEUE_FULL", full.getCode());
+        assertNull(queue.find("r-3"));
+
+        unblock.countDown();
+        assertEquals(ReservationStatus.RESERVED, first.outcome().get(5, TimeUnit.SECONDS).status());
+        assertEquals(ReservationStatus.RESERVED, second.outcome().get(5, TimeUnit.SECONDS).status());
+        verify(reservations, times(1)).reserve(eq("r-2"), anyLong(), anyInt(), any(), any());
+    }
+
+    private AsyncReserveQueue start(int writers, int capacity) {
+        AsyncReserveQueue q = new AsyncReserveQueue(reservations, registry, true, capacity, writers, 3, 40,
+                Duration.ofMinutes(10), 30_000, 1_000);
+        q.start();
+        return q;
+    }
+}
@@ -0,0 +1,53 @@
+package com.flashSale.inventory.expiry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimerWheelTest {
+
+    @Test
+    void firesNearAndFarDeadlinesOnTimeNeverEarly() {
+        TimerWheel<Long> wheel = new TimerWheel<>(100, 3, 0);
+        long[] deadlines = {50, 100, 150, 6_399, 6_400, 6_500, 123_456, 409_600, 1_000_000};
+        for (long d : deadlines) {
+            assertTrue(wheel.schedule(d, d));
+        }
+
+        List<long[]> fired = new ArrayList<>();
+        for (long now = 0; now <= 1_100_000; now += 100) {
+            for (long d : wheel.advance(now)) {
+                fired.add(new long[]{d, now});
+            }
+        }
+
+        assertEquals(deadlines.length, fired.size());
+        for (long[] f : fired) {
+            assertTrue(f[1] >= f[0], "fired early: deadline=" + f[0] + ", at=" + f[1]);
+            assertTrue(f[1] - f[0] < 100, "fired late: deadline=" + f[0] + ", at=" + f[1]);
+        }
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void catchesUpAfterLongPauseAndRefusesBeyondHorizon() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 2, 1_000);
+        assertTrue(wheel.schedule(2_000, "a"));
+        assertTrue(wheel.schedule(300_000, "b"));
+        assertFalse(wheel.schedule(1_000 + wheel.horizonMs() + 100, "too-far"));
+
+        assertEquals(List.of("a", "b"), wheel.advance(400_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineFiresOnNextTick() {
+        TimerWheel<String> wheel = new TimerWheel<>(100, 3, 10_000);
+        wheel.schedule(5_000, "overdue");
+        assertEquals(List.of(), wheel.advance(10_050));
+        assertEquals(List.of("overdue"), wheel.advance(10_100));
+    }
+}
@@ -0,0 +1,123 @@
+package com.flashSale.inventory.gate;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The gate's Lua scripts against a real Redis.
+ *
+ * Needs the Redis from infra/docker-compose.yml:
+ *   mvn test -Dtest=RedisStockGateTest -Dinventory.redis-tests=true
+ */
+@EnabledIfSystemProperty(named = "inventory.redis-tests", matches = "true")
+class RedisStockGateTest {
+
+    private LettuceConnectionFactory connectionFactory;
+    private StringRedisTemplate redis;
+    private RedisStockGate gate;
+    private long ticketId;
+
+    @BeforeEach
+    void setUp() {
+        connectionFactory = new LettuceConnectionFactory(
+                System.getenv().getOrDefault("REDIS_HOST", "localhost"),
+                Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379")));
+        connectionFactory.afterPropertiesSet();
+        redis = new StringRedisTemplate(connectionFactory);
+        redis.afterPropertiesSet();
+        gate = new RedisStockGate(redis);
+        ticketId = System.nanoTime();
+    }
+
+    @AfterEach
+    void tearDown() {
+        redis.delete(List.of(key("stock"), key("resv"), key("ver")));
+        connectionFactory.destroy();
+    }
+
+    @Test
+    void acquireDeductsOnceAndRejectsBeyondStock() {
+        gate.load(ticketId, 3);
+
+        assertTrue(gate.tryAcquire("a", ticketId, 2));
+        assertTrue(gate.tryAcquire("a", ticketId, 2), "a retried admission is not deducted twice");
+        assertFalse(gate.tryAcquire("b", ticketId, 2));
+        assertTrue(gate.tryAcquire("c", ticketId, 1));
+
+        assertEquals("0", redis.opsForValue().get(key("stock")));
+        assertEquals("2", redis.opsForHash().get(key("resv"), "a"));
+    }
+
+    @Test
+    void unloadedTicketFailsOpen() {
+        assertTrue(gate.tryAcquire("a", ticketId, 100));
+        assertNull(redis.opsForValue().get(key("stock")));
+    }
+
+    @Test
+    void rollbackOnlyGivesBackAnAdmission() {
+        gate.load(ticketId, 5);
+        gate.tryAcquire("a", ticketId, 2);
+
+        gate.rollback("never-admitted", ticketId);
+        assertEquals("3", redis.opsForValue().get(key("stock")));
+
+        gate.rollback("a", ticketId);
+        gate.rollback("a", ticketId);
+        assertEquals("5", redis.opsForValue().get(key("stock")));
+        assertFalse(redis.opsForHash().hasKey(key("resv"), "a"));
+    }
+
+    @Test
+    void releaseAlwaysGivesBackAndCommitKeepsTheDeduction() {
+        gate.load(ticketId, 5);
+        gate.tryAcquire("a", ticketId, 2);
+        gate.tryAcquire("b", ticketId, 1);
+
+        gate.onCommit("a", ticketId);
+        // admitted before the ticket was loaded: not in the hash, still given back
+        gate.onRelease("unknown", ticketId, 1);
+        gate.onRelease("b", ticketId, 1);
+
+        assertEquals("4", redis.opsForValue().get(key("stock")));
+        assertEquals(0, redis.opsForHash().size(key("resv")));
+    }
+
+    @Test
+    void reconcileIsSkippedWhenTheCounterMovedAfterTheRead() {
+        gate.load(ticketId, 5);
+        gate.tryAcquire("a", ticketId, 2);
+
+        long version = gate.version(ticketId);
+        // the DB read below (available = 3) races a release that commits and gives back 2
+        gate.onRelease("a", ticketId, 2);
+
+        assertFalse(gate.loadIfUnchanged(ticketId, 3, version));
+        assertEquals("5", redis.opsForValue().get(key("stock")), "the release must not be lost");
+
+        assertTrue(gate.loadIfUnchanged(ticketId, 5, gate.version(ticketId)));
+        assertEquals("5", redis.opsForValue().get(key("stock")));
+    }
+
+    @Test
+    void loadMovesTheVersion() {
+        long before = gate.version(ticketId);
+        gate.load(ticketId, 9);
+
+        assertTrue(gate.version(ticketId) > before);
+        assertFalse(gate.loadIfUnchanged(ticketId, 1, before));
+        assertEquals("9", redis.opsForValue().get(key("stock")));
+    }
+
+    private String key(String suffix) {
+        return "inv:{" + ticketId + "}:" + suffix;
+    }
+}
@@ -0,0 +1,56 @@
+package com.flashSale.inventory.gate;
+
+import com.flashSale.inventory.domain.Inventory;
+import com.flashSale.inventory.repo.InventoryRepository;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.Mockito.*;
+
+class StockGateReconcilerTest {
+
+    private final InventoryRepository inventoryRepo = mock(InventoryRepository.class);
+    private final StockGate gate = mock(StockGate.class);
+    private final StockGateReconciler reconciler = new StockGateReconciler(inventoryRepo, gate);
+
+    @Test
+    void versionIsReadBeforeTheDbAndPassedToTheCompareAndSet() {
+        when(gate.version(7)).thenReturn(41L);
+        when(inventoryRepo.findAvailable(7)).thenReturn(Optional.of(5));
+
+        reconciler.reconcile(7);
+
+        InOrder order = inOrder(gate, inventoryRepo);
+        order.verify(gate).version(7);
+        order.verify(inventoryRepo).findAvailable(7);
+        order.verify(gate).loadIfUnchanged(7, 5, 41L);
+        verify(gate, never()).load(anyLong(), anyInt());
+    }
+
+    @Test
+    void busyOrNewTicketsDoNotStopTheRun() {
+        when(inventoryRepo.findAllTicketIds()).thenReturn(List.of(1L, 2L));
+        when(gate.version(1)).thenReturn(3L);
+        when(gate.version(2)).thenReturn(8L);
+        // ticket 3 was created between the two reads
+        when(inventoryRepo.findAll()).thenReturn(List.of(inventory(1, 10), inventory(2, 20), inventory(3, 30)));
+        when(gate.loadIfUnchanged(1, 10, 3L)).thenReturn(false);
+        when(gate.loadIfUnchanged(2, 20, 8L)).thenReturn(true);
+
+        reconciler.reconcileAll();
+
+        verify(gate).loadIfUnchanged(1, 10, 3L);
+        verify(gate).loadIfUnchanged(2, 20, 8L);
+        verify(gate, never()).loadIfUnchanged(eq(3L), anyInt(), anyLong());
+    }
+
+    private static Inventory inventory(long ticketId, int available) {
+        Inventory inv = new Inventory();
+        inv.setTicketId(ticketId);
+        inv.setAvailable(available);
+        return inv;
+    }
+}
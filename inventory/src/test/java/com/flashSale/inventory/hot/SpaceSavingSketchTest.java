@@ -0,0 +1,54 @@
+package com.flashSale.inventory.hot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void heavyHittersSurviveALongTailOfColdKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(16);
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            if (i % 10 == 0) {
+                sketch.offer(7, 1);
+            } else if (i % 10 == 1) {
+                sketch.offer(8, 1);
+            } else {
+                sketch.offer(1_000 + random.nextInt(50_000), 1);
+            }
+        }
+
+        var top = sketch.top();
+        assertEquals(16, top.size());
+        assertEquals(java.util.Set.of(7L, 8L), java.util.Set.of(top.get(0).key(), top.get(1).key()));
+        // the lower bound never over-states the true count
+        assertTrue(sketch.get(7).lowerBound() <= 10_000);
+        assertTrue(sketch.get(7).count() >= 10_000);
+    }
+
+    @Test
+    void decayFadesAndDropsQuietKeys() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        sketch.offer(1, 100);
+        sketch.offer(2, 1);
+
+        sketch.decay(0.5, 0.75);
+
+        assertEquals(50, sketch.get(1).count());
+        assertNull(sketch.get(2));
+    }
+
+    @Test
+    void steadyRateSettlesAtRateOverOneMinusDecay() {
+        SpaceSavingSketch sketch = new SpaceSavingSketch(4);
+        for (int tick = 0; tick < 40; tick++) {
+            sketch.decay(0.5, 0.5);
+            sketch.offer(3, 1_000);
+        }
+        assertEquals(2_000, sketch.get(3).count(), 1);
+    }
+}
@@ -0,0 +1,110 @@
+package com.flashSale.inventory.hot;
+
+import com.flashSale.inventory.journal.HotStockEngine;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TicketModesTest {
+
+    @Test
+    void promotionWaitsForInFlightRequestsAndBlocksNewOnes() throws Exception {
+        HotStockEngine engine = mock(HotStockEngine.class);
+        when(engine.isEnabled()).thenReturn(true);
+        AtomicBoolean enrolled = new AtomicBoolean();
+        CountDownLatch enrolling = new CountDownLatch(1);
+        when(engine.enroll(1L)).thenAnswer(inv -> {
+            enrolling.countDown();
+            enrolled.set(true);
+            return true;
+        });
+        when(engine.isEnrolled(anyLong())).thenAnswer(inv -> enrolled.get());
+        TicketModes modes = new TicketModes(engine);
+
+        TicketModes.Lease inFlight = modes.shared(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Boolean> promotion = pool.submit(() -> modes.promote(1, TicketModes.Source.MANUAL));
+
+        ExecutorService other = Executors.newSingleThreadExecutor();
+        // new requests queue behind the pending switch once it waits for the lock
+        assertTrue(other.submit(() -> awaitSwitchQueued(modes, 1)).get(5, TimeUnit.SECONDS));
+        assertEquals(1, enrolling.getCount(), "promotion must wait for the in-flight request");
+        assertFalse(promotion.isDone());
+        // other tickets are not affected
+        assertTrue(other.submit(() -> {
+            try (TicketModes.Lease lease = modes.tryShared(2)) {
+                return lease != null;
+            }
+        }).get());
+        other.shutdown();
+
+        inFlight.close();
+        assertTrue(promotion.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+
+        assertEquals(TicketModes.Source.MANUAL, modes.enrollment(1).source());
+        modes.tryShared(1).close();
+    }
+
+    @Test
+    void demotionDrainsWithoutBlockingRequests() throws Exception {
+        HotStockEngine engine = mock(HotStockEngine.class);
+        when(engine.isEnabled()).thenReturn(true);
+        when(engine.isEnrolled(1L)).thenReturn(true);
+        CountDownLatch draining = new CountDownLatch(1);
+        CountDownLatch drained = new CountDownLatch(1);
+        when(engine.drain(eq(1L), anyLong())).thenAnswer(inv -> {
+            draining.countDown();
+            return drained.await(5, TimeUnit.SECONDS);
+        });
+        // transitions landed during the first drain: drain again, then switch
+        when(engine.retire(1L)).thenReturn(false, true);
+        TicketModes modes = new TicketModes(engine);
+        ReflectionTestUtils.setField(modes, "demoteTimeoutMs", 5_000L);
+
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        Future<Boolean> demotion = pool.submit(() -> modes.demote(1));
+        assertTrue(draining.await(5, TimeUnit.SECONDS));
+
+        TicketModes.Lease lease = modes.tryShared(1);
+        assertNotNull(lease, "requests keep flowing while the write-behind drains");
+        lease.close();
+
+        drained.countDown();
+        assertTrue(demotion.get(5, TimeUnit.SECONDS));
+        pool.shutdown();
+        verify(engine, times(2)).drain(eq(1L), anyLong());
+        verify(engine, times(2)).retire(1L);
+    }
+
+    @Test
+    void disabledEngineNeedsNoLocks() {
+        HotStockEngine engine = mock(HotStockEngine.class);
+        TicketModes modes = new TicketModes(engine);
+
+        try (TicketModes.Lease a = modes.shared(1); TicketModes.Lease b = modes.tryShared(1)) {
+            assertNotNull(a);
+            assertNotNull(b);
+        }
+        verify(engine, never()).enroll(anyLong());
+    }
+
+    /** tryShared answers null once a switch holds or waits for the ticket's lock. */
+    private static boolean awaitSwitchQueued(TicketModes modes, long ticketId) {
+        while (true) {
+            TicketModes.Lease lease = modes.tryShared(ticketId);
+            if (lease == null) {
+                return true;
+            }
+            lease.close();
+            Thread.onSpinWait();
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.flashSale.inventory.journal;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Memory-mode ownership against H2 in MySQL mode, without a Spring context.
+ */
+class HotStockEngineTest {
+
+    @TempDir
+    Path dir;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private final List<HotStockEngine> engines = new ArrayList<>();
+    private final UserPurchaseLimits userLimits = mock(UserPurchaseLimits.class);
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:hot-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL,
+                    shard_count INT NOT NULL DEFAULT 1,
+                    seated BOOLEAN NOT NULL DEFAULT FALSE,
+                    memory_owner VARCHAR(64) NULL
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_reservations (
+                    reservation_id VARCHAR(64) PRIMARY KEY,
+                    ticket_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    status VARCHAR(16) NOT NULL,
+                    user_id BIGINT NULL,
+                    expires_at DATETIME NULL
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_reservations_archive (
+                    reservation_id VARCHAR(64) PRIMARY KEY,
+                    ticket_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    status VARCHAR(16) NOT NULL
+                )""");
+        jdbc.execute("CREATE TABLE inventory_journal_checkpoint (id TINYINT PRIMARY KEY, position BIGINT NOT NULL)");
+        jdbc.update("INSERT INTO inventory_journal_checkpoint (id, position) VALUES (1, 0)");
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version) VALUES (1, 10, 0, 0, 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        engines.forEach(HotStockEngine::stop);
+        dataSource.close();
+    }
+
+    @Test
+    void enrollmentIsClaimedInTheDatabaseAndReleasedOnRetire() {
+        HotStockEngine first = engine("inventory-1", "a");
+        HotStockEngine second = engine("inventory-2", "b");
+
+        assertTrue(first.enroll(1));
+        assertEquals("inventory-1", owner());
+        assertFalse(second.enroll(1), "a second instance must not take over an owned ticket");
+
+        first.reserve("r-1", 1, 2, null, Instant.now().plusSeconds(60));
+        assertTrue(first.drain(1, 5_000));
+        assertTrue(first.retire(1));
+
+        assertNull(owner());
+        assertEquals(8, jdbc.queryForObject("SELECT available FROM inventory WHERE ticket_id = 1", Integer.class));
+        assertTrue(second.enroll(1));
+    }
+
+    @Test
+    void ownerReEnrollsItsTicketsOnRestart() {
+        jdbc.update("UPDATE inventory SET memory_owner = 'inventory-1' WHERE ticket_id = 1");
+
+        HotStockEngine restarted = engine("inventory-1", "a");
+
+        assertTrue(restarted.isEnrolled(1));
+    }
+
+    @Test
+    void onlyLiveHoldsAreLoadedAndTheRestReplaysFromTheTables() {
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES ('r-failed', 1, 3, 'FAILED')");
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES ('r-held', 1, 1, 'RESERVED')");
+        jdbc.update("INSERT INTO inventory_reservations_archive (reservation_id, ticket_id, qty, status) VALUES ('r-old', 1, 2, 'COMMITTED')");
+        HotStockEngine engine = engine("inventory-1", "a");
+        assertTrue(engine.enroll(1));
+
+        assertTrue(engine.owns("r-held"));
+        assertFalse(engine.owns("r-failed"));
+        ConflictException e = assertThrows(ConflictException.class, () -> engine.replayOf("r-failed"));
+        assertEquals("INSUFFICIENT_STOCK", e.getCode());
+        assertEquals(ReservationStatus.COMMITTED, engine.replayOf("r-old").status());
+        assertEquals(ReservationStatus.RESERVED, engine.replayOf("r-held").status());
+        assertNull(engine.replayOf("r-new"));
+    }
+
+    @Test
+    void finishedHoldsLeaveMemoryOnceFlushed() throws Exception {
+        HotStockEngine engine = engine("inventory-1", "a");
+        assertTrue(engine.enroll(1));
+        engine.reserve("r-1", 1, 2, null, Instant.now().plusSeconds(60));
+        engine.commit("r-1");
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (engine.owns("r-1") && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertFalse(engine.owns("r-1"));
+        assertNull(engine.commit("r-1"), "no longer in memory: the caller falls back to the tables");
+        assertEquals(ReservationStatus.COMMITTED, engine.replayOf("r-1").status());
+    }
+
+    @Test
+    void expiryReleasesOnlyDueReservedHolds() {
+        HotStockEngine engine = engine("inventory-1", "a");
+        assertTrue(engine.enroll(1));
+        engine.reserve("r-due", 1, 2, 7L, Instant.now().minusSeconds(1));
+        engine.reserve("r-sold", 1, 3, 7L, Instant.now().minusSeconds(1));
+        engine.commit("r-sold");
+        engine.reserve("r-later", 1, 1, 7L, Instant.now().plusSeconds(60));
+
+        engine.expireHolds();
+
+        // finished holds may already be flushed out of memory: replayOf covers both
+        assertEquals(ReservationStatus.RELEASED, engine.replayOf("r-due").status());
+        assertEquals(ReservationStatus.COMMITTED, engine.replayOf("r-sold").status());
+        assertEquals(ReservationStatus.RESERVED, engine.replayOf("r-later").status());
+        verify(userLimits).release(7L, 1L, 2);
+        verifyNoMoreInteractions(userLimits);
+    }
+
+    private HotStockEngine engine(String ownerId, String journalDir) {
+        TransactionTemplate tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        HotStockEngine engine = new HotStockEngine(jdbc, new JournalFlushRepository(jdbc, tx),
+                new SimpleMeterRegistry(), userLimits, true, ownerId, dir.resolve(journalDir).toString(),
+                1 << 16, 100, 100, 20, List.of());
+        engine.start();
+        engines.add(engine);
+        return engine;
+    }
+
+    private String owner() {
+        return jdbc.queryForObject("SELECT memory_owner FROM inventory WHERE ticket_id = 1", String.class);
+    }
+}
@@ -0,0 +1,80 @@
+package com.flashSale.inventory.limit;
+
+import com.flashSale.inventory.exception.ServiceUnavailableException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CatalogTicketLimitsTest {
+
+    private HttpServer catalog;
+    private CatalogTicketLimits limits;
+    private final AtomicInteger calls = new AtomicInteger();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> responseBody = new AtomicReference<>();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        catalog = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        catalog.createContext("/catalog/tickets/", exchange -> {
+            calls.incrementAndGet();
+            byte[] body = responseBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        catalog.start();
+        limits = new CatalogTicketLimits(RestClient.builder(),
+                "http://127.0.0.1:" + catalog.getAddress().getPort(), 500, 1000, 60_000, 300_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limits.shutdown();
+        catalog.stop(0);
+    }
+
+    @Test
+    void readsTheLimitFromTheCatalogTicketOnce() {
+        responseBody.set("""
+                {"id":7,"eventId":1,"name":"VIP","price":120.00,"perUserLimit":2,"status":"ON_SALE"}""");
+
+        assertEquals(2, limits.limitOf(7));
+        assertEquals(2, limits.limitOf(7));
+        assertEquals(1, calls.get());
+
+        // a change notification drops the entry
+        responseBody.set("""
+                {"id":7,"eventId":1,"name":"VIP","price":120.00,"perUserLimit":null,"status":"ON_SALE"}""");
+        limits.invalidate(7);
+        assertNull(limits.limitOf(7));
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void unknownTicketHasNoLimit() {
+        status.set(404);
+        responseBody.set("{\"code\":\"TICKET_NOT_FOUND\"}");
+
+        assertNull(limits.limitOf(8));
+    }
+
+    @Test
+    void catalogDownOnAColdEntryIsUnavailable() {
+        status.set(503);
+        responseBody.set("{}");
+
+        ServiceUnavailableException e = assertThrows(ServiceUnavailableException.class, () -> limits.limitOf(9));
+        assertEquals("CATALOG_UNAVAILABLE", e.getCode());
+    }
+}
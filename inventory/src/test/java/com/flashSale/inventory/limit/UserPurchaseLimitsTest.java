@@ -0,0 +1,143 @@
+package com.flashSale.inventory.limit;
+
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.repo.UserHoldRepository;
+import com.flashSale.inventory.repo.UserHoldRepository.Delta;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Hold rows against H2 in MySQL mode, without a Spring context; catalog is mocked.
+ */
+class UserPurchaseLimitsTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate tx;
+    private UserHoldRepository holdRepo;
+    private CatalogTicketLimits ticketLimits;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:limits-" + System.nanoTime()
+                + ";MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(16);
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory_user_holds (
+                    ticket_id BIGINT NOT NULL,
+                    user_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    PRIMARY KEY (ticket_id, user_id),
+                    CHECK (qty >= 0)
+                )""");
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        holdRepo = new UserHoldRepository(jdbc);
+        ticketLimits = mock(CatalogTicketLimits.class);
+        when(ticketLimits.limitOf(1)).thenReturn(4);
+        when(ticketLimits.limitOf(2)).thenReturn(null);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void countsHoldsAgainstTheTicketLimit() {
+        UserPurchaseLimits limits = limits();
+        limits.acquire(10L, 1, 3);
+
+        ConflictException over = assertThrows(ConflictException.class, () -> limits.acquire(10L, 1, 2));
+        assertEquals("PER_USER_LIMIT_EXCEEDED", over.getCode());
+        assertEquals(3, holdRepo.find(1, 10));
+
+        // other users and unlimited tickets are not affected
+        limits.acquire(11L, 1, 4);
+        limits.acquire(10L, 2, 100);
+        assertEquals(0, holdRepo.find(2, 10), "unlimited tickets are not written");
+
+        // a released hold makes room again, a row never goes below zero
+        limits.release(10L, 1, 2);
+        limits.acquire(10L, 1, 3);
+        assertThrows(ConflictException.class, () -> limits.acquire(10L, 1, 1));
+        limits.releaseAll(List.of(new Delta(1, 10, 9), new Delta(1, 11, 1)));
+        assertEquals(0, holdRepo.find(1, 10));
+        assertEquals(3, holdRepo.find(1, 11));
+    }
+
+    @Test
+    void limitedTicketsNeedTheBuyer() {
+        UserPurchaseLimits limits = limits();
+
+        ConflictException early = assertThrows(ConflictException.class, () -> limits.prepare(null, 1));
+        assertEquals("USER_ID_REQUIRED", early.getCode());
+        ConflictException inTx = assertThrows(ConflictException.class, () -> limits.acquire(null, 1, 1));
+        assertEquals("USER_ID_REQUIRED", inTx.getCode());
+
+        limits.prepare(null, 2);
+        limits.acquire(null, 2, 1);
+    }
+
+    @Test
+    void rolledBackReserveLeavesNoCount() {
+        UserPurchaseLimits limits = limits();
+        tx.executeWithoutResult(status -> {
+            limits.acquire(10L, 1, 4);
+            // e.g. the stock claim failed after the hold was counted
+            status.setRollbackOnly();
+        });
+
+        assertEquals(0, holdRepo.find(1, 10));
+        tx.executeWithoutResult(status -> limits.acquire(10L, 1, 4));
+        assertEquals(4, holdRepo.find(1, 10));
+    }
+
+    @Test
+    void concurrentAcquiresOnSeveralInstancesNeverExceedTheLimit() throws Exception {
+        List<UserPurchaseLimits> instances = List.of(limits(), limits(), limits());
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        AtomicInteger granted = new AtomicInteger();
+        try {
+            List<Future<?>> calls = new ArrayList<>();
+            for (int i = 0; i < 64; i++) {
+                UserPurchaseLimits instance = instances.get(i % instances.size());
+                calls.add(pool.submit(() -> {
+                    try {
+                        tx.executeWithoutResult(status -> instance.acquire(10L, 1, 1));
+                        granted.incrementAndGet();
+                    } catch (ConflictException e) {
+                        // over the limit
+                    }
+                }));
+            }
+            for (Future<?> f : calls) {
+                f.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertEquals(4, granted.get());
+        assertEquals(4, holdRepo.find(1, 10));
+    }
+
+    private UserPurchaseLimits limits() {
+        return new UserPurchaseLimits(holdRepo, ticketLimits, new SimpleMeterRegistry(), true);
+    }
+}
@@ -0,0 +1,86 @@
+package com.flashSale.inventory.metrics;
+
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.repo.InventoryBulkRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReservationMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:metrics-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL
+                )""");
+        jdbc.update("INSERT INTO inventory VALUES (1, 90, 7, 3), (2, 50, 0, 0), (3, 10, 0, 0)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void latencyIsTaggedWithTheOutcome() {
+        ReservationMetrics metrics = metrics(2);
+
+        metrics.time(ReservationMetrics.RESERVE, () -> "ok");
+        assertThrows(ConflictException.class, () -> metrics.time(ReservationMetrics.RESERVE, () -> {
+            throw new ConflictException("INSUFFICIENT_STOCK", "insufficient stock");
+        }));
+        metrics.replay(ReservationMetrics.COMMIT);
+
+        assertEquals(1, registry.get("inventory.reservation.latency")
+                .tags("op", "reserve", "outcome", "OK").timer().count());
+        assertEquals(1, registry.get("inventory.reservation.latency")
+                .tags("op", "reserve", "outcome", "INSUFFICIENT_STOCK").timer().count());
+        assertEquals(1, registry.get("inventory.reservation.replays").tag("op", "commit").counter().count());
+    }
+
+    @Test
+    void stockGaugesFollowTheMostReservedTickets() {
+        ReservationMetrics metrics = metrics(2);
+        for (int i = 0; i < 5; i++) {
+            metrics.touched(1);
+        }
+        metrics.touched(2);
+        metrics.refreshStockGauges();
+
+        assertEquals(90, registry.get("inventory.stock.available").tag("ticketId", "1").gauge().value());
+        assertEquals(7, registry.get("inventory.stock.reserved").tag("ticketId", "1").gauge().value());
+        assertEquals(3, registry.get("inventory.stock.sold").tag("ticketId", "1").gauge().value());
+        assertNotNull(registry.find("inventory.stock.available").tag("ticketId", "2").gauge());
+
+        // ticket 3 displaces ticket 2
+        for (int i = 0; i < 10; i++) {
+            metrics.touched(3);
+        }
+        jdbc.update("UPDATE inventory SET available = 85, reserved = 12 WHERE ticket_id = 1");
+        metrics.refreshStockGauges();
+
+        assertNull(registry.find("inventory.stock.available").tag("ticketId", "2").gauge());
+        assertEquals(10, registry.get("inventory.stock.available").tag("ticketId", "3").gauge().value());
+        assertEquals(85, registry.get("inventory.stock.available").tag("ticketId", "1").gauge().value());
+    }
+
+    private ReservationMetrics metrics(int topTickets) {
+        return new ReservationMetrics(new InventoryBulkRepository(jdbc), registry, topTickets, 100);
+    }
+}
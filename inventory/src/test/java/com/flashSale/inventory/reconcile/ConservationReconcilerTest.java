@@ -0,0 +1,140 @@
+package com.flashSale.inventory.reconcile;
+
+import com.flashSale.inventory.dto.ConservationReport;
+import com.flashSale.inventory.dto.TicketDrift;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Conservation check against H2 in MySQL mode, without a Spring context.
+ */
+class ConservationReconcilerTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:conservation-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(8);
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL,
+                    shard_count INT NOT NULL DEFAULT 1,
+                    seated BOOLEAN NOT NULL DEFAULT FALSE
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_shards (
+                    ticket_id BIGINT NOT NULL,
+                    shard_no INT NOT NULL,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    PRIMARY KEY (ticket_id, shard_no)
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_seats (
+                    ticket_id BIGINT NOT NULL,
+                    seat_no VARCHAR(32) NOT NULL,
+                    status VARCHAR(8) NOT NULL,
+                    reservation_id VARCHAR(64) NULL,
+                    PRIMARY KEY (ticket_id, seat_no)
+                )""");
+        for (String table : List.of("inventory_reservations", "inventory_reservations_archive")) {
+            jdbc.execute("""
+                    CREATE TABLE %s (
+                        reservation_id VARCHAR(64) PRIMARY KEY,
+                        ticket_id BIGINT NOT NULL,
+                        qty INT NOT NULL,
+                        status VARCHAR(16) NOT NULL
+                    )""".formatted(table));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void reportsOnlyDriftedTickets() {
+        // 200 consistent tickets: 2 reserved, 3 sold (1 of it archived), plus noise
+        for (long t = 1; t <= 200; t++) {
+            jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (?, 10, 2, 3, 0, 1)", t);
+            reservation("r-" + t, t, 2, "RESERVED");
+            reservation("c-" + t, t, 2, "COMMITTED");
+            reservation("f-" + t, t, 5, "FAILED");
+            reservation("x-" + t, t, 4, "RELEASED");
+            jdbc.update("INSERT INTO inventory_reservations_archive VALUES (?, ?, 1, 'COMMITTED')", "a-" + t, t);
+        }
+        // drift: a lost release left reserved counted but the row is RELEASED
+        jdbc.update("UPDATE inventory SET reserved = 5 WHERE ticket_id = 77");
+        // drift: sold counter missing one commit
+        jdbc.update("UPDATE inventory SET sold = 2 WHERE ticket_id = 150");
+
+        // sharded ticket: aggregate row is stale, shards are right
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (500, 0, 0, 0, 0, 2)");
+        jdbc.update("INSERT INTO inventory_shards VALUES (500, 0, 5, 1, 0)");
+        jdbc.update("INSERT INTO inventory_shards VALUES (500, 1, 5, 0, 2)");
+        reservation("s-1", 500, 1, "RESERVED");
+        reservation("s-2", 500, 2, "COMMITTED");
+
+        // seated ticket: aggregate row is stale, seats are right
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, seated) "
+                + "VALUES (600, 4, 0, 0, 0, 1, TRUE)");
+        jdbc.update("INSERT INTO inventory_seats VALUES (600, 'A-1', 'HELD', 'h-1')");
+        jdbc.update("INSERT INTO inventory_seats VALUES (600, 'A-2', 'SOLD', 'h-2')");
+        jdbc.update("INSERT INTO inventory_seats VALUES (600, 'A-3', 'SOLD', 'h-2')");
+        jdbc.update("INSERT INTO inventory_seats VALUES (600, 'A-4', 'FREE', NULL)");
+        reservation("h-1", 600, 1, "RESERVED");
+        reservation("h-2", 600, 2, "COMMITTED");
+
+        ConservationReport report = reconciler(16).check();
+
+        assertEquals(202, report.ticketsChecked());
+        assertEquals(List.of(
+                new TicketDrift(77, 5, 2, 3, 3),
+                new TicketDrift(150, 2, 2, 2, 3)), report.drifts());
+    }
+
+    @Test
+    void singleTaskMatchesForkedRun() {
+        for (long t = 1; t <= 50; t++) {
+            jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (?, 0, ?, 0, 0, 1)", t, t % 7 == 0 ? 1 : 0);
+        }
+
+        List<TicketDrift> forked = reconciler(3).check().drifts();
+        List<TicketDrift> single = reconciler(1000).check().drifts();
+
+        assertEquals(7, forked.size());
+        assertEquals(forked, single);
+    }
+
+    private ConservationReconciler reconciler(int ticketsPerTask) {
+        HotStockEngine disabled = new HotStockEngine(null, null, new SimpleMeterRegistry(), null,
+                false, "unused", "unused", 0, 0, 0, 0, List.of());
+        return new ConservationReconciler(dataSource, new DataSourceTransactionManager(dataSource), disabled,
+                new SimpleMeterRegistry(), false, 4, ticketsPerTask, 100, 10);
+    }
+
+    private void reservation(String id, long ticketId, int qty, String status) {
+        jdbc.update("INSERT INTO inventory_reservations VALUES (?, ?, ?, ?)", id, ticketId, qty, status);
+    }
+}
@@ -0,0 +1,129 @@
+package com.flashSale.inventory.repo;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Seat claims against H2 in MySQL mode, without a Spring context.
+ */
+class InventorySeatRepositoryTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate tx;
+    private InventorySeatRepository seats;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:seats-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000");
+        dataSource.setMaximumPoolSize(16);
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory_seats (
+                    ticket_id BIGINT NOT NULL,
+                    seat_no VARCHAR(32) NOT NULL,
+                    seat_ordinal INT NOT NULL DEFAULT 0,
+                    status VARCHAR(8) NOT NULL,
+                    reservation_id VARCHAR(64) NULL,
+                    version BIGINT NOT NULL DEFAULT 0,
+                    PRIMARY KEY (ticket_id, seat_no)
+                )""");
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        seats = new InventorySeatRepository(jdbc);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void concurrentClaimsNeverShareSeats() throws Exception {
+        seed(1, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(12);
+        try {
+            List<Future<List<String>>> claims = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                String reservationId = "r-" + i;
+                claims.add(pool.submit(() -> tx.execute(s -> seats.claim(1, reservationId, 3))));
+            }
+
+            Set<String> held = new HashSet<>();
+            int granted = 0;
+            for (Future<List<String>> claim : claims) {
+                List<String> seatNos = claim.get(30, TimeUnit.SECONDS);
+                if (!seatNos.isEmpty()) {
+                    granted++;
+                    assertEquals(3, seatNos.size());
+                    seatNos.forEach(seatNo -> assertTrue(held.add(seatNo), "seat held twice: " + seatNo));
+                }
+            }
+            // a claim may come up short while others hold locks (H2 applies LIMIT before
+            // skipping), but whatever was granted is exclusive and nothing leaks
+            assertTrue(granted > 0);
+            assertEquals(3 * granted, count("HELD"));
+            assertEquals(held, new HashSet<>(jdbc.queryForList(
+                    "SELECT seat_no FROM inventory_seats WHERE status = 'HELD'", String.class)));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void shortClaimHoldsNothing() {
+        seed(1, 4);
+        assertEquals(List.of("S-000", "S-001", "S-002"), tx.execute(s -> seats.claim(1, "a", 3)));
+
+        assertEquals(List.of(), tx.execute(s -> seats.claim(1, "b", 2)));
+        assertEquals(1, count("FREE"));
+        assertTrue(seats.findSeatNos("b").isEmpty());
+    }
+
+    @Test
+    void commitAndReleaseMoveTheReservationsSeats() {
+        seed(1, 6);
+        tx.execute(s -> seats.claim(1, "a", 2));
+        tx.execute(s -> seats.claim(1, "b", 3));
+
+        assertEquals(2, seats.commit("a"));
+        assertEquals(0, seats.release("a"));
+        assertEquals(3, seats.release("b"));
+        assertEquals(List.of("S-000", "S-001"), seats.findSeatNos("a"));
+        assertTrue(seats.findSeatNos("b").isEmpty());
+        assertTrue(seats.hasFree(1));
+        assertTrue(seats.hasHeldOrSold(1));
+
+        // released seats are claimable again, lowest first
+        assertEquals(List.of("S-002", "S-003"), tx.execute(s -> seats.claim(1, "c", 2)));
+    }
+
+    @Test
+    void claimsFollowSeatingOrderNotLabelText() {
+        // "A10" sorts before "A2" as text
+        seats.replaceSeats(1, IntStream.rangeClosed(1, 12).mapToObj(i -> "A" + i).toList());
+        assertEquals(List.of("A1", "A2", "A3"), tx.execute(s -> seats.claim(1, "a", 3)));
+        assertEquals(List.of("A4", "A5", "A6", "A7", "A8", "A9", "A10"), tx.execute(s -> seats.claim(1, "b", 7)));
+        assertEquals(List.of("A4", "A5", "A6", "A7", "A8", "A9", "A10"), seats.findSeatNos("b"));
+    }
+
+    private void seed(long ticketId, int n) {
+        seats.replaceSeats(ticketId, IntStream.range(0, n).mapToObj(i -> "S-%03d".formatted(i)).toList());
+    }
+
+    private int count(String status) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM inventory_seats WHERE status = ?", Integer.class, status);
+    }
+}
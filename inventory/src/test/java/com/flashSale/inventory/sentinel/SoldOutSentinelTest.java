@@ -0,0 +1,93 @@
+package com.flashSale.inventory.sentinel;
+
+import com.flashSale.inventory.event.StockInitializedEvent;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class SoldOutSentinelTest {
+
+    private final StringRedisTemplate redis = mock(StringRedisTemplate.class);
+
+    @Test
+    void flagRejectsUntilClearedAndBroadcastsBothFlips() {
+        SoldOutSentinel sentinel = sentinel(60_000);
+
+        sentinel.markSoldOut(1);
+        sentinel.markSoldOut(1);
+        assertTrue(sentinel.isSoldOut(1));
+        assertFalse(sentinel.isSoldOut(2));
+
+        sentinel.clear(1);
+        assertFalse(sentinel.isSoldOut(1));
+        verify(redis, times(1)).convertAndSend(SoldOutSentinel.CHANNEL, "S:1");
+        verify(redis, times(1)).convertAndSend(SoldOutSentinel.CHANNEL, "C:1");
+    }
+
+    @Test
+    void flagExpiresAfterRecheck() throws Exception {
+        SoldOutSentinel sentinel = sentinel(50);
+
+        sentinel.markSoldOut(1);
+        assertTrue(sentinel.isSoldOut(1));
+        Thread.sleep(80);
+
+        assertFalse(sentinel.isSoldOut(1));
+    }
+
+    @Test
+    void reInitClearsTheFlag() {
+        SoldOutSentinel sentinel = sentinel(60_000);
+        sentinel.markSoldOut(1);
+
+        sentinel.onStockInitialized(new StockInitializedEvent(1, 100));
+
+        assertFalse(sentinel.isSoldOut(1));
+    }
+
+    @Test
+    void peerFlipsAreAppliedLocallyWithoutRepublishing() {
+        SoldOutSentinel sentinel = sentinel(60_000);
+
+        sentinel.onBroadcast("S:7");
+        assertTrue(sentinel.isSoldOut(7));
+        sentinel.onBroadcast("C:7");
+        assertFalse(sentinel.isSoldOut(7));
+        sentinel.onBroadcast("garbage");
+
+        verify(redis, never()).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void clearOnlyPublishesForRecentlyFlaggedTickets() throws Exception {
+        SoldOutSentinel sentinel = sentinel(60_000);
+
+        // never flagged: releases of a ticket in stock send nothing
+        sentinel.clear(1);
+        verify(redis, never()).convertAndSend(SoldOutSentinel.CHANNEL, "C:1");
+
+        // flagged by a peer only: this instance's release still reaches the peer
+        sentinel.onBroadcast("S:2");
+        sentinel.onBroadcast("C:2");
+        sentinel.clear(2);
+        verify(redis).convertAndSend(SoldOutSentinel.CHANNEL, "C:2");
+
+        // flagged long enough ago that every flag has expired
+        SoldOutSentinel shortLived = sentinel(50);
+        shortLived.markSoldOut(3);
+        Thread.sleep(80);
+        shortLived.clear(3);
+        verify(redis, never()).convertAndSend(SoldOutSentinel.CHANNEL, "C:3");
+    }
+
+    private SoldOutSentinel sentinel(long recheckMs) {
+        @SuppressWarnings("unchecked")
+        ObjectProvider<StringRedisTemplate> provider = mock(ObjectProvider.class);
+        when(provider.getObject()).thenReturn(redis);
+        return new SoldOutSentinel(provider, true, true, recheckMs);
+    }
+}
@@ -0,0 +1,215 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.admission.TicketAdmission;
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.BatchReservationResponse;
+import com.flashSale.inventory.dto.BatchReservationResult;
+import com.flashSale.inventory.dto.ReserveRequest;
+import com.flashSale.inventory.exception.BatchReserveException;
+import com.flashSale.inventory.expiry.ReservationExpiryEngine;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.HotTicketDetector;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.metrics.ReservationMetrics;
+import com.flashSale.inventory.repo.*;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * reserveAll against H2 in MySQL mode: JPA repositories only, the rest of the service is
+ * wired by hand.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:batch-reserve;MODE=MySQL;LOCK_TIMEOUT=10000;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchReserveTest {
+
+    @Autowired
+    private InventoryRepository inventoryRepo;
+    @Autowired
+    private ReservationRepository reservationRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private final StockGate stockGate = mock(StockGate.class);
+    private final ReservationArchiveRepository archiveRepo = mock(ReservationArchiveRepository.class);
+    private InventoryReservationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM inventory_reservations");
+        jdbc.update("DELETE FROM inventory");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotStockEngine hotStock = mock(HotStockEngine.class);
+        when(stockGate.tryAcquire(anyString(), anyLong(), anyInt())).thenReturn(true);
+        service = new InventoryReservationServiceImpl(
+                inventoryRepo,
+                reservationRepo,
+                new StockLedger(inventoryRepo, new InventoryShardRepository(jdbc), new InventorySeatRepository(jdbc)),
+                stockGate,
+                new TransactionTemplate(txManager),
+                mock(ReserveCoalescer.class),
+                mock(SoldOutSentinel.class),
+                mock(ReservationExpiryEngine.class),
+                new TerminalReservationCache(registry, 1000),
+                null,
+                hotStock,
+                archiveRepo,
+                mock(TicketAdmission.class),
+                new TicketModes(hotStock),
+                mock(HotTicketDetector.class),
+                mock(UserPurchaseLimits.class),
+                new ReservationMetrics(new InventoryBulkRepository(jdbc), registry, 20, 100));
+    }
+
+    @Test
+    void oneFailingItemRollsEveryItemBack() {
+        stock(1, 10);
+        stock(2, 1);
+
+        BatchReserveException e = assertThrows(BatchReserveException.class, () -> service.reserveAll(List.of(
+                item("a", 1, 2), item("b", 2, 5), item("c", 1, 1))));
+
+        Map<String, BatchReservationResult> results = byId(e.getResponse());
+        assertOutcome(results.get("a"), null, "ROLLED_BACK");
+        assertOutcome(results.get("b"), ReservationStatus.FAILED, "INSUFFICIENT_STOCK");
+        assertOutcome(results.get("c"), null, "ROLLED_BACK");
+        assertCounters(1, 10, 0);
+        assertCounters(2, 1, 0);
+        assertEquals(0, count("SELECT COUNT(*) FROM inventory_reservations"));
+        for (String id : List.of("a", "b", "c")) {
+            verify(stockGate).rollback(eq(id), anyLong());
+        }
+    }
+
+    @Test
+    void existingItemsReplayAndKeepTheirStateWhenTheBatchFails() {
+        stock(1, 10);
+        stock(2, 1);
+        reservation("held", 1, 1, ReservationStatus.RESERVED);
+        reservation("sold", 1, 1, ReservationStatus.COMMITTED);
+
+        Map<String, BatchReservationResult> ok = byId(service.reserveAll(List.of(
+                item("held", 1, 1), item("new", 1, 2), item("sold", 1, 1))));
+        assertOutcome(ok.get("held"), ReservationStatus.RESERVED, null);
+        assertOutcome(ok.get("new"), ReservationStatus.RESERVED, null);
+        assertOutcome(ok.get("sold"), ReservationStatus.COMMITTED, null);
+        assertCounters(1, 8, 2);
+
+        BatchReserveException e = assertThrows(BatchReserveException.class, () -> service.reserveAll(List.of(
+                item("held", 1, 1), item("sold", 1, 1), item("too-many", 2, 3))));
+        Map<String, BatchReservationResult> failed = byId(e.getResponse());
+        assertOutcome(failed.get("held"), ReservationStatus.RESERVED, null);
+        assertOutcome(failed.get("sold"), ReservationStatus.COMMITTED, null);
+        assertOutcome(failed.get("too-many"), ReservationStatus.FAILED, "INSUFFICIENT_STOCK");
+        assertCounters(1, 8, 2);
+        assertCounters(2, 1, 0);
+        // replayed items were never admitted by this batch
+        verify(stockGate, never()).tryAcquire(eq("held"), anyLong(), anyInt());
+        verify(stockGate, never()).rollback(eq("held"), anyLong());
+    }
+
+    @Test
+    void oppositeOrderBatchesDoNotDeadlock() throws Exception {
+        int rounds = 50;
+        stock(1, 1000);
+        stock(2, 1000);
+
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            for (int round = 0; round < rounds; round++) {
+                CyclicBarrier start = new CyclicBarrier(2);
+                String forward = "f-" + round;
+                String backward = "b-" + round;
+                List<Future<BatchReservationResponse>> calls = new ArrayList<>();
+                calls.add(pool.submit(() -> {
+                    start.await();
+                    return service.reserveAll(List.of(item(forward + "-1", 1, 1), item(forward + "-2", 2, 1)));
+                }));
+                calls.add(pool.submit(() -> {
+                    start.await();
+                    return service.reserveAll(List.of(item(backward + "-2", 2, 1), item(backward + "-1", 1, 1)));
+                }));
+                for (Future<BatchReservationResponse> call : calls) {
+                    assertEquals(2, call.get(30, TimeUnit.SECONDS).results().size());
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertCounters(1, 1000 - 2 * rounds, 2 * rounds);
+        assertCounters(2, 1000 - 2 * rounds, 2 * rounds);
+        assertEquals(4 * rounds, count("SELECT COUNT(*) FROM inventory_reservations WHERE status = 'RESERVED'"));
+    }
+
+    private static ReserveRequest item(String id, long ticketId, int qty) {
+        return new ReserveRequest(id, ticketId, qty, 300, null);
+    }
+
+    private void stock(long ticketId, int available) {
+        jdbc.update("""
+                INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, seated)
+                VALUES (?, ?, 0, 0, 0, 1, FALSE)
+                """, ticketId, available);
+    }
+
+    private void reservation(String id, long ticketId, int qty, ReservationStatus status) {
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES (?, ?, ?, ?)",
+                id, ticketId, qty, status.name());
+    }
+
+    private static Map<String, BatchReservationResult> byId(BatchReservationResponse response) {
+        return response.results().stream().collect(
+                Collectors.toMap(BatchReservationResult::reservationId, r -> r));
+    }
+
+    private static void assertOutcome(BatchReservationResult result, ReservationStatus status, String error) {
+        assertEquals(status, result.status(), result.reservationId());
+        assertEquals(error, result.error(), result.reservationId());
+    }
+
+    private void assertCounters(long ticketId, int available, int reserved) {
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT available, reserved FROM inventory WHERE ticket_id = ?", ticketId);
+        assertEquals(available, ((Number) row.get("available")).intValue(), "available of " + ticketId);
+        assertEquals(reserved, ((Number) row.get("reserved")).intValue(), "reserved of " + ticketId);
+    }
+
+    private int count(String sql) {
+        Integer v = jdbc.queryForObject(sql, Integer.class);
+        return v == null ? 0 : v;
+    }
+}
@@ -0,0 +1,181 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.BatchTransitionResponse;
+import com.flashSale.inventory.dto.BatchTransitionResult;
+import com.flashSale.inventory.expiry.ReservationExpiryEngine;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.metrics.ReservationMetrics;
+import com.flashSale.inventory.repo.*;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * commitAll / releaseAll against H2 in MySQL mode: JPA repositories only, the rest of the
+ * service is wired by hand.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:batch-transition;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class BatchTransitionTest {
+
+    @Autowired
+    private InventoryRepository inventoryRepo;
+    @Autowired
+    private ReservationRepository reservationRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager txManager;
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private InventoryReservationServiceImpl service;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM inventory_reservations");
+        jdbc.update("DELETE FROM inventory");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotStockEngine hotStock = mock(HotStockEngine.class);
+        ReservationArchiveRepository archiveRepo = mock(ReservationArchiveRepository.class);
+        when(archiveRepo.findAllById(anyCollection())).thenReturn(List.of());
+        service = new InventoryReservationServiceImpl(
+                inventoryRepo,
+                reservationRepo,
+                new StockLedger(inventoryRepo, new InventoryShardRepository(jdbc), new InventorySeatRepository(jdbc)),
+                mock(StockGate.class),
+                new TransactionTemplate(txManager),
+                null,
+                mock(SoldOutSentinel.class),
+                mock(ReservationExpiryEngine.class),
+                new TerminalReservationCache(registry, 1000),
+                null,
+                hotStock,
+                archiveRepo,
+                null,
+                new TicketModes(hotStock),
+                null,
+                mock(UserPurchaseLimits.class),
+                new ReservationMetrics(new InventoryBulkRepository(jdbc), registry, 20, 100));
+
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void mixedCommitBatchMovesStockOncePerTicketAndFlipsRowsInOneUpdate() {
+        stock(1, 5, 6, 1);
+        stock(2, 8, 2, 0);
+        reservation("a", 1, 2, ReservationStatus.RESERVED);
+        reservation("b", 1, 3, ReservationStatus.RESERVED);
+        reservation("c", 1, 1, ReservationStatus.COMMITTED);
+        reservation("d", 1, 1, ReservationStatus.RELEASED);
+        reservation("e", 2, 2, ReservationStatus.RESERVED);
+        statistics.clear();
+
+        Map<String, BatchTransitionResult> results = byId(
+                service.commitAll(List.of("a", "b", "c", "d", "e", "missing")));
+
+        assertOutcome(results.get("a"), ReservationStatus.COMMITTED, null);
+        assertOutcome(results.get("b"), ReservationStatus.COMMITTED, null);
+        assertOutcome(results.get("c"), ReservationStatus.COMMITTED, null);
+        assertOutcome(results.get("d"), ReservationStatus.RELEASED, "INVALID_STATE");
+        assertOutcome(results.get("e"), ReservationStatus.COMMITTED, null);
+        assertEquals("NOT_FOUND", results.get("missing").error());
+
+        assertCounters(1, 5, 1, 6);
+        assertCounters(2, 8, 0, 2);
+        assertStatuses(Map.of("a", "COMMITTED", "b", "COMMITTED", "c", "COMMITTED", "d", "RELEASED", "e", "COMMITTED"));
+        // the bulk UPDATE only: no per-row update from dirty checking
+        assertEquals(0, statistics.getEntityUpdateCount());
+    }
+
+    @Test
+    void releaseBatchReturnsStockAndReplaysFinishedIds() {
+        stock(1, 4, 6, 0);
+        reservation("a", 1, 2, ReservationStatus.RESERVED);
+        reservation("b", 1, 4, ReservationStatus.RESERVED);
+        statistics.clear();
+
+        Map<String, BatchTransitionResult> first = byId(service.releaseAll(List.of("a", "b")));
+        assertOutcome(first.get("a"), ReservationStatus.RELEASED, null);
+        assertOutcome(first.get("b"), ReservationStatus.RELEASED, null);
+        assertCounters(1, 10, 0, 0);
+        assertEquals(0, statistics.getEntityUpdateCount());
+
+        // retried batch: same answers, no stock moves twice
+        Map<String, BatchTransitionResult> retry = byId(service.releaseAll(List.of("b", "a")));
+        assertOutcome(retry.get("a"), ReservationStatus.RELEASED, null);
+        assertOutcome(retry.get("b"), ReservationStatus.RELEASED, null);
+        assertCounters(1, 10, 0, 0);
+        assertStatuses(Map.of("a", "RELEASED", "b", "RELEASED"));
+    }
+
+    private void stock(long ticketId, int available, int reserved, int sold) {
+        jdbc.update("""
+                INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, seated)
+                VALUES (?, ?, ?, ?, 0, 1, FALSE)
+                """, ticketId, available, reserved, sold);
+    }
+
+    private void reservation(String id, long ticketId, int qty, ReservationStatus status) {
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES (?, ?, ?, ?)",
+                id, ticketId, qty, status.name());
+    }
+
+    private static Map<String, BatchTransitionResult> byId(BatchTransitionResponse response) {
+        return response.results().stream().collect(
+                Collectors.toMap(BatchTransitionResult::reservationId, r -> r));
+    }
+
+    private static void assertOutcome(BatchTransitionResult result, ReservationStatus status, String error) {
+        assertEquals(status, result.status(), result.reservationId());
+        assertEquals(error, result.error(), result.reservationId());
+    }
+
+    private void assertCounters(long ticketId, int available, int reserved, int sold) {
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT available, reserved, sold FROM inventory WHERE ticket_id = ?", ticketId);
+        assertEquals(available, ((Number) row.get("available")).intValue(), "available of " + ticketId);
+        assertEquals(reserved, ((Number) row.get("reserved")).intValue(), "reserved of " + ticketId);
+        assertEquals(sold, ((Number) row.get("sold")).intValue(), "sold of " + ticketId);
+    }
+
+    private void assertStatuses(Map<String, String> expected) {
+        expected.forEach((id, status) -> assertEquals(status, jdbc.queryForObject(
+                "SELECT status FROM inventory_reservations WHERE reservation_id = ?", String.class, id), id));
+    }
+}
@@ -0,0 +1,191 @@
+package com.flashSale.inventory.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flashSale.inventory.dto.BulkStockRejection;
+import com.flashSale.inventory.dto.BulkStockResponse;
+import com.flashSale.inventory.event.StockInitializedEvent;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.repo.InventoryBulkRepository;
+import com.flashSale.inventory.repo.InventoryRepository;
+import com.flashSale.inventory.service.InventoryAdminService.BulkFormat;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Bulk stock init against H2 in MySQL mode, without a Spring context.
+ */
+class BulkInitStockTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private InventoryBulkRepository bulkRepo;
+    private final HotStockEngine hotStock = mock(HotStockEngine.class);
+    private final ApplicationEventPublisher events = mock(ApplicationEventPublisher.class);
+    private InventoryAdminServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:bulk-init-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL,
+                    shard_count INT NOT NULL DEFAULT 1,
+                    seated BOOLEAN NOT NULL DEFAULT FALSE,
+                    memory_owner VARCHAR(64) NULL
+                )""");
+
+        bulkRepo = spy(new InventoryBulkRepository(jdbc));
+        service = new InventoryAdminServiceImpl(
+                mock(InventoryRepository.class),
+                bulkRepo,
+                mock(StockLedger.class),
+                events,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new ObjectMapper(),
+                hotStock);
+        ReflectionTestUtils.setField(service, "defaultShards", 1);
+        ReflectionTestUtils.setField(service, "bulkChunkSize", 500);
+        ReflectionTestUtils.setField(service, "bulkMaxRejections", 1000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void csvHeaderIsRecognizedByItsColumnNames() throws IOException {
+        BulkStockResponse bom = csv("\uFEFFticketId,available\n1,10\n");
+        assertTally(bom, 1, 1, 0, 0);
+
+        BulkStockResponse snake = csv(" ticket_id , Available \n2,20\n");
+        assertTally(snake, 1, 1, 0, 0);
+        assertAvailable(2, 20);
+    }
+
+    @Test
+    void firstLineThatIsNotAHeaderIsParsedAsARow() throws IOException {
+        BulkStockResponse negative = csv("-5,10\n6,60\n");
+        assertTally(negative, 2, 1, 0, 1);
+        assertRejection(negative.rejections().get(0), 1, "INVALID_ROW");
+
+        BulkStockResponse plus = csv("+5,10\n");
+        assertTally(plus, 1, 1, 0, 0);
+        assertAvailable(5, 10);
+
+        BulkStockResponse bom = csv("\uFEFF7,70\n");
+        assertTally(bom, 1, 1, 0, 0);
+        assertAvailable(7, 70);
+
+        BulkStockResponse garbage = csv("id;qty\n8,80\n");
+        assertTally(garbage, 2, 1, 0, 1);
+        assertRejection(garbage.rejections().get(0), 1, "INVALID_ROW");
+    }
+
+    @Test
+    void rowsAreAppliedOneChunkAtATime() throws IOException {
+        ReflectionTestUtils.setField(service, "bulkChunkSize", 2);
+
+        BulkStockResponse r = csv("1,10\n2,20\n3,30\n4,40\n5,50\n");
+
+        assertTally(r, 5, 5, 0, 0);
+        verify(bulkRepo, times(3)).lockExisting(anyCollection());
+        verify(bulkRepo, times(3)).upsert(anyList());
+        verify(events, times(5)).publishEvent(any(StockInitializedEvent.class));
+    }
+
+    @Test
+    void repeatedTicketFlushesTheChunkSoTheLaterRowWins() throws IOException {
+        BulkStockResponse r = csv("1,10\n2,20\n1,15\n");
+
+        assertTally(r, 3, 2, 1, 0);
+        assertAvailable(1, 15);
+        assertAvailable(2, 20);
+        verify(bulkRepo, times(2)).upsert(anyList());
+    }
+
+    @Test
+    void inUseSeatedAndMemoryModeTicketsAreRejectedAndLeftAlone() throws IOException {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version) VALUES (1, 9, 1, 0, 3)");
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, seated) VALUES (2, 4, 0, 0, 3, TRUE)");
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, memory_owner) VALUES (3, 7, 0, 0, 3, 'inventory-2')");
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version) VALUES (4, 8, 0, 0, 3)");
+        when(hotStock.isEnrolled(4)).thenReturn(true);
+
+        BulkStockResponse r = ndjson("""
+                {"ticketId":1,"available":100}
+                {"ticketId":2,"available":100}
+                {"ticketId":3,"available":100}
+                {"ticketId":4,"available":100}
+                {"ticketId":5,"available":100}
+                """);
+
+        assertTally(r, 5, 1, 0, 4);
+        assertRejection(r.rejections().get(0), 1, "STOCK_ALREADY_IN_USE");
+        assertRejection(r.rejections().get(1), 2, "TICKET_SEATED");
+        assertRejection(r.rejections().get(2), 3, "TICKET_IN_MEMORY_MODE");
+        assertRejection(r.rejections().get(3), 4, "TICKET_IN_MEMORY_MODE");
+        assertAvailable(1, 9);
+        assertAvailable(2, 4);
+        assertAvailable(3, 7);
+        assertAvailable(4, 8);
+        assertAvailable(5, 100);
+    }
+
+    @Test
+    void rejectionsAreCappedButCounted() throws IOException {
+        ReflectionTestUtils.setField(service, "bulkMaxRejections", 2);
+
+        BulkStockResponse r = csv("x,1\n0,1\n1,-1\n1\n2,20\n");
+
+        assertTally(r, 5, 1, 0, 4);
+        assertEquals(2, r.rejections().size());
+        assertTrue(r.rejectionsTruncated());
+        assertRejection(r.rejections().get(0), 1, "INVALID_ROW");
+        assertRejection(r.rejections().get(1), 2, "INVALID_ROW");
+    }
+
+    private BulkStockResponse csv(String body) throws IOException {
+        return service.bulkInitStock(new StringReader(body), BulkFormat.CSV);
+    }
+
+    private BulkStockResponse ndjson(String body) throws IOException {
+        return service.bulkInitStock(new StringReader(body), BulkFormat.NDJSON);
+    }
+
+    private static void assertTally(BulkStockResponse r, long total, long created, long updated, long rejected) {
+        assertEquals(List.of(total, created, updated, rejected),
+                List.of(r.total(), r.created(), r.updated(), r.rejected()), "total, created, updated, rejected");
+    }
+
+    private static void assertRejection(BulkStockRejection rejection, long line, String code) {
+        assertEquals(line, rejection.line());
+        assertEquals(code, rejection.code());
+    }
+
+    private void assertAvailable(long ticketId, int available) {
+        assertEquals(available, jdbc.queryForObject(
+                "SELECT available FROM inventory WHERE ticket_id = ?", Integer.class, ticketId));
+    }
+}
@@ -0,0 +1,236 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.exception.NotFoundException;
+import com.flashSale.inventory.limit.CatalogTicketLimits;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.repo.UserHoldRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Lean reserve path against H2 in MySQL mode, without a Spring context.
+ */
+class JdbcReservePathTest {
+
+    private static final int THREADS = 1000;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private JdbcReservePath path;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:lean-" + System.nanoTime()
+                + ";MODE=MySQL;LOCK_TIMEOUT=60000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(64);
+        dataSource.setConnectionTimeout(60_000);
+
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL,
+                    shard_count INT NOT NULL DEFAULT 1,
+                    seated BOOLEAN NOT NULL DEFAULT FALSE,
+                    memory_owner VARCHAR(64) NULL,
+                    CHECK (available >= 0),
+                    CHECK (reserved >= 0)
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_reservations (
+                    reservation_id VARCHAR(64) PRIMARY KEY,
+                    ticket_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    status VARCHAR(16) NOT NULL,
+                    user_id BIGINT NULL,
+                    shard_no INT NULL,
+                    expires_at DATETIME NULL,
+                    CHECK (qty > 0)
+                )""");
+
+        jdbc.execute("""
+                CREATE TABLE inventory_user_holds (
+                    ticket_id BIGINT NOT NULL,
+                    user_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    PRIMARY KEY (ticket_id, user_id),
+                    CHECK (qty >= 0)
+                )""");
+
+        CatalogTicketLimits ticketLimits = mock(CatalogTicketLimits.class);
+        when(ticketLimits.limitOf(anyLong())).thenReturn(null);
+        when(ticketLimits.limitOf(5)).thenReturn(2);
+        path = new JdbcReservePath(jdbc,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)),
+                new UserPurchaseLimits(new UserHoldRepository(jdbc), ticketLimits, new SimpleMeterRegistry(), true));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void noOversellUnderConcurrentReserves() throws Exception {
+        int stock = 300;
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (1, ?, 0, 0, 0, 1)", stock);
+
+        AtomicInteger reserved = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        runConcurrently(i -> {
+            try {
+                // every 10th thread retries the previous thread's reservationId
+                String id = "r-" + (i % 10 == 9 ? i - 1 : i);
+                ReservationResponse r = path.reserve(id, 1, 1, null, Instant.now().plusSeconds(60));
+                assertEquals(ReservationStatus.RESERVED, r.status());
+                reserved.incrementAndGet();
+            } catch (ConflictException e) {
+                assertEquals("INSUFFICIENT_STOCK", e.getCode());
+                rejected.incrementAndGet();
+            }
+        });
+
+        assertEquals(THREADS, reserved.get() + rejected.get());
+        assertEquals(0, intQuery("SELECT available FROM inventory WHERE ticket_id = 1"));
+        assertEquals(stock, intQuery("SELECT reserved FROM inventory WHERE ticket_id = 1"));
+        assertEquals(stock, intQuery("SELECT COUNT(*) FROM inventory_reservations WHERE status = 'RESERVED'"));
+        assertEquals(stock, intQuery("SELECT SUM(qty) FROM inventory_reservations"));
+    }
+
+    @Test
+    void duplicateReservationIdReservesOnce() throws Exception {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (2, 5000, 0, 0, 0, 1)");
+
+        runConcurrently(i -> {
+            ReservationResponse r = path.reserve("same-id", 2, 3, null, null);
+            assertEquals(ReservationStatus.RESERVED, r.status());
+            assertEquals(3, r.qty());
+        });
+
+        assertEquals(4997, intQuery("SELECT available FROM inventory WHERE ticket_id = 2"));
+        assertEquals(3, intQuery("SELECT reserved FROM inventory WHERE ticket_id = 2"));
+        assertEquals(1, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    @Test
+    void unknownTicketIsNotFoundAndWritesNothing() {
+        NotFoundException e = assertThrows(NotFoundException.class,
+                () -> path.reserve("missing", 404, 1, null, null));
+        assertEquals("TICKET_NOT_FOUND", e.getCode());
+        assertEquals(0, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    @Test
+    void ticketInAnotherInstancesMemoryModeIsNotMoved() {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, memory_owner) VALUES (3, 10, 0, 0, 0, 1, 'inventory-2')");
+
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> path.reserve("elsewhere", 3, 1, null, null));
+
+        assertEquals("TICKET_IN_MEMORY_MODE", e.getCode());
+        assertEquals(10, intQuery("SELECT available FROM inventory WHERE ticket_id = 3"));
+        assertEquals(0, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    @Test
+    void perUserLimitRejectionRollsTheStockMoveBack() {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (5, 10, 0, 0, 0, 1)");
+
+        path.reserve("u-1", 5, 2, 42L, null);
+        ConflictException e = assertThrows(ConflictException.class,
+                () -> path.reserve("u-2", 5, 1, 42L, null));
+
+        assertEquals("PER_USER_LIMIT_EXCEEDED", e.getCode());
+        assertEquals(8, intQuery("SELECT available FROM inventory WHERE ticket_id = 5"));
+        assertEquals(1, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+        assertEquals(2, intQuery("SELECT qty FROM inventory_user_holds WHERE ticket_id = 5 AND user_id = 42"));
+
+        // another buyer is not affected
+        path.reserve("u-3", 5, 2, 43L, null);
+        assertEquals(6, intQuery("SELECT available FROM inventory WHERE ticket_id = 5"));
+    }
+
+    @Test
+    void firstTimeReserveRunsTwoStatementsPlusTwoForAPerUserLimit() {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (1, 10, 0, 0, 0, 1)");
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count) VALUES (5, 10, 0, 0, 0, 1)");
+
+        assertEquals(List.of("INSERT", "UPDATE"), statementsOf(() -> path.reserve("plain", 1, 1, null, null)));
+        assertEquals(List.of("INSERT", "INSERT", "UPDATE", "UPDATE"),
+                statementsOf(() -> path.reserve("limited", 5, 1, 42L, null)));
+    }
+
+    /**
+     * Leading keyword of every DML statement run, sorted; from H2's query statistics.
+     */
+    private List<String> statementsOf(Runnable call) {
+        jdbc.execute("SET QUERY_STATISTICS FALSE");
+        jdbc.execute("SET QUERY_STATISTICS TRUE");
+        call.run();
+        List<String> statements = new ArrayList<>();
+        jdbc.query("SELECT SQL_STATEMENT, EXECUTION_COUNT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", rs -> {
+            String sql = rs.getString(1).strip();
+            if (sql.matches("(?is)(SELECT|INSERT|UPDATE|DELETE)\\b.*") && !sql.contains("QUERY_STATISTICS")) {
+                for (int n = rs.getInt(2); n > 0; n--) {
+                    statements.add(sql.split("\\s+")[0].toUpperCase());
+                }
+            }
+        });
+        Collections.sort(statements);
+        return statements;
+    }
+
+    private int intQuery(String sql) {
+        Integer v = jdbc.queryForObject(sql, Integer.class);
+        return v == null ? 0 : v;
+    }
+
+    private interface Task {
+        void run(int i) throws Exception;
+    }
+
+    private void runConcurrently(Task task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            Future<?>[] futures = new Future<?>[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int i = t;
+                futures[t] = pool.submit(() -> {
+                    start.await();
+                    task.run(i);
+                    return null;
+                });
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
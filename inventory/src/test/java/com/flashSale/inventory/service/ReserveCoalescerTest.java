@@ -0,0 +1,267 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.domain.InventoryReservation;
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.repo.ReservationRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.Mockito.*;
+
+/**
+ * Group commit against H2 in MySQL mode, without a Spring context. The JPA idempotency
+ * lookup is stubbed with a plain query on the same table.
+ */
+class ReserveCoalescerTest {
+
+    private static final Supplier<ReservationResponse> NO_FALLBACK = () -> {
+        throw new IllegalStateException("unexpected fallback");
+    };
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private TransactionTemplate txTemplate;
+    private final ReservationRepository reservationRepo = mock(ReservationRepository.class);
+    private final List<ReserveCoalescer> coalescers = new ArrayList<>();
+    private final ExecutorService callers = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:coalescer-" + System.nanoTime()
+                + ";MODE=MySQL;LOCK_TIMEOUT=60000;DB_CLOSE_DELAY=-1");
+        dataSource.setMaximumPoolSize(16);
+        jdbc = new JdbcTemplate(dataSource);
+        txTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL,
+                    shard_count INT NOT NULL DEFAULT 1,
+                    seated BOOLEAN NOT NULL DEFAULT FALSE,
+                    memory_owner VARCHAR(64) NULL,
+                    CHECK (available >= 0)
+                )""");
+        jdbc.execute("""
+                CREATE TABLE inventory_reservations (
+                    reservation_id VARCHAR(64) PRIMARY KEY,
+                    ticket_id BIGINT NOT NULL,
+                    qty INT NOT NULL,
+                    status VARCHAR(16) NOT NULL,
+                    user_id BIGINT NULL,
+                    expires_at DATETIME NULL
+                )""");
+        when(reservationRepo.findAllById(anyIterable())).thenAnswer(inv -> stored(inv.getArgument(0)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+        coalescers.forEach(ReserveCoalescer::shutdown);
+        dataSource.close();
+    }
+
+    @Test
+    void windowGrantsInArrivalOrderAndRejectionsWriteNothing() throws Exception {
+        stock(1, 5);
+        ReserveCoalescer coalescer = coalescer(500, 64);
+
+        // one window: 2 + 2 fit, the third 2 does not, the trailing 1 still does
+        List<Future<ReservationResponse>> calls = new ArrayList<>();
+        for (String id : List.of("a", "b", "c", "d")) {
+            int qty = id.equals("d") ? 1 : 2;
+            calls.add(callers.submit(() -> coalescer.reserve(id, 1, qty, null, expiry(), NO_FALLBACK)));
+            Thread.sleep(20);
+        }
+
+        assertEquals(ReservationStatus.RESERVED, calls.get(0).get(5, TimeUnit.SECONDS).status());
+        assertEquals(ReservationStatus.RESERVED, calls.get(1).get(5, TimeUnit.SECONDS).status());
+        ExecutionException rejected = assertThrows(ExecutionException.class, () -> calls.get(2).get(5, TimeUnit.SECONDS));
+        assertEquals("INSUFFICIENT_STOCK", ((ConflictException) rejected.getCause()).getCode());
+        assertEquals(ReservationStatus.RESERVED, calls.get(3).get(5, TimeUnit.SECONDS).status());
+
+        assertCounters(1, 0, 5);
+        assertEquals(3, intQuery("SELECT COUNT(*) FROM inventory_reservations WHERE status = 'RESERVED'"));
+        assertEquals(0, intQuery("SELECT COUNT(*) FROM inventory_reservations WHERE reservation_id = 'c'"));
+
+        // nothing remembered the rejection: the same id succeeds once stock is back
+        jdbc.update("UPDATE inventory SET available = 2 WHERE ticket_id = 1");
+        assertEquals(ReservationStatus.RESERVED, coalescer.reserve("c", 1, 2, null, expiry(), NO_FALLBACK).status());
+    }
+
+    @Test
+    void fullBatchFlushesBeforeTheWindowEnds() throws Exception {
+        stock(1, 100);
+        ReserveCoalescer coalescer = coalescer(10_000, 3);
+
+        long start = System.nanoTime();
+        List<Future<ReservationResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String id = "full-" + i;
+            calls.add(callers.submit(() -> coalescer.reserve(id, 1, 1, null, expiry(), NO_FALLBACK)));
+        }
+        for (Future<ReservationResponse> call : calls) {
+            assertEquals(ReservationStatus.RESERVED, call.get(5, TimeUnit.SECONDS).status());
+        }
+
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) < 5_000);
+        assertCounters(1, 97, 3);
+    }
+
+    @Test
+    void loneRequestIsFlushedWhenTheWindowEnds() {
+        stock(1, 100);
+        ReserveCoalescer coalescer = coalescer(200, 64);
+
+        long start = System.nanoTime();
+        ReservationResponse r = coalescer.reserve("lone", 1, 1, null, expiry(), NO_FALLBACK);
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(ReservationStatus.RESERVED, r.status());
+        assertTrue(elapsedMs >= 150, "flushed after " + elapsedMs + "ms, before the window ended");
+        assertCounters(1, 99, 1);
+    }
+
+    @Test
+    void duplicateIdsInOneWindowShareOneHold() throws Exception {
+        stock(1, 10);
+        ReserveCoalescer coalescer = coalescer(300, 64);
+
+        List<Future<ReservationResponse>> calls = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            calls.add(callers.submit(() -> coalescer.reserve("same", 1, 3, null, expiry(), NO_FALLBACK)));
+        }
+        for (Future<ReservationResponse> call : calls) {
+            ReservationResponse r = call.get(5, TimeUnit.SECONDS);
+            assertEquals(ReservationStatus.RESERVED, r.status());
+            assertEquals(3, r.qty());
+        }
+
+        assertCounters(1, 7, 3);
+        assertEquals(1, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    @Test
+    void idThatRacedInFallsBackToSingleReserves() throws Exception {
+        stock(1, 10);
+        // inserted by another instance after the idempotency lookup: the batch insert conflicts
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES ('raced', 1, 1, 'RESERVED')");
+        when(reservationRepo.findAllById(anyIterable())).thenReturn(List.of());
+        ReserveCoalescer coalescer = coalescer(300, 64);
+
+        AtomicInteger fallbacks = new AtomicInteger();
+        Future<ReservationResponse> raced = callers.submit(() -> coalescer.reserve("raced", 1, 1, null, expiry(), () -> {
+            fallbacks.incrementAndGet();
+            return new ReservationResponse("raced", 1L, 1, ReservationStatus.RESERVED);
+        }));
+        Future<ReservationResponse> fresh = callers.submit(() -> coalescer.reserve("fresh", 1, 2, null, expiry(), () -> {
+            fallbacks.incrementAndGet();
+            return new ReservationResponse("fresh", 1L, 2, ReservationStatus.RESERVED);
+        }));
+
+        assertEquals("raced", raced.get(5, TimeUnit.SECONDS).reservationId());
+        assertEquals("fresh", fresh.get(5, TimeUnit.SECONDS).reservationId());
+        assertEquals(2, fallbacks.get());
+        // the batch rolled back as a whole
+        assertCounters(1, 10, 0);
+        assertEquals(1, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    @Test
+    void noOversellUnderConcurrentReserves() throws Exception {
+        int stock = 100;
+        int threads = 300;
+        stock(1, stock);
+        ReserveCoalescer coalescer = coalescer(2, 64);
+
+        CountDownLatch go = new CountDownLatch(1);
+        AtomicInteger granted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        List<Future<?>> calls = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            String id = "r-" + i;
+            calls.add(callers.submit(() -> {
+                go.await();
+                try {
+                    coalescer.reserve(id, 1, 1, null, expiry(), NO_FALLBACK);
+                    granted.incrementAndGet();
+                } catch (ConflictException e) {
+                    assertEquals("INSUFFICIENT_STOCK", e.getCode());
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        go.countDown();
+        for (Future<?> call : calls) {
+            call.get(60, TimeUnit.SECONDS);
+        }
+
+        assertEquals(stock, granted.get());
+        assertEquals(threads - stock, rejected.get());
+        assertCounters(1, 0, stock);
+        assertEquals(stock, intQuery("SELECT COUNT(*) FROM inventory_reservations"));
+    }
+
+    private ReserveCoalescer coalescer(double windowMs, int maxBatch) {
+        ReserveCoalescer coalescer = new ReserveCoalescer(reservationRepo, jdbc, txTemplate,
+                mock(UserPurchaseLimits.class), true, windowMs, maxBatch, 4);
+        coalescers.add(coalescer);
+        return coalescer;
+    }
+
+    private List<InventoryReservation> stored(Iterable<String> ids) {
+        List<InventoryReservation> found = new ArrayList<>();
+        for (String id : ids) {
+            jdbc.query("SELECT reservation_id, ticket_id, qty, status FROM inventory_reservations WHERE reservation_id = ?",
+                    rs -> {
+                        InventoryReservation r = new InventoryReservation();
+                        r.setReservationId(rs.getString("reservation_id"));
+                        r.setTicketId(rs.getLong("ticket_id"));
+                        r.setQty(rs.getInt("qty"));
+                        r.setStatus(ReservationStatus.valueOf(rs.getString("status")));
+                        found.add(r);
+                    }, id);
+        }
+        return found;
+    }
+
+    private void stock(long ticketId, int available) {
+        jdbc.update("INSERT INTO inventory (ticket_id, available, reserved, sold, version) VALUES (?, ?, 0, 0, 0)",
+                ticketId, available);
+    }
+
+    private static Instant expiry() {
+        return Instant.now().plusSeconds(60);
+    }
+
+    private void assertCounters(long ticketId, int available, int reserved) {
+        assertEquals(available, intQuery("SELECT available FROM inventory WHERE ticket_id = " + ticketId));
+        assertEquals(reserved, intQuery("SELECT reserved FROM inventory WHERE ticket_id = " + ticketId));
+    }
+
+    private int intQuery(String sql) {
+        Integer v = jdbc.queryForObject(sql, Integer.class);
+        return v == null ? 0 : v;
+    }
+}
@@ -0,0 +1,206 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.admission.TicketAdmission;
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReservationResponse;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.expiry.ReservationExpiryEngine;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.HotTicketDetector;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.metrics.ReservationMetrics;
+import com.flashSale.inventory.repo.*;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Single reserve retries against H2 in MySQL mode: no lookup before a first-time reserve,
+ * retries replay from the primary key or from the hot table on rejection.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:reserve-idempotency;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class ReserveIdempotencyTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @Autowired
+    private InventoryRepository inventoryRepo;
+    @Autowired
+    private ReservationRepository reservationRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager txManager;
+    @Autowired
+    private EntityManagerFactory emf;
+
+    private final StockGate stockGate = mock(StockGate.class);
+    private final SoldOutSentinel soldOutSentinel = mock(SoldOutSentinel.class);
+    private final ReservationArchiveRepository archiveRepo = mock(ReservationArchiveRepository.class);
+    private InventoryReservationServiceImpl service;
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM inventory_reservations");
+        jdbc.update("DELETE FROM inventory");
+
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        HotStockEngine hotStock = mock(HotStockEngine.class);
+        when(stockGate.tryAcquire(anyString(), anyLong(), anyInt())).thenReturn(true);
+        service = new InventoryReservationServiceImpl(
+                inventoryRepo,
+                reservationRepo,
+                new StockLedger(inventoryRepo, new InventoryShardRepository(jdbc), new InventorySeatRepository(jdbc)),
+                stockGate,
+                new TransactionTemplate(txManager),
+                mock(ReserveCoalescer.class),
+                soldOutSentinel,
+                mock(ReservationExpiryEngine.class),
+                new TerminalReservationCache(registry, 1000),
+                new JdbcReservePath(jdbc, new TransactionTemplate(txManager), mock(UserPurchaseLimits.class)),
+                hotStock,
+                archiveRepo,
+                mock(TicketAdmission.class),
+                new TicketModes(hotStock),
+                mock(HotTicketDetector.class),
+                mock(UserPurchaseLimits.class),
+                new ReservationMetrics(new InventoryBulkRepository(jdbc), registry, 20, 100));
+
+        statistics = emf.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    void firstReserveInsertsWithoutLookingTheIdUp() {
+        stock(1, 10);
+        statistics.clear();
+
+        ReservationResponse r = service.reserve("new", 1, 2, TTL, null);
+
+        assertEquals(ReservationStatus.RESERVED, r.status());
+        assertCounters(1, 8, 2);
+        assertEquals(0, statistics.getEntityLoadCount(), "no reservation read before the insert");
+        assertEquals(1, statistics.getEntityInsertCount());
+        verifyNoInteractions(archiveRepo);
+    }
+
+    @Test
+    void retryOfALiveHoldHitsThePrimaryKeyAndKeepsItsAdmission() {
+        stock(1, 10);
+        service.reserve("r", 1, 2, TTL, null);
+
+        ReservationResponse retry = service.reserve("r", 1, 2, TTL, null);
+
+        assertEquals(ReservationStatus.RESERVED, retry.status());
+        assertCounters(1, 8, 2);
+        assertStatuses(Map.of("r", "RESERVED"));
+        verify(stockGate, never()).rollback(anyString(), anyLong());
+    }
+
+    @Test
+    void retryOfAFinishedReservationReplaysAndGivesTheNewAdmissionBack() {
+        stock(1, 10);
+        reservation("c", 1, 3, ReservationStatus.COMMITTED);
+
+        ReservationResponse retry = service.reserve("c", 1, 3, TTL, null);
+
+        assertEquals(ReservationStatus.COMMITTED, retry.status());
+        assertCounters(1, 10, 0);
+        assertStatuses(Map.of("c", "COMMITTED"));
+        verify(stockGate).rollback("c", 1);
+    }
+
+    @Test
+    void rejectedRetriesReplayFromTheHotTable() {
+        stock(1, 0);
+        reservation("held", 1, 1, ReservationStatus.RESERVED);
+        reservation("done", 1, 1, ReservationStatus.RELEASED);
+
+        when(soldOutSentinel.isSoldOut(1)).thenReturn(true);
+        assertEquals(ReservationStatus.RESERVED, service.reserve("held", 1, 1, TTL, null).status());
+
+        when(soldOutSentinel.isSoldOut(1)).thenReturn(false);
+        when(stockGate.tryAcquire(anyString(), anyLong(), anyInt())).thenReturn(false);
+        assertEquals(ReservationStatus.RELEASED, service.reserve("done", 1, 1, TTL, null).status());
+
+        ConflictException e = assertThrows(ConflictException.class, () -> service.reserve("fresh", 1, 1, TTL, null));
+        assertEquals("INSUFFICIENT_STOCK", e.getCode());
+        verifyNoInteractions(archiveRepo);
+    }
+
+    @Test
+    void leanPathRetriesReplayWithoutAPreLookup() {
+        ReflectionTestUtils.setField(service, "leanJdbcReserve", true);
+        stock(1, 1);
+        service.reserve("lean", 1, 1, TTL, null);
+        reservation("lean-done", 1, 1, ReservationStatus.COMMITTED);
+        statistics.clear();
+
+        // no stock left: the UPDATE misses and the hot table answers
+        assertEquals(ReservationStatus.RESERVED, service.reserve("lean", 1, 1, TTL, null).status());
+        assertEquals(ReservationStatus.COMMITTED, service.reserve("lean-done", 1, 1, TTL, null).status());
+        // stock again: the UPDATE goes through and the INSERT's primary key rolls it back
+        jdbc.update("UPDATE inventory SET available = 5 WHERE ticket_id = 1");
+        assertEquals(ReservationStatus.RESERVED, service.reserve("lean", 1, 1, TTL, null).status());
+
+        assertCounters(1, 5, 1);
+        verify(stockGate, never()).rollback(eq("lean"), anyLong());
+        verify(stockGate).rollback("lean-done", 1);
+    }
+
+    private void stock(long ticketId, int available) {
+        jdbc.update("""
+                INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, seated)
+                VALUES (?, ?, 0, 0, 0, 1, FALSE)
+                """, ticketId, available);
+    }
+
+    private void reservation(String id, long ticketId, int qty, ReservationStatus status) {
+        jdbc.update("INSERT INTO inventory_reservations (reservation_id, ticket_id, qty, status) VALUES (?, ?, ?, ?)",
+                id, ticketId, qty, status.name());
+    }
+
+    private void assertCounters(long ticketId, int available, int reserved) {
+        Map<String, Object> row = jdbc.queryForMap(
+                "SELECT available, reserved FROM inventory WHERE ticket_id = ?", ticketId);
+        assertEquals(available, ((Number) row.get("available")).intValue(), "available of " + ticketId);
+        assertEquals(reserved, ((Number) row.get("reserved")).intValue(), "reserved of " + ticketId);
+    }
+
+    private void assertStatuses(Map<String, String> expected) {
+        expected.forEach((id, status) -> assertEquals(status, jdbc.queryForObject(
+                "SELECT status FROM inventory_reservations WHERE reservation_id = ?", String.class, id), id));
+    }
+}
@@ -0,0 +1,182 @@
+package com.flashSale.inventory.service;
+
+import com.flashSale.inventory.admission.TicketAdmission;
+import com.flashSale.inventory.domain.ReservationStatus;
+import com.flashSale.inventory.dto.ReserveRequest;
+import com.flashSale.inventory.exception.BatchReserveException;
+import com.flashSale.inventory.exception.ConflictException;
+import com.flashSale.inventory.expiry.ReservationExpiryEngine;
+import com.flashSale.inventory.gate.StockGate;
+import com.flashSale.inventory.hot.HotTicketDetector;
+import com.flashSale.inventory.hot.TicketModes;
+import com.flashSale.inventory.journal.HotStockEngine;
+import com.flashSale.inventory.limit.UserPurchaseLimits;
+import com.flashSale.inventory.metrics.ReservationMetrics;
+import com.flashSale.inventory.repo.*;
+import com.flashSale.inventory.sentinel.SoldOutSentinel;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Retries of finished reservations against H2 in MySQL mode: answered from the terminal
+ * cache without a single statement, counted by H2's query statistics.
+ */
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.datasource.url=jdbc:h2:mem:terminal-cache;MODE=MySQL;DB_CLOSE_DELAY=-1",
+        "spring.datasource.driver-class-name=org.h2.Driver",
+        "spring.datasource.username=sa",
+        "spring.datasource.password=",
+        "spring.jpa.hibernate.ddl-auto=create-drop"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class TerminalReservationCacheTest {
+
+    private static final Duration TTL = Duration.ofMinutes(5);
+
+    @Autowired
+    private InventoryRepository inventoryRepo;
+    @Autowired
+    private ReservationRepository reservationRepo;
+    @Autowired
+    private JdbcTemplate jdbc;
+    @Autowired
+    private PlatformTransactionManager txManager;
+
+    private final StockGate stockGate = mock(StockGate.class);
+    private final SoldOutSentinel soldOutSentinel = mock(SoldOutSentinel.class);
+    private final ReservationArchiveRepository archiveRepo = mock(ReservationArchiveRepository.class);
+    private SimpleMeterRegistry registry;
+    private InventoryReservationServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        jdbc.update("DELETE FROM inventory_reservations");
+        jdbc.update("DELETE FROM inventory");
+
+        registry = new SimpleMeterRegistry();
+        HotStockEngine hotStock = mock(HotStockEngine.class);
+        when(stockGate.tryAcquire(anyString(), anyLong(), anyInt())).thenReturn(true);
+        service = new InventoryReservationServiceImpl(
+                inventoryRepo,
+                reservationRepo,
+                new StockLedger(inventoryRepo, new InventoryShardRepository(jdbc), new InventorySeatRepository(jdbc)),
+                stockGate,
+                new TransactionTemplate(txManager),
+                mock(ReserveCoalescer.class),
+                soldOutSentinel,
+                mock(ReservationExpiryEngine.class),
+                new TerminalReservationCache(registry, 1000),
+                null,
+                hotStock,
+                archiveRepo,
+                mock(TicketAdmission.class),
+                new TicketModes(hotStock),
+                mock(HotTicketDetector.class),
+                mock(UserPurchaseLimits.class),
+                new ReservationMetrics(new InventoryBulkRepository(jdbc), registry, 20, 100));
+    }
+
+    @Test
+    void committedRetriesDoNoDbWork() {
+        stock(1, 10);
+        service.reserve("c", 1, 2, TTL, null);
+        service.commit("c");
+
+        assertNoStatements(() -> {
+            assertEquals(ReservationStatus.COMMITTED, service.commit("c").status());
+            assertEquals(ReservationStatus.COMMITTED, service.reserve("c", 1, 2, TTL, null).status());
+            assertEquals("INVALID_STATE", conflictCode(() -> service.release("c")));
+            assertEquals(ReservationStatus.COMMITTED, service.find("c").orElseThrow().status());
+        });
+    }
+
+    @Test
+    void releasedRetriesDoNoDbWork() {
+        stock(1, 10);
+        service.reserve("r", 1, 2, TTL, null);
+        service.release("r");
+
+        assertNoStatements(() -> {
+            assertEquals(ReservationStatus.RELEASED, service.release("r").status());
+            assertEquals(ReservationStatus.RELEASED, service.reserve("r", 1, 2, TTL, null).status());
+            assertEquals("INVALID_STATE", conflictCode(() -> service.commit("r")));
+            assertEquals(ReservationStatus.RELEASED, service.reserveAll(
+                    List.of(new ReserveRequest("r", 1L, 2, null, null))).results().get(0).status());
+        });
+    }
+
+    @Test
+    void failedRetriesDoNoDbWork() {
+        ReflectionTestUtils.setField(service, "writeFailedAudit", true);
+        stock(1, 0);
+        when(soldOutSentinel.isSoldOut(1)).thenReturn(true);
+        assertEquals("INSUFFICIENT_STOCK", conflictCode(() -> service.reserve("f", 1, 1, TTL, null)));
+
+        assertNoStatements(() -> {
+            assertEquals("INSUFFICIENT_STOCK", conflictCode(() -> service.reserve("f", 1, 1, TTL, null)));
+            assertThrows(BatchReserveException.class, () -> service.reserveAll(
+                    List.of(new ReserveRequest("f", 1L, 1, null, null))));
+        });
+        verify(soldOutSentinel, times(1)).isSoldOut(1);
+    }
+
+    @Test
+    void hitRatioIsExported() {
+        stock(1, 10);
+        service.reserve("m", 1, 1, TTL, null);
+        service.commit("m");
+        service.commit("m");
+
+        assertTrue(registry.get("cache.gets").tag("cache", "reservation.terminal").tag("result", "hit")
+                .functionCounter().count() >= 1);
+        assertTrue(registry.get("cache.gets").tag("cache", "reservation.terminal").tag("result", "miss")
+                .functionCounter().count() >= 1);
+        assertNotNull(registry.find("cache.size").tag("cache", "reservation.terminal").gauge());
+    }
+
+    private static String conflictCode(Supplier<?> call) {
+        return assertThrows(ConflictException.class, call::get).getCode();
+    }
+
+    /**
+     * Any SQL at all (JPA or JDBC) shows up in H2's query statistics.
+     */
+    private void assertNoStatements(Runnable retries) {
+        jdbc.execute("SET QUERY_STATISTICS FALSE");
+        jdbc.execute("SET QUERY_STATISTICS TRUE");
+        retries.run();
+        Integer ran = jdbc.queryForObject("""
+                SELECT COALESCE(SUM(EXECUTION_COUNT), 0) FROM INFORMATION_SCHEMA.QUERY_STATISTICS
+                WHERE SQL_STATEMENT NOT LIKE 'SET %' AND SQL_STATEMENT NOT LIKE '%QUERY_STATISTICS%'
+                    AND SQL_STATEMENT NOT IN ('COMMIT', 'ROLLBACK')
+                """, Integer.class);
+        assertEquals(0, ran);
+    }
+
+    private void stock(long ticketId, int available) {
+        jdbc.update("""
+                INSERT INTO inventory (ticket_id, available, reserved, sold, version, shard_count, seated)
+                VALUES (?, ?, 0, 0, 0, 1, FALSE)
+                """, ticketId, available);
+    }
+}
@@ -0,0 +1,144 @@
+package com.flashSale.inventory.snapshot;
+
+import com.flashSale.inventory.controller.StockController;
+import com.flashSale.inventory.dto.StockLevelResponse;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.request.async.DeferredResult;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Snapshot and long-poll against H2 in MySQL mode, without a Spring context.
+ */
+class StockSnapshotTest {
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:snapshot-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE inventory (
+                    ticket_id BIGINT PRIMARY KEY,
+                    available INT NOT NULL,
+                    reserved INT NOT NULL,
+                    sold INT NOT NULL,
+                    version BIGINT NOT NULL
+                )""");
+        jdbc.update("INSERT INTO inventory VALUES (1, 10, 0, 0, 1)");
+        jdbc.update("INSERT INTO inventory VALUES (2, 20, 0, 0, 1)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void watchWakesUpOnceTheVersionMovesPastIt() {
+        StockSnapshot snapshot = new StockSnapshot(jdbc, 30_000, 60_000);
+        StockLevelResponse current = snapshot.get(1).orElseThrow();
+
+        DeferredResult<StockLevelResponse> result = snapshot.watch(current, 1, 10_000);
+        snapshot.refresh();
+        assertFalse(result.hasResult(), "nothing changed yet");
+
+        jdbc.update("UPDATE inventory SET available = 9, reserved = 1, version = 2 WHERE ticket_id = 1");
+        snapshot.refresh();
+
+        assertTrue(result.hasResult());
+        StockLevelResponse woken = (StockLevelResponse) result.getResult();
+        assertEquals(2, woken.version());
+        assertEquals(9, woken.available());
+    }
+
+    @Test
+    void timedOutWatchAnswersTheCurrentLevelAndTheWaitIsCapped() throws Exception {
+        MockMvc mvc = MockMvcBuilders.standaloneSetup(new StockController(new StockSnapshot(jdbc, 500, 60_000))).build();
+
+        MvcResult pending = mvc.perform(get("/inventory/stocks/1").param("sinceVersion", "1").param("waitMs", "60000"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        MockAsyncContext async = (MockAsyncContext) pending.getRequest().getAsyncContext();
+        assertEquals(500, async.getTimeout());
+
+        for (AsyncListener listener : new ArrayList<>(async.getListeners())) {
+            listener.onTimeout(new AsyncEvent(async));
+        }
+        mvc.perform(asyncDispatch(pending))
+                .andExpect(jsonPath("$.ticketId").value(1))
+                .andExpect(jsonPath("$.version").value(1));
+    }
+
+    @Test
+    void nonPositiveWaitAnswersAtOnce() {
+        StockSnapshot snapshot = new StockSnapshot(jdbc, 30_000, 60_000);
+        StockLevelResponse current = snapshot.get(1).orElseThrow();
+
+        for (long waitMs : List.of(0L, -5L)) {
+            DeferredResult<StockLevelResponse> result = snapshot.watch(current, 1, waitMs);
+            assertTrue(result.hasResult(), "waitMs=" + waitMs);
+            assertEquals(current, result.getResult());
+        }
+    }
+
+    @Test
+    void onlyRecentlyReadTicketsAreRefreshed() throws Exception {
+        StockSnapshot snapshot = new StockSnapshot(jdbc, 30_000, 100);
+
+        assertEquals(List.of(), selectsOf(snapshot::refresh), "nothing read yet, nothing to refresh");
+
+        assertEquals(20, snapshot.get(2).orElseThrow().available());
+        assertTrue(snapshot.get(404).isEmpty());
+        List<String> refreshed = selectsOf(snapshot::refresh);
+        assertEquals(1, refreshed.size());
+        assertTrue(refreshed.get(0).contains("IN (?)"), refreshed.get(0));
+
+        Thread.sleep(150);
+        snapshot.refresh();
+        assertEquals(List.of(), selectsOf(snapshot::refresh), "idle ticket dropped");
+
+        // a dropped ticket is loaded again on its next read
+        jdbc.update("UPDATE inventory SET available = 19, version = 2 WHERE ticket_id = 2");
+        assertEquals(19, snapshot.get(2).orElseThrow().available());
+    }
+
+    /**
+     * SELECTs on inventory run by the call; from H2's query statistics.
+     */
+    private List<String> selectsOf(Runnable call) {
+        jdbc.execute("SET QUERY_STATISTICS FALSE");
+        jdbc.execute("SET QUERY_STATISTICS TRUE");
+        call.run();
+        List<String> statements = new ArrayList<>();
+        jdbc.query("SELECT SQL_STATEMENT, EXECUTION_COUNT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", rs -> {
+            String sql = rs.getString(1).replaceAll("\\s+", " ").strip();
+            if (sql.startsWith("SELECT ticket_id")) {
+                for (int n = rs.getInt(2); n > 0; n--) {
+                    statements.add(sql);
+                }
+            }
+        });
+        return statements;
+    }
+}
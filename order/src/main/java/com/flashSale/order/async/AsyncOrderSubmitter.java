@@ -0,0 +1,35 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.dto.CreateOrderRequest;
+import com.flashSale.order.service.OrderService;
+import com.flashSale.order.service.OrderServiceImpl;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/**
+ * Async order entry: record the idempotency key, then publish the command.
+ * A command that cannot be published gives its key up again, so the client can retry it.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class AsyncOrderSubmitter {
+    private final OrderService orderService;
+    private final OrderCommandQueue queue;
+
+    public OrderServiceImpl.AcceptResult submit(Long userId, String idemKey, CreateOrderRequest req) {
+        OrderServiceImpl.AcceptResult result = orderService.acceptOrder(userId, idemKey, req);
+        if (!result.accepted()) {
+            return result;
+        }
+        try {
+            queue.publish(new OrderCommand(userId, idemKey, req));
+        } catch (RuntimeException e) {
+            orderService.abandonOrder(userId, idemKey);
+            throw e;
+        }
+        log.info("Async order accepted: userId={}, idemKey={}, items={}", userId, idemKey, req.items().size());
+        return result;
+    }
+}
@@ -0,0 +1,87 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.exception.OrderQueueUnavailableException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded in-memory queue drained by order.async.workers threads, for tests and single
+ * instances. Commands are lost with the process; their keys stay IN_PROGRESS.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "order.async.queue", havingValue = "in-process", matchIfMissing = true)
+public class InProcessOrderCommandQueue implements OrderCommandQueue {
+
+    private final OrderCommandHandler handler;
+    private final int workerCount;
+    private final BlockingQueue<OrderCommand> ring;
+    private final List<Thread> workers = new ArrayList<>();
+    private volatile boolean accepting = true;
+
+    public InProcessOrderCommandQueue(
+            OrderCommandHandler handler,
+            @Value("${order.async.workers:8}") int workerCount,
+            @Value("${order.async.in-process.capacity:10000}") int capacity) {
+        this.handler = handler;
+        this.workerCount = workerCount;
+        this.ring = new ArrayBlockingQueue<>(capacity);
+    }
+
+    @PostConstruct
+    void start() {
+        for (int i = 1; i <= workerCount; i++) {
+            Thread t = new Thread(this::drain, "order-worker-" + i);
+            t.setDaemon(true);
+            t.start();
+            workers.add(t);
+        }
+    }
+
+    /**
+     * Stop accepting and give the workers a bounded time to empty the queue.
+     */
+    @PreDestroy
+    void stop() throws InterruptedException {
+        accepting = false;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        for (Thread t : workers) {
+            t.join(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+        workers.forEach(Thread::interrupt);
+        if (!ring.isEmpty()) {
+            log.warn("async orders dropped at shutdown: count={}", ring.size());
+        }
+    }
+
+    @Override
+    public void publish(OrderCommand command) {
+        if (!accepting || !ring.offer(command)) {
+            throw new OrderQueueUnavailableException("ORDER_QUEUE_FULL", "order queue is full", null);
+        }
+    }
+
+    private void drain() {
+        while (accepting || !ring.isEmpty()) {
+            try {
+                OrderCommand next = ring.poll(100, TimeUnit.MILLISECONDS);
+                if (next != null) {
+                    handler.handle(next);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
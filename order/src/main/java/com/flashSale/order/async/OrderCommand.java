@@ -0,0 +1,13 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.dto.CreateOrderRequest;
+
+/**
+ * An accepted order waiting for a worker; its idempotency key is already IN_PROGRESS.
+ */
+public record OrderCommand(
+        Long userId,
+        String idempotencyKey,
+        CreateOrderRequest request
+) {
+}
@@ -0,0 +1,75 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.exception.OrderClaimedException;
+import com.flashSale.order.service.OrderService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drives the saga of one command for whichever queue delivered it.
+ *
+ * Business failures end as a FAILED order inside the saga. Anything thrown (DB down, ...)
+ * is retried max-attempts times, then the idempotency key is abandoned so the client's
+ * poll answers 404 and the order can be submitted again with the same key. A delivery that
+ * finds the key claimed by another one waits without using up an attempt.
+ */
+@Slf4j
+@Component
+public class OrderCommandHandler {
+
+    private final OrderService orderService;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    public OrderCommandHandler(
+            OrderService orderService,
+            @Value("${order.async.max-attempts:3}") int maxAttempts,
+            @Value("${order.async.retry-backoff-ms:200}") long retryBackoffMs) {
+        this.orderService = orderService;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+    }
+
+    public void handle(OrderCommand command) {
+        int failures = 0;
+        while (true) {
+            long backoffMs;
+            try {
+                orderService.processOrder(command.userId(), command.idempotencyKey(), command.request());
+                return;
+            } catch (OrderClaimedException e) {
+                // another delivery is running the saga: wait for it to finish or its claim to run out
+                log.info("Async order claimed elsewhere, waiting: userId={}, idemKey={}, retryAfterMs={}",
+                        command.userId(), command.idempotencyKey(), e.getRetryAfter().toMillis());
+                backoffMs = Math.max(e.getRetryAfter().toMillis(), retryBackoffMs);
+            } catch (RuntimeException e) {
+                failures++;
+                if (failures >= maxAttempts) {
+                    log.error("Async order failed, abandoning: userId={}, idemKey={}, attempts={}",
+                            command.userId(), command.idempotencyKey(), failures, e);
+                    abandon(command);
+                    return;
+                }
+                log.warn("Async order attempt failed, retrying: userId={}, idemKey={}, attempt={}, error={}",
+                        command.userId(), command.idempotencyKey(), failures, e.toString());
+                backoffMs = retryBackoffMs * failures;
+            }
+            try {
+                Thread.sleep(backoffMs);
+            } catch (InterruptedException ie) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private void abandon(OrderCommand command) {
+        try {
+            orderService.abandonOrder(command.userId(), command.idempotencyKey());
+        } catch (RuntimeException e) {
+            log.error("Abandon failed, key stays IN_PROGRESS: userId={}, idemKey={}",
+                    command.userId(), command.idempotencyKey(), e);
+        }
+    }
+}
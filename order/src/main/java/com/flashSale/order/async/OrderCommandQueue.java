@@ -0,0 +1,16 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.exception.OrderQueueUnavailableException;
+
+/**
+ * Carries accepted orders from the HTTP thread to the workers. Implementations consume
+ * their own commands and hand them to OrderCommandHandler.
+ */
+public interface OrderCommandQueue {
+    /**
+     * Returns once the command is queued.
+     *
+     * @throws OrderQueueUnavailableException the command was not queued
+     */
+    void publish(OrderCommand command);
+}
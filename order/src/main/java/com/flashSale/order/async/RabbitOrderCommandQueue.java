@@ -0,0 +1,63 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.exception.OrderQueueUnavailableException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+/**
+ * Commands on a durable RabbitMQ queue, consumed by order.async.workers listener threads
+ * across all order instances.
+ *
+ * publish() waits for the broker's confirm (spring.rabbitmq.publisher-confirm-type=simple),
+ * so a 202 is only answered for a command the broker has. A command is acked once handled;
+ * one in flight on a crashed instance is redelivered and its saga replays idempotently.
+ */
+@Slf4j
+@Component
+@ConditionalOnClass(name = "org.springframework.amqp.rabbit.core.RabbitTemplate")
+@ConditionalOnProperty(name = "order.async.queue", havingValue = "rabbit")
+public class RabbitOrderCommandQueue implements OrderCommandQueue {
+
+    private final RabbitTemplate rabbitTemplate;
+    private final OrderCommandHandler handler;
+    private final Queue queue;
+    private final long confirmTimeoutMs;
+
+    public RabbitOrderCommandQueue(
+            RabbitTemplate rabbitTemplate,
+            OrderCommandHandler handler,
+            Queue orderCommandQueue,
+            @Value("${order.async.rabbit.confirm-timeout-ms:5000}") long confirmTimeoutMs) {
+        this.rabbitTemplate = rabbitTemplate;
+        this.handler = handler;
+        this.queue = orderCommandQueue;
+        this.confirmTimeoutMs = confirmTimeoutMs;
+    }
+
+    @Override
+    public void publish(OrderCommand command) {
+        try {
+            rabbitTemplate.invoke(ops -> {
+                ops.convertAndSend("", queue.getName(), command);
+                ops.waitForConfirmsOrDie(confirmTimeoutMs);
+                return null;
+            });
+        } catch (AmqpException e) {
+            log.error("Order command not published: userId={}, idemKey={}",
+                    command.userId(), command.idempotencyKey(), e);
+            throw new OrderQueueUnavailableException("ORDER_QUEUE_UNAVAILABLE", "order queue is unavailable", e);
+        }
+    }
+
+    @RabbitListener(queues = "#{orderCommandQueue.name}", concurrency = "${order.async.workers:8}")
+    void onCommand(OrderCommand command) {
+        handler.handle(command);
+    }
+}
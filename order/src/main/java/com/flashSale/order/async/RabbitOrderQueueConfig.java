@@ -0,0 +1,39 @@
+package com.flashSale.order.async;
+
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.amqp.RabbitAutoConfiguration;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Declares the command queue (durable, created on first connection) and sends commands
+ * as JSON; Spring Boot wires the converter into the template and the listener containers.
+ *
+ * RabbitAutoConfiguration is excluded app-wide (spring.autoconfigure.exclude) and only
+ * imported here, so the in-process mode opens no broker connection and has no rabbit health check.
+ */
+@Configuration
+@ConditionalOnClass(name = "org.springframework.amqp.rabbit.core.RabbitTemplate")
+@ConditionalOnProperty(name = "order.async.queue", havingValue = "rabbit")
+@ImportAutoConfiguration(RabbitAutoConfiguration.class)
+public class RabbitOrderQueueConfig {
+
+    @Bean
+    public Queue orderCommandQueue(@Value("${order.async.rabbit.queue:order.commands}") String name) {
+        return new Queue(name, true);
+    }
+
+    @Bean
+    public MessageConverter orderCommandMessageConverter() {
+        Jackson2JsonMessageConverter converter = new Jackson2JsonMessageConverter();
+        // the listener's parameter type decides, not a class name from the message headers
+        converter.setAlwaysConvertToInferredType(true);
+        return converter;
+    }
+}
@@ -0,0 +1,143 @@
+package com.flashSale.order.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.JdkClientHttpRequestFactory;
+import org.springframework.web.client.RestClient;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP transport for the inventory and catalog clients.
+ *
+ * Default: a keep-alive connection pool per downstream (Apache HttpClient 5) with
+ * <service>.pool.max-per-route / max-total, exported as httpcomponents.httpclient.pool.*{httpclient=<service>}.
+ * Every call is bounded: pool lease (order.http.lease-timeout-ms), connect
+ * (<service>.connect-timeout-ms) and response (<service>.timeout-ms). Any of them surfaces as
+ * ResourceAccessException, which the clients map to Inventory/CatalogTimeoutException.
+ *
+ * order.http.http2=true uses the JDK client instead: HTTP/2 (h2c upgrade, falls back to HTTP/1.1)
+ * multiplexes calls over one connection per host, so the pool limits and pool metrics do not apply.
+ */
+@Slf4j
+@Configuration
+public class HttpClientConfig {
+
+    private final MeterRegistry meterRegistry;
+    private final boolean http2;
+    private final long leaseTimeoutMs;
+    private final long idleEvictMs;
+    private final List<CloseableHttpClient> pooled = new ArrayList<>();
+
+    public HttpClientConfig(
+            MeterRegistry meterRegistry,
+            @Value("${order.http.http2:false}") boolean http2,
+            @Value("${order.http.lease-timeout-ms:500}") long leaseTimeoutMs,
+            @Value("${order.http.idle-evict-ms:30000}") long idleEvictMs) {
+        this.meterRegistry = meterRegistry;
+        this.http2 = http2;
+        this.leaseTimeoutMs = leaseTimeoutMs;
+        this.idleEvictMs = idleEvictMs;
+    }
+
+    @Bean
+    public RestClient inventoryRestClient(
+            @Value("${inventory.base-url:http://localhost:8083}") String baseUrl,
+            @Value("${inventory.connect-timeout-ms:500}") long connectTimeoutMs,
+            @Value("${inventory.timeout-ms:1500}") long timeoutMs,
+            @Value("${inventory.pool.max-per-route:100}") int maxPerRoute,
+            @Value("${inventory.pool.max-total:200}") int maxTotal) {
+        return restClient("inventory", baseUrl, connectTimeoutMs, timeoutMs, maxPerRoute, maxTotal);
+    }
+
+    @Bean
+    public RestClient catalogRestClient(
+            @Value("${catalog.base-url:http://localhost:8082}") String baseUrl,
+            @Value("${catalog.connect-timeout-ms:500}") long connectTimeoutMs,
+            @Value("${catalog.timeout-ms:1000}") long timeoutMs,
+            @Value("${catalog.pool.max-per-route:50}") int maxPerRoute,
+            @Value("${catalog.pool.max-total:100}") int maxTotal) {
+        return restClient("catalog", baseUrl, connectTimeoutMs, timeoutMs, maxPerRoute, maxTotal);
+    }
+
+    RestClient restClient(String name, String baseUrl, long connectTimeoutMs, long timeoutMs,
+                          int maxPerRoute, int maxTotal) {
+        ClientHttpRequestFactory factory = http2
+                ? jdkFactory(connectTimeoutMs, timeoutMs)
+                : pooledFactory(name, connectTimeoutMs, timeoutMs, maxPerRoute, maxTotal);
+        log.info("http client: name={}, baseUrl={}, http2={}, connectTimeoutMs={}, timeoutMs={}, maxPerRoute={}",
+                name, baseUrl, http2, connectTimeoutMs, timeoutMs, maxPerRoute);
+        return RestClient.builder()
+                .baseUrl(baseUrl)
+                .requestFactory(factory)
+                .build();
+    }
+
+    private ClientHttpRequestFactory pooledFactory(String name, long connectTimeoutMs, long timeoutMs,
+                                                   int maxPerRoute, int maxTotal) {
+        PoolingHttpClientConnectionManager connections = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnPerRoute(maxPerRoute)
+                .setMaxConnTotal(maxTotal)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setSocketTimeout(Timeout.ofMilliseconds(timeoutMs))
+                        // a pooled connection the server may have closed is checked before reuse
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                        .build())
+                .build();
+        CloseableHttpClient client = HttpClients.custom()
+                .setConnectionManager(connections)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofMilliseconds(leaseTimeoutMs))
+                        .setResponseTimeout(Timeout.ofMilliseconds(timeoutMs))
+                        .build())
+                .evictIdleConnections(TimeValue.ofMilliseconds(idleEvictMs))
+                .evictExpiredConnections()
+                // a call that timed out is not resent: reserve/commit must not run twice behind our back
+                .disableAutomaticRetries()
+                .build();
+        new PoolingHttpClientConnectionManagerMetricsBinder(connections, name).bindTo(meterRegistry);
+        pooled.add(client);
+        return new HttpComponentsClientHttpRequestFactory(client);
+    }
+
+    private static ClientHttpRequestFactory jdkFactory(long connectTimeoutMs, long timeoutMs) {
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .build();
+        JdkClientHttpRequestFactory factory = new JdkClientHttpRequestFactory(client);
+        factory.setReadTimeout(Duration.ofMillis(timeoutMs));
+        return factory;
+    }
+
+    @PreDestroy
+    void close() {
+        for (CloseableHttpClient client : pooled) {
+            try {
+                client.close();
+            } catch (IOException e) {
+                log.warn("http client close failed: {}", e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.flashSale.order.client.catalog;
+
+import com.flashSale.order.dto.TicketResponse;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Local ticket (price) cache in front of catalog. A cart whose tickets are all cached
+ * costs no catalog call; the misses of a cart are loaded in one batch call.
+ *
+ * Entries are reloaded in the background once older than refresh-ms (readers keep the
+ * old value meanwhile) and dropped after ttl-ms, which bounds a stale read when the
+ * change notification from catalog is lost or catalog is unreachable.
+ * Hit ratio is exported as cache.gets{cache=catalog.tickets, result=hit|miss}.
+ */
+@Slf4j
+@Primary
+@Component
+@ConditionalOnProperty(prefix = "order.price-cache", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class CachingCatalogClient implements CatalogClient {
+
+    private final CatalogClient delegate;
+    private final ExecutorService refresher;
+    private final LoadingCache<Long, TicketResponse> cache;
+
+    public CachingCatalogClient(
+            CatalogClientImpl delegate,
+            MeterRegistry meterRegistry,
+            @Value("${order.price-cache.max-size:10000}") long maxSize,
+            @Value("${order.price-cache.ttl-ms:60000}") long ttlMs,
+            @Value("${order.price-cache.refresh-ms:10000}") long refreshMs) {
+        this.delegate = delegate;
+        this.refresher = Executors.newFixedThreadPool(2, r -> {
+            Thread t = new Thread(r, "price-cache-refresh");
+            t.setDaemon(true);
+            return t;
+        });
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .refreshAfterWrite(Duration.ofMillis(refreshMs))
+                .executor(refresher)
+                .recordStats()
+                .build(new CacheLoader<>() {
+                    @Override
+                    public TicketResponse load(Long ticketId) {
+                        return delegate.getTicket(ticketId);
+                    }
+
+                    @Override
+                    public Map<Long, TicketResponse> loadAll(Set<? extends Long> ticketIds) {
+                        return delegate.getTickets(Set.copyOf(ticketIds));
+                    }
+                });
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "catalog.tickets");
+    }
+
+    @Override
+    public TicketResponse getTicket(Long ticketId) {
+        return cache.get(ticketId);
+    }
+
+    @Override
+    public Map<Long, TicketResponse> getTickets(Collection<Long> ticketIds) {
+        return cache.getAll(ticketIds);
+    }
+
+    /** Change notification from catalog: the next lookup reads the new ticket. */
+    public void invalidate(Long ticketId) {
+        cache.invalidate(ticketId);
+        log.info("price cache invalidated: ticketId={}", ticketId);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        refresher.shutdownNow();
+    }
+}
@@ -2,6 +2,14 @@ package com.flashSale.order.client.catalog;
 
 import com.flashSale.order.dto.TicketResponse;
 
+import java.util.Collection;
+import java.util.Map;
+
 public interface CatalogClient {
     TicketResponse getTicket(Long ticketId);
+
+    /**
+     * All tickets in one call, keyed by id; fails with TicketNotFoundException if any is unknown.
+     */
+    Map<Long, TicketResponse> getTickets(Collection<Long> ticketIds);
 }
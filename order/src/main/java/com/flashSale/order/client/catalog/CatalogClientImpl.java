@@ -5,20 +5,26 @@ import com.flashSale.order.exception.CatalogErrorException;
 import com.flashSale.order.exception.CatalogTimeoutException;
 import com.flashSale.order.exception.NotFoundException;
 import com.flashSale.order.exception.TicketNotFoundException;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Component
 public class CatalogClientImpl implements CatalogClient{
     private final RestClient client;
 
-    public CatalogClientImpl(){
-        this.client = RestClient.builder()
-                .baseUrl("http://localhost:8082")
-                .build();
+    public CatalogClientImpl(@Qualifier("catalogRestClient") RestClient client) {
+        this.client = client;
     }
 
     @Override
@@ -41,4 +47,35 @@ public class CatalogClientImpl implements CatalogClient{
             throw new CatalogTimeoutException("CATALOG_TIMEOUT", e);
         }
     }
+
+    @Override
+    public Map<Long, TicketResponse> getTickets(Collection<Long> ticketIds) {
+        String ids = ticketIds.stream().map(String::valueOf).collect(Collectors.joining(","));
+        List<TicketResponse> tickets;
+        try{
+            tickets = client.get()
+                    .uri("/catalog/tickets?ids={ids}", ids)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is5xxServerError, (req, res) ->{
+                        // 500 error
+                        throw new CatalogErrorException("CATALOG_5XX_" + res.getStatusCode().value());
+                    })
+                    .body(new ParameterizedTypeReference<List<TicketResponse>>() {});
+        } catch (ResourceAccessException e) {
+            throw new CatalogTimeoutException("CATALOG_TIMEOUT", e);
+        }
+
+        Map<Long, TicketResponse> byId = new HashMap<>();
+        if (tickets != null) {
+            tickets.forEach(t -> byId.put(t.getId(), t));
+        }
+        // catalog leaves unknown ids out of the batch
+        for (Long id : ticketIds) {
+            if (!byId.containsKey(id)) {
+                throw new TicketNotFoundException("Ticket not found: " + id);
+            }
+        }
+        return byId;
+    }
 }
@@ -1,9 +1,18 @@
 package com.flashSale.order.client.inventory;
 
+import com.flashSale.order.dto.BatchTransitionResult;
 import com.flashSale.order.dto.ReservationResponse;
+import com.flashSale.order.dto.ReserveRequest;
+
+import java.util.List;
 
 public interface InventoryClient {
-    ReservationResponse reserve(String reservationId, Long ticketId, int qty);
+    ReservationResponse reserve(String reservationId, Long ticketId, int qty, Long userId);
+    /** All-or-nothing: either every item is reserved or none is. Results in request order. */
+    List<ReservationResponse> reserveAll(List<ReserveRequest> items);
     ReservationResponse release(String reservationId);
     ReservationResponse commit(String reservationId);
+    /** One call, one inventory tx. Per-id results in request order, failed ids carry an error code. */
+    List<BatchTransitionResult> commitAll(List<String> reservationIds);
+    List<BatchTransitionResult> releaseAll(List<String> reservationIds);
 }
@@ -1,10 +1,17 @@
 package com.flashSale.order.client.inventory;
 
+import com.flashSale.order.dto.BatchReservationResponse;
+import com.flashSale.order.dto.BatchReserveRequest;
+import com.flashSale.order.dto.BatchTransitionRequest;
+import com.flashSale.order.dto.BatchTransitionResponse;
+import com.flashSale.order.dto.BatchTransitionResult;
 import com.flashSale.order.dto.ReservationResponse;
 import com.flashSale.order.dto.ReserveRequest;
 import com.flashSale.order.exception.InsufficientStockException;
 import com.flashSale.order.exception.InventoryErrorException;
 import com.flashSale.order.exception.InventoryTimeoutException;
+import com.flashSale.order.exception.PurchaseLimitExceededException;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
@@ -13,20 +20,21 @@ import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestClient;
 import org.springframework.web.client.RestClientResponseException;
 
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
 @Component
 public class InventoryClientImpl implements InventoryClient{
     private final RestClient client;
 
-    public InventoryClientImpl() {
-        this.client = RestClient.builder()
-                .baseUrl("http://localhost:8083")
-                .build();
+    public InventoryClientImpl(@Qualifier("inventoryRestClient") RestClient client) {
+        this.client = client;
     }
 
 
     @Override
-    public ReservationResponse reserve(String reservationId, Long ticketId, int qty) {
-        ReserveRequest body = new ReserveRequest(reservationId, ticketId, qty);
+    public ReservationResponse reserve(String reservationId, Long ticketId, int qty, Long userId) {
+        ReserveRequest body = new ReserveRequest(reservationId, ticketId, qty, userId);
 
         try{
             return client.post()
@@ -36,7 +44,7 @@ public class InventoryClientImpl implements InventoryClient{
                     .body(body)
                     .retrieve()
                     .onStatus(status -> status.value() == 409, (req, res) ->{
-                        throw new InsufficientStockException("INSUFFICIENT_STOCK");
+                        throw conflict(new String(res.getBody().readAllBytes(), StandardCharsets.UTF_8));
                     })
                     .onStatus(HttpStatusCode::is4xxClientError, (req, res) -> {
                         throw new InventoryErrorException("INVENTORY_4XX_" + res.getStatusCode().value());
@@ -51,7 +59,40 @@ public class InventoryClientImpl implements InventoryClient{
         } catch (RestClientResponseException e) {
             // 兜底：理论上 onStatus 已处理，但留一层保险
             if (e.getStatusCode().value() == 409) {
-                throw new InsufficientStockException("INSUFFICIENT_STOCK");
+                throw conflict(e.getResponseBodyAsString());
+            }
+            throw new InventoryErrorException("INVENTORY_HTTP_" + e.getStatusCode().value());
+        }
+    }
+
+    @Override
+    public List<ReservationResponse> reserveAll(List<ReserveRequest> items) {
+        BatchReserveRequest body = new BatchReserveRequest(items);
+
+        try{
+            BatchReservationResponse batch = client.post()
+                    .uri("/inventory/reservations:batch")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(body)
+                    .retrieve()
+                    .onStatus(status -> status.value() == 409, (req, response) ->{
+                        // nothing was reserved, no compensation needed
+                        throw conflict(new String(response.getBody().readAllBytes(), StandardCharsets.UTF_8));
+                    })
+                    .onStatus(HttpStatusCode::is4xxClientError, (req, response) -> {
+                        throw new InventoryErrorException("INVENTORY_4XX_" + response.getStatusCode().value());
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, (req, response) -> {
+                        throw new InventoryErrorException("INVENTORY_5XX_" + response.getStatusCode().value());
+                    })
+                    .body(BatchReservationResponse.class);
+            return batch == null ? List.of() : batch.results();
+        } catch (ResourceAccessException timeoutOrConn) {
+            throw new InventoryTimeoutException("INVENTORY_TIMEOUT", timeoutOrConn);
+        } catch (RestClientResponseException e) {
+            if (e.getStatusCode().value() == 409) {
+                throw conflict(e.getResponseBodyAsString());
             }
             throw new InventoryErrorException("INVENTORY_HTTP_" + e.getStatusCode().value());
         }
@@ -96,4 +137,46 @@ public class InventoryClientImpl implements InventoryClient{
             throw new InventoryTimeoutException("INVENTORY_TIMEOUT", e);
         }
     }
+
+    @Override
+    public List<BatchTransitionResult> commitAll(List<String> reservationIds) {
+        return transitionAll("/inventory/reservations:commit", reservationIds);
+    }
+
+    @Override
+    public List<BatchTransitionResult> releaseAll(List<String> reservationIds) {
+        return transitionAll("/inventory/reservations:release", reservationIds);
+    }
+
+    /**
+     * A reserve 409 is out of stock unless inventory says the user's per-ticket limit was hit.
+     */
+    private static RuntimeException conflict(String body) {
+        if (body != null && body.contains("\"PER_USER_LIMIT_EXCEEDED\"")) {
+            return new PurchaseLimitExceededException("PER_USER_LIMIT_EXCEEDED");
+        }
+        return new InsufficientStockException("INSUFFICIENT_STOCK");
+    }
+
+    private List<BatchTransitionResult> transitionAll(String uri, List<String> reservationIds) {
+        try{
+            // per-id failures come back in the 200 body, any error status is a failure of the whole call
+            BatchTransitionResponse batch = client.post()
+                    .uri(uri)
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .accept(MediaType.APPLICATION_JSON)
+                    .body(new BatchTransitionRequest(reservationIds))
+                    .retrieve()
+                    .onStatus(HttpStatusCode::is4xxClientError, (req, res) -> {
+                        throw new InventoryErrorException("INVENTORY_4XX_" + res.getStatusCode().value());
+                    })
+                    .onStatus(HttpStatusCode::is5xxServerError, (req, res) -> {
+                        throw new InventoryErrorException("INVENTORY_5XX_" + res.getStatusCode().value());
+                    })
+                    .body(BatchTransitionResponse.class);
+            return batch == null ? List.of() : batch.results();
+        } catch (ResourceAccessException e) {
+            throw new InventoryTimeoutException("INVENTORY_TIMEOUT", e);
+        }
+    }
 }
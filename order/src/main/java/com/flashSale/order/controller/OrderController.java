@@ -1,6 +1,8 @@
 package com.flashSale.order.controller;
 
+import com.flashSale.order.async.AsyncOrderSubmitter;
 import com.flashSale.order.dto.CreateOrderRequest;
+import com.flashSale.order.dto.OrderAcceptedResponse;
 import com.flashSale.order.dto.OrderResponse;
 import com.flashSale.order.service.OrderService;
 import jakarta.validation.Valid;
@@ -9,19 +11,42 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 public class OrderController {
 
     private final OrderService orderService;
+    private final AsyncOrderSubmitter asyncOrders;
+
+    private static final String RESPOND_ASYNC = "respond-async";
 
+    /**
+     * Sync by default: 201 with the finished order, 200 for a key used before.
+     *
+     * Async with "Prefer: respond-async" (RFC 7240, any case, next to other preferences):
+     * 202 once the order is queued, the saga runs on a worker; poll GET /orders/admin with
+     * the same Idempotency-Key. A finished key answers 200.
+     */
     @PostMapping
-    public ResponseEntity<OrderResponse> create(
+    public ResponseEntity<?> create(
             @RequestHeader("Idempotency-Key") String idempotencyKey,
             @RequestBody @Valid CreateOrderRequest req,
-            @RequestHeader("X-User-Id") Long userId
+            @RequestHeader("X-User-Id") Long userId,
+            @RequestHeader(value = "Prefer", required = false) List<String> prefer
     ) {
+        if (prefersAsync(prefer)) {
+            var accepted = asyncOrders.submit(userId, idempotencyKey, req);
+            if (accepted.existing() != null) {
+                return ResponseEntity.ok(accepted.existing());
+            }
+            return ResponseEntity.accepted()
+                    .header("Preference-Applied", RESPOND_ASYNC)
+                    .body(new OrderAcceptedResponse(idempotencyKey, "ACCEPTED"));
+        }
+
         var result = orderService.createOrder(userId, idempotencyKey, req);
         if(result.created()) {
             return ResponseEntity.status(201).body(result.response());
@@ -29,6 +54,25 @@ public class OrderController {
         return ResponseEntity.ok(result.response());
     }
 
+    /**
+     * Prefer values are comma separated preferences, each a token with optional "=value"
+     * and ";param" parts; the header may also be repeated.
+     */
+    static boolean prefersAsync(List<String> prefer) {
+        if (prefer == null) {
+            return false;
+        }
+        for (String header : prefer) {
+            for (String preference : header.split(",")) {
+                String token = preference.split("[;=]", 2)[0].trim();
+                if (token.equalsIgnoreCase(RESPOND_ASYNC)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<OrderResponse> getOrderById(
             @PathVariable("id") Long id,
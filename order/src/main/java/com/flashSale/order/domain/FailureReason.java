@@ -6,5 +6,6 @@ public enum FailureReason {
     INVENTORY_ERROR,
     INVALID_REQUEST,
     CATALOG_ERROR,
-    CATALOG_TIMEOUT
+    CATALOG_TIMEOUT,
+    PER_USER_LIMIT_EXCEEDED
 }
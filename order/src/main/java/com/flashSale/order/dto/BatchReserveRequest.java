@@ -0,0 +1,8 @@
+package com.flashSale.order.dto;
+
+import java.util.List;
+
+public record BatchReserveRequest(
+        List<ReserveRequest> items
+) {
+}
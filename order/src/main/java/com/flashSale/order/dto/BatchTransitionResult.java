@@ -0,0 +1,13 @@
+package com.flashSale.order.dto;
+
+/**
+ * @param error error code inventory would have answered for the single call, null on success
+ */
+public record BatchTransitionResult(
+        String reservationId,
+        Long ticketId,
+        Integer qty,
+        String status,
+        String error
+) {
+}
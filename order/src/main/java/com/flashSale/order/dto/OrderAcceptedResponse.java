@@ -0,0 +1,10 @@
+package com.flashSale.order.dto;
+
+/**
+ * 202 body of an async order; poll GET /orders/admin with the same Idempotency-Key.
+ */
+public record OrderAcceptedResponse(
+        String idempotencyKey,
+        String status
+) {
+}
@@ -3,6 +3,7 @@ package com.flashSale.order.dto;
 public record ReserveRequest(
         String reservationId,
         Long ticketId,
-        Integer qty
+        Integer qty,
+        Long userId
 ) {
 }
@@ -23,4 +23,11 @@ public class GlobalExceptionHandler {
     public ResponseEntity<?> notFound(NotFoundException e) {
         return ResponseEntity.status(404).body(Map.of("code", "NOT_FOUND", "message", e.getMessage()));
     }
+
+    @ExceptionHandler(OrderQueueUnavailableException.class)
+    public ResponseEntity<?> queueUnavailable(OrderQueueUnavailableException e) {
+        return ResponseEntity.status(503)
+                .header("Retry-After", "1")
+                .body(Map.of("code", e.getCode(), "message", e.getMessage()));
+    }
 }
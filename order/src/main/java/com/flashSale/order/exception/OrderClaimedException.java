@@ -0,0 +1,19 @@
+package com.flashSale.order.exception;
+
+import java.time.Duration;
+
+/**
+ * Another worker attempt holds the async order's claim; retry once it has run out.
+ */
+public class OrderClaimedException extends RuntimeException {
+    private final Duration retryAfter;
+
+    public OrderClaimedException(Duration retryAfter) {
+        super("ORDER_CLAIMED");
+        this.retryAfter = retryAfter;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package com.flashSale.order.exception;
+
+public class OrderQueueUnavailableException extends RuntimeException {
+    private final String code;
+
+    public OrderQueueUnavailableException(String code, String message, Throwable cause) {
+        super(message, cause);
+        this.code = code;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,7 @@
+package com.flashSale.order.exception;
+
+public class PurchaseLimitExceededException extends RuntimeException {
+    public PurchaseLimitExceededException(String message) {
+        super(message);
+    }
+}
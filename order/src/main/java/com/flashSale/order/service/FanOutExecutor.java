@@ -0,0 +1,131 @@
+package com.flashSale.order.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Runs the remote calls of one order concurrently, all-or-nothing.
+ *
+ * Calls run on virtual threads when the JVM has them (Java 21+) and order.fanout.virtual-threads
+ * is on, otherwise on a fixed pool whose bounded queue falls back to the caller's thread.
+ *
+ * The first failing call aborts its scope: calls that have not started are cancelled, calls
+ * already on the wire finish, so after join() every call's effect is known (a started reserve
+ * either reserved or failed, never "maybe").
+ */
+@Slf4j
+@Component
+public class FanOutExecutor {
+
+    private final ExecutorService executor;
+
+    public FanOutExecutor(
+            @Value("${order.fanout.virtual-threads:true}") boolean virtualThreads,
+            @Value("${order.fanout.threads:64}") int threads,
+            @Value("${order.fanout.queue-capacity:1000}") int queueCapacity) {
+        ExecutorService virtual = virtualThreads ? virtualThreadExecutor() : null;
+        if (virtual != null) {
+            this.executor = virtual;
+            log.info("order fan-out on virtual threads");
+        } else {
+            AtomicInteger seq = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    r -> {
+                        Thread t = new Thread(r, "order-fanout-" + seq.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            log.info("order fan-out on a fixed pool: threads={}, queueCapacity={}", threads, queueCapacity);
+        }
+    }
+
+    public Scope open() {
+        return new Scope();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+
+    /** Calls of one order. Not thread-safe: submit and join from the request thread. */
+    public final class Scope {
+        private static final int NEW = 0, RUNNING = 1, CANCELLED = 2;
+
+        private record Call(AtomicInteger state, CompletableFuture<?> result) {}
+
+        private final List<Call> calls = new CopyOnWriteArrayList<>();
+        private final AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+
+        public <T> CompletableFuture<T> submit(Supplier<T> supplier) {
+            CompletableFuture<T> result = new CompletableFuture<>();
+            Call call = new Call(new AtomicInteger(NEW), result);
+            calls.add(call);
+            if (firstFailure.get() != null) {
+                cancel(call);
+                return result;
+            }
+            executor.execute(() -> {
+                if (!call.state().compareAndSet(NEW, RUNNING)) {
+                    return;
+                }
+                try {
+                    result.complete(supplier.get());
+                } catch (Throwable e) {
+                    result.completeExceptionally(e);
+                    abort(e);
+                }
+            });
+            return result;
+        }
+
+        /**
+         * Wait until every call completed or was cancelled.
+         *
+         * @return the first failure, null if every call succeeded
+         */
+        public Throwable join() {
+            for (Call call : calls) {
+                try {
+                    call.result().join();
+                } catch (CancellationException | CompletionException e) {
+                    // reported through firstFailure
+                }
+            }
+            return firstFailure.get();
+        }
+
+        private void abort(Throwable cause) {
+            if (firstFailure.compareAndSet(null, cause)) {
+                calls.forEach(this::cancel);
+            }
+        }
+
+        private void cancel(Call call) {
+            if (call.state().compareAndSet(NEW, CANCELLED)) {
+                call.result().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Executors.newVirtualThreadPerTaskExecutor() if this JVM has it; compiled for Java 17.
+     */
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
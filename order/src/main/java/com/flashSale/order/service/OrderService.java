@@ -6,6 +6,9 @@ import org.springframework.data.domain.Page;
 
 public interface OrderService {
     OrderServiceImpl.CreateResult createOrder(Long userId, String idemKey, CreateOrderRequest req);
+    OrderServiceImpl.AcceptResult acceptOrder(Long userId, String idemKey, CreateOrderRequest req);
+    void processOrder(Long userId, String idemKey, CreateOrderRequest req);
+    void abandonOrder(Long userId, String idemKey);
     OrderResponse getOrder(Long userId, Long id);
     Page<OrderResponse> listOrders(Long userId, String status, int page, int size, String sort);
     OrderResponse getByIdempotencyKey(Long userId, String idemKey);
@@ -3,6 +3,7 @@ package com.flashSale.order.service;
 import com.flashSale.order.client.catalog.CatalogClient;
 import com.flashSale.order.client.inventory.InventoryClient;
 import com.flashSale.order.domain.*;
+import com.flashSale.order.dto.BatchTransitionResult;
 import com.flashSale.order.dto.CreateOrderRequest;
 import com.flashSale.order.dto.OrderResponse;
 import com.flashSale.order.dto.ReservationResponse;
@@ -12,6 +13,7 @@ import com.flashSale.order.repository.IdempotencyKeyRepository;
 import com.flashSale.order.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.data.domain.Page;
@@ -20,9 +22,14 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 @Service
 @Slf4j
@@ -33,10 +40,29 @@ public class OrderServiceImpl implements OrderService{
     private final JdbcTemplate jdbcTemplate;
     private final InventoryClient inventoryClient;
     private final CatalogClient catalogClient;
+    private final FanOutExecutor fanOut;
+    private final TransactionTemplate txTemplate;
+
+    @Value("${order.async.claim-lease-ms:30000}")
+    private long claimLeaseMs = 30_000;
 
     /** 返回值里带 created=true/false 用于 controller 决定 201 or 200 */
     public record CreateResult(OrderResponse response, boolean created) {}
 
+    /**
+     * @param existing the finished order if the key was used before (200)
+     * @param accepted the key was recorded now and the command must be published
+     */
+    public record AcceptResult(OrderResponse existing, boolean accepted) {}
+
+    /**
+     * Persists the finished (CONFIRMED / FAILED) order and completes its idempotency key.
+     * Returns null if the key is no longer this attempt's to complete.
+     */
+    private interface Outcome {
+        Order complete(Order order);
+    }
+
     @Override
     @Transactional
     public CreateResult createOrder(Long userId, String idemKey, CreateOrderRequest req) {
@@ -69,68 +95,191 @@ public class OrderServiceImpl implements OrderService{
             }
 
             // COMPLETED: 返回已创建订单（200）
-            Long orderId = existing.getOrderId();
-            if(orderId == null) {
-                log.error("Idem anomaly: COMPLETED but orderId is null. userId={}, idemKey={}",
-                        userId, existing.getIdempotencyKey());
-                // 理论不该发生，保护一下
-                throw new RequestInProgressException();
+            return new CreateResult(toResponse(completedOrder(userId, existing)), false);
+        }
+
+        // the whole saga runs in this tx
+        return runSaga(userId, idemKey, req, normalized, order -> {
+            Order saved = orderRepo.save(order);
+            markIdemCompleted(userId, idemKey, saved.getId());
+            return saved;
+        });
+    }
+
+    /**
+     * Async mode, step 1: validate and record the idempotency key (IN_PROGRESS) in its own tx,
+     * so a worker can find it once the command is published.
+     */
+    @Override
+    @Transactional
+    public AcceptResult acceptOrder(Long userId, String idemKey, CreateOrderRequest req) {
+        if (idemKey == null || idemKey.isBlank()) {
+            throw new BadRequestException("Missing Idempotency_Key");
+        }
+        normalizeItems(req);
+
+        try {
+            tryInsertIdemInProgress(userId, idemKey);
+            log.info("Idem recorded for async order: userId={}, idemKey={}", userId, idemKey);
+            return new AcceptResult(null, true);
+        } catch (DataIntegrityViolationException dup) {
+            IdempotencyKey existing = idemRepo.findByUserIdAndIdempotencyKey(userId, idemKey)
+                    .orElseThrow(() -> dup);
+            if (existing.getStatus() == IdempotencyStatus.IN_PROGRESS) {
+                // accepted before and not finished yet: same 202, nothing is published again
+                log.info("Idem IN_PROGRESS on async submit: userId={}, idemKey={} -> 202", userId, idemKey);
+                return new AcceptResult(null, false);
             }
+            return new AcceptResult(toResponse(completedOrder(userId, existing)), false);
+        }
+    }
 
-            log.info("Idem COMPLETED: userId={}, idemKey={}, orderId={}, -> return existing (200)",
-                    userId, idemKey, orderId);
-            Order order = orderRepo.findByIdAndUserId(orderId, userId)
-                    .orElseThrow(() -> {
-                        log.error("Idem anomaly: COMPLETED but order not found. userId={}, idemKey={}, orderId={}",
-                                userId, idemKey, orderId);
-                        return new RequestInProgressException();
-                    });
+    /**
+     * Async mode, step 2 (queue worker): run the saga for an accepted order. No DB connection
+     * or row lock is held across the remote calls:
+     * 1) claim: one UPDATE leases the IN_PROGRESS key to this attempt for claim-lease-ms
+     * 2) the saga, outside any tx
+     * 3) outcome tx: insert the order and complete the key, only if the claim is still ours
+     *
+     * A command redelivered while another attempt holds the claim gets OrderClaimedException.
+     * One redelivered after a crash runs the saga again once the claim has run out; reservation
+     * ids are derived from the key, so inventory replays the holds and their commit.
+     */
+    @Override
+    public void processOrder(Long userId, String idemKey, CreateOrderRequest req) {
+        List<CreateOrderRequest.Item> normalized = normalizeItems(req);
+        String claim = UUID.randomUUID().toString();
+        if (!claim(userId, idemKey, claim)) {
+            return;
+        }
+        CreateResult result;
+        try {
+            result = runSaga(userId, idemKey, req, normalized, order -> txTemplate.execute(status -> {
+                Order saved = orderRepo.save(order);
+                if (!markIdemCompleted(userId, idemKey, saved.getId(), claim)) {
+                    // the claim ran out and another attempt took the key over: its outcome counts
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return saved;
+            }));
+        } catch (RuntimeException e) {
+            releaseClaim(userId, idemKey, claim);
+            throw e;
+        }
+        if (result == null) {
+            log.warn("Async order claim lost, outcome left to the other attempt: userId={}, idemKey={}",
+                    userId, idemKey);
+        }
+    }
+
+    /**
+     * Drop an IN_PROGRESS key whose command could not be published or processed, so the
+     * client's poll answers 404 and the same key can be submitted again. A key claimed by a
+     * running attempt stays.
+     */
+    @Override
+    @Transactional
+    public void abandonOrder(Long userId, String idemKey) {
+        int deleted = jdbcTemplate.update("""
+                DELETE FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ? AND status = 'IN_PROGRESS'
+                    AND (claimed_until IS NULL OR claimed_until < ?)
+                """, userId, idemKey, Timestamp.from(Instant.now()));
+        log.warn("Idem abandoned: userId={}, idemKey={}, deleted={}", userId, idemKey, deleted);
+    }
 
-            return new CreateResult(toResponse(order), false);
+    /**
+     * @return true if the key is leased to claim now, false if there is nothing left to do
+     * @throws OrderClaimedException another attempt holds the key
+     */
+    private boolean claim(Long userId, String idemKey, String claim) {
+        Instant now = Instant.now();
+        int claimed = jdbcTemplate.update("""
+                UPDATE idempotency_keys
+                SET claim_token = ?, claimed_until = ?
+                WHERE user_id = ? AND idempotency_key = ? AND status = 'IN_PROGRESS'
+                    AND (claimed_until IS NULL OR claimed_until < ?)
+                """, claim, Timestamp.from(now.plusMillis(claimLeaseMs)), userId, idemKey, Timestamp.from(now));
+        if (claimed == 1) {
+            return true;
         }
 
-        // 3)  Reserve all items (all-or-nothing)
-        List<String> reservedIds = new ArrayList<>();
-        FailureReason reserveFailure = null;
+        List<Map<String, Object>> row = jdbcTemplate.queryForList("""
+                SELECT status, claimed_until FROM idempotency_keys
+                WHERE user_id = ? AND idempotency_key = ?
+                """, userId, idemKey);
+        if (row.isEmpty() || !IdempotencyStatus.IN_PROGRESS.name().equals(row.get(0).get("status"))) {
+            log.info("Async order skipped: userId={}, idemKey={}, idemStatus={}",
+                    userId, idemKey, row.isEmpty() ? "ABSENT" : row.get(0).get("status"));
+            return false;
+        }
+        Timestamp until = (Timestamp) row.get(0).get("claimed_until");
+        Duration left = until == null ? Duration.ZERO : Duration.between(now, until.toInstant());
+        log.info("Async order claimed by another attempt: userId={}, idemKey={}, claimLeftMs={}",
+                userId, idemKey, left.toMillis());
+        throw new OrderClaimedException(left.isNegative() ? Duration.ZERO : left);
+    }
+
+    private void releaseClaim(Long userId, String idemKey, String claim) {
+        try {
+            jdbcTemplate.update("""
+                    UPDATE idempotency_keys
+                    SET claim_token = NULL, claimed_until = NULL
+                    WHERE user_id = ? AND idempotency_key = ? AND claim_token = ?
+                    """, userId, idemKey, claim);
+        } catch (RuntimeException e) {
+            log.warn("Async order claim not released, it runs out: userId={}, idemKey={}, error={}",
+                    userId, idemKey, e.toString());
+        }
+    }
 
-        for(CreateOrderRequest.Item it :  normalized) {
+    /**
+     * Reserve, price and commit; nothing is written before outcome.complete, so the async
+     * mode needs no tx around the remote calls.
+     *
+     * @return null if outcome.complete gave up the order
+     */
+    private CreateResult runSaga(Long userId, String idemKey, CreateOrderRequest req,
+                                 List<CreateOrderRequest.Item> normalized, Outcome outcome) {
+        // 3) Reserve and price every item concurrently (all-or-nothing):
+        //    the first failure cancels the calls not yet started, in-flight calls finish
+        Map<Long, String> reservationIds = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<ReservationResponse>> reserves = new LinkedHashMap<>();
+
+        FanOutExecutor.Scope scope = fanOut.open();
+        List<Long> ticketIds = normalized.stream().map(CreateOrderRequest.Item::ticketId).toList();
+        // one catalog round trip prices the whole cart
+        CompletableFuture<Map<Long, TicketResponse>> prices = scope.submit(() -> catalogClient.getTickets(ticketIds));
+        for (CreateOrderRequest.Item it : normalized) {
             String reservationId = idemKey + ":" + it.ticketId();
-            try {
-                inventoryClient.reserve(idemKey + ":" + it.ticketId(), it.ticketId(), it.qty());
-                reservedIds.add(reservationId);
-                log.info("Inventory RESERVED: reservationId={}, ticketId={}, qty={}", reservationId, it.ticketId(), it.qty());
-            } catch (InsufficientStockException e) {
-                reserveFailure = FailureReason.INSUFFICIENT_STOCK;
-                log.warn("Inventory INSUFFICIENT_STOCK: reservationId={}, ticketId={}, qty={}", reservationId, it.ticketId(), it.qty());
-                break;
-            } catch (InventoryErrorException e) {
-                reserveFailure = FailureReason.INVENTORY_ERROR;
-                log.warn("Inventory ERROR: reservationId={}, ticketId={}, qty={}", reservationId, it.ticketId(), it.qty());
-                break;
-            } catch (InventoryTimeoutException e) {
-                reserveFailure = FailureReason.INVENTORY_TIMEOUT;
-                log.warn("Inventory TIMEOUT: reservationId={}, ticketId={}, qty={}", reservedIds, it.ticketId(), it.qty());
-                break;
-            } catch (TicketNotFoundException e) {
-                reserveFailure = FailureReason.INVALID_REQUEST;
-                log.warn("Inventory ticket not found: reservationId={}, ticketId={}, qty={}",
-                        reservationId, it.ticketId(), it.qty());
-                break;
-            } catch (Exception e) {
-                reserveFailure = FailureReason.INVENTORY_ERROR;
-                log.error("Inventory UNKNOWN_ERROR: reservationId={}, ticketId={}, qty={}", reservationId, it.ticketId(), it.qty(), e);
-                break;
+            reservationIds.put(it.ticketId(), reservationId);
+            reserves.put(it.ticketId(), scope.submit(
+                    () -> inventoryClient.reserve(reservationId, it.ticketId(), it.qty(), userId)));
+        }
+        Throwable failure = scope.join();
+
+        List<String> reservedIds = new ArrayList<>();
+        for (CreateOrderRequest.Item it : normalized) {
+            if (succeeded(reserves.get(it.ticketId()))) {
+                reservedIds.add(reservationIds.get(it.ticketId()));
+                log.info("Inventory RESERVED: reservationId={}, ticketId={}, qty={}",
+                        reservationIds.get(it.ticketId()), it.ticketId(), it.qty());
             }
         }
 
-        // 4) If reserve failed -> release already reserved, create FAILED order, mark idem completed, return
-        if(reserveFailure != null) {
-            releaseAll(reservedIds, "Reserve failed");
+        // 4) If a reserve or a price lookup failed -> release what was reserved, create FAILED order, mark idem completed, return
+        if (failure != null) {
+            Long failedTicket = failedKey(reserves, failure);
+            FailureReason reason = failedTicket != null
+                    ? reserveFailure(failure, reservationIds.get(failedTicket), userId, failedTicket)
+                    : priceFailure(failure, ticketIds);
+            releaseAll(reservedIds, failedTicket != null ? "Reserve failed" : "Get ticket price failed");
 
             Order failed = new Order();
             failed.setUserId(userId);
             failed.setStatus(OrderStatus.FAILED);
-            failed.setFailureReason(reserveFailure);
+            failed.setFailureReason(reason);
             saidFailedCurrencyAndTotals(failed, req, normalized);
             failed.setIdempotencyKey(idemKey);
 
@@ -143,18 +292,17 @@ public class OrderServiceImpl implements OrderService{
                 failed.addItem(item);
             }
 
-            Order savedFailed = orderRepo.save(failed);
-            log.info("Order FAILED created: userId={}, idemKey={}, orderId={}, reason={}",
-                    userId, idemKey, savedFailed.getId(), reserveFailure);
-
-            markIdemCompleted(userId, idemKey, savedFailed.getId());
-            log.info("Idem marked COMPLETED (FAILED): userId={}, idemKey={}, orderId={}", userId, idemKey, savedFailed.getId());
+            Order savedFailed = outcome.complete(failed);
+            if (savedFailed == null) {
+                return null;
+            }
+            log.info("Order FAILED created, idem COMPLETED: userId={}, idemKey={}, orderId={}, reason={}",
+                    userId, idemKey, savedFailed.getId(), reason);
 
             return new CreateResult(toResponse(savedFailed), true);
         }
 
-        // 5) Reserved all succeed -> Fetch ticket price from Catalog and Create order PENDING
-        FailureReason getPriceFailure = null;
+        // 5) Reserved and priced all -> order PENDING (in memory until the outcome is known)
         BigDecimal totalAmount = BigDecimal.ZERO;
 
         Order order = new Order();
@@ -162,107 +310,60 @@ public class OrderServiceImpl implements OrderService{
         order.setCurrency(req.currency() == null || req.currency().isBlank() ? "USD" : req.currency());
         order.setIdempotencyKey(idemKey);
 
-        // 用临时列表收集 items，避免失败时出现“半加半不加”
         List<OrderItem> pricedItems = new ArrayList<>();
 
+        Map<Long, TicketResponse> tickets = prices.join();
         for(CreateOrderRequest.Item it : normalized) {
-            try{
-                TicketResponse ticket = catalogClient.getTicket(it.ticketId());
-
-                // Create OrderItem
-                OrderItem item = new OrderItem();
-                item.setTicketId((it.ticketId()));
-                item.setQty(it.qty());
-                item.setUnitPrice(ticket.getPrice());
-
-                BigDecimal lineAmount = ticket.getPrice().multiply(BigDecimal.valueOf(it.qty()));
-                totalAmount = totalAmount.add(lineAmount);
-
-                pricedItems.add(item);
-            } catch (TicketNotFoundException e) {
-                getPriceFailure = FailureReason.INVALID_REQUEST;
-                log.warn("Catalog Ticket not found: ticketId={}", it.ticketId());
-                break;
-            } catch(CatalogErrorException e) {
-                getPriceFailure = FailureReason.CATALOG_ERROR;
-                log.warn("Catalog error: ticketId={}", it.ticketId());
-                break;
-            } catch(CatalogTimeoutException e) {
-                getPriceFailure = FailureReason.CATALOG_TIMEOUT;
-                log.warn("Catalog timeout: ticketId={}", it.ticketId());
-                break;
-            } catch(Exception e) {
-                getPriceFailure = FailureReason.CATALOG_ERROR;
-                log.warn("Catalog Unknow error: ticketId={}", it.ticketId());
-                break;
-            }
-        }
-
-        if(getPriceFailure != null){
-            releaseAll(reservedIds, "Get ticket price failed");
-
-            order.setStatus(OrderStatus.FAILED);
-            order.setFailureReason(getPriceFailure);
-            saidFailedCurrencyAndTotals(order, req, normalized);
-
-
-            // Add items for audit
-            for(CreateOrderRequest.Item it : normalized){
-                OrderItem item = new OrderItem();
-                item.setTicketId(it.ticketId());
-                item.setQty(it.qty());
-                item.setUnitPrice(BigDecimal.ZERO);
-                order.addItem(item);
-            }
+            TicketResponse ticket = tickets.get(it.ticketId());
 
-            Order savedFailed = orderRepo.save(order);
-            log.info("Order FAILED created: userId={}, idemKey={}, orderId={}, reason={}",
-                    userId, idemKey, savedFailed.getId(), getPriceFailure);
+            // Create OrderItem
+            OrderItem item = new OrderItem();
+            item.setTicketId((it.ticketId()));
+            item.setQty(it.qty());
+            item.setUnitPrice(ticket.getPrice());
 
-            markIdemCompleted(userId, idemKey, savedFailed.getId());
-            log.info("Idem marked COMPLETED (FAILED): userId={}, idemKey={}, orderId={}", userId, idemKey, savedFailed.getId());
+            BigDecimal lineAmount = ticket.getPrice().multiply(BigDecimal.valueOf(it.qty()));
+            totalAmount = totalAmount.add(lineAmount);
 
-            return new CreateResult(toResponse(savedFailed), true);
+            pricedItems.add(item);
         }
 
         order.setTotalAmount(totalAmount);
         order.setStatus(OrderStatus.PENDING);
         pricedItems.forEach(order::addItem);
 
-        Order saved = orderRepo.save(order);
-        log.info("Order PENDING created: userId={}, idemKey={}, orderId={}, items={}",
-                userId, idemKey, saved.getId(), saved.getOrderItems().size());
-
-
-        // 7) Commit all reservations (best effort; fail-fast on first error)
+        // 7) Commit all reservations in one inventory call (per-id outcomes)
         FailureReason commitFailure = null;
 
-        for(String rid : reservedIds) {
-            try{
-                inventoryClient.commit(rid);
-                log.info("Inventory COMMITTED: reservationsId={}", rid);
-            } catch (InventoryTimeoutException e) {
-                commitFailure = FailureReason.INVENTORY_TIMEOUT;
-                log.error("Inventory COMMIT TIMEOUT: reservationId={}", rid, e);
-                break;
-            } catch (InventoryErrorException e) {
-                commitFailure = FailureReason.INVENTORY_ERROR;
-                log.error("Inventory COMMIT ERROR: reservationId={}", rid, e);
-                break;
-            } catch (Exception e) {
-                commitFailure = FailureReason.INVENTORY_ERROR;
-                log.error("Inventory COMMIT UNKNOWN_ERROR: reservationId={}", rid, e);
-                break;
+        try{
+            for (BatchTransitionResult r : inventoryClient.commitAll(reservedIds)) {
+                if (r.error() == null) {
+                    log.info("Inventory COMMITTED: reservationsId={}", r.reservationId());
+                } else {
+                    commitFailure = FailureReason.INVENTORY_ERROR;
+                    log.error("Inventory COMMIT ERROR: reservationId={}, status={}, error={}",
+                            r.reservationId(), r.status(), r.error());
+                }
             }
+        } catch (InventoryTimeoutException e) {
+            commitFailure = FailureReason.INVENTORY_TIMEOUT;
+            log.error("Inventory COMMIT TIMEOUT: reservationIds={}", reservedIds, e);
+        } catch (InventoryErrorException e) {
+            commitFailure = FailureReason.INVENTORY_ERROR;
+            log.error("Inventory COMMIT ERROR: reservationIds={}", reservedIds, e);
+        } catch (Exception e) {
+            commitFailure = FailureReason.INVENTORY_ERROR;
+            log.error("Inventory COMMIT UNKNOWN_ERROR: reservationIds={}", reservedIds, e);
         }
 
         if (commitFailure != null) {
             // Commit 阶段失败：同步版 MVP 处理 = 标记订单 FAILED（不做复杂补偿）
-            saved.setStatus(OrderStatus.FAILED);
-            saved.setFailureReason(commitFailure);
-            Order savedFailed = orderRepo.save(saved);
-
-            markIdemCompleted(userId, idemKey, savedFailed.getId());
+            order.setStatus(OrderStatus.FAILED);
+            order.setFailureReason(commitFailure);
+            Order savedFailed = outcome.complete(order);
+            if (savedFailed == null) {
+                return null;
+            }
             log.info("Idem marked COMPLETED (FAILED_AFTER_COMMIT): userId={}, idemKey={}, orderId={}, reason={}",
                     userId, idemKey, savedFailed.getId(), commitFailure);
 
@@ -271,10 +372,11 @@ public class OrderServiceImpl implements OrderService{
         }
 
         // 8) All commits ok -> CONFIRMED
-        saved.setStatus(OrderStatus.CONFIRMED);
-        Order confirmed = orderRepo.save(saved);
-
-        markIdemCompleted(userId, idemKey, confirmed.getId());
+        order.setStatus(OrderStatus.CONFIRMED);
+        Order confirmed = outcome.complete(order);
+        if (confirmed == null) {
+            return null;
+        }
         log.info("Idem marked COMPLETED (CONFIRMED): userId={}, idemKey={}, orderId={}",
                 userId, idemKey, confirmed.getId());
 
@@ -351,20 +453,106 @@ public class OrderServiceImpl implements OrderService{
 
 
     // ------ Helper ------
+    private Order completedOrder(Long userId, IdempotencyKey existing) {
+        String idemKey = existing.getIdempotencyKey();
+        Long orderId = existing.getOrderId();
+        if(orderId == null) {
+            log.error("Idem anomaly: COMPLETED but orderId is null. userId={}, idemKey={}",
+                    userId, idemKey);
+            // 理论不该发生，保护一下
+            throw new RequestInProgressException();
+        }
+
+        log.info("Idem COMPLETED: userId={}, idemKey={}, orderId={}, -> return existing (200)",
+                userId, idemKey, orderId);
+        return orderRepo.findByIdAndUserId(orderId, userId)
+                .orElseThrow(() -> {
+                    log.error("Idem anomaly: COMPLETED but order not found. userId={}, idemKey={}, orderId={}",
+                            userId, idemKey, orderId);
+                    return new RequestInProgressException();
+                });
+    }
+
+    private FailureReason reserveFailure(Throwable e, String reservationId, Long userId, Long ticketId) {
+        if (e instanceof InsufficientStockException) {
+            log.warn("Inventory INSUFFICIENT_STOCK: reservationId={}, ticketId={}", reservationId, ticketId);
+            return FailureReason.INSUFFICIENT_STOCK;
+        }
+        if (e instanceof PurchaseLimitExceededException) {
+            log.warn("Inventory PER_USER_LIMIT_EXCEEDED: reservationId={}, userId={}, ticketId={}",
+                    reservationId, userId, ticketId);
+            return FailureReason.PER_USER_LIMIT_EXCEEDED;
+        }
+        if (e instanceof InventoryErrorException) {
+            log.warn("Inventory ERROR: reservationId={}, ticketId={}", reservationId, ticketId);
+            return FailureReason.INVENTORY_ERROR;
+        }
+        if (e instanceof InventoryTimeoutException) {
+            log.warn("Inventory TIMEOUT: reservationId={}, ticketId={}", reservationId, ticketId);
+            return FailureReason.INVENTORY_TIMEOUT;
+        }
+        if (e instanceof TicketNotFoundException) {
+            log.warn("Inventory ticket not found: reservationId={}, ticketId={}", reservationId, ticketId);
+            return FailureReason.INVALID_REQUEST;
+        }
+        log.error("Inventory UNKNOWN_ERROR: reservationId={}, ticketId={}", reservationId, ticketId, e);
+        return FailureReason.INVENTORY_ERROR;
+    }
+
+    private FailureReason priceFailure(Throwable e, List<Long> ticketIds) {
+        if (e instanceof TicketNotFoundException) {
+            log.warn("Catalog Ticket not found: ticketIds={}", ticketIds);
+            return FailureReason.INVALID_REQUEST;
+        }
+        if (e instanceof CatalogErrorException) {
+            log.warn("Catalog error: ticketIds={}", ticketIds);
+            return FailureReason.CATALOG_ERROR;
+        }
+        if (e instanceof CatalogTimeoutException) {
+            log.warn("Catalog timeout: ticketIds={}", ticketIds);
+            return FailureReason.CATALOG_TIMEOUT;
+        }
+        log.warn("Catalog Unknow error: ticketIds={}", ticketIds, e);
+        return FailureReason.CATALOG_ERROR;
+    }
+
+    private static boolean succeeded(CompletableFuture<?> call) {
+        return call.isDone() && !call.isCompletedExceptionally();
+    }
+
+    /**
+     * @return the key whose call failed with failure, null if it is not one of these calls
+     */
+    private static <T> Long failedKey(Map<Long, CompletableFuture<T>> calls, Throwable failure) {
+        for (Map.Entry<Long, CompletableFuture<T>> e : calls.entrySet()) {
+            CompletableFuture<T> call = e.getValue();
+            if (call.isCompletedExceptionally() && !call.isCancelled()
+                    && call.handle((v, ex) -> ex).join() == failure) {
+                return e.getKey();
+            }
+        }
+        return null;
+    }
+
     private void releaseAll(List<String> reservedIds, String reasonTag) {
         if(reservedIds == null || reservedIds.isEmpty()){
             log.info("ReleaseAll skipped: no reservations. reason={}", reasonTag);
             return;
         }
 
-        for(String rid : reservedIds) {
-            try {
-                inventoryClient.release(rid);
-                log.info("Inventory RELEASED: reservationId={}, reason={}", rid, reasonTag);
-            } catch (Exception e) {
-                log.error("Inventory RELEASE FAILED: reservationId={}, reason={}, error={}",
-                        rid, reasonTag, e.getMessage(), e);
+        // one inventory call; holds that stay behind are released by inventory's expiry
+        try {
+            for (BatchTransitionResult r : inventoryClient.releaseAll(reservedIds)) {
+                if (r.error() == null) {
+                    log.info("Inventory RELEASED: reservationId={}, reason={}", r.reservationId(), reasonTag);
+                } else {
+                    log.error("Inventory RELEASE FAILED: reservationId={}, reason={}, error={}",
+                            r.reservationId(), reasonTag, r.error());
+                }
             }
+        } catch (Exception e) {
+            log.error("Inventory RELEASE FAILED: reservationIds={}, reason={}, error={}",
+                    reservedIds, reasonTag, e.getMessage(), e);
         }
     }
 
@@ -412,6 +600,21 @@ public class OrderServiceImpl implements OrderService{
         jdbcTemplate.update(sql, orderId, userId, idemKey);
     }
 
+    /**
+     * @return false if the key is not IN_PROGRESS under this claim any more
+     */
+    private boolean markIdemCompleted(Long userId, String idemKey, Long orderId, String claim) {
+        return jdbcTemplate.update("""
+                UPDATE idempotency_keys
+                SET status = 'COMPLETED',
+                    order_id = ?,
+                    claim_token = NULL,
+                    claimed_until = NULL
+                WHERE user_id = ? AND idempotency_key = ?
+                    AND status = 'IN_PROGRESS' AND claim_token = ?
+                """, orderId, userId, idemKey, claim) == 1;
+    }
+
     /**
      * Optional helper: keep currency + totals consistent for failed orders.
      * You can also inline this.
@@ -0,0 +1,5 @@
+-- async orders: the worker attempt running the saga of an IN_PROGRESS key and until when,
+-- so a redelivered command does not run the same saga concurrently
+ALTER TABLE idempotency_keys
+    ADD COLUMN claim_token VARCHAR(36) NULL,
+    ADD COLUMN claimed_until DATETIME(3) NULL;
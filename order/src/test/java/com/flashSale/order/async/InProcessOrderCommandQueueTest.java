@@ -0,0 +1,97 @@
+package com.flashSale.order.async;
+
+import com.flashSale.order.dto.CreateOrderRequest;
+import com.flashSale.order.exception.OrderQueueUnavailableException;
+import com.flashSale.order.service.OrderService;
+import com.flashSale.order.service.OrderServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class InProcessOrderCommandQueueTest {
+
+    private static final CreateOrderRequest ORDER =
+            new CreateOrderRequest(List.of(new CreateOrderRequest.Item(7L, 1)), "USD");
+
+    private final OrderService orderService = mock(OrderService.class);
+    private InProcessOrderCommandQueue queue;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (queue != null) {
+            queue.stop();
+        }
+    }
+
+    @Test
+    void acceptedOrderIsProcessedByAWorker() throws Exception {
+        CountDownLatch processed = new CountDownLatch(1);
+        doAnswer(inv -> {
+            processed.countDown();
+            return null;
+        }).when(orderService).processOrder(eq(1L), eq("idem-1"), any());
+        when(orderService.acceptOrder(1L, "idem-1", ORDER)).thenReturn(new OrderServiceImpl.AcceptResult(null, true));
+        queue = start(1, 10);
+
+        new AsyncOrderSubmitter(orderService, queue).submit(1L, "idem-1", ORDER);
+
+        assertTrue(processed.await(5, TimeUnit.SECONDS));
+        verify(orderService, never()).abandonOrder(anyLong(), anyString());
+    }
+
+    @Test
+    void fullQueueGivesTheKeyBack() throws Exception {
+        CountDownLatch workerBusy = new CountDownLatch(1);
+        CountDownLatch unblock = new CountDownLatch(1);
+        doAnswer(inv -> {
+            workerBusy.countDown();
+            unblock.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(orderService).processOrder(anyLong(), anyString(), any());
+        when(orderService.acceptOrder(anyLong(), anyString(), any())).thenReturn(new OrderServiceImpl.AcceptResult(null, true));
+        queue = start(1, 1);
+        AsyncOrderSubmitter submitter = new AsyncOrderSubmitter(orderService, queue);
+
+        // the worker holds the first command, the second fills the queue
+        submitter.submit(1L, "idem-1", ORDER);
+        assertTrue(workerBusy.await(5, TimeUnit.SECONDS));
+        submitter.submit(1L, "idem-2", ORDER);
+
+        OrderQueueUnavailableException full = assertThrows(OrderQueueUnavailableException.class,
+                () -> submitter.submit(1L, "idem-3", ORDER));
+        assertEquals("ORDER_QUEUE_FULL", full.getCode());
+        verify(orderService).abandonOrder(1L, "idem-3");
+        unblock.countDown();
+    }
+
+    @Test
+    void failingSagaIsRetriedThenAbandoned() throws Exception {
+        CountDownLatch abandoned = new CountDownLatch(1);
+        doThrow(new IllegalStateException("db down"))
+                .when(orderService).processOrder(anyLong(), anyString(), any());
+        doAnswer(inv -> {
+            abandoned.countDown();
+            return null;
+        }).when(orderService).abandonOrder(1L, "idem-1");
+        queue = start(1, 10);
+
+        queue.publish(new OrderCommand(1L, "idem-1", ORDER));
+
+        assertTrue(abandoned.await(5, TimeUnit.SECONDS));
+        verify(orderService, times(3)).processOrder(1L, "idem-1", ORDER);
+    }
+
+    private InProcessOrderCommandQueue start(int workers, int capacity) {
+        OrderCommandHandler handler = new OrderCommandHandler(orderService, 3, 1);
+        InProcessOrderCommandQueue q = new InProcessOrderCommandQueue(handler, workers, capacity);
+        q.start();
+        return q;
+    }
+}
@@ -0,0 +1,81 @@
+package com.flashSale.order.client;
+
+import com.flashSale.order.client.catalog.CatalogClientImpl;
+import com.flashSale.order.client.inventory.InventoryClientImpl;
+import com.flashSale.order.exception.CatalogTimeoutException;
+import com.flashSale.order.exception.InventoryTimeoutException;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HttpClientConfigTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final HttpClientConfig config = new HttpClientConfig(meterRegistry, false, 500, 30_000);
+    private HttpServer slow;
+    private String baseUrl;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        // answers after 2s, well past the clients' response timeout
+        slow = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        slow.setExecutor(Executors.newCachedThreadPool());
+        slow.createContext("/", exchange -> {
+            try {
+                Thread.sleep(2000);
+                byte[] body = "[]".getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+                exchange.sendResponseHeaders(200, body.length);
+                exchange.getResponseBody().write(body);
+            } catch (Exception ignored) {
+            } finally {
+                exchange.close();
+            }
+        });
+        slow.start();
+        baseUrl = "http://127.0.0.1:" + slow.getAddress().getPort();
+    }
+
+    @AfterEach
+    void tearDown() {
+        slow.stop(0);
+        config.close();
+    }
+
+    @Test
+    void slowInventoryFailsAsInventoryTimeout() {
+        InventoryClientImpl inventory =
+                new InventoryClientImpl(config.restClient("inventory", baseUrl, 500, 200, 10, 20));
+
+        long start = System.nanoTime();
+        assertThrows(InventoryTimeoutException.class, () -> inventory.reserve("r-1", 1L, 1, 1L));
+        assertTrue((System.nanoTime() - start) / 1_000_000 < 1500, "call was not bounded by timeout-ms");
+    }
+
+    @Test
+    void slowCatalogFailsAsCatalogTimeout() {
+        CatalogClientImpl catalog =
+                new CatalogClientImpl(config.restClient("catalog", baseUrl, 500, 200, 10, 20));
+
+        assertThrows(CatalogTimeoutException.class, () -> catalog.getTickets(List.of(1L, 2L)));
+    }
+
+    @Test
+    void poolIsExportedPerDownstream() {
+        config.restClient("inventory", baseUrl, 500, 200, 10, 20);
+
+        assertEquals(20.0, meterRegistry.get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "inventory").gauge().value());
+        assertEquals(10.0, meterRegistry.get("httpcomponents.httpclient.pool.route.max.default")
+                .tag("httpclient", "inventory").gauge().value());
+    }
+}
@@ -0,0 +1,75 @@
+package com.flashSale.order.client.catalog;
+
+import com.flashSale.order.dto.TicketResponse;
+import com.flashSale.order.exception.TicketNotFoundException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class CachingCatalogClientTest {
+
+    private final CatalogClientImpl catalog = mock(CatalogClientImpl.class);
+    private final CachingCatalogClient client =
+            new CachingCatalogClient(catalog, new SimpleMeterRegistry(), 100, 60_000, 60_000);
+
+    @AfterEach
+    void tearDown() {
+        client.shutdown();
+    }
+
+    @Test
+    void repeatedCartIsServedLocallyAndOnlyMissesAreFetched() {
+        when(catalog.getTickets(anyCollection())).thenAnswer(inv -> tickets(inv.getArgument(0), "10.00"));
+
+        client.getTickets(List.of(1L, 2L));
+        Map<Long, TicketResponse> cart = client.getTickets(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L, 3L), cart.keySet());
+        verify(catalog).getTickets(Set.of(1L, 2L));
+        verify(catalog).getTickets(Set.of(3L));
+        verifyNoMoreInteractions(catalog);
+    }
+
+    @Test
+    void changeNotificationReloadsTheTicket() {
+        when(catalog.getTickets(anyCollection()))
+                .thenAnswer(inv -> tickets(inv.getArgument(0), "10.00"))
+                .thenAnswer(inv -> tickets(inv.getArgument(0), "12.50"));
+        client.getTickets(List.of(1L));
+
+        client.invalidate(1L);
+
+        assertEquals(new BigDecimal("12.50"), client.getTickets(List.of(1L)).get(1L).getPrice());
+    }
+
+    @Test
+    void unknownTicketIsNotCached() {
+        when(catalog.getTickets(anyCollection())).thenThrow(new TicketNotFoundException("Ticket not found: 9"));
+
+        assertThrows(TicketNotFoundException.class, () -> client.getTickets(List.of(9L)));
+        assertThrows(TicketNotFoundException.class, () -> client.getTickets(List.of(9L)));
+        verify(catalog, times(2)).getTickets(anyCollection());
+    }
+
+    private static Map<Long, TicketResponse> tickets(Collection<Long> ids, String price) {
+        Map<Long, TicketResponse> byId = new HashMap<>();
+        for (Long id : ids) {
+            TicketResponse t = new TicketResponse();
+            t.setId(id);
+            t.setPrice(new BigDecimal(price));
+            byId.put(id, t);
+        }
+        return byId;
+    }
+}
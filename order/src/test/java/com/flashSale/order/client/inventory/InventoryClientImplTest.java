@@ -0,0 +1,88 @@
+package com.flashSale.order.client.inventory;
+
+import com.flashSale.order.dto.BatchTransitionResult;
+import com.flashSale.order.exception.InventoryErrorException;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClient;
+
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InventoryClientImplTest {
+
+    private HttpServer inventory;
+    private InventoryClientImpl client;
+    private final AtomicReference<String> path = new AtomicReference<>();
+    private final AtomicReference<String> requestBody = new AtomicReference<>();
+    private final AtomicInteger status = new AtomicInteger(200);
+    private final AtomicReference<String> responseBody = new AtomicReference<>("{\"results\":[]}");
+
+    @BeforeEach
+    void setUp() throws Exception {
+        inventory = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        inventory.createContext("/", exchange -> {
+            path.set(exchange.getRequestURI().getPath());
+            requestBody.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            byte[] body = responseBody.get().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status.get(), body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        inventory.start();
+        client = new InventoryClientImpl(RestClient.builder()
+                .baseUrl("http://127.0.0.1:" + inventory.getAddress().getPort())
+                .build());
+    }
+
+    @AfterEach
+    void tearDown() {
+        inventory.stop(0);
+    }
+
+    @Test
+    void commitAllSendsOneCallAndKeepsPerIdFailures() {
+        responseBody.set("""
+                {"results":[
+                    {"reservationId":"o-1:1","ticketId":1,"qty":2,"status":"COMMITTED","error":null},
+                    {"reservationId":"o-1:2","ticketId":null,"qty":null,"status":null,"error":"NOT_FOUND"}
+                ]}""");
+
+        List<BatchTransitionResult> results = client.commitAll(List.of("o-1:1", "o-1:2"));
+
+        assertEquals("/inventory/reservations:commit", path.get());
+        assertEquals("{\"reservationIds\":[\"o-1:1\",\"o-1:2\"]}", requestBody.get());
+        assertEquals(List.of(
+                new BatchTransitionResult("o-1:1", 1L, 2, "COMMITTED", null),
+                new BatchTransitionResult("o-1:2", null, null, null, "NOT_FOUND")), results);
+    }
+
+    @Test
+    void releaseAllPostsToTheReleaseEndpoint() {
+        responseBody.set("""
+                {"results":[{"reservationId":"o-2:1","ticketId":3,"qty":1,"status":"RELEASED","error":null}]}""");
+
+        List<BatchTransitionResult> results = client.releaseAll(List.of("o-2:1"));
+
+        assertEquals("/inventory/reservations:release", path.get());
+        assertEquals("RELEASED", results.get(0).status());
+    }
+
+    @Test
+    void errorStatusFailsTheWholeBatch() {
+        status.set(503);
+        responseBody.set("{}");
+
+        InventoryErrorException e = assertThrows(InventoryErrorException.class,
+                () -> client.commitAll(List.of("o-3:1")));
+        assertEquals("INVENTORY_5XX_503", e.getMessage());
+    }
+}
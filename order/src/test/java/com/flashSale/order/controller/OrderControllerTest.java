@@ -0,0 +1,65 @@
+package com.flashSale.order.controller;
+
+import com.flashSale.order.async.AsyncOrderSubmitter;
+import com.flashSale.order.service.OrderService;
+import com.flashSale.order.service.OrderServiceImpl;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class OrderControllerTest {
+
+    private final OrderService orderService = mock(OrderService.class);
+    private final AsyncOrderSubmitter asyncOrders = mock(AsyncOrderSubmitter.class);
+    private final MockMvc mvc = MockMvcBuilders
+            .standaloneSetup(new OrderController(orderService, asyncOrders))
+            .build();
+
+    @Test
+    void respondAsyncAmongOtherPreferencesIsAccepted() throws Exception {
+        when(asyncOrders.submit(eq(1L), eq("idem-1"), any())).thenReturn(new OrderServiceImpl.AcceptResult(null, true));
+
+        mvc.perform(createOrder().header("Prefer", "wait=5, RESPOND-ASYNC; x=1"))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string("Preference-Applied", "respond-async"));
+
+        verify(orderService, never()).createOrder(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void withoutRespondAsyncTheOrderIsCreatedInline() throws Exception {
+        when(orderService.createOrder(eq(1L), eq("idem-1"), any())).thenReturn(new OrderServiceImpl.CreateResult(null, true));
+
+        mvc.perform(createOrder().header("Prefer", "return=minimal"))
+                .andExpect(status().isCreated());
+
+        verify(asyncOrders, never()).submit(anyLong(), anyString(), any());
+    }
+
+    @Test
+    void preferTokensAreParsed() {
+        assertTrue(OrderController.prefersAsync(List.of("respond-async")));
+        assertTrue(OrderController.prefersAsync(List.of("return=minimal", " Respond-Async ")));
+        assertFalse(OrderController.prefersAsync(null));
+        assertFalse(OrderController.prefersAsync(List.of("respond-asyncx, wait=respond-async")));
+    }
+
+    private static MockHttpServletRequestBuilder createOrder() {
+        return post("/orders")
+                .header("Idempotency-Key", "idem-1")
+                .header("X-User-Id", 1L)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"items\":[{\"ticketId\":7,\"qty\":1}],\"currency\":\"USD\"}");
+    }
+}
@@ -0,0 +1,251 @@
+package com.flashSale.order.service;
+
+import com.flashSale.order.client.catalog.CatalogClient;
+import com.flashSale.order.client.inventory.InventoryClient;
+import com.flashSale.order.domain.IdempotencyKey;
+import com.flashSale.order.domain.IdempotencyStatus;
+import com.flashSale.order.domain.Order;
+import com.flashSale.order.domain.OrderStatus;
+import com.flashSale.order.dto.BatchTransitionResult;
+import com.flashSale.order.dto.CreateOrderRequest;
+import com.flashSale.order.dto.ReservationResponse;
+import com.flashSale.order.dto.TicketResponse;
+import com.flashSale.order.exception.InsufficientStockException;
+import com.flashSale.order.exception.OrderClaimedException;
+import com.flashSale.order.repository.IdempotencyKeyRepository;
+import com.flashSale.order.repository.OrderRepository;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class OrderServiceImplTest {
+
+    private static final long CALL_MS = 200;
+
+    private final OrderRepository orderRepo = mock(OrderRepository.class);
+    private final InventoryClient inventoryClient = mock(InventoryClient.class);
+    private final CatalogClient catalogClient = mock(CatalogClient.class);
+    private final IdempotencyKeyRepository idemRepo = mock(IdempotencyKeyRepository.class);
+    private final FanOutExecutor fanOut = new FanOutExecutor(false, 16, 100);
+    private final AtomicLong orderIds = new AtomicLong();
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbc;
+    private OrderServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:orders-" + System.nanoTime() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("""
+                CREATE TABLE idempotency_keys (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    user_id BIGINT NOT NULL,
+                    idempotency_key VARCHAR(128) NOT NULL,
+                    status VARCHAR(16) NOT NULL DEFAULT 'IN_PROGRESS',
+                    order_id BIGINT NULL,
+                    claim_token VARCHAR(36) NULL,
+                    claimed_until DATETIME(3) NULL,
+                    UNIQUE (user_id, idempotency_key)
+                )""");
+
+        service = new OrderServiceImpl(orderRepo, idemRepo, jdbc, inventoryClient, catalogClient, fanOut,
+                new TransactionTemplate(new DataSourceTransactionManager(dataSource)));
+    }
+
+    @AfterEach
+    void tearDown() {
+        fanOut.shutdown();
+        dataSource.close();
+    }
+
+    @Test
+    void fiveItemOrderTakesAboutOneRoundTrip() {
+        when(orderRepo.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryClient.reserve(anyString(), anyLong(), anyInt(), any())).thenAnswer(inv -> {
+            Thread.sleep(CALL_MS);
+            return new ReservationResponse(inv.getArgument(0), "RESERVED", inv.getArgument(1), inv.getArgument(2));
+        });
+        when(catalogClient.getTickets(anyCollection())).thenAnswer(inv -> {
+            Thread.sleep(CALL_MS);
+            return tickets(inv.getArgument(0), "10.00");
+        });
+        when(inventoryClient.commitAll(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+                .map(id -> new BatchTransitionResult(id, null, 1, "COMMITTED", null))
+                .toList());
+
+        long start = System.nanoTime();
+        OrderServiceImpl.CreateResult result = service.createOrder(1L, "idem-1", order(5));
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("CONFIRMED", result.response().status());
+        assertEquals(0, new BigDecimal("50.00").compareTo(result.response().totalAmount()));
+        // sequential: 10 calls = 2000ms
+        assertTrue(elapsedMs < CALL_MS * 3, "createOrder took " + elapsedMs + "ms");
+        // the whole cart is priced in one catalog call
+        verify(catalogClient).getTickets(List.of(1L, 2L, 3L, 4L, 5L));
+        verify(catalogClient, never()).getTicket(anyLong());
+    }
+
+    @Test
+    void firstFailureReleasesWhatWasReserved() {
+        when(orderRepo.save(any(Order.class))).thenAnswer(inv -> inv.getArgument(0));
+        when(inventoryClient.reserve(anyString(), anyLong(), anyInt(), any())).thenAnswer(inv -> {
+            if ((Long) inv.getArgument(1) == 5L) {
+                // the other reserves are on the wire by now
+                Thread.sleep(20);
+                throw new InsufficientStockException("INSUFFICIENT_STOCK");
+            }
+            Thread.sleep(50);
+            return new ReservationResponse(inv.getArgument(0), "RESERVED", inv.getArgument(1), inv.getArgument(2));
+        });
+        when(catalogClient.getTickets(anyCollection())).thenAnswer(inv -> tickets(inv.getArgument(0), "10.00"));
+        when(inventoryClient.releaseAll(anyList())).thenReturn(List.of());
+
+        OrderServiceImpl.CreateResult result = service.createOrder(1L, "idem-2", order(5));
+
+        assertEquals("FAILED", result.response().status());
+        assertEquals("INSUFFICIENT_STOCK", result.response().failureReason());
+        verify(inventoryClient, never()).commitAll(anyList());
+        verify(inventoryClient).releaseAll(argThat(ids -> ids.size() == 4 && !ids.contains("idem-2:5")));
+    }
+
+    @Test
+    void acceptRecordsTheKeyOnce() {
+        assertTrue(service.acceptOrder(1L, "idem-3", order(1)).accepted());
+        assertEquals("IN_PROGRESS", idemStatus("idem-3"));
+
+        IdempotencyKey existing = new IdempotencyKey();
+        existing.setStatus(IdempotencyStatus.IN_PROGRESS);
+        when(idemRepo.findByUserIdAndIdempotencyKey(1L, "idem-3")).thenReturn(Optional.of(existing));
+
+        // resubmitted before a worker finished: nothing to publish again
+        OrderServiceImpl.AcceptResult again = service.acceptOrder(1L, "idem-3", order(1));
+        assertFalse(again.accepted());
+        assertNull(again.existing());
+    }
+
+    @Test
+    void processedOrderCompletesTheKeyAndARedeliveryIsSkipped() {
+        stubHappySaga();
+        service.acceptOrder(1L, "idem-4", order(2));
+
+        service.processOrder(1L, "idem-4", order(2));
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        verify(orderRepo).save(saved.capture());
+        assertEquals(OrderStatus.CONFIRMED, saved.getValue().getStatus());
+        Map<String, Object> key = idemRow("idem-4");
+        assertEquals("COMPLETED", key.get("status"));
+        assertEquals(saved.getValue().getId(), ((Number) key.get("order_id")).longValue());
+        assertNull(key.get("claim_token"));
+
+        // redelivered command: the saga does not run again
+        service.processOrder(1L, "idem-4", order(2));
+        verify(inventoryClient, times(2)).reserve(anyString(), anyLong(), anyInt(), any());
+        verify(inventoryClient, times(1)).commitAll(anyList());
+        verify(orderRepo, times(1)).save(any(Order.class));
+    }
+
+    @Test
+    void keyClaimedByAnotherAttemptIsNotProcessed() {
+        service.acceptOrder(1L, "idem-5", order(1));
+        claimFor("idem-5", Duration.ofSeconds(10));
+
+        OrderClaimedException e = assertThrows(OrderClaimedException.class,
+                () -> service.processOrder(1L, "idem-5", order(1)));
+        assertTrue(e.getRetryAfter().toMillis() > 0);
+        verifyNoInteractions(inventoryClient, catalogClient);
+    }
+
+    @Test
+    void failedOutcomeGivesTheClaimBack() {
+        stubHappySaga();
+        when(orderRepo.save(any(Order.class))).thenThrow(new IllegalStateException("db down"));
+        service.acceptOrder(1L, "idem-6", order(1));
+
+        assertThrows(IllegalStateException.class, () -> service.processOrder(1L, "idem-6", order(1)));
+
+        Map<String, Object> key = idemRow("idem-6");
+        assertEquals("IN_PROGRESS", key.get("status"));
+        // the next attempt can claim it at once
+        assertNull(key.get("claimed_until"));
+    }
+
+    @Test
+    void abandonDropsOnlyAnUnclaimedKey() {
+        service.acceptOrder(1L, "idem-7", order(1));
+        service.acceptOrder(1L, "idem-8", order(1));
+        claimFor("idem-8", Duration.ofSeconds(10));
+
+        service.abandonOrder(1L, "idem-7");
+        service.abandonOrder(1L, "idem-8");
+
+        assertNull(idemStatus("idem-7"));
+        assertEquals("IN_PROGRESS", idemStatus("idem-8"));
+    }
+
+    private void stubHappySaga() {
+        when(orderRepo.save(any(Order.class))).thenAnswer(inv -> {
+            Order order = inv.getArgument(0);
+            order.setId(orderIds.incrementAndGet());
+            return order;
+        });
+        when(inventoryClient.reserve(anyString(), anyLong(), anyInt(), any())).thenAnswer(inv ->
+                new ReservationResponse(inv.getArgument(0), "RESERVED", inv.getArgument(1), inv.getArgument(2)));
+        when(catalogClient.getTickets(anyCollection())).thenAnswer(inv -> tickets(inv.getArgument(0), "10.00"));
+        when(inventoryClient.commitAll(anyList())).thenAnswer(inv -> inv.<List<String>>getArgument(0).stream()
+                .map(id -> new BatchTransitionResult(id, null, 1, "COMMITTED", null))
+                .toList());
+    }
+
+    private void claimFor(String idemKey, Duration lease) {
+        jdbc.update("UPDATE idempotency_keys SET claim_token = 'other', claimed_until = ? WHERE idempotency_key = ?",
+                Timestamp.from(Instant.now().plus(lease)), idemKey);
+    }
+
+    private String idemStatus(String idemKey) {
+        List<String> status = jdbc.queryForList(
+                "SELECT status FROM idempotency_keys WHERE user_id = 1 AND idempotency_key = ?", String.class, idemKey);
+        return status.isEmpty() ? null : status.get(0);
+    }
+
+    private Map<String, Object> idemRow(String idemKey) {
+        return jdbc.queryForMap("SELECT * FROM idempotency_keys WHERE user_id = 1 AND idempotency_key = ?", idemKey);
+    }
+
+    private static CreateOrderRequest order(int items) {
+        return new CreateOrderRequest(LongStream.rangeClosed(1, items)
+                .mapToObj(id -> new CreateOrderRequest.Item(id, 1))
+                .toList(), "USD");
+    }
+
+    private static Map<Long, TicketResponse> tickets(Collection<Long> ids, String price) {
+        Map<Long, TicketResponse> byId = new HashMap<>();
+        for (Long id : ids) {
+            TicketResponse t = new TicketResponse();
+            t.setId(id);
+            t.setPrice(new BigDecimal(price));
+            byId.put(id, t);
+        }
+        return byId;
+    }
+}